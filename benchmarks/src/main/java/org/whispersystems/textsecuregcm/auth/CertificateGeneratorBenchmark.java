@@ -0,0 +1,82 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import com.google.protobuf.ByteString;
+import java.security.InvalidKeyException;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.signal.libsignal.protocol.ecc.ECKeyPair;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.Device;
+
+/**
+ * Measures the cost of generating a signed sender certificate, which happens on every request for a delivery
+ * certificate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CertificateGeneratorBenchmark {
+
+  @Param({"true", "false"})
+  public boolean includeE164;
+
+  private CertificateGenerator certificateGenerator;
+  private Account account;
+  private Device device;
+
+  @Setup
+  public void setUp() throws Exception {
+    final ECKeyPair serverKeyPair = Curve.generateKeyPair();
+    final ECKeyPair rootKeyPair = Curve.generateKeyPair();
+
+    final byte[] serverCertificate = MessageProtos.ServerCertificate.Certificate.newBuilder()
+        .setId(1)
+        .setKey(ByteString.copyFrom(serverKeyPair.getPublicKey().serialize()))
+        .build()
+        .toByteArray();
+
+    final byte[] signedServerCertificate = MessageProtos.ServerCertificate.newBuilder()
+        .setCertificate(ByteString.copyFrom(serverCertificate))
+        .setSignature(ByteString.copyFrom(Curve.calculateSignature(rootKeyPair.getPrivateKey(), serverCertificate)))
+        .build()
+        .toByteArray();
+
+    certificateGenerator = new CertificateGenerator(signedServerCertificate, serverKeyPair.getPrivateKey(), 1);
+
+    device = new Device();
+    device.setId(Device.PRIMARY_ID);
+
+    account = new Account();
+    account.setUuid(UUID.randomUUID());
+    account.setNumber("+18005551234", UUID.randomUUID());
+    account.setIdentityKey(new IdentityKey(Curve.generateKeyPair().getPublicKey()));
+    account.addDevice(device);
+  }
+
+  @Benchmark
+  public byte[] createFor() throws InvalidKeyException {
+    return certificateGenerator.createFor(account, device, includeE164);
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.signal.libsignal.protocol.ServiceId;
+import org.signal.libsignal.zkgroup.GenericServerSecretParams;
+import org.signal.libsignal.zkgroup.ServerSecretParams;
+import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
+
+/**
+ * Measures the latency of issuing a full (eight-day) range of group and call link auth credentials, as happens on each
+ * request for group credentials, both for an account whose credentials have already been issued and cached and for
+ * an account whose credentials must all be issued from scratch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupCredentialIssuerBenchmark {
+
+  @Param({"true", "false"})
+  public boolean cached;
+
+  private ExecutorService executor;
+  private GroupCredentialIssuer groupCredentialIssuer;
+  private List<Instant> redemptions;
+
+  private final ServiceId.Aci cachedAci = new ServiceId.Aci(UUID.randomUUID());
+  private final ServiceId.Pni cachedPni = new ServiceId.Pni(UUID.randomUUID());
+
+  @Setup
+  public void setUp() {
+    executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+
+    groupCredentialIssuer = new GroupCredentialIssuer(new ServerZkAuthOperations(ServerSecretParams.generate()),
+        GenericServerSecretParams.generate(), executor);
+
+    final Instant startOfDay = Instant.now().truncatedTo(ChronoUnit.DAYS);
+
+    redemptions = IntStream.rangeClosed(0, 7)
+        .mapToObj(day -> startOfDay.plus(Duration.ofDays(day)))
+        .toList();
+  }
+
+  @TearDown
+  public void tearDown() {
+    executor.shutdown();
+  }
+
+  @Benchmark
+  public List<GroupCredentialIssuer.IssuedCredentials> issueCredentials() {
+    final ServiceId.Aci aci = cached ? cachedAci : new ServiceId.Aci(UUID.randomUUID());
+    final ServiceId.Pni pni = cached ? cachedPni : new ServiceId.Pni(UUID.randomUUID());
+
+    return groupCredentialIssuer.issueCredentials(aci, pni, redemptions, true).join();
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of verifying a device's credentials, which happens on every authenticated request.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SaltedTokenHashBenchmark {
+
+  private static final String TOKEN = "a-reasonably-long-device-password";
+
+  @Param({"V1", "V2"})
+  public SaltedTokenHash.Version version;
+
+  private SaltedTokenHash saltedTokenHash;
+
+  @Setup
+  public void setUp() throws NoSuchAlgorithmException {
+    saltedTokenHash = switch (version) {
+      case V1 -> {
+        final String salt = "0123456789abcdef";
+        final byte[] hash = MessageDigest.getInstance("SHA1").digest((salt + TOKEN).getBytes(StandardCharsets.UTF_8));
+
+        yield new SaltedTokenHash(HexFormat.of().formatHex(hash), salt);
+      }
+      case V2 -> SaltedTokenHash.generateFor(TOKEN);
+    };
+
+    if (!saltedTokenHash.verify(TOKEN)) {
+      throw new IllegalStateException("Token hash did not verify");
+    }
+  }
+
+  @Benchmark
+  public boolean verify() {
+    return saltedTokenHash.verify(TOKEN);
+  }
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.backup;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reactivestreams.FlowAdapters;
+import reactor.core.publisher.Flux;
+
+/**
+ * Measures the throughput of streaming encryption for media copied into backups. Source bodies are delivered in
+ * chunks, as they would be from an asynchronous HTTP response body, in either heap or direct buffers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BackupMediaEncrypterBenchmark {
+
+  @Param({"1048576", "16777216"})
+  public int mediaSize;
+
+  @Param({"16384", "65536"})
+  public int chunkSize;
+
+  @Param({"false", "true"})
+  public boolean directBuffers;
+
+  private MediaEncryptionParameters encryptionParameters;
+  private List<ByteBuffer> sourceChunks;
+
+  @Setup
+  public void setUp() {
+    final Random random = new Random(mediaSize);
+
+    encryptionParameters = new MediaEncryptionParameters(
+        randomBytes(random, 32),
+        randomBytes(random, 32),
+        randomBytes(random, 16));
+
+    final byte[] media = randomBytes(random, mediaSize);
+
+    sourceChunks = Flux.range(0, (mediaSize + chunkSize - 1) / chunkSize)
+        .map(i -> {
+          final int offset = i * chunkSize;
+          final int length = Math.min(chunkSize, mediaSize - offset);
+
+          if (directBuffers) {
+            return ByteBuffer.allocateDirect(length).put(media, offset, length).flip();
+          }
+
+          return ByteBuffer.wrap(media, offset, length).slice();
+        })
+        .collectList()
+        .block();
+  }
+
+  @Benchmark
+  public long encryptBody() {
+    final BackupMediaEncrypter encrypter = new BackupMediaEncrypter(encryptionParameters);
+
+    final Flux<List<ByteBuffer>> sourceBody = Flux.fromIterable(sourceChunks)
+        .map(chunk -> List.of(chunk.duplicate()));
+
+    return Flux.from(FlowAdapters.toPublisher(encrypter.encryptBody(FlowAdapters.toFlowPublisher(sourceBody))))
+        .map(ByteBuffer::remaining)
+        .reduce(0L, Long::sum)
+        .block();
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+
+    return bytes;
+  }
+}
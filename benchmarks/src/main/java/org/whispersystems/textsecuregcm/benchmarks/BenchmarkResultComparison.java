@@ -0,0 +1,159 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.benchmarks;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import javax.annotation.Nullable;
+
+/**
+ * Compares two JMH JSON result files (as produced by {@code -rf json}) and writes a plain-text report with one row per
+ * benchmark/parameter combination. A change is only reported as faster or slower if the two results' error intervals
+ * don't overlap; otherwise it's reported as unchanged.
+ * <p>
+ * Usage: {@code BenchmarkResultComparison <baseline.json> <current.json> [report.txt]}
+ */
+public class BenchmarkResultComparison {
+
+  private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+  private static final String ROW_FORMAT = "%-72s %-6s %14s %14s %9s  %-9s %14s %14s%n";
+
+  private record Result(String mode, double score, double scoreError, String scoreUnit, @Nullable Double allocation) {
+  }
+
+  public static void main(final String... args) throws IOException {
+    if (args.length < 2) {
+      System.err.println("Usage: BenchmarkResultComparison <baseline.json> <current.json> [report.txt]");
+      System.exit(1);
+    }
+
+    final Map<String, Result> baseline = readResults(Path.of(args[0]));
+    final Map<String, Result> current = readResults(Path.of(args[1]));
+
+    final String report = buildReport(baseline, current);
+    System.out.print(report);
+
+    if (args.length > 2) {
+      Files.writeString(Path.of(args[2]), report, StandardCharsets.UTF_8);
+    }
+  }
+
+  private static Map<String, Result> readResults(final Path path) throws IOException {
+    final Map<String, Result> results = new LinkedHashMap<>();
+
+    for (final JsonNode benchmark : new ObjectMapper().readTree(path.toFile())) {
+      final JsonNode primaryMetric = benchmark.get("primaryMetric");
+
+      @Nullable final Double allocation = benchmark.path("secondaryMetrics").has(ALLOCATION_METRIC)
+          ? benchmark.path("secondaryMetrics").get(ALLOCATION_METRIC).get("score").asDouble()
+          : null;
+
+      results.put(benchmarkKey(benchmark), new Result(benchmark.get("mode").asText(),
+          primaryMetric.get("score").asDouble(),
+          primaryMetric.get("scoreError").asDouble(Double.NaN),
+          primaryMetric.get("scoreUnit").asText(),
+          allocation));
+    }
+
+    return results;
+  }
+
+  private static String buildReport(final Map<String, Result> baseline, final Map<String, Result> current) {
+    final StringBuilder report = new StringBuilder();
+
+    report.append(String.format(ROW_FORMAT,
+        "Benchmark", "Mode", "Baseline", "Current", "Change", "Verdict", "Alloc before", "Alloc after"));
+
+    for (final Map.Entry<String, Result> entry : current.entrySet()) {
+      @Nullable final Result before = baseline.get(entry.getKey());
+      final Result after = entry.getValue();
+
+      if (before == null || !before.mode().equals(after.mode()) || !before.scoreUnit().equals(after.scoreUnit())) {
+        report.append(String.format(ROW_FORMAT, entry.getKey(), after.mode(), "-", formatScore(after), "-", "new",
+            "-", formatAllocation(after.allocation())));
+
+        continue;
+      }
+
+      report.append(String.format(ROW_FORMAT,
+          entry.getKey(),
+          after.mode(),
+          formatScore(before),
+          formatScore(after),
+          String.format("%+.1f%%", (after.score() - before.score()) / before.score() * 100),
+          verdict(before, after),
+          formatAllocation(before.allocation()),
+          formatAllocation(after.allocation())));
+    }
+
+    for (final String missingKey : baseline.keySet()) {
+      if (!current.containsKey(missingKey)) {
+        final Result before = baseline.get(missingKey);
+
+        report.append(String.format(ROW_FORMAT, missingKey, before.mode(), formatScore(before), "-", "-", "missing",
+            formatAllocation(before.allocation()), "-"));
+      }
+    }
+
+    return report.toString();
+  }
+
+  private static String verdict(final Result before, final Result after) {
+    final double beforeError = Double.isNaN(before.scoreError()) ? 0 : before.scoreError();
+    final double afterError = Double.isNaN(after.scoreError()) ? 0 : after.scoreError();
+
+    final boolean overlaps = after.score() - afterError <= before.score() + beforeError
+        && before.score() - beforeError <= after.score() + afterError;
+
+    if (overlaps) {
+      return "~";
+    }
+
+    // Throughput is the only mode in which a bigger score is better
+    final boolean higherIsBetter = "thrpt".equals(after.mode());
+    final boolean increased = after.score() > before.score();
+
+    return increased == higherIsBetter ? "faster" : "slower";
+  }
+
+  private static String benchmarkKey(final JsonNode benchmark) {
+    final String name = benchmark.get("benchmark").asText();
+
+    if (!benchmark.has("params")) {
+      return name;
+    }
+
+    final Map<String, String> params = new TreeMap<>();
+
+    for (final Iterator<Map.Entry<String, JsonNode>> it = benchmark.get("params").fields(); it.hasNext(); ) {
+      final Map.Entry<String, JsonNode> param = it.next();
+      params.put(param.getKey(), param.getValue().asText());
+    }
+
+    final StringJoiner joiner = new StringJoiner(",", name + "[", "]");
+    params.forEach((key, value) -> joiner.add(key + "=" + value));
+
+    return joiner.toString();
+  }
+
+  private static String formatScore(final Result result) {
+    return String.format("%.3f %s", result.score(), result.scoreUnit());
+  }
+
+  private static String formatAllocation(@Nullable final Double allocation) {
+    return allocation != null ? String.format("%.1f B/op", allocation) : "-";
+  }
+}
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.calls.routing;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures datacenter lookups against randomly-generated routing tables of realistic sizes. Half of the looked-up
+ * addresses fall within a known subnet; the rest are random and will generally fall through to geographic routing.
+ * Subnet-only lookups are measured separately to isolate the cost of the longest-prefix match.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallRoutingTableBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int subnetCount;
+
+  private static final int ADDRESS_COUNT = 4096;
+
+  private static final List<String> DATACENTERS =
+      List.of("dc-us-east", "dc-us-west", "dc-eu-central", "dc-eu-west", "dc-ap-south", "dc-ap-northeast");
+
+  private static final String CONTINENT = "NA";
+  private static final String COUNTRY = "US";
+  private static final Optional<String> SUBDIVISION = Optional.of("NY");
+
+  private CallRoutingTable callRoutingTable;
+  private InetAddress[] ipv4Addresses;
+  private InetAddress[] ipv6Addresses;
+
+  private int index;
+
+  @Setup
+  public void setUp() throws UnknownHostException {
+    final Random random = new Random(subnetCount);
+
+    final Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4Subnets = new HashMap<>();
+    final Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6Subnets = new HashMap<>();
+
+    final List<byte[]> knownIpv4Subnets = new ArrayList<>();
+    final List<byte[]> knownIpv6Subnets = new ArrayList<>();
+
+    while (ipv4Subnets.size() < subnetCount) {
+      final byte[] address = randomBytes(random, 4);
+      knownIpv4Subnets.add(address);
+
+      ipv4Subnets.put(CidrBlock.IpV4CidrBlock.of((Inet4Address) InetAddress.getByAddress(address), 16 + random.nextInt(13)),
+          randomDatacenters(random));
+    }
+
+    while (ipv6Subnets.size() < subnetCount) {
+      final byte[] address = randomBytes(random, 16);
+      knownIpv6Subnets.add(address);
+
+      ipv6Subnets.put(CidrBlock.IpV6CidrBlock.of((Inet6Address) InetAddress.getByAddress(address), 32 + random.nextInt(33)),
+          randomDatacenters(random));
+    }
+
+    final Map<CallRoutingTable.GeoKey, List<String>> geoToDatacenter = new HashMap<>();
+
+    for (final CallRoutingTable.Protocol protocol : CallRoutingTable.Protocol.values()) {
+      geoToDatacenter.put(new CallRoutingTable.GeoKey(CONTINENT, COUNTRY, SUBDIVISION, protocol), randomDatacenters(random));
+      geoToDatacenter.put(new CallRoutingTable.GeoKey(CONTINENT, COUNTRY, Optional.empty(), protocol), randomDatacenters(random));
+    }
+
+    callRoutingTable = new CallRoutingTable(ipv4Subnets, ipv6Subnets, geoToDatacenter);
+
+    ipv4Addresses = new InetAddress[ADDRESS_COUNT];
+    ipv6Addresses = new InetAddress[ADDRESS_COUNT];
+
+    for (int i = 0; i < ADDRESS_COUNT; i++) {
+      ipv4Addresses[i] = InetAddress.getByAddress(i % 2 == 0
+          ? withRandomHostBits(random, knownIpv4Subnets.get(random.nextInt(knownIpv4Subnets.size())), 1)
+          : randomBytes(random, 4));
+
+      ipv6Addresses[i] = InetAddress.getByAddress(i % 2 == 0
+          ? withRandomHostBits(random, knownIpv6Subnets.get(random.nextInt(knownIpv6Subnets.size())), 8)
+          : randomBytes(random, 16));
+    }
+  }
+
+  @Benchmark
+  public List<String> getDatacentersForIpv4() {
+    return callRoutingTable.getDatacentersFor(ipv4Addresses[nextIndex()], CONTINENT, COUNTRY, SUBDIVISION);
+  }
+
+  @Benchmark
+  public List<String> getDatacentersForIpv6() {
+    return callRoutingTable.getDatacentersFor(ipv6Addresses[nextIndex()], CONTINENT, COUNTRY, SUBDIVISION);
+  }
+
+  @Benchmark
+  public List<String> getDatacentersBySubnetIpv4() {
+    return callRoutingTable.getDatacentersBySubnet(ipv4Addresses[nextIndex()]);
+  }
+
+  @Benchmark
+  public List<String> getDatacentersBySubnetIpv6() {
+    return callRoutingTable.getDatacentersBySubnet(ipv6Addresses[nextIndex()]);
+  }
+
+  private int nextIndex() {
+    index = (index + 1) % ADDRESS_COUNT;
+    return index;
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+
+    return bytes;
+  }
+
+  private static byte[] withRandomHostBits(final Random random, final byte[] subnet, final int hostBytes) {
+    final byte[] address = subnet.clone();
+
+    for (int i = address.length - hostBytes; i < address.length; i++) {
+      address[i] = (byte) random.nextInt(256);
+    }
+
+    return address;
+  }
+
+  private static List<String> randomDatacenters(final Random random) {
+    final List<String> datacenters = new ArrayList<>(DATACENTERS);
+    Collections.shuffle(datacenters, random);
+
+    return List.copyOf(datacenters.subList(0, 3));
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.entities;
+
+import com.google.protobuf.ByteString;
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of parsing and re-serializing envelopes as they move through the message cache and out to
+ * clients.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EnvelopeBenchmark {
+
+  @Param({"256", "4096", "65536"})
+  public int contentSize;
+
+  private MessageProtos.Envelope envelope;
+  private byte[] serializedEnvelope;
+
+  @Setup
+  public void setUp() {
+    final byte[] content = new byte[contentSize];
+    new Random(contentSize).nextBytes(content);
+
+    envelope = MessageProtos.Envelope.newBuilder()
+        .setType(MessageProtos.Envelope.Type.CIPHERTEXT)
+        .setSourceUuid(UUID.randomUUID().toString())
+        .setSourceDevice(1)
+        .setDestinationUuid(UUID.randomUUID().toString())
+        .setTimestamp(System.currentTimeMillis())
+        .setServerTimestamp(System.currentTimeMillis())
+        .setServerGuid(UUID.randomUUID().toString())
+        .setContent(ByteString.copyFrom(content))
+        .setUrgent(true)
+        .build();
+
+    serializedEnvelope = envelope.toByteArray();
+  }
+
+  @Benchmark
+  public MessageProtos.Envelope parse() throws InvalidProtocolBufferException {
+    return MessageProtos.Envelope.parseFrom(serializedEnvelope);
+  }
+
+  @Benchmark
+  public byte[] serialize() {
+    return envelope.toByteArray();
+  }
+
+  /**
+   * Mirrors the work done to deliver a cached message over a WebSocket: parse the cached bytes, strip fields the
+   * client shouldn't see, and re-serialize.
+   */
+  @Benchmark
+  public byte[] parseAndReserialize() throws InvalidProtocolBufferException {
+    return MessageProtos.Envelope.parseFrom(serializedEnvelope).toBuilder()
+        .clearEphemeral()
+        .build()
+        .toByteArray();
+  }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.limits;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of building the keys and arguments for a rate limiter's validation script, which happens for
+ * every rate-limited operation before any call to Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StaticRateLimiterBenchmark {
+
+  private static final String NAME = "messages";
+  private static final String KEY = "e34b6f3f-9a7b-4b0b-8c39-32b0b2a7b0a4::1";
+
+  private final RateLimiterConfig config = new RateLimiterConfig(60, Duration.ofSeconds(1));
+
+  @Benchmark
+  public List<String> validateScriptArguments() {
+    return StaticRateLimiter.validateScriptArguments(config, System.currentTimeMillis(), 1, true);
+  }
+
+  @Benchmark
+  public String bucketName() {
+    return StaticRateLimiter.bucketName(NAME, KEY);
+  }
+}
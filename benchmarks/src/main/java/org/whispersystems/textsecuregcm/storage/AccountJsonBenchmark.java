@@ -0,0 +1,106 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.whispersystems.textsecuregcm.auth.SaltedTokenHash;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Measures the cost of serializing accounts to and from the JSON blob stored in the accounts table, which happens on
+ * every account read, update, and crawl.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AccountJsonBenchmark {
+
+  @Param({"1", "3", "6"})
+  public int deviceCount;
+
+  private static final ObjectWriter ACCOUNT_JSON_WRITER = SystemMapper.jsonMapper()
+      .writer(SystemMapper.excludingField(Account.class, Accounts.ACCOUNT_FIELDS_TO_EXCLUDE_FROM_SERIALIZATION));
+
+  private static final ObjectReader ACCOUNT_JSON_READER = SystemMapper.jsonMapper().readerFor(Account.class);
+
+  private Account account;
+  private byte[] serializedAccount;
+
+  @Setup
+  public void setUp() throws IOException {
+    final Random random = new Random(deviceCount);
+
+    account = new Account();
+    account.setUuid(UUID.randomUUID());
+    account.setNumber("+18005551234", UUID.randomUUID());
+    account.setIdentityKey(new IdentityKey(Curve.generateKeyPair().getPublicKey()));
+    account.setPhoneNumberIdentityKey(new IdentityKey(Curve.generateKeyPair().getPublicKey()));
+    account.setUnidentifiedAccessKey(randomBytes(random, 16));
+    account.setUsernameHash(randomBytes(random, 32));
+    account.setRegistrationLock("registration-lock", "salt");
+    account.setDiscoverableByPhoneNumber(true);
+    account.addBadge(Clock.systemUTC(), new AccountBadge("test-badge", Instant.now().plusSeconds(86_400), true));
+
+    for (byte deviceId = Device.PRIMARY_ID; deviceId < Device.PRIMARY_ID + deviceCount; deviceId++) {
+      final Device device = new Device();
+      device.setId(deviceId);
+      device.setName(randomBytes(random, 32));
+      device.setAuthTokenHash(SaltedTokenHash.generateFor("password"));
+      device.setRegistrationId(random.nextInt(16383) + 1);
+      device.setPhoneNumberIdentityRegistrationId(random.nextInt(16383) + 1);
+      device.setCreated(System.currentTimeMillis());
+      device.setLastSeen(System.currentTimeMillis());
+      device.setFetchesMessages(deviceId != Device.PRIMARY_ID);
+      device.setGcmId(deviceId == Device.PRIMARY_ID ? UUID.randomUUID().toString() : null);
+      device.setCapabilities(new Device.DeviceCapabilities(true, true, true));
+      device.setUserAgent("Signal-Android/6.42.1 Android/34");
+
+      account.addDevice(device);
+    }
+
+    serializedAccount = ACCOUNT_JSON_WRITER.writeValueAsBytes(account);
+  }
+
+  @Benchmark
+  public byte[] serialize() throws IOException {
+    return ACCOUNT_JSON_WRITER.writeValueAsBytes(account);
+  }
+
+  @Benchmark
+  public Account deserialize() throws IOException {
+    return ACCOUNT_JSON_READER.readValue(serializedAccount);
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+
+    return bytes;
+  }
+}
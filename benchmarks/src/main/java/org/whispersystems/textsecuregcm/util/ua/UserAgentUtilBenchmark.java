@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util.ua;
+
+import io.micrometer.core.instrument.Tag;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
+
+/**
+ * Compares the cost of parsing a User-Agent string from scratch to the cost of deriving a metrics tag from it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserAgentUtilBenchmark {
+
+  @Param({
+      "Signal-Android/6.42.1 Android/34",
+      "Signal-iOS/6.50.0.12 iOS/17.1",
+      "Signal-Desktop/6.40.0 macOS 14.1.1",
+      "Mozilla/5.0 (X11; Linux x86_64; rv:109.0) Gecko/20100101 Firefox/119.0"
+  })
+  public String userAgent;
+
+  @Benchmark
+  public Object parseUserAgentString() {
+    try {
+      return UserAgentUtil.parseUserAgentString(userAgent);
+    } catch (final UnrecognizedUserAgentException e) {
+      return e;
+    }
+  }
+
+  @Benchmark
+  public Tag getPlatformTag() {
+    return UserAgentTagUtil.getPlatformTag(userAgent);
+  }
+}
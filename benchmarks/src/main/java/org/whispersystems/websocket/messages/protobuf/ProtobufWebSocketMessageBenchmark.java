@@ -0,0 +1,65 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.websocket.messages.protobuf;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.whispersystems.websocket.messages.InvalidMessageException;
+import org.whispersystems.websocket.messages.WebSocketMessage;
+
+/**
+ * Measures the cost of framing a message for delivery over a WebSocket and of parsing the client's response.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProtobufWebSocketMessageBenchmark {
+
+  @Param({"256", "4096", "65536"})
+  public int bodySize;
+
+  private static final List<String> HEADERS = List.of("X-Signal-Key: false", "X-Signal-Timestamp: 1700000000000");
+
+  private final ProtobufWebSocketMessageFactory messageFactory = new ProtobufWebSocketMessageFactory();
+
+  private byte[] body;
+  private byte[] serializedResponse;
+
+  @Setup
+  public void setUp() {
+    body = new byte[bodySize];
+    new Random(bodySize).nextBytes(body);
+
+    serializedResponse = messageFactory.createResponse(17, 200, "OK", List.of(), Optional.empty()).toByteArray();
+  }
+
+  @Benchmark
+  public byte[] createRequest() {
+    return messageFactory.createRequest(Optional.of(17L), "PUT", "/api/v1/message", HEADERS, Optional.of(body))
+        .toByteArray();
+  }
+
+  @Benchmark
+  public WebSocketMessage parseResponse() throws InvalidMessageException {
+    return messageFactory.parseMessage(serializedResponse, 0, serializedResponse.length);
+  }
+}
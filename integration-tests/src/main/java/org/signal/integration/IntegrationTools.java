@@ -39,6 +39,17 @@ public class IntegrationTools {
         config.dynamoDbClientConfiguration(),
         credentialsProvider);
 
+    return create(config, dynamoDbClient, dynamoDbAsyncClient);
+  }
+
+  /**
+   * Creates integration tools that reach the server's tables through the given DynamoDB clients instead of clients
+   * built from {@link Config#dynamoDbClientConfiguration()}.
+   */
+  public static IntegrationTools create(final Config config,
+      final DynamoDbClient dynamoDbClient,
+      final DynamoDbAsyncClient dynamoDbAsyncClient) {
+
     final RegistrationRecoveryPasswords registrationRecoveryPasswords = new RegistrationRecoveryPasswords(
         config.dynamoDbTables().registrationRecovery(), Duration.ofDays(1), dynamoDbClient, dynamoDbAsyncClient);
 
@@ -53,19 +53,46 @@ public final class Operations {
 
   private static final Logger logger = LoggerFactory.getLogger(MethodHandles.lookup().lookupClass());
 
-  private static final Config CONFIG = loadConfigFromClasspath("config.yml");
-
-  private static final IntegrationTools INTEGRATION_TOOLS = IntegrationTools.create(CONFIG);
-
   private static final String USER_AGENT = "integration-test";
 
-  private static final FaultTolerantHttpClient CLIENT = buildClient();
+  private static volatile Target target;
+
+  /**
+   * The server that operations act upon and the means to reach it.
+   */
+  private record Target(Config config, IntegrationTools integrationTools, FaultTolerantHttpClient client) {
+  }
 
 
   private Operations() {
     // utility class
   }
 
+  /**
+   * Directs all subsequent operations at the server described by the given configuration, which is reached directly
+   * through the given integration tools, instead of at the server described by {@code config.yml} on the classpath.
+   */
+  public static void configure(final Config config, final IntegrationTools integrationTools) {
+    target = new Target(config, integrationTools, buildClient(config));
+  }
+
+  public static Config config() {
+    return target().config();
+  }
+
+  private static Target target() {
+    if (target == null) {
+      synchronized (Operations.class) {
+        if (target == null) {
+          final Config config = loadConfigFromClasspath("config.yml");
+          target = new Target(config, IntegrationTools.create(config), buildClient(config));
+        }
+      }
+    }
+
+    return target;
+  }
+
   public static TestUser newRegisteredUser(final String number) {
     final byte[] registrationPassword = randomBytes(32);
     final String accountPassword = Base64.getEncoder().encodeToString(randomBytes(32));
@@ -73,7 +100,7 @@ public final class Operations {
     final TestUser user = TestUser.create(number, accountPassword, registrationPassword);
     final AccountAttributes accountAttributes = user.accountAttributes();
 
-    INTEGRATION_TOOLS.populateRecoveryPassword(number, registrationPassword).join();
+    target().integrationTools().populateRecoveryPassword(number, registrationPassword).join();
 
     final ECKeyPair aciIdentityKeyPair = Curve.generateKeyPair();
     final ECKeyPair pniIdentityKeyPair = Curve.generateKeyPair();
@@ -105,8 +132,8 @@ public final class Operations {
   public record PrescribedVerificationNumber(String number, String verificationCode) {}
   public static PrescribedVerificationNumber prescribedVerificationNumber() {
       return new PrescribedVerificationNumber(
-          CONFIG.prescribedRegistrationNumber(),
-          CONFIG.prescribedRegistrationCode());
+          config().prescribedRegistrationNumber(),
+          config().prescribedRegistrationCode());
   }
 
   public static void deleteUser(final TestUser user) {
@@ -114,7 +141,7 @@ public final class Operations {
   }
 
   public static String peekVerificationSessionPushChallenge(final String sessionId) {
-    return INTEGRATION_TOOLS.peekVerificationSessionPushChallenge(sessionId).join()
+    return target().integrationTools().peekVerificationSessionPushChallenge(sessionId).join()
         .orElseThrow(() -> new RuntimeException("push challenge not found for the verification session"));
   }
 
@@ -131,7 +158,7 @@ public final class Operations {
           .header(HttpHeaders.AUTHORIZATION, HeaderUtils.basicAuthHeader(username, password))
           .header(HttpHeaders.CONTENT_TYPE, "application/json")
           .build();
-      return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+      return target().client().sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
           .whenComplete((response, error) -> {
             if (error != null) {
               logger.error("request error", error);
@@ -186,7 +213,7 @@ public final class Operations {
     final String query = queryParams.isEmpty()
         ? StringUtils.EMPTY
         : "?" + String.join("&", queryParams);
-    return URI.create("https://" + CONFIG.domain() + endpoint + query);
+    return URI.create(config().httpScheme() + "://" + config().domain() + endpoint + query);
   }
 
   public static class RequestBuilder {
@@ -268,7 +295,7 @@ public final class Operations {
     public <T> Pair<Integer, T> execute(final Class<T> expectedType) {
       builder.uri(serverUri(endpoint, queryParams))
           .header(HttpHeaders.USER_AGENT, USER_AGENT);
-      return CLIENT.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+      return target().client().sendAsync(builder.build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
           .whenComplete((response, error) -> {
             if (error != null) {
               logger.error("request error", error);
@@ -289,15 +316,19 @@ public final class Operations {
     }
   }
 
-  private static FaultTolerantHttpClient buildClient() {
+  private static FaultTolerantHttpClient buildClient(final Config config) {
     try {
-      return FaultTolerantHttpClient.newBuilder()
+      final FaultTolerantHttpClient.Builder builder = FaultTolerantHttpClient.newBuilder()
           .withName("integration-test")
           .withExecutor(Executors.newFixedThreadPool(16))
           .withRetryExecutor(Executors.newSingleThreadScheduledExecutor())
-          .withCircuitBreaker(new CircuitBreakerConfiguration())
-          .withTrustedServerCertificates(CONFIG.rootCert())
-          .build();
+          .withCircuitBreaker(new CircuitBreakerConfiguration());
+
+      if (config.rootCert() != null) {
+        builder.withTrustedServerCertificates(config.rootCert());
+      }
+
+      return builder.build();
     } catch (final CertificateException e) {
       throw new RuntimeException(e);
     }
@@ -13,4 +13,19 @@ public record Config(String domain,
                      DynamoDbTables dynamoDbTables,
                      String prescribedRegistrationNumber,
                      String prescribedRegistrationCode) {
+
+  /**
+   * @return the scheme with which to make HTTP requests to the server; servers with no {@code rootCert} are reached
+   * over plain HTTP
+   */
+  public String httpScheme() {
+    return rootCert != null ? "https" : "http";
+  }
+
+  /**
+   * @return the scheme with which to open WebSocket connections to the server
+   */
+  public String webSocketScheme() {
+    return rootCert != null ? "wss" : "ws";
+  }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Records the latency and outcome of each operation in one phase of a load scenario and summarizes them as a
+ * {@link LatencyReport}. Throughput is measured from the start of the first operation to the end of the last one.
+ * <p>
+ * Latencies are recorded for the whole run in a histogram with three significant digits of precision, from one
+ * microsecond up to {@link #MAX_LATENCY}. Longer operations are recorded as taking {@code MAX_LATENCY}; since load
+ * requests time out long before that, this only affects operations that hang.
+ */
+public class LatencyRecorder {
+
+  private final String name;
+  private final Histogram histogram =
+      new ConcurrentHistogram(1, TimeUnit.NANOSECONDS.toMicros(MAX_LATENCY.toNanos()), 3);
+
+  private final AtomicLong failures = new AtomicLong();
+  private final LongAccumulator firstStartNanos = new LongAccumulator(Math::min, Long.MAX_VALUE);
+  private final LongAccumulator lastEndNanos = new LongAccumulator(Math::max, Long.MIN_VALUE);
+
+  private static final double[] PERCENTILES = {0.5, 0.95, 0.99, 0.999};
+
+  private static final Duration MAX_LATENCY = Duration.ofHours(1);
+
+  private static final Logger log = LoggerFactory.getLogger(LatencyRecorder.class);
+
+  public LatencyRecorder(final String name) {
+    this.name = name;
+  }
+
+  /**
+   * Runs and times the given operation, which should return {@code true} if it succeeded. Operations that return
+   * {@code false} or throw an exception count as failures; their latency is not recorded.
+   */
+  public void measure(final Callable<Boolean> operation) {
+    final long startNanos = System.nanoTime();
+    boolean success;
+
+    try {
+      success = operation.call();
+    } catch (final Exception e) {
+      log.debug("{} operation failed", name, e);
+      success = false;
+    }
+
+    if (success) {
+      recordSuccess(startNanos);
+    } else {
+      recordFailure(startNanos);
+    }
+  }
+
+  /**
+   * Records a successful operation that started at the given {@link System#nanoTime()} and ended now.
+   */
+  public void recordSuccess(final long startNanos) {
+    final long endNanos = System.nanoTime();
+
+    histogram.recordValue(Math.max(1, Math.min(TimeUnit.NANOSECONDS.toMicros(endNanos - startNanos),
+        histogram.getHighestTrackableValue())));
+    firstStartNanos.accumulate(startNanos);
+    lastEndNanos.accumulate(endNanos);
+  }
+
+  /**
+   * Records a failed operation that started at the given {@link System#nanoTime()} and ended now.
+   */
+  public void recordFailure(final long startNanos) {
+    failures.incrementAndGet();
+    firstStartNanos.accumulate(startNanos);
+    lastEndNanos.accumulate(System.nanoTime());
+  }
+
+  public LatencyReport report() {
+    final Histogram snapshot = histogram.copy();
+
+    final Map<Double, Duration> percentiles = new LinkedHashMap<>();
+
+    for (final double percentile : PERCENTILES) {
+      percentiles.put(percentile, Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(
+          snapshot.getValueAtPercentile(percentile * 100))));
+    }
+
+    final Duration elapsed = snapshot.getTotalCount() + failures.get() > 0
+        ? Duration.ofNanos(lastEndNanos.get() - firstStartNanos.get())
+        : Duration.ZERO;
+
+    return new LatencyReport(name,
+        snapshot.getTotalCount(),
+        failures.get(),
+        elapsed,
+        percentiles,
+        Duration.ofNanos(TimeUnit.MICROSECONDS.toNanos(snapshot.getMaxValue())));
+  }
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A summary of the operations in one phase of a load scenario.
+ *
+ * @param name the name of the scenario phase
+ * @param successes the number of operations that succeeded
+ * @param failures the number of operations that failed
+ * @param elapsed the time from the start of the first operation to the end of the last
+ * @param percentiles latencies of successful operations by percentile, in ascending order of percentile
+ * @param max the latency of the slowest successful operation
+ */
+public record LatencyReport(String name,
+                            long successes,
+                            long failures,
+                            Duration elapsed,
+                            Map<Double, Duration> percentiles,
+                            Duration max) {
+
+  /**
+   * @return the number of successful operations per second
+   */
+  public double throughput() {
+    return elapsed.isZero() ? 0 : successes / (elapsed.toNanos() / 1e9);
+  }
+
+  public String format() {
+    final String formattedPercentiles = percentiles.entrySet().stream()
+        .map(entry -> "p%s=%.1fms".formatted(formatPercentile(entry.getKey()), millis(entry.getValue())))
+        .collect(Collectors.joining(" "));
+
+    return "%-28s ok=%-8d failed=%-6d %10.1f ops/s  %s max=%.1fms".formatted(
+        name, successes, failures, throughput(), formattedPercentiles, millis(max));
+  }
+
+  private static String formatPercentile(final double percentile) {
+    // 0.5 -> "50", 0.999 -> "99.9"
+    final String formatted = "%.1f".formatted(percentile * 100);
+    return formatted.endsWith(".0") ? formatted.substring(0, formatted.length() - 2) : formatted;
+  }
+
+  private static double millis(final Duration duration) {
+    return duration.toNanos() / 1e6;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import com.google.common.net.HttpHeaders;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.cert.CertificateException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import org.glassfish.jersey.SslConfigurator;
+import org.signal.integration.TestUser;
+import org.signal.integration.config.Config;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.CertificateUtil;
+import org.whispersystems.textsecuregcm.util.HeaderUtils;
+
+/**
+ * An HTTP and WebSocket client for load scenarios. Unlike the client used by
+ * {@link org.signal.integration.Operations}, this client never retries a request and has no circuit breaker, so the
+ * latency and failure rate it observes are the server's own.
+ */
+public class LoadClient {
+
+  private final Config config;
+  private final HttpClient httpClient;
+
+  private static final String USER_AGENT = "load-generator";
+
+  private static final Duration CONNECT_TIMEOUT = Duration.ofSeconds(10);
+  private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(30);
+
+  public LoadClient(final Config config) throws CertificateException {
+    this.config = config;
+
+    final HttpClient.Builder httpClientBuilder = HttpClient.newBuilder()
+        .connectTimeout(CONNECT_TIMEOUT);
+
+    if (config.rootCert() != null) {
+      httpClientBuilder.sslContext(SslConfigurator.newInstance()
+          .trustStore(CertificateUtil.buildKeyStoreForPem(config.rootCert()))
+          .createSSLContext());
+    }
+
+    this.httpClient = httpClientBuilder.build();
+  }
+
+  /**
+   * Creates a request builder for the given path on the server under test.
+   *
+   * @param path the path and (optional) query string of the request
+   */
+  public HttpRequest.Builder request(final String path) {
+    return HttpRequest.newBuilder(URI.create(config.httpScheme() + "://" + config.domain() + path))
+        .header(HttpHeaders.USER_AGENT, USER_AGENT)
+        .timeout(REQUEST_TIMEOUT);
+  }
+
+  /**
+   * Sends a request, discarding the response body, and blocks until the response arrives.
+   *
+   * @return the status code of the response
+   */
+  public int send(final HttpRequest request) throws IOException, InterruptedException {
+    return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+  }
+
+  /**
+   * Opens an authenticated WebSocket connection for the given user's primary device. The server starts delivering
+   * queued messages as soon as the connection opens.
+   */
+  public CompletableFuture<QueueDrainingWebSocket> connectWebSocket(final TestUser user) {
+    final QueueDrainingWebSocket listener = new QueueDrainingWebSocket();
+
+    return httpClient.newWebSocketBuilder()
+        .connectTimeout(CONNECT_TIMEOUT)
+        .header(HttpHeaders.AUTHORIZATION, authorization(user))
+        .header(HttpHeaders.USER_AGENT, USER_AGENT)
+        .buildAsync(URI.create(config.webSocketScheme() + "://" + config.domain() + "/v1/websocket/"), listener)
+        .thenApply(ignored -> listener);
+  }
+
+  /**
+   * @return the value of an {@code Authorization} header for the given user's primary device
+   */
+  public static String authorization(final TestUser user) {
+    return HeaderUtils.basicAuthHeader("%s.%d".formatted(user.aciUuid(), Device.PRIMARY_ID), user.accountPassword());
+  }
+
+  /**
+   * @return {@code true} if the given status code indicates success, or {@code false} otherwise
+   */
+  public static boolean isSuccess(final int statusCode) {
+    return statusCode >= 200 && statusCode < 300;
+  }
+}
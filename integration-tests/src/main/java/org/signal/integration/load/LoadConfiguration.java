@@ -0,0 +1,85 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes a load-generation run: the population of users to register and the scenarios to run against them, in the
+ * order given here. Scenarios that aren't configured are skipped. For example:
+ *
+ * <pre>
+ * users: 1000
+ * registrationConcurrency: 16
+ * firstPhoneNumber: 19995551000
+ * messageDrain:
+ *   messagesPerQueue: 50
+ *   concurrency: 500
+ * multiRecipientSend:
+ *   messages: 10000
+ *   recipientsPerMessage: 100
+ *   concurrency: 64
+ * preKeyFetch:
+ *   fetches: 100000
+ *   concurrency: 256
+ * </pre>
+ *
+ * @param users the number of users to register before running any scenarios; users are deleted when the run finishes
+ * @param registrationConcurrency the number of users to register at the same time
+ * @param firstPhoneNumber the phone number, without a leading "+", of the first registered user; subsequent users get
+ *                         consecutive numbers
+ * @param messageDrain configuration for {@link MessageDrainScenario}, if it should run
+ * @param multiRecipientSend configuration for {@link MultiRecipientSendScenario}, if it should run
+ * @param preKeyFetch configuration for {@link PreKeyFetchScenario}, if it should run
+ */
+public record LoadConfiguration(int users,
+                                int registrationConcurrency,
+                                long firstPhoneNumber,
+                                @Nullable MessageDrainConfiguration messageDrain,
+                                @Nullable MultiRecipientSendConfiguration multiRecipientSend,
+                                @Nullable PreKeyFetchConfiguration preKeyFetch) {
+
+  public LoadConfiguration {
+    if (users < 2) {
+      throw new IllegalArgumentException("At least two users are required");
+    }
+
+    if (registrationConcurrency <= 0) {
+      registrationConcurrency = 16;
+    }
+
+    if (firstPhoneNumber <= 0) {
+      firstPhoneNumber = 19995551000L;
+    }
+
+    if (multiRecipientSend != null && multiRecipientSend.recipientsPerMessage() > users) {
+      throw new IllegalArgumentException("Multi-recipient messages can't have more recipients than there are users");
+    }
+  }
+
+  /**
+   * @param messagesPerQueue the number of messages to send to each user before the users connect and drain their queues
+   * @param concurrency the number of messages to send, and then the number of WebSocket connections to open, at the
+   *                    same time
+   */
+  public record MessageDrainConfiguration(int messagesPerQueue, int concurrency) {
+  }
+
+  /**
+   * @param messages the number of multi-recipient messages to send
+   * @param recipientsPerMessage the number of distinct recipients of each message
+   * @param concurrency the number of messages to send at the same time
+   */
+  public record MultiRecipientSendConfiguration(int messages, int recipientsPerMessage, int concurrency) {
+  }
+
+  /**
+   * @param fetches the number of pre-key bundles to fetch
+   * @param concurrency the number of pre-key bundles to fetch at the same time
+   */
+  public record PreKeyFetchConfiguration(int fetches, int concurrency) {
+  }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+
+final class LoadDriver {
+
+  private LoadDriver() {
+    // utility class
+  }
+
+  /**
+   * Runs an operation a fixed number of times, each on its own virtual thread, with no more than the given number of
+   * operations in flight at once. Blocks until every operation has finished.
+   *
+   * @param operations the number of times to run the operation
+   * @param concurrency the maximum number of operations to run at the same time
+   * @param operation the operation to run; receives the index of the operation, from 0 to {@code operations - 1}
+   */
+  static void run(final int operations, final int concurrency, final IntConsumer operation)
+      throws InterruptedException {
+
+    final Semaphore permits = new Semaphore(concurrency);
+
+    try (final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+      for (int i = 0; i < operations; i++) {
+        permits.acquire();
+
+        final int operationIndex = i;
+
+        executor.execute(() -> {
+          try {
+            operation.accept(operationIndex);
+          } finally {
+            permits.release();
+          }
+        });
+      }
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import org.signal.integration.Operations;
+import org.signal.integration.TestUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Registers a population of users with the server described by the integration test configuration, runs the load
+ * scenarios described by a {@link LoadConfiguration} against it, and prints throughput and latency percentiles for
+ * each phase of each scenario. Usage:
+ *
+ * <pre>
+ * mvn -pl integration-tests exec:java -Dexec.mainClass=org.signal.integration.load.LoadGenerator -Dexec.args=load.yml
+ * </pre>
+ *
+ * Scenarios generate far more traffic per account than real clients do, so the server under test should be configured
+ * with rate limits high enough not to reject it; rejected requests are reported as failures. To run the same scenarios
+ * against a server started in-process with local data stores, use {@code LocalLoadGenerator} from this module's test
+ * sources instead.
+ */
+public class LoadGenerator {
+
+  private static final Logger log = LoggerFactory.getLogger(LoadGenerator.class);
+
+  public static void main(final String... args) throws Exception {
+    if (args.length != 1) {
+      System.err.println("Usage: LoadGenerator <load configuration file>");
+      System.exit(1);
+    }
+
+    final LoadConfiguration configuration =
+        SystemMapper.yamlMapper().readValue(new File(args[0]), LoadConfiguration.class);
+
+    final List<LatencyReport> reports = new LoadGenerator().run(configuration);
+
+    System.out.println();
+    reports.forEach(report -> System.out.println(report.format()));
+  }
+
+  public List<LatencyReport> run(final LoadConfiguration configuration) throws Exception {
+    final LoadClient client = new LoadClient(Operations.config());
+    final List<TestUser> users = registerUsers(configuration);
+
+    try {
+      final List<LatencyReport> reports = new ArrayList<>();
+
+      for (final LoadScenario scenario : buildScenarios(configuration)) {
+        log.info("Running {} scenario with {} users", scenario.name(), users.size());
+
+        final List<LatencyReport> scenarioReports = scenario.run(client, users);
+        scenarioReports.forEach(report -> log.info(report.format()));
+
+        reports.addAll(scenarioReports);
+      }
+
+      return reports;
+    } finally {
+      deleteUsers(users, configuration.registrationConcurrency());
+    }
+  }
+
+  private static List<LoadScenario> buildScenarios(final LoadConfiguration configuration) {
+    final List<LoadScenario> scenarios = new ArrayList<>();
+
+    if (configuration.messageDrain() != null) {
+      scenarios.add(new MessageDrainScenario(configuration.messageDrain()));
+    }
+
+    if (configuration.multiRecipientSend() != null) {
+      scenarios.add(new MultiRecipientSendScenario(configuration.multiRecipientSend()));
+    }
+
+    if (configuration.preKeyFetch() != null) {
+      scenarios.add(new PreKeyFetchScenario(configuration.preKeyFetch()));
+    }
+
+    return scenarios;
+  }
+
+  private static List<TestUser> registerUsers(final LoadConfiguration configuration) throws InterruptedException {
+    log.info("Registering {} users", configuration.users());
+
+    final LatencyRecorder registrationRecorder = new LatencyRecorder("registration");
+    final TestUser[] users = new TestUser[configuration.users()];
+
+    LoadDriver.run(configuration.users(), configuration.registrationConcurrency(), i -> registrationRecorder.measure(() -> {
+      users[i] = Operations.newRegisteredUser("+" + (configuration.firstPhoneNumber() + i));
+      return true;
+    }));
+
+    final LatencyReport registrationReport = registrationRecorder.report();
+    log.info(registrationReport.format());
+
+    final List<TestUser> registeredUsers = new ArrayList<>(configuration.users());
+    Collections.addAll(registeredUsers, users);
+    registeredUsers.removeIf(Objects::isNull);
+
+    if (registeredUsers.size() < 2) {
+      deleteUsers(registeredUsers, configuration.registrationConcurrency());
+      throw new IllegalStateException("Failed to register enough users; " + registrationReport.failures() + " failed");
+    }
+
+    return registeredUsers;
+  }
+
+  private static void deleteUsers(final List<TestUser> users, final int concurrency) throws InterruptedException {
+    log.info("Deleting {} users", users.size());
+
+    LoadDriver.run(users.size(), concurrency, i -> {
+      try {
+        Operations.deleteUser(users.get(i));
+      } catch (final Exception e) {
+        log.warn("Failed to delete user {}", users.get(i).aciUuid(), e);
+      }
+    });
+  }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.util.List;
+import org.signal.integration.TestUser;
+
+/**
+ * A pattern of client traffic to run against the server under test.
+ */
+public interface LoadScenario {
+
+  String name();
+
+  /**
+   * Runs this scenario to completion.
+   *
+   * @param client the client with which to send requests to the server
+   * @param users a population of registered users; scenarios may send messages to these users, but must not otherwise
+   *              change their accounts
+   *
+   * @return a report for each phase of the scenario
+   */
+  List<LatencyReport> run(LoadClient client, List<TestUser> users) throws Exception;
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import com.google.common.net.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.signal.integration.TestUser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.entities.IncomingMessage;
+import org.whispersystems.textsecuregcm.entities.IncomingMessageList;
+import org.whispersystems.textsecuregcm.entities.MessageProtos;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Fills every user's message queue over HTTP, then has every user connect over a WebSocket and drain their queue, as
+ * clients do when they come back online. Reports the latency of each send and the time from opening each WebSocket
+ * connection to the server reporting that the queue is empty.
+ */
+public class MessageDrainScenario implements LoadScenario {
+
+  private final LoadConfiguration.MessageDrainConfiguration configuration;
+
+  private static final int MESSAGE_CONTENT_LENGTH = 256;
+  private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(2);
+
+  private static final Logger log = LoggerFactory.getLogger(MessageDrainScenario.class);
+
+  public MessageDrainScenario(final LoadConfiguration.MessageDrainConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public String name() {
+    return "messageDrain";
+  }
+
+  @Override
+  public List<LatencyReport> run(final LoadClient client, final List<TestUser> users) throws Exception {
+    final LatencyRecorder sendRecorder = new LatencyRecorder(name() + ".send");
+    final LatencyRecorder drainRecorder = new LatencyRecorder(name() + ".drain");
+
+    LoadDriver.run(users.size() * configuration.messagesPerQueue(), configuration.concurrency(), i -> {
+      final TestUser recipient = users.get(i % users.size());
+      final TestUser sender = users.get((i + 1) % users.size());
+
+      sendRecorder.measure(() -> LoadClient.isSuccess(client.send(buildSendRequest(client, sender, recipient))));
+    });
+
+    final AtomicLong messagesReceived = new AtomicLong();
+
+    LoadDriver.run(users.size(), configuration.concurrency(), i -> drainRecorder.measure(() -> {
+      final QueueDrainingWebSocket webSocket = client.connectWebSocket(users.get(i)).join();
+
+      try {
+        webSocket.queueEmpty().get(DRAIN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+        return true;
+      } finally {
+        messagesReceived.addAndGet(webSocket.messagesReceived());
+        webSocket.close();
+      }
+    }));
+
+    final LatencyReport drainReport = drainRecorder.report();
+
+    log.info("Received {} messages over WebSocket connections ({} messages/s)", messagesReceived.get(),
+        drainReport.elapsed().isZero() ? 0 : messagesReceived.get() / (drainReport.elapsed().toNanos() / 1e9));
+
+    return List.of(sendRecorder.report(), drainReport);
+  }
+
+  private static HttpRequest buildSendRequest(final LoadClient client, final TestUser sender, final TestUser recipient)
+      throws Exception {
+
+    final byte[] content = new byte[MESSAGE_CONTENT_LENGTH];
+    ThreadLocalRandom.current().nextBytes(content);
+
+    final IncomingMessageList messages = new IncomingMessageList(List.of(new IncomingMessage(
+            MessageProtos.Envelope.Type.CIPHERTEXT_VALUE,
+            Device.PRIMARY_ID,
+            recipient.registrationId(),
+            Base64.getEncoder().encodeToString(content))),
+        false,
+        true,
+        System.currentTimeMillis());
+
+    return client.request("/v1/messages/" + recipient.aciUuid())
+        .header(HttpHeaders.AUTHORIZATION, LoadClient.authorization(sender))
+        .header(HttpHeaders.CONTENT_TYPE, "application/json")
+        .PUT(HttpRequest.BodyPublishers.ofByteArray(SystemMapper.jsonMapper().writeValueAsBytes(messages)))
+        .build();
+  }
+}
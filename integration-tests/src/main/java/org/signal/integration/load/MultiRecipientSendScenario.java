@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import com.google.common.net.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.signal.integration.TestUser;
+import org.whispersystems.textsecuregcm.auth.UnidentifiedAccessUtil;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.providers.MultiRecipientMessageProvider;
+import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.HeaderUtils;
+
+/**
+ * Sends sealed-sender multi-recipient messages, as clients do when sending to groups, to randomly-chosen sets of users.
+ * Reports the latency of each send.
+ */
+public class MultiRecipientSendScenario implements LoadScenario {
+
+  private final LoadConfiguration.MultiRecipientSendConfiguration configuration;
+
+  private static final byte MULTI_RECIPIENT_MESSAGE_VERSION = 0x23;
+  private static final int SERVICE_IDENTIFIER_LENGTH = 17;
+  private static final int PER_RECIPIENT_KEY_MATERIAL_LENGTH = 48;
+  private static final int SHARED_PAYLOAD_LENGTH = 1024;
+  private static final int MAX_VARINT_LENGTH = 5;
+
+  public MultiRecipientSendScenario(final LoadConfiguration.MultiRecipientSendConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public String name() {
+    return "multiRecipientSend";
+  }
+
+  @Override
+  public List<LatencyReport> run(final LoadClient client, final List<TestUser> users) throws Exception {
+    final LatencyRecorder sendRecorder = new LatencyRecorder(name() + ".send");
+
+    LoadDriver.run(configuration.messages(), configuration.concurrency(), ignored -> {
+      // A run of consecutive users starting from a random offset is enough to give each message distinct recipients
+      final int firstRecipient = ThreadLocalRandom.current().nextInt(users.size());
+      final List<TestUser> recipients = new ArrayList<>(configuration.recipientsPerMessage());
+
+      for (int i = 0; i < configuration.recipientsPerMessage(); i++) {
+        recipients.add(users.get((firstRecipient + i) % users.size()));
+      }
+
+      sendRecorder.measure(() -> LoadClient.isSuccess(client.send(buildSendRequest(client, recipients))));
+    });
+
+    return List.of(sendRecorder.report());
+  }
+
+  private static HttpRequest buildSendRequest(final LoadClient client, final List<TestUser> recipients) {
+    final byte[] combinedUnidentifiedAccessKey = new byte[UnidentifiedAccessUtil.UNIDENTIFIED_ACCESS_KEY_LENGTH];
+
+    for (final TestUser recipient : recipients) {
+      final byte[] unidentifiedAccessKey = recipient.unidentifiedAccessKey();
+
+      for (int i = 0; i < combinedUnidentifiedAccessKey.length; i++) {
+        combinedUnidentifiedAccessKey[i] ^= unidentifiedAccessKey[i];
+      }
+    }
+
+    return client.request("/v1/messages/multi_recipient?online=false&urgent=true&ts=" + System.currentTimeMillis())
+        .header(HeaderUtils.UNIDENTIFIED_ACCESS_KEY, Base64.getEncoder().encodeToString(combinedUnidentifiedAccessKey))
+        .header(HttpHeaders.CONTENT_TYPE, MultiRecipientMessageProvider.MEDIA_TYPE)
+        .PUT(HttpRequest.BodyPublishers.ofByteArray(buildMultiRecipientMessage(recipients)))
+        .build();
+  }
+
+  /**
+   * Builds a multi-recipient message addressed to the primary device of each of the given recipients. The server never
+   * decrypts any part of a multi-recipient message, so the key material and shared payload are random bytes.
+   */
+  private static byte[] buildMultiRecipientMessage(final List<TestUser> recipients) {
+    final int recipientLength = SERVICE_IDENTIFIER_LENGTH + 1 + Short.BYTES + PER_RECIPIENT_KEY_MATERIAL_LENGTH;
+
+    final ByteBuffer buffer = ByteBuffer.allocate(
+        1 + MAX_VARINT_LENGTH + recipients.size() * recipientLength + MAX_VARINT_LENGTH + SHARED_PAYLOAD_LENGTH);
+
+    buffer.put(MULTI_RECIPIENT_MESSAGE_VERSION);
+    putVarint(buffer, recipients.size());
+
+    for (final TestUser recipient : recipients) {
+      final byte[] keyMaterial = new byte[PER_RECIPIENT_KEY_MATERIAL_LENGTH];
+      ThreadLocalRandom.current().nextBytes(keyMaterial);
+
+      buffer.put(new AciServiceIdentifier(recipient.aciUuid()).toFixedWidthByteArray());
+      buffer.put(Device.PRIMARY_ID);
+      buffer.putShort((short) recipient.registrationId());
+      buffer.put(keyMaterial);
+    }
+
+    final byte[] sharedPayload = new byte[SHARED_PAYLOAD_LENGTH];
+    ThreadLocalRandom.current().nextBytes(sharedPayload);
+
+    putVarint(buffer, sharedPayload.length);
+    buffer.put(sharedPayload);
+
+    final byte[] message = new byte[buffer.position()];
+    buffer.flip().get(message);
+
+    return message;
+  }
+
+  private static void putVarint(final ByteBuffer buffer, long value) {
+    while (value >= 0x80) {
+      buffer.put((byte) (value & 0x7F | 0x80));
+      value >>= 7;
+    }
+
+    buffer.put((byte) value);
+  }
+}
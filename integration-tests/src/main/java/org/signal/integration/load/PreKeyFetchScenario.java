@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import com.google.common.net.HttpHeaders;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.signal.integration.TestUser;
+
+/**
+ * Fetches pre-key bundles for all of a randomly-chosen user's devices on behalf of another randomly-chosen user, as
+ * clients do when starting new sessions. Reports the latency of each fetch.
+ */
+public class PreKeyFetchScenario implements LoadScenario {
+
+  private final LoadConfiguration.PreKeyFetchConfiguration configuration;
+
+  public PreKeyFetchScenario(final LoadConfiguration.PreKeyFetchConfiguration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public String name() {
+    return "preKeyFetch";
+  }
+
+  @Override
+  public List<LatencyReport> run(final LoadClient client, final List<TestUser> users) throws Exception {
+    final LatencyRecorder fetchRecorder = new LatencyRecorder(name() + ".fetch");
+
+    LoadDriver.run(configuration.fetches(), configuration.concurrency(), ignored -> {
+      final int requesterIndex = ThreadLocalRandom.current().nextInt(users.size());
+      // Any user other than the requester
+      final int targetIndex = (requesterIndex + 1 + ThreadLocalRandom.current().nextInt(users.size() - 1)) % users.size();
+
+      final TestUser requester = users.get(requesterIndex);
+      final TestUser target = users.get(targetIndex);
+
+      fetchRecorder.measure(() -> LoadClient.isSuccess(client.send(client.request("/v2/keys/" + target.aciUuid() + "/*")
+          .header(HttpHeaders.AUTHORIZATION, LoadClient.authorization(requester))
+          .GET()
+          .build())));
+    });
+
+    return List.of(fetchRecorder.report());
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.http.WebSocket;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.websocket.messages.protobuf.SubProtocol;
+
+/**
+ * A WebSocket listener that behaves like a client draining its message queue: it acknowledges every message the server
+ * delivers and notes when the server reports that the queue is empty. Messages are counted, but not decrypted.
+ */
+public class QueueDrainingWebSocket implements WebSocket.Listener {
+
+  private final CompletableFuture<Void> queueEmptyFuture = new CompletableFuture<>();
+  private final AtomicInteger messagesReceived = new AtomicInteger();
+
+  // Listener methods are never called concurrently, so only the listener thread touches partial messages
+  private final ByteArrayOutputStream partialMessage = new ByteArrayOutputStream();
+
+  // A WebSocket only allows one outstanding send at a time, so each send waits for the one before it
+  private volatile CompletableFuture<WebSocket> pendingSend = CompletableFuture.completedFuture(null);
+
+  private volatile WebSocket webSocket;
+
+  private static final String DELIVER_MESSAGE_PATH = "/api/v1/message";
+  private static final String QUEUE_EMPTY_PATH = "/api/v1/queue/empty";
+
+  private static final Logger log = LoggerFactory.getLogger(QueueDrainingWebSocket.class);
+
+  /**
+   * @return a future that completes when the server reports that the queue is empty, or completes exceptionally if the
+   * connection closes first
+   */
+  public CompletableFuture<Void> queueEmpty() {
+    return queueEmptyFuture;
+  }
+
+  /**
+   * @return the number of messages delivered over this connection so far
+   */
+  public int messagesReceived() {
+    return messagesReceived.get();
+  }
+
+  public CompletableFuture<WebSocket> close() {
+    return pendingSend.thenCompose(ignored -> webSocket.sendClose(WebSocket.NORMAL_CLOSURE, ""));
+  }
+
+  @Override
+  public void onOpen(final WebSocket webSocket) {
+    this.webSocket = webSocket;
+    webSocket.request(1);
+  }
+
+  @Override
+  public CompletionStage<?> onBinary(final WebSocket webSocket, final ByteBuffer data, final boolean last) {
+    final byte[] bytes = new byte[data.remaining()];
+    data.get(bytes);
+    partialMessage.writeBytes(bytes);
+
+    if (last) {
+      try {
+        handleMessage(webSocket, SubProtocol.WebSocketMessage.parseFrom(partialMessage.toByteArray()));
+      } catch (final InvalidProtocolBufferException e) {
+        log.warn("Failed to parse WebSocket message", e);
+      } finally {
+        partialMessage.reset();
+      }
+    }
+
+    webSocket.request(1);
+    return null;
+  }
+
+  @Override
+  public CompletionStage<?> onClose(final WebSocket webSocket, final int statusCode, final String reason) {
+    queueEmptyFuture.completeExceptionally(
+        new IOException("Connection closed before queue was empty: %d %s".formatted(statusCode, reason)));
+
+    return null;
+  }
+
+  @Override
+  public void onError(final WebSocket webSocket, final Throwable error) {
+    queueEmptyFuture.completeExceptionally(error);
+  }
+
+  private void handleMessage(final WebSocket webSocket, final SubProtocol.WebSocketMessage message) {
+    if (message.getType() != SubProtocol.WebSocketMessage.Type.REQUEST) {
+      return;
+    }
+
+    final SubProtocol.WebSocketRequestMessage request = message.getRequest();
+
+    // The server only removes a message from the queue once the client acknowledges it
+    acknowledge(webSocket, request.getId());
+
+    switch (request.getPath()) {
+      case DELIVER_MESSAGE_PATH -> messagesReceived.incrementAndGet();
+      case QUEUE_EMPTY_PATH -> queueEmptyFuture.complete(null);
+      default -> log.debug("Ignoring request for {}", request.getPath());
+    }
+  }
+
+  private void acknowledge(final WebSocket webSocket, final long requestId) {
+    final byte[] response = SubProtocol.WebSocketMessage.newBuilder()
+        .setType(SubProtocol.WebSocketMessage.Type.RESPONSE)
+        .setResponse(SubProtocol.WebSocketResponseMessage.newBuilder()
+            .setId(requestId)
+            .setStatus(200)
+            .setMessage("OK"))
+        .build()
+        .toByteArray();
+
+    pendingSend = pendingSend.thenCompose(ignored -> webSocket.sendBinary(ByteBuffer.wrap(response), true));
+  }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.signal.integration.load;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.List;
+import org.signal.integration.Operations;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * Starts a {@link LocalServer} and runs the load scenarios described by a {@link LoadConfiguration} against it, so that
+ * changes to the server can be load-tested on a single machine without any deployed infrastructure. Usage:
+ *
+ * <pre>
+ * mvn -pl integration-tests -am -P local-load-test verify -DskipTests -Dload.configuration=/path/to/load.yml
+ * </pre>
+ *
+ * The local server is based on the sample configuration in {@code service/config}. Its data stores run in the same
+ * process as the load generator, so results are best compared with other local runs rather than with production.
+ */
+public class LocalLoadGenerator {
+
+  public static void main(final String... args) throws Exception {
+    if (args.length != 3) {
+      System.err.println(
+          "Usage: LocalLoadGenerator <load configuration file> <server configuration file> <secrets bundle file>");
+      System.exit(1);
+    }
+
+    final LoadConfiguration configuration =
+        SystemMapper.yamlMapper().readValue(new File(args[0]), LoadConfiguration.class);
+
+    final List<LatencyReport> reports;
+
+    try (final LocalServer server = new LocalServer(Path.of(args[1]), Path.of(args[2]))) {
+      Operations.configure(server.config(), server.integrationTools());
+      reports = new LoadGenerator().run(configuration);
+    }
+
+    System.out.println();
+    reports.forEach(report -> System.out.println(report.format()));
+
+    // The server leaves non-daemon threads behind after it stops
+    System.exit(0);
+  }
+}
@@ -28,7 +28,10 @@ import io.lettuce.core.resource.ClientResources;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.binder.grpc.MetricCollectingServerInterceptor;
 import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import java.io.IOException;
 import java.net.http.HttpClient;
+import java.security.InvalidKeyException;
+import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -40,6 +43,7 @@ import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
@@ -67,6 +71,7 @@ import org.whispersystems.textsecuregcm.auth.AccountAuthenticator;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
 import org.whispersystems.textsecuregcm.auth.CertificateGenerator;
 import org.whispersystems.textsecuregcm.auth.ExternalServiceCredentialsGenerator;
+import org.whispersystems.textsecuregcm.auth.GroupCredentialIssuer;
 import org.whispersystems.textsecuregcm.auth.PhoneVerificationTokenManager;
 import org.whispersystems.textsecuregcm.auth.RegistrationLockVerificationManager;
 import org.whispersystems.textsecuregcm.auth.TurnTokenGenerator;
@@ -127,6 +132,7 @@ import org.whispersystems.textsecuregcm.filters.RemoteAddressFilter;
 import org.whispersystems.textsecuregcm.filters.RemoteDeprecationFilter;
 import org.whispersystems.textsecuregcm.filters.RequestStatisticsFilter;
 import org.whispersystems.textsecuregcm.filters.TimestampResponseFilter;
+import org.whispersystems.textsecuregcm.geo.GeoIpLocator;
 import org.whispersystems.textsecuregcm.geo.MaxMindDatabaseManager;
 import org.whispersystems.textsecuregcm.grpc.AcceptLanguageInterceptor;
 import org.whispersystems.textsecuregcm.grpc.AccountsAnonymousGrpcService;
@@ -220,6 +226,7 @@ import org.whispersystems.textsecuregcm.subscriptions.BankMandateTranslator;
 import org.whispersystems.textsecuregcm.subscriptions.BraintreeManager;
 import org.whispersystems.textsecuregcm.subscriptions.StripeManager;
 import org.whispersystems.textsecuregcm.util.DynamoDbFromConfig;
+import org.whispersystems.textsecuregcm.util.ExecutorServiceFactory;
 import org.whispersystems.textsecuregcm.util.ManagedAwsCrt;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.UsernameHashZkProofVerifier;
@@ -233,6 +240,7 @@ import org.whispersystems.textsecuregcm.websocket.WebSocketAccountAuthenticator;
 import org.whispersystems.textsecuregcm.workers.AssignUsernameCommand;
 import org.whispersystems.textsecuregcm.workers.CertificateCommand;
 import org.whispersystems.textsecuregcm.workers.CheckDynamicConfigurationCommand;
+import org.whispersystems.textsecuregcm.workers.CrawlAccountsCommand;
 import org.whispersystems.textsecuregcm.workers.DeleteUserCommand;
 import org.whispersystems.textsecuregcm.workers.MessagePersisterServiceCommand;
 import org.whispersystems.textsecuregcm.workers.ProcessPushNotificationFeedbackCommand;
@@ -299,6 +307,10 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     bootstrap.addCommand(new RemoveExpiredAccountsCommand(Clock.systemUTC()));
     bootstrap.addCommand(new ProcessPushNotificationFeedbackCommand(Clock.systemUTC()));
     bootstrap.addCommand(new RemoveExpiredLinkedDevicesCommand());
+    bootstrap.addCommand(new CrawlAccountsCommand(List.of(
+        new RemoveExpiredAccountsCommand(Clock.systemUTC()),
+        new ProcessPushNotificationFeedbackCommand(Clock.systemUTC()),
+        new RemoveExpiredLinkedDevicesCommand())));
   }
 
   @Override
@@ -314,10 +326,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     UncaughtExceptionHandler.register();
 
     DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
-        new DynamicConfigurationManager<>(config.getAppConfig().getApplication(),
-            config.getAppConfig().getEnvironment(),
-            config.getAppConfig().getConfigurationName(),
-            DynamicConfiguration.class);
+        buildDynamicConfigurationManager(config);
     dynamicConfigurationManager.start();
 
     MetricsUtil.configureRegistries(config, environment, dynamicConfigurationManager);
@@ -344,11 +353,8 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     BankMandateTranslator bankMandateTranslator = new BankMandateTranslator(headerControlledResourceBundleLookup);
 
     environment.lifecycle().manage(new ManagedAwsCrt());
-    DynamoDbAsyncClient dynamoDbAsyncClient = DynamoDbFromConfig.asyncClient(config.getDynamoDbClientConfiguration(),
-        AWSSDK_CREDENTIALS_PROVIDER);
-
-    DynamoDbClient dynamoDbClient = DynamoDbFromConfig.client(config.getDynamoDbClientConfiguration(),
-        AWSSDK_CREDENTIALS_PROVIDER);
+    DynamoDbAsyncClient dynamoDbAsyncClient = buildDynamoDbAsyncClient(config);
+    DynamoDbClient dynamoDbClient = buildDynamoDbClient(config);
 
     BlockingQueue<Runnable> messageDeletionQueue = new LinkedBlockingQueue<>();
     Metrics.gaugeCollectionSize(name(getClass(), "messageDeletionQueueSize"), Collections.emptyList(),
@@ -428,18 +434,22 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     Metrics.gaugeCollectionSize(MetricsUtil.name(getClass(), "messageDeliveryQueue"), Collections.emptyList(),
         messageDeliveryQueue);
 
+    final ExecutorServiceFactory executorServiceFactory = new ExecutorServiceFactory(environment.lifecycle(),
+        config.getVirtualThreadConfiguration().executors());
+
     ScheduledExecutorService recurringJobExecutor = environment.lifecycle()
         .scheduledExecutorService(name(getClass(), "recurringJob-%d")).threads(6).build();
     ScheduledExecutorService websocketScheduledExecutor = environment.lifecycle()
         .scheduledExecutorService(name(getClass(), "websocket-%d")).threads(8).build();
-    ExecutorService keyspaceNotificationDispatchExecutor = ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
-        environment.lifecycle()
-            .executorService(name(getClass(), "keyspaceNotification-%d"))
-            .maxThreads(16)
-            .workQueue(keyspaceNotificationDispatchQueue)
-            .build(),
-        MetricsUtil.name(getClass(), "keyspaceNotificationExecutor"),
-        MetricsUtil.PREFIX);
+    ExecutorService keyspaceNotificationDispatchExecutor = executorServiceFactory.executorService("keyspaceNotification",
+        () -> ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
+            environment.lifecycle()
+                .executorService(name(getClass(), "keyspaceNotification-%d"))
+                .maxThreads(16)
+                .workQueue(keyspaceNotificationDispatchQueue)
+                .build(),
+            MetricsUtil.name(getClass(), "keyspaceNotificationExecutor"),
+            MetricsUtil.PREFIX));
     ExecutorService apnSenderExecutor = environment.lifecycle().executorService(name(getClass(), "apnSender-%d"))
         .maxThreads(1).minThreads(1).build();
     ExecutorService fcmSenderExecutor = environment.lifecycle().executorService(name(getClass(), "fcmSender-%d"))
@@ -450,6 +460,15 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         .executorService(name(getClass(), "storageService-%d")).maxThreads(1).minThreads(1).build();
     ExecutorService virtualThreadEventLoggerExecutor = environment.lifecycle()
         .executorService(name(getClass(), "virtualThreadEventLogger-%d")).minThreads(1).maxThreads(1).build();
+    // Issuing zkgroup credentials is CPU-bound, so there's no benefit to having more threads than processors
+    ExecutorService groupCredentialExecutor = ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
+        environment.lifecycle()
+            .executorService(name(getClass(), "groupCredential-%d"))
+            .minThreads(Runtime.getRuntime().availableProcessors())
+            .maxThreads(Runtime.getRuntime().availableProcessors())
+            .build(),
+        MetricsUtil.name(getClass(), "groupCredentialExecutor"),
+        MetricsUtil.PREFIX);
     ScheduledExecutorService secureValueRecoveryServiceRetryExecutor = environment.lifecycle()
         .scheduledExecutorService(name(getClass(), "secureValueRecoveryServiceRetry-%d")).threads(1).build();
     ScheduledExecutorService storageServiceRetryExecutor = environment.lifecycle()
@@ -464,32 +483,35 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         .scheduledExecutorService(name(getClass(), "configSync-%d")).threads(1).build();
 
     Scheduler messageDeliveryScheduler = Schedulers.fromExecutorService(
-        ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
-            environment.lifecycle().executorService(name(getClass(), "messageDelivery-%d"))
-                .minThreads(20)
-                .maxThreads(20)
-                .workQueue(messageDeliveryQueue)
-                .build(),
-            MetricsUtil.name(getClass(), "messageDeliveryExecutor"), MetricsUtil.PREFIX),
+        executorServiceFactory.executorService("messageDelivery",
+            () -> ExecutorServiceMetrics.monitor(Metrics.globalRegistry,
+                environment.lifecycle().executorService(name(getClass(), "messageDelivery-%d"))
+                    .minThreads(20)
+                    .maxThreads(20)
+                    .workQueue(messageDeliveryQueue)
+                    .build(),
+                MetricsUtil.name(getClass(), "messageDeliveryExecutor"), MetricsUtil.PREFIX)),
         "messageDelivery");
 
     // TODO: generally speaking this is a DynamoDB I/O executor for the accounts table; we should eventually have a general executor for speaking to the accounts table, but most of the server is still synchronous so this isn't widely useful yet
-    ExecutorService batchIdentityCheckExecutor = environment.lifecycle().executorService(name(getClass(), "batchIdentityCheck-%d")).minThreads(32).maxThreads(32).build();
-    ExecutorService multiRecipientMessageExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "multiRecipientMessage-%d")).minThreads(64).maxThreads(64).build();
+    ExecutorService multiRecipientMessageExecutor = executorServiceFactory.executorService("multiRecipientMessage",
+        () -> environment.lifecycle()
+            .executorService(name(getClass(), "multiRecipientMessage-%d")).minThreads(64).maxThreads(64).build());
     ExecutorService subscriptionProcessorExecutor = environment.lifecycle()
         .executorService(name(getClass(), "subscriptionProcessor-%d"))
         .maxThreads(availableProcessors)  // mostly this is IO bound so tying to number of processors is tenuous at best
         .minThreads(availableProcessors)  // mostly this is IO bound so tying to number of processors is tenuous at best
         .allowCoreThreadTimeOut(true).
         build();
-    ExecutorService receiptSenderExecutor = environment.lifecycle()
-        .executorService(name(getClass(), "receiptSender-%d"))
-        .maxThreads(2)
-        .minThreads(2)
-        .workQueue(receiptSenderQueue)
-        .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
-        .build();
+    ExecutorService receiptSenderExecutor = executorServiceFactory.executorService("receiptSender",
+        ExecutorServiceFactory.RejectionPolicy.CALLER_RUNS,
+        () -> environment.lifecycle()
+            .executorService(name(getClass(), "receiptSender-%d"))
+            .maxThreads(2)
+            .minThreads(2)
+            .workQueue(receiptSenderQueue)
+            .rejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy())
+            .build());
     ExecutorService registrationCallbackExecutor = environment.lifecycle()
         .executorService(name(getClass(), "registration-%d"))
         .maxThreads(2)
@@ -536,28 +558,23 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         registrationRecoveryPasswords);
     UsernameHashZkProofVerifier usernameHashZkProofVerifier = new UsernameHashZkProofVerifier();
 
-    RegistrationServiceClient registrationServiceClient = new RegistrationServiceClient(
-        config.getRegistrationServiceConfiguration().host(),
-        config.getRegistrationServiceConfiguration().port(),
-        config.getRegistrationServiceConfiguration().credentialConfigurationJson(),
-        config.getRegistrationServiceConfiguration().identityTokenAudience(),
-        config.getRegistrationServiceConfiguration().registrationCaCertificate(),
-        registrationCallbackExecutor,
-        registrationIdentityTokenRefreshExecutor);
+    RegistrationServiceClient registrationServiceClient = buildRegistrationServiceClient(config,
+        registrationCallbackExecutor, registrationIdentityTokenRefreshExecutor);
     SecureValueRecovery2Client secureValueRecovery2Client = new SecureValueRecovery2Client(svr2CredentialsGenerator,
         secureValueRecoveryServiceExecutor, secureValueRecoveryServiceRetryExecutor, config.getSvr2Configuration());
     SecureStorageClient secureStorageClient = new SecureStorageClient(storageCredentialsGenerator,
         storageServiceExecutor, storageServiceRetryExecutor, config.getSecureStorageServiceConfiguration());
     ClientPresenceManager clientPresenceManager = new ClientPresenceManager(clientPresenceCluster, recurringJobExecutor,
         keyspaceNotificationDispatchExecutor);
-    ProfilesManager profilesManager = new ProfilesManager(profiles, cacheCluster);
+    ProfilesManager profilesManager = new ProfilesManager(profiles, cacheCluster, dynamicConfigurationManager);
     MessagesCache messagesCache = new MessagesCache(messagesCluster, messagesCluster,
         keyspaceNotificationDispatchExecutor, messageDeliveryScheduler, messageDeletionAsyncExecutor, clock);
     ClientReleaseManager clientReleaseManager = new ClientReleaseManager(clientReleases,
         recurringJobExecutor,
         config.getClientReleaseConfiguration().refreshInterval(),
         Clock.systemUTC());
-    PushLatencyManager pushLatencyManager = new PushLatencyManager(metricsCluster, clientReleaseManager);
+    PushLatencyManager pushLatencyManager = new PushLatencyManager(metricsCluster, clientReleaseManager,
+        dynamicConfigurationManager);
     ReportMessageManager reportMessageManager = new ReportMessageManager(reportMessageDynamoDb, rateLimitersCluster,
         config.getReportMessageConfiguration().getCounterTtl());
     MessagesManager messagesManager = new MessagesManager(messagesDynamoDb, messagesCache, reportMessageManager,
@@ -572,8 +589,8 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         experimentEnrollmentManager, registrationRecoveryPasswordsManager, accountLockExecutor, clientPresenceExecutor,
         clock);
     RemoteConfigsManager remoteConfigsManager = new RemoteConfigsManager(remoteConfigs);
-    APNSender apnSender = new APNSender(apnSenderExecutor, config.getApnConfiguration());
-    FcmSender fcmSender = new FcmSender(fcmSenderExecutor, config.getFcmConfiguration().credentials().value());
+    APNSender apnSender = buildApnSender(config, apnSenderExecutor);
+    FcmSender fcmSender = buildFcmSender(config, fcmSenderExecutor);
     ApnPushNotificationScheduler apnPushNotificationScheduler = new ApnPushNotificationScheduler(pushSchedulerCluster,
         apnSender, accountsManager, 0);
     PushNotificationManager pushNotificationManager = new PushNotificationManager(accountsManager, apnSender, fcmSender,
@@ -620,10 +637,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         "message_byte_limit",
         config.getMessageByteLimitCardinalityEstimator().period());
 
-    RecaptchaClient recaptchaClient = new RecaptchaClient(
-        config.getRecaptchaConfiguration().projectPath(),
-        config.getRecaptchaConfiguration().credentialConfigurationJson(),
-        dynamicConfigurationManager);
+    RecaptchaClient recaptchaClient = buildRecaptchaClient(config, dynamicConfigurationManager);
     HCaptchaClient hCaptchaClient = new HCaptchaClient(
         config.getHCaptchaConfiguration().getApiKey().value(),
         hcaptchaRetryExecutor,
@@ -648,7 +662,8 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
     VirtualThreadPinEventMonitor virtualThreadPinEventMonitor = new VirtualThreadPinEventMonitor(
         virtualThreadEventLoggerExecutor,
         () -> dynamicConfigurationManager.getConfiguration().getVirtualThreads().allowedPinEvents(),
-        config.getVirtualThreadConfiguration().pinEventThreshold());
+        config.getVirtualThreadConfiguration().pinEventThreshold(),
+        executorServiceFactory::getExecutorName);
 
     environment.lifecycle().manage(apnSender);
     environment.lifecycle().manage(apnPushNotificationScheduler);
@@ -714,6 +729,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
             config.getCdn3StorageManagerConfiguration()),
         config.getClientCdnConfiguration().getAttachmentUrls(),
         clock);
+    environment.lifecycle().manage(backupManager);
 
     final DynamicConfigTurnRouter configTurnRouter = new DynamicConfigTurnRouter(dynamicConfigurationManager);
 
@@ -746,7 +762,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         callRoutingTableManager,
         manualCallRoutingTableManager,
         configTurnRouter,
-        geoIpCityDatabaseManager
+        new GeoIpLocator(geoIpCityDatabaseManager)
     );
 
     final BasicCredentialAuthenticationInterceptor basicCredentialAuthenticationInterceptor =
@@ -887,7 +903,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         new CallLinkController(rateLimiters, callingGenericZkSecretParams),
         new CertificateController(new CertificateGenerator(config.getDeliveryCertificate().certificate().value(),
             config.getDeliveryCertificate().ecPrivateKey(), config.getDeliveryCertificate().expiresDays()),
-            zkAuthOperations, callingGenericZkSecretParams, clock),
+            new GroupCredentialIssuer(zkAuthOperations, callingGenericZkSecretParams, groupCredentialExecutor), clock),
         new ChallengeController(rateLimitChallengeManager),
         new DeviceController(config.getLinkDeviceSecretConfiguration().secret().value(), accountsManager,
             rateLimiters, rateLimitersCluster, config.getMaxDevices(), clock),
@@ -902,7 +918,7 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
         new PaymentsController(currencyManager, paymentsCredentialsGenerator),
         new ProfileController(clock, rateLimiters, accountsManager, profilesManager, dynamicConfigurationManager,
             profileBadgeConverter, config.getBadges(), cdnS3Client, profileCdnPolicyGenerator, profileCdnPolicySigner,
-            config.getCdnConfiguration().bucket(), zkProfileOperations, batchIdentityCheckExecutor),
+            config.getCdnConfiguration().bucket(), zkProfileOperations),
         new ProvisioningController(rateLimiters, provisioningManager),
         new RegistrationController(accountsManager, phoneVerificationTokenManager, registrationLockVerificationManager,
             rateLimiters),
@@ -969,6 +985,86 @@ public class WhisperServerService extends Application<WhisperServerConfiguration
   }
 
 
+  /**
+   * Builds the manager for the server's dynamic configuration, which is retrieved from AWS AppConfig. Subclasses that
+   * run the server without access to AWS (for example, for local load tests) may override this method.
+   */
+  protected DynamicConfigurationManager<DynamicConfiguration> buildDynamicConfigurationManager(
+      final WhisperServerConfiguration config) {
+
+    return new DynamicConfigurationManager<>(config.getAppConfig().getApplication(),
+        config.getAppConfig().getEnvironment(),
+        config.getAppConfig().getConfigurationName(),
+        DynamicConfiguration.class);
+  }
+
+  /**
+   * Builds the synchronous DynamoDB client used by the server's data stores. Subclasses that run the server against a
+   * local DynamoDB stand-in may override this method.
+   */
+  protected DynamoDbClient buildDynamoDbClient(final WhisperServerConfiguration config) {
+    return DynamoDbFromConfig.client(config.getDynamoDbClientConfiguration(), AWSSDK_CREDENTIALS_PROVIDER);
+  }
+
+  /**
+   * Builds the asynchronous DynamoDB client used by the server's data stores. Subclasses that run the server against a
+   * local DynamoDB stand-in may override this method.
+   */
+  protected DynamoDbAsyncClient buildDynamoDbAsyncClient(final WhisperServerConfiguration config) {
+    return DynamoDbFromConfig.asyncClient(config.getDynamoDbClientConfiguration(), AWSSDK_CREDENTIALS_PROVIDER);
+  }
+
+  /**
+   * Builds the client for the external registration service, which sends and checks verification codes. Subclasses
+   * that run the server without access to the registration service may override this method.
+   */
+  protected RegistrationServiceClient buildRegistrationServiceClient(final WhisperServerConfiguration config,
+      final Executor callbackExecutor,
+      final ScheduledExecutorService identityRefreshExecutor) throws IOException {
+
+    return new RegistrationServiceClient(
+        config.getRegistrationServiceConfiguration().host(),
+        config.getRegistrationServiceConfiguration().port(),
+        config.getRegistrationServiceConfiguration().credentialConfigurationJson(),
+        config.getRegistrationServiceConfiguration().identityTokenAudience(),
+        config.getRegistrationServiceConfiguration().registrationCaCertificate(),
+        callbackExecutor,
+        identityRefreshExecutor);
+  }
+
+  /**
+   * Builds the sender for push notifications to Apple devices via APNs. Subclasses that run the server without access to
+   * APNs may override this method.
+   */
+  protected APNSender buildApnSender(final WhisperServerConfiguration config, final ExecutorService executor)
+      throws IOException, NoSuchAlgorithmException, InvalidKeyException {
+
+    return new APNSender(executor, config.getApnConfiguration());
+  }
+
+  /**
+   * Builds the sender for push notifications to Android devices via FCM. Subclasses that run the server without access
+   * to FCM may override this method.
+   */
+  protected FcmSender buildFcmSender(final WhisperServerConfiguration config, final ExecutorService executor)
+      throws IOException {
+
+    return new FcmSender(executor, config.getFcmConfiguration().credentials().value());
+  }
+
+  /**
+   * Builds the client for Google's reCAPTCHA Enterprise service. Subclasses that run the server without access to
+   * reCAPTCHA may override this method.
+   */
+  protected RecaptchaClient buildRecaptchaClient(final WhisperServerConfiguration config,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) {
+
+    return new RecaptchaClient(
+        config.getRecaptchaConfiguration().projectPath(),
+        config.getRecaptchaConfiguration().credentialConfigurationJson(),
+        dynamicConfigurationManager);
+  }
+
   private void registerProviders(Environment environment,
       WebSocketEnvironment<AuthenticatedAccount> webSocketEnvironment,
       WebSocketEnvironment<AuthenticatedAccount> provisioningEnvironment) {
@@ -5,10 +5,26 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ByteString;
 import com.google.protobuf.InvalidProtocolBufferException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.security.InvalidKeyException;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.signal.libsignal.protocol.ecc.ECPrivateKey;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.SenderCertificate;
@@ -17,30 +33,98 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
 
+/**
+ * Generates signed sender certificates. Signing a certificate is comparatively expensive and clients request
+ * certificates often, but a certificate's contents only change when the account's identity key, phone number, or
+ * device change, so signed certificates are cached and reused for a short time. A cached certificate's expiration is
+ * never more than {@link #MAX_CERTIFICATE_AGE} earlier than that of a freshly-signed certificate, and certificates are
+ * re-signed in the background shortly before they age out of the cache so that frequently-requested certificates are
+ * rarely signed on a request thread.
+ */
 public class CertificateGenerator {
 
   private final ECPrivateKey      privateKey;
   private final int               expiresDays;
   private final ServerCertificate serverCertificate;
+  private final Clock             clock;
+
+  private final LoadingCache<CertificateKey, byte[]> certificateCache;
+
+  @VisibleForTesting
+  static final Duration MAX_CERTIFICATE_AGE = Duration.ofHours(1);
+
+  @VisibleForTesting
+  static final Duration CERTIFICATE_REFRESH_AGE = Duration.ofMinutes(45);
+
+  private static final int MAX_CACHED_CERTIFICATES = 100_000;
+
+  private static final Counter SIGN_CERTIFICATE_COUNTER =
+      Metrics.counter(name(CertificateGenerator.class, "signCertificate"));
+
+  /**
+   * Identifies the contents of a sender certificate other than its expiration.
+   *
+   * @param e164 the sender's phone number if it should be included in the certificate, or {@code null} otherwise
+   */
+  private record CertificateKey(UUID uuid, byte deviceId, IdentityKey identityKey, @Nullable String e164) {
+  }
 
   public CertificateGenerator(byte[] serverCertificate, ECPrivateKey privateKey, int expiresDays)
       throws InvalidProtocolBufferException
   {
+    this(serverCertificate, privateKey, expiresDays,
+        Clock.systemUTC(), Ticker.systemTicker(), ForkJoinPool.commonPool());
+  }
+
+  @VisibleForTesting
+  CertificateGenerator(byte[] serverCertificate,
+      ECPrivateKey privateKey,
+      int expiresDays,
+      Clock clock,
+      Ticker ticker,
+      Executor refreshExecutor) throws InvalidProtocolBufferException {
+
     this.privateKey        = privateKey;
     this.expiresDays       = expiresDays;
     this.serverCertificate = ServerCertificate.parseFrom(serverCertificate);
+    this.clock             = clock;
+
+    this.certificateCache = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_CERTIFICATES)
+        .expireAfterWrite(MAX_CERTIFICATE_AGE)
+        .refreshAfterWrite(CERTIFICATE_REFRESH_AGE)
+        .ticker(ticker)
+        .executor(refreshExecutor)
+        .build(this::sign);
   }
 
   public byte[] createFor(Account account, Device device, boolean includeE164) throws InvalidKeyException {
+    final CertificateKey certificateKey = new CertificateKey(account.getUuid(),
+        device.getId(),
+        account.getIdentityKey(IdentityType.ACI),
+        includeE164 ? account.getNumber() : null);
+
+    try {
+      return certificateCache.get(certificateKey);
+    } catch (final CompletionException e) {
+      if (e.getCause() instanceof InvalidKeyException invalidKeyException) {
+        throw invalidKeyException;
+      }
+
+      throw e;
+    }
+  }
+
+  private byte[] sign(final CertificateKey certificateKey) throws InvalidKeyException {
     SenderCertificate.Certificate.Builder builder = SenderCertificate.Certificate.newBuilder()
-        .setSenderDevice(Math.toIntExact(device.getId()))
-        .setExpires(System.currentTimeMillis() + TimeUnit.DAYS.toMillis(expiresDays))
-        .setIdentityKey(ByteString.copyFrom(account.getIdentityKey(IdentityType.ACI).serialize()))
+        .setSenderDevice(Math.toIntExact(certificateKey.deviceId()))
+        .setExpires(clock.millis() + TimeUnit.DAYS.toMillis(expiresDays))
+        .setIdentityKey(ByteString.copyFrom(certificateKey.identityKey().serialize()))
         .setSigner(serverCertificate)
-        .setSenderUuid(account.getUuid().toString());
+        .setSenderUuid(certificateKey.uuid().toString());
 
-    if (includeE164) {
-      builder.setSender(account.getNumber());
+    if (certificateKey.e164() != null) {
+      builder.setSender(certificateKey.e164());
     }
 
     byte[] certificate = builder.build().toByteArray();
@@ -51,6 +135,8 @@ public class CertificateGenerator {
       throw new InvalidKeyException(e);
     }
 
+    SIGN_CERTIFICATE_COUNTER.increment();
+
     return SenderCertificate.newBuilder()
                             .setCertificate(ByteString.copyFrom(certificate))
                             .setSignature(ByteString.copyFrom(signature))
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import org.signal.libsignal.protocol.ServiceId;
+import org.signal.libsignal.zkgroup.GenericServerSecretParams;
+import org.signal.libsignal.zkgroup.auth.AuthCredentialWithPniResponse;
+import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
+import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
+import org.whispersystems.textsecuregcm.entities.GroupCredentials;
+
+/**
+ * Issues group and call link auth credentials for ranges of redemption days. Issuing a credential is expensive, so
+ * credentials for each day in a range are issued in parallel, and issued credentials are cached for a short time so
+ * that clients re-fetching credentials for the same days (which they do frequently) don't pay for them again.
+ */
+public class GroupCredentialIssuer {
+
+  private final ServerZkAuthOperations serverZkAuthOperations;
+  private final GenericServerSecretParams genericServerSecretParams;
+
+  private final AsyncCache<CredentialKey, IssuedCredentials> credentialCache;
+
+  @VisibleForTesting
+  static final Duration MAX_CREDENTIAL_AGE = Duration.ofDays(1);
+
+  private static final int MAX_CACHED_CREDENTIALS = 100_000;
+
+  private static final Counter ISSUE_CREDENTIALS_COUNTER = Metrics.counter(name(GroupCredentialIssuer.class, "issue"));
+
+  private record CredentialKey(UUID aci, UUID pni, Instant redemption, boolean pniAsServiceId) {
+  }
+
+  /**
+   * The group auth credential and call link auth credential for a single redemption day.
+   */
+  public record IssuedCredentials(GroupCredentials.GroupCredential groupCredential,
+                                  GroupCredentials.CallLinkAuthCredential callLinkAuthCredential) {
+  }
+
+  public GroupCredentialIssuer(final ServerZkAuthOperations serverZkAuthOperations,
+      final GenericServerSecretParams genericServerSecretParams,
+      final Executor executor) {
+
+    this(serverZkAuthOperations, genericServerSecretParams, executor, Ticker.systemTicker());
+  }
+
+  @VisibleForTesting
+  GroupCredentialIssuer(final ServerZkAuthOperations serverZkAuthOperations,
+      final GenericServerSecretParams genericServerSecretParams,
+      final Executor executor,
+      final Ticker ticker) {
+
+    this.serverZkAuthOperations = serverZkAuthOperations;
+    this.genericServerSecretParams = genericServerSecretParams;
+
+    this.credentialCache = Caffeine.newBuilder()
+        .maximumSize(MAX_CACHED_CREDENTIALS)
+        .expireAfterWrite(MAX_CREDENTIAL_AGE)
+        .ticker(ticker)
+        .executor(executor)
+        .buildAsync();
+  }
+
+  /**
+   * Issues credentials for each of the given redemption days.
+   *
+   * @param aci the ACI of the account for which to issue credentials
+   * @param pni the PNI of the account for which to issue credentials
+   * @param redemptions the (day-aligned) redemption times for which to issue credentials
+   * @param pniAsServiceId if {@code true}, encode the PNI as a service ID rather than as an ACI in group credentials
+   *
+   * @return a future that yields issued credentials in the same order as the given redemption times
+   */
+  public CompletableFuture<List<IssuedCredentials>> issueCredentials(final ServiceId.Aci aci,
+      final ServiceId.Pni pni,
+      final List<Instant> redemptions,
+      final boolean pniAsServiceId) {
+
+    final List<CompletableFuture<IssuedCredentials>> futures = redemptions.stream()
+        .map(redemption -> credentialCache.get(
+            new CredentialKey(aci.getRawUUID(), pni.getRawUUID(), redemption, pniAsServiceId),
+            (credentialKey, executor) -> CompletableFuture.supplyAsync(() -> issue(credentialKey), executor)))
+        .toList();
+
+    return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+        .thenApply(ignored -> futures.stream().map(CompletableFuture::join).toList());
+  }
+
+  private IssuedCredentials issue(final CredentialKey credentialKey) {
+    final ServiceId.Aci aci = new ServiceId.Aci(credentialKey.aci());
+    final ServiceId.Pni pni = new ServiceId.Pni(credentialKey.pni());
+    final Instant redemption = credentialKey.redemption();
+
+    final AuthCredentialWithPniResponse authCredentialWithPni = credentialKey.pniAsServiceId()
+        ? serverZkAuthOperations.issueAuthCredentialWithPniAsServiceId(aci, pni, redemption)
+        : serverZkAuthOperations.issueAuthCredentialWithPniAsAci(aci, pni, redemption);
+
+    final CallLinkAuthCredentialResponse callLinkAuthCredential =
+        CallLinkAuthCredentialResponse.issueCredential(aci, redemption, genericServerSecretParams);
+
+    ISSUE_CREDENTIALS_COUNTER.increment();
+
+    return new IssuedCredentials(
+        new GroupCredentials.GroupCredential(authCredentialWithPni.serialize(), (int) redemption.getEpochSecond()),
+        new GroupCredentials.CallLinkAuthCredential(callLinkAuthCredential.serialize(), redemption.getEpochSecond()));
+  }
+}
@@ -7,8 +7,11 @@ package org.whispersystems.textsecuregcm.backup;
 
 import com.google.common.annotations.VisibleForTesting;
 import io.grpc.Status;
+import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Metrics;
+import java.io.IOException;
 import java.net.URI;
+import java.nio.ByteBuffer;
 import java.time.Clock;
 import java.time.Duration;
 import java.util.ArrayList;
@@ -19,6 +22,9 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.commons.lang3.StringUtils;
 import org.signal.libsignal.protocol.InvalidKeyException;
@@ -31,10 +37,14 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedBackupUser;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
+import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
 
-public class BackupManager {
+public class BackupManager implements Managed {
 
   private static final Logger logger = LoggerFactory.getLogger(BackupManager.class);
 
@@ -49,6 +59,21 @@ public class BackupManager {
       "authorizationFailure");
   private static final String USAGE_RECALCULATION_COUNTER_NAME = MetricsUtil.name(BackupManager.class,
       "usageRecalculation");
+  // The number of copies from a single batch that may be in flight at once
+  private static final int BATCH_COPY_CONCURRENCY = 16;
+  // The number of copies for a single backup that may be waiting to start or in flight at once, across all of that
+  // backup's requests; copies beyond this limit fail immediately
+  @VisibleForTesting
+  static final int MAX_COPIES_PER_BACKUP = 2 * BATCH_COPY_CONCURRENCY;
+  // The number of copies across all users that may be in flight at once
+  private static final int MAX_CONCURRENT_COPIES = 256;
+  // The number of copies across all users that may be waiting to start; copies beyond this limit fail immediately
+  @VisibleForTesting
+  static final int MAX_QUEUED_COPIES = 4096;
+  // The number of deletes from a single batch that may be in flight at once
+  private static final int BATCH_DELETE_CONCURRENCY = 16;
+  private static final String COPY_QUEUE_REJECTED_COUNTER_NAME = MetricsUtil.name(BackupManager.class,
+      "copyQueueRejected");
   private static final String SUCCESS_TAG_NAME = "success";
   private static final String FAILURE_REASON_TAG_NAME = "reason";
 
@@ -59,6 +84,16 @@ public class BackupManager {
   private final Map<Integer, String> attachmentCdnBaseUris;
   private final Clock clock;
 
+  // Copies from all users are started from a single queue so the total number of copies in flight is bounded
+  private final Sinks.Many<QueuedCopy> copyQueue =
+      Sinks.many().unicast().onBackpressureBuffer(Queues.<QueuedCopy>get(MAX_QUEUED_COPIES).get());
+
+  private record QueuedCopy(Supplier<CompletionStage<Void>> copy, CompletableFuture<Void> result) {}
+
+  // The number of copies waiting to start or in flight for each backup that has any
+  private final Map<ByteBuffer, Integer> copiesByBackupId = new ConcurrentHashMap<>();
+
+  private Disposable copyQueueSubscription;
 
   public BackupManager(
       final BackupsDb backupsDb,
@@ -79,6 +114,20 @@ public class BackupManager {
     ));
   }
 
+  @Override
+  public void start() {
+    copyQueueSubscription = copyQueue.asFlux()
+        .flatMap(queuedCopy -> Mono.fromFuture(startQueuedCopy(queuedCopy)).onErrorResume(ignored -> Mono.empty()),
+            MAX_CONCURRENT_COPIES)
+        .subscribe();
+  }
+
+  @Override
+  public void stop() {
+    if (copyQueueSubscription != null) {
+      copyQueueSubscription.dispose();
+    }
+  }
 
   /**
    * Set the public key for the backup-id.
@@ -195,19 +244,52 @@ public class BackupManager {
 
           // The user is out of quota, and we have not recently recalculated the user's usage. Double check by doing a
           // hard recalculation before actually forbidding the user from storing additional media.
-          return this.remoteStorageManager.calculateBytesUsed(cdnMediaDirectory(backupUser))
-              .thenCompose(usage -> backupsDb
-                  .setMediaUsage(backupUser, usage)
-                  .thenApply(ignored -> usage))
+          return recalculateMediaUsage(backupUser)
               .whenComplete((newUsage, throwable) -> {
                 boolean usageChanged = throwable == null && !newUsage.equals(info.usageInfo());
-                Metrics.counter(USAGE_RECALCULATION_COUNTER_NAME, "usageChanged", String.valueOf(usageChanged))
+                Metrics.counter(USAGE_RECALCULATION_COUNTER_NAME,
+                        "reason", "quotaExceeded",
+                        "usageChanged", String.valueOf(usageChanged))
                     .increment();
               })
               .thenApply(newUsage -> MAX_TOTAL_BACKUP_MEDIA_BYTES - newUsage.bytesUsed() >= mediaLength);
         });
   }
 
+  /**
+   * Replace the user's tracked media usage with the usage reported by listing their media directory on the cdn.
+   * <p>
+   * Usage is normally tracked incrementally as media is copied and deleted, so this is only needed to reconcile tracked
+   * usage that may have drifted from what is actually stored.
+   */
+  private CompletableFuture<UsageInfo> recalculateMediaUsage(final AuthenticatedBackupUser backupUser) {
+    return this.remoteStorageManager.calculateBytesUsed(cdnMediaDirectory(backupUser))
+        .thenCompose(usage -> backupsDb
+            .setMediaUsage(backupUser, usage)
+            .thenApply(ignored -> usage))
+        .toCompletableFuture();
+  }
+
+  /**
+   * Remove deleted media from the user's tracked usage. If the tracked usage is smaller than what was deleted, it has
+   * drifted from what is actually stored, so it is recalculated from the cdn instead.
+   */
+  private CompletableFuture<Void> releaseMedia(final AuthenticatedBackupUser backupUser, final long mediaCountDeleted,
+      final long mediaBytesDeleted) {
+    return backupsDb.releaseMedia(backupUser, mediaCountDeleted, mediaBytesDeleted)
+        .thenCompose(released -> {
+          if (released) {
+            return CompletableFuture.completedFuture(null);
+          }
+          logger.info("Tracked media usage smaller than deleted media, recalculating usage");
+          Metrics.counter(USAGE_RECALCULATION_COUNTER_NAME,
+                  "reason", "usageUnderflow",
+                  "usageChanged", "true")
+              .increment();
+          return recalculateMediaUsage(backupUser).thenRun(Util.NOOP);
+        });
+  }
+
   public record StorageDescriptor(int cdn, byte[] key) {}
 
   public record StorageDescriptorWithLength(int cdn, byte[] key, long length) {}
@@ -226,6 +308,7 @@ public class BackupManager {
    * <ul>
    *  <li> {@link InvalidLengthException} If the expectedSourceLength does not match the length of the sourceUri </li>
    *  <li> {@link SourceObjectNotFoundException} If the no object at sourceUri is found </li>
+   *  <li> {@link CopyRejectedException} If too many copies were already waiting to start </li>
    *  <li> {@link java.io.IOException} If there was a generic IO issue </li>
    * </ul>
    */
@@ -236,45 +319,240 @@ public class BackupManager {
       final int sourceLength,
       final MediaEncryptionParameters encryptionParameters,
       final byte[] destinationMediaId) {
-    if (backupUser.backupTier().compareTo(BackupTier.MEDIA) < 0) {
-      Metrics.counter(ZK_AUTHZ_FAILURE_COUNTER_NAME).increment();
-      throw Status.PERMISSION_DENIED
-          .withDescription("credential does not support storing media")
-          .asRuntimeException();
-    }
-    if (sourceLength > MAX_MEDIA_OBJECT_SIZE) {
-      throw Status.INVALID_ARGUMENT
-          .withDescription("Invalid sourceObject size")
-          .asRuntimeException();
-    }
-
-    final MessageBackupUploadDescriptor dst = cdn3BackupCredentialGenerator.generateUpload(
-        cdnMediaPath(backupUser, destinationMediaId));
+    checkMediaTier(backupUser);
 
-    final int destinationLength = encryptionParameters.outputSize(sourceLength);
+    final PreparedCopy copy = prepareCopy(backupUser,
+        new CopyParameters(sourceCdn, sourceKey, sourceLength, encryptionParameters, destinationMediaId));
 
-    final URI sourceUri = attachmentReadUri(sourceCdn, sourceKey);
     return this.backupsDb
         // Write the ddb updates before actually updating backing storage
-        .trackMedia(backupUser, 1, destinationLength)
+        .trackMedia(backupUser, 1, copy.destinationLength())
 
         // Actually copy the objects. If the copy fails, our estimated quota usage may not be exact
-        .thenComposeAsync(ignored -> remoteStorageManager.copy(sourceUri, sourceLength, encryptionParameters, dst))
+        .thenComposeAsync(ignored -> scheduleCopy(backupUser, copy))
         .exceptionallyCompose(throwable -> {
           final Throwable unwrapped = ExceptionUtils.unwrap(throwable);
-          if (!(unwrapped instanceof SourceObjectNotFoundException) && !(unwrapped instanceof InvalidLengthException)) {
+          if (!isKnownCopyFailure(unwrapped)) {
             throw ExceptionUtils.wrap(unwrapped);
           }
           // In cases where we know the copy fails without writing anything, we can try to restore the user's quota
-          return this.backupsDb.trackMedia(backupUser, -1, -destinationLength).whenComplete((ignored, ignoredEx) -> {
+          return this.backupsDb.trackMedia(backupUser, -1, -copy.destinationLength()).whenComplete((ignored, ignoredEx) -> {
             throw ExceptionUtils.wrap(unwrapped);
           });
         })
         // indicates where the backup was stored
-        .thenApply(ignore -> new StorageDescriptor(dst.cdn(), destinationMediaId));
+        .thenApply(ignore -> new StorageDescriptor(copy.destination().cdn(), destinationMediaId));
 
   }
 
+  /**
+   * A single object to copy to the backup cdn as part of a batch
+   */
+  public record CopyParameters(
+      int sourceCdn,
+      String sourceKey,
+      int sourceLength,
+      MediaEncryptionParameters encryptionParameters,
+      byte[] destinationMediaId) {}
+
+  /**
+   * The outcome of a single copy within a batch
+   */
+  public sealed interface CopyResult permits CopySuccess, CopyFailure {}
+
+  /**
+   * @param storageDescriptor the location of the twice-encrypted object on the backup cdn
+   */
+  public record CopySuccess(StorageDescriptor storageDescriptor) implements CopyResult {}
+
+  /**
+   * @param mediaId the destination media id of the object that could not be copied
+   * @param cause   an {@link InvalidLengthException}, a {@link SourceObjectNotFoundException}, or a
+   *                {@link CopyRejectedException}
+   */
+  public record CopyFailure(byte[] mediaId, IOException cause) implements CopyResult {}
+
+  private record PreparedCopy(
+      URI sourceUri,
+      int sourceLength,
+      MediaEncryptionParameters encryptionParameters,
+      MessageBackupUploadDescriptor destination,
+      int destinationLength,
+      byte[] destinationMediaId) {}
+
+  /**
+   * Copy a batch of encrypted objects to the backup cdn, adding a layer of encryption to each
+   * <p>
+   * The usage of the whole batch is written to the backups table once before any objects are copied, and the usage of
+   * any objects that are known not to have been copied is restored with a single write once all copies have finished.
+   * Copies within a batch proceed concurrently, subject to a limit on the number of concurrent copies per batch, per
+   * backup (across all of the backup's requests), and across all users. As with
+   * {@link #copyToBackup(AuthenticatedBackupUser, int, String, int, MediaEncryptionParameters, byte[])}, the user may be
+   * charged for media that failed to copy.
+   *
+   * @return A stage that completes with the outcome of each copy, in the same order as the given copy parameters. Copies
+   * that failed because the source object was missing or had an unexpected length, or that were rejected because too
+   * many copies were already waiting to start, are reported as a {@link CopyFailure}; any other failure fails the
+   * returned stage.
+   */
+  public CompletableFuture<List<CopyResult>> copyToBackup(
+      final AuthenticatedBackupUser backupUser,
+      final List<CopyParameters> toCopy) {
+    checkMediaTier(backupUser);
+
+    final List<PreparedCopy> copies = toCopy.stream()
+        .map(copyParameters -> prepareCopy(backupUser, copyParameters))
+        .toList();
+
+    final long totalDestinationLength = copies.stream().mapToLong(PreparedCopy::destinationLength).sum();
+
+    return this.backupsDb
+        // Write the ddb updates before actually updating backing storage
+        .trackMedia(backupUser, copies.size(), totalDestinationLength)
+
+        .thenComposeAsync(ignored -> Flux.fromIterable(copies)
+            .flatMapSequential(copy -> Mono.fromFuture(scheduleCopy(backupUser, copy))
+                    .then(Mono.<CopyResult>fromSupplier(() ->
+                        new CopySuccess(new StorageDescriptor(copy.destination().cdn(), copy.destinationMediaId()))))
+                    .onErrorResume(throwable -> isKnownCopyFailure(ExceptionUtils.unwrap(throwable)),
+                        throwable -> Mono.just(
+                            new CopyFailure(copy.destinationMediaId(), (IOException) ExceptionUtils.unwrap(throwable)))),
+                BATCH_COPY_CONCURRENCY)
+            .collectList()
+            .toFuture())
+
+        .thenCompose(results -> {
+          // In cases where we know copies failed without writing anything, try to restore the user's quota
+          long failedCount = 0;
+          long failedBytes = 0;
+
+          for (int i = 0; i < results.size(); i++) {
+            if (results.get(i) instanceof CopyFailure) {
+              failedCount++;
+              failedBytes += copies.get(i).destinationLength();
+            }
+          }
+
+          if (failedCount == 0) {
+            return CompletableFuture.completedFuture(results);
+          }
+
+          return this.backupsDb.trackMedia(backupUser, -failedCount, -failedBytes)
+              .handle((ignored, throwable) -> results);
+        });
+  }
+
+  private void checkMediaTier(final AuthenticatedBackupUser backupUser) {
+    if (backupUser.backupTier().compareTo(BackupTier.MEDIA) < 0) {
+      Metrics.counter(ZK_AUTHZ_FAILURE_COUNTER_NAME).increment();
+      throw Status.PERMISSION_DENIED
+          .withDescription("credential does not support storing media")
+          .asRuntimeException();
+    }
+  }
+
+  private PreparedCopy prepareCopy(final AuthenticatedBackupUser backupUser, final CopyParameters copyParameters) {
+    if (copyParameters.sourceLength() > MAX_MEDIA_OBJECT_SIZE) {
+      throw Status.INVALID_ARGUMENT
+          .withDescription("Invalid sourceObject size")
+          .asRuntimeException();
+    }
+
+    final MessageBackupUploadDescriptor dst = cdn3BackupCredentialGenerator.generateUpload(
+        cdnMediaPath(backupUser, copyParameters.destinationMediaId()));
+
+    return new PreparedCopy(
+        attachmentReadUri(copyParameters.sourceCdn(), copyParameters.sourceKey()),
+        copyParameters.sourceLength(),
+        copyParameters.encryptionParameters(),
+        dst,
+        copyParameters.encryptionParameters().outputSize(copyParameters.sourceLength()),
+        copyParameters.destinationMediaId());
+  }
+
+  private static boolean isKnownCopyFailure(final Throwable throwable) {
+    return throwable instanceof SourceObjectNotFoundException
+        || throwable instanceof InvalidLengthException
+        || throwable instanceof CopyRejectedException;
+  }
+
+  /**
+   * Queues a copy to start once fewer than {@link #MAX_CONCURRENT_COPIES} copies are in flight
+   *
+   * @return A stage that completes when the copy has finished, or that fails with a {@link CopyRejectedException} if
+   * the backup already has {@link #MAX_COPIES_PER_BACKUP} copies waiting or in flight or if {@link #MAX_QUEUED_COPIES}
+   * copies are already waiting to start
+   */
+  private CompletableFuture<Void> scheduleCopy(final AuthenticatedBackupUser backupUser, final PreparedCopy copy) {
+    final ByteBuffer backupId = ByteBuffer.wrap(backupUser.backupId());
+
+    if (!tryAcquireCopyPermit(backupId)) {
+      Metrics.counter(COPY_QUEUE_REJECTED_COUNTER_NAME, FAILURE_REASON_TAG_NAME, "perBackupLimit").increment();
+      return CompletableFuture.failedFuture(new CopyRejectedException("Too many copies in progress for backup"));
+    }
+
+    final CompletableFuture<Void> result = new CompletableFuture<>();
+    result.whenComplete((ignored, throwable) -> releaseCopyPermit(backupId));
+
+    final QueuedCopy queuedCopy = new QueuedCopy(() -> remoteStorageManager.copy(
+        copy.sourceUri(), copy.sourceLength(), copy.encryptionParameters(), copy.destination()), result);
+
+    final Sinks.EmitResult emitResult;
+
+    // The queue accepts emissions from only one thread at a time
+    synchronized (copyQueue) {
+      emitResult = copyQueue.tryEmitNext(queuedCopy);
+    }
+
+    if (emitResult.isFailure()) {
+      Metrics.counter(COPY_QUEUE_REJECTED_COUNTER_NAME, FAILURE_REASON_TAG_NAME, emitResult.name()).increment();
+
+      result.completeExceptionally(new CopyRejectedException("Too many copies waiting to start"));
+    }
+
+    return result;
+  }
+
+  private boolean tryAcquireCopyPermit(final ByteBuffer backupId) {
+    final AtomicBoolean acquired = new AtomicBoolean(false);
+
+    copiesByBackupId.compute(backupId, (ignored, copies) -> {
+      final int currentCopies = copies == null ? 0 : copies;
+
+      if (currentCopies >= MAX_COPIES_PER_BACKUP) {
+        return copies;
+      }
+
+      acquired.set(true);
+      return currentCopies + 1;
+    });
+
+    return acquired.get();
+  }
+
+  private void releaseCopyPermit(final ByteBuffer backupId) {
+    // Drop the entry once a backup has no copies left so the map only holds backups with copies in progress
+    copiesByBackupId.computeIfPresent(backupId, (ignored, copies) -> copies > 1 ? copies - 1 : null);
+  }
+
+  private static CompletableFuture<Void> startQueuedCopy(final QueuedCopy queuedCopy) {
+    CompletableFuture<Void> copyFuture;
+
+    try {
+      copyFuture = queuedCopy.copy().get().toCompletableFuture();
+    } catch (final RuntimeException e) {
+      copyFuture = CompletableFuture.failedFuture(e);
+    }
+
+    return copyFuture.whenComplete((ignored, throwable) -> {
+      if (throwable != null) {
+        queuedCopy.result().completeExceptionally(throwable);
+      } else {
+        queuedCopy.result().complete(null);
+      }
+    });
+  }
+
   /**
    * Construct the URI for an attachment with the specified key
    *
@@ -375,7 +653,7 @@ public class BackupManager {
     return Flux
         .fromIterable(storageDescriptors)
 
-        // Issue deletes for all storage descriptors (proceeds with default flux concurrency)
+        // Issue deletes for all storage descriptors
         .flatMap(descriptor -> Mono.fromCompletionStage(
             remoteStorageManager
                 .delete(cdnMediaPath(backupUser, descriptor.key))
@@ -383,7 +661,7 @@ public class BackupManager {
                 .handle((bytesDeleted, throwable) -> throwable != null
                     ? new DeleteFailure(throwable)
                     : new DeleteSuccess(bytesDeleted))
-        ))
+        ), BATCH_DELETE_CONCURRENCY)
 
         // Update backupsDb with the change in usage
         .collectList()
@@ -411,8 +689,11 @@ public class BackupManager {
                 t1.addSuppressed(t2);
                 return t1;
               }).get());
+          if (totalCountDeleted == 0) {
+            return result;
+          }
           return Mono
-              .fromCompletionStage(this.backupsDb.trackMedia(backupUser, -totalCountDeleted, -totalBytesDeleted))
+              .fromCompletionStage(releaseMedia(backupUser, totalCountDeleted, totalBytesDeleted))
               .then(result);
         })
         .toFuture();
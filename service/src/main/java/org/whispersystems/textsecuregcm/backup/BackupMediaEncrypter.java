@@ -6,11 +6,13 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.List;
 import java.util.concurrent.Flow;
+import javax.annotation.Nullable;
 import javax.crypto.BadPaddingException;
 import javax.crypto.Cipher;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.Mac;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.ShortBufferException;
 import org.reactivestreams.FlowAdapters;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import reactor.core.publisher.Flux;
@@ -45,19 +47,7 @@ public class BackupMediaEncrypter {
           mac.update(cipher.getIV());
           return ByteBuffer.wrap(cipher.getIV());
         }),
-        Flux.from(FlowAdapters.toPublisher(sourceBody))
-            .flatMap(buffers -> Flux.fromIterable(buffers))
-            .concatMap(byteBuffer -> {
-              final byte[] copy = new byte[byteBuffer.remaining()];
-              byteBuffer.get(copy);
-              final byte[] res = cipher.update(copy);
-              if (res == null) {
-                return Mono.empty();
-              } else {
-                mac.update(res);
-                return Mono.just(ByteBuffer.wrap(res));
-              }
-            }),
+        Flux.from(FlowAdapters.toPublisher(sourceBody)).mapNotNull(this::encrypt),
         Mono.fromSupplier(() -> {
           try {
             final byte[] finalBytes = cipher.doFinal();
@@ -71,6 +61,44 @@ public class BackupMediaEncrypter {
     return FlowAdapters.toFlowPublisher(encryptedBody);
   }
 
+  /**
+   * Encrypts a batch of source buffers into a single output buffer, reading directly from the source buffers (which
+   * may be direct or read-only) rather than copying them into intermediate arrays first.
+   *
+   * @return a buffer containing the encrypted bytes, or {@code null} if the cipher produced no output for this batch
+   */
+  @Nullable
+  private ByteBuffer encrypt(final List<ByteBuffer> buffers) {
+    int inputSize = 0;
+
+    for (final ByteBuffer buffer : buffers) {
+      inputSize += buffer.remaining();
+    }
+
+    final ByteBuffer output = ByteBuffer.allocate(cipher.getOutputSize(inputSize));
+
+    try {
+      for (final ByteBuffer buffer : buffers) {
+        cipher.update(buffer, output);
+      }
+    } catch (final ShortBufferException e) {
+      // getOutputSize is an upper bound for the output of any sequence of updates with the given total input size
+      throw new AssertionError(e);
+    }
+
+    output.flip();
+
+    if (!output.hasRemaining()) {
+      return null;
+    }
+
+    output.mark();
+    mac.update(output);
+    output.reset();
+
+    return output;
+  }
+
   private static Mac initializeMac(final MediaEncryptionParameters encryptionParameters) {
     try {
       final Mac mac = Mac.getInstance("HmacSHA256");
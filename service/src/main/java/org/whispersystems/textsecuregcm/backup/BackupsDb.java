@@ -145,6 +145,38 @@ public class BackupsDb {
   }
 
 
+  /**
+   * Remove media from the quota in the backup table, unless doing so would leave the tracked usage negative.
+   * <p>
+   * Tracked usage can only drop below the amount being released if it has drifted from what is actually stored on the
+   * cdn, in which case the caller should recalculate usage from the cdn rather than compound the error.
+   *
+   * @param backupUser         The backup user
+   * @param mediaCountReleased The number of media objects removed
+   * @param mediaBytesReleased The total length of the removed media after encryption
+   * @return A stage that completes with true if the quota was updated, or false if the tracked usage was smaller than
+   * the amount released and the quota was left unchanged
+   */
+  CompletableFuture<Boolean> releaseMedia(final AuthenticatedBackupUser backupUser, final long mediaCountReleased,
+      final long mediaBytesReleased) {
+    return dynamoClient
+        .updateItem(UpdateBuilder.forUser(backupTableName, backupUser)
+            .setRefreshTimes(clock)
+            .incrementMediaBytes(-mediaBytesReleased)
+            .incrementMediaCount(-mediaCountReleased)
+            .requireMediaUsageAtLeast(mediaCountReleased, mediaBytesReleased)
+            .updateItemBuilder()
+            .build())
+        .thenApply(ignored -> true)
+        .exceptionally(throwable -> {
+          if (ExceptionUtils.unwrap(throwable) instanceof ConditionalCheckFailedException) {
+            return false;
+          }
+          throw ExceptionUtils.wrap(throwable);
+        });
+  }
+
+
   /**
    * Update the last update timestamps for the backupId in the presentation
    *
@@ -345,6 +377,17 @@ public class BackupsDb {
       return this;
     }
 
+    /**
+     * Only apply the update if the currently tracked media usage is at least the provided amounts
+     */
+    UpdateBuilder requireMediaUsageAtLeast(long mediaCount, long mediaBytes) {
+      addAttrName(Map.entry("#mediaCount", ATTR_MEDIA_COUNT));
+      addAttrName(Map.entry("#mediaBytes", ATTR_MEDIA_BYTES_USED));
+      addAttrValue(Map.entry(":minMediaCount", AttributeValues.n(mediaCount)));
+      addAttrValue(Map.entry(":minMediaBytes", AttributeValues.n(mediaBytes)));
+      return withConditionExpression("#mediaCount >= :minMediaCount AND #mediaBytes >= :minMediaBytes");
+    }
+
     /**
      * Set the lastRefresh time as part of the update
      * <p>
@@ -0,0 +1,19 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.backup;
+
+import java.io.IOException;
+
+/**
+ * Indicates that a copy to the backup cdn was never started because too many copies were already waiting or in flight.
+ * Nothing was written, so the copy may be retried later.
+ */
+public class CopyRejectedException extends IOException {
+
+  public CopyRejectedException(String s) {
+    super(s);
+  }
+}
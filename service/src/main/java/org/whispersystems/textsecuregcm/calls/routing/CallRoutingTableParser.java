@@ -5,7 +5,11 @@
 
 package org.whispersystems.textsecuregcm.calls.routing;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.StreamReadFeature;
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import java.io.BufferedReader;
@@ -16,8 +20,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 
 final class CallRoutingTableParser {
@@ -28,46 +31,42 @@ final class CallRoutingTableParser {
       .enable(StreamReadFeature.INCLUDE_SOURCE_IN_LOCATION)
       .build();
 
-  /** Used for parsing JSON */
-  private static class RawCallRoutingTable {
-      public Map<String, List<String>> ipv4GeoToDataCenters = Map.of();
-      public Map<String, List<String>> ipv6GeoToDataCenters = Map.of();
-      public Map<String, List<String>> ipv4SubnetsToDatacenters = Map.of();
-      public Map<String, List<String>> ipv6SubnetsToDatacenters = Map.of();
-  }
+  private static final TypeReference<List<String>> DATACENTER_LIST_TYPE = new TypeReference<>() {};
 
   private final static String WHITESPACE_REGEX = "\\s+";
 
+  /**
+   * Parses a call routing table in JSON format. Entries are parsed as they're read from the given reader rather than
+   * being collected into an intermediate representation first, so large tables don't need to be held in memory twice.
+   */
   public static CallRoutingTable fromJson(final Reader inputReader) throws IOException {
-    try (final BufferedReader reader = new BufferedReader(inputReader)) {
-      RawCallRoutingTable rawTable = objectMapper.readValue(reader, RawCallRoutingTable.class);
-
-      Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4SubnetToDatacenter = rawTable.ipv4SubnetsToDatacenters
-          .entrySet()
-          .stream()
-          .collect(Collectors.toUnmodifiableMap(
-              e -> (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock(e.getKey(), IPV4_DEFAULT_BLOCK_SIZE),
-                  Map.Entry::getValue
-          ));
-
-      Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6SubnetToDatacenter = rawTable.ipv6SubnetsToDatacenters
-          .entrySet()
-          .stream()
-          .collect(Collectors.toUnmodifiableMap(
-              e -> (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock(e.getKey(), IPV6_DEFAULT_BLOCK_SIZE),
-              Map.Entry::getValue
-          ));
-
-      Map<CallRoutingTable.GeoKey, List<String>> geoToDatacenter = Stream.concat(
-          rawTable.ipv4GeoToDataCenters
-              .entrySet()
-              .stream()
-              .map(e -> Map.entry(parseRawGeoKey(e.getKey(), CallRoutingTable.Protocol.v4), e.getValue())),
-          rawTable.ipv6GeoToDataCenters
-              .entrySet()
-              .stream()
-              .map(e -> Map.entry(parseRawGeoKey(e.getKey(), CallRoutingTable.Protocol.v6), e.getValue()))
-      ).collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, Map.Entry::getValue));
+    try (final BufferedReader reader = new BufferedReader(inputReader);
+        final JsonParser parser = objectMapper.createParser(reader)) {
+
+      final Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4SubnetToDatacenter = new HashMap<>();
+      final Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6SubnetToDatacenter = new HashMap<>();
+      final Map<CallRoutingTable.GeoKey, List<String>> geoToDatacenter = new HashMap<>();
+
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "Expected a call routing table object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String section = parser.currentName();
+        parser.nextToken();
+
+        switch (section) {
+          case "ipv4GeoToDataCenters" -> readSection(parser, geoToDatacenter,
+              key -> parseRawGeoKey(key, CallRoutingTable.Protocol.v4));
+          case "ipv6GeoToDataCenters" -> readSection(parser, geoToDatacenter,
+              key -> parseRawGeoKey(key, CallRoutingTable.Protocol.v6));
+          case "ipv4SubnetsToDatacenters" -> readSection(parser, ipv4SubnetToDatacenter,
+              key -> (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock(key, IPV4_DEFAULT_BLOCK_SIZE));
+          case "ipv6SubnetsToDatacenters" -> readSection(parser, ipv6SubnetToDatacenter,
+              key -> (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock(key, IPV6_DEFAULT_BLOCK_SIZE));
+          default -> throw new JsonParseException(parser, "Unrecognized call routing table section: " + section);
+        }
+      }
 
       return new CallRoutingTable(
           ipv4SubnetToDatacenter,
@@ -77,6 +76,24 @@ final class CallRoutingTableParser {
     }
   }
 
+  private static <K> void readSection(final JsonParser parser,
+      final Map<K, List<String>> destination,
+      final Function<String, K> keyParser) throws IOException {
+
+    if (parser.currentToken() != JsonToken.START_OBJECT) {
+      throw new JsonParseException(parser, "Expected an object");
+    }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      final K key = keyParser.apply(parser.currentName());
+      parser.nextToken();
+
+      if (destination.put(key, parser.readValueAs(DATACENTER_LIST_TYPE)) != null) {
+        throw new IllegalStateException("Duplicate key: " + key);
+      }
+    }
+  }
+
   private static CallRoutingTable.GeoKey parseRawGeoKey(String rawKey, CallRoutingTable.Protocol protocol) {
     String[] splits = rawKey.split("-");
     if (splits.length < 2 || splits.length > 3) {
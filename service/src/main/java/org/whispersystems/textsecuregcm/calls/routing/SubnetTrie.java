@@ -0,0 +1,204 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.calls.routing;
+
+import java.math.BigInteger;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import javax.annotation.Nullable;
+
+/**
+ * A compressed binary (Patricia) trie that maps subnets to datacenters and finds the longest matching subnet for an
+ * address. Addresses and subnets are represented as 128-bit keys split into a pair of {@code long}s, with IPv4
+ * addresses occupying the most significant 32 bits of the high word, so a lookup is a single descent that doesn't
+ * allocate. Tries are built once and never modified afterward.
+ */
+class SubnetTrie {
+
+  private static final int MAX_PREFIX_LENGTH = 128;
+
+  @Nullable
+  private final Node root;
+
+  private final int size;
+
+  private static class Node {
+
+    private final long high;
+    private final long low;
+    private final int prefixLength;
+
+    @Nullable
+    private List<String> datacenters;
+
+    @Nullable
+    private Node zero;
+
+    @Nullable
+    private Node one;
+
+    private Node(final long high, final long low, final int prefixLength, @Nullable final List<String> datacenters) {
+      this.high = high;
+      this.low = low;
+      this.prefixLength = prefixLength;
+      this.datacenters = datacenters;
+    }
+  }
+
+  private SubnetTrie(@Nullable final Node root, final int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  static SubnetTrie ofIpv4(final Map<CidrBlock.IpV4CidrBlock, List<String>> subnetToDatacenter) {
+    Node root = null;
+
+    for (final Map.Entry<CidrBlock.IpV4CidrBlock, List<String>> entry : subnetToDatacenter.entrySet()) {
+      root = insert(root, ipv4Key(entry.getKey().subnet()), 0, entry.getKey().cidrBlockSize(), entry.getValue());
+    }
+
+    return new SubnetTrie(root, subnetToDatacenter.size());
+  }
+
+  static SubnetTrie ofIpv6(final Map<CidrBlock.IpV6CidrBlock, List<String>> subnetToDatacenter) {
+    Node root = null;
+
+    for (final Map.Entry<CidrBlock.IpV6CidrBlock, List<String>> entry : subnetToDatacenter.entrySet()) {
+      final BigInteger subnet = entry.getKey().subnet();
+
+      root = insert(root, subnet.shiftRight(64).longValue(), subnet.longValue(), entry.getKey().cidrBlockSize(),
+          entry.getValue());
+    }
+
+    return new SubnetTrie(root, subnetToDatacenter.size());
+  }
+
+  /**
+   * Returns the datacenters for the longest subnet that contains the given address.
+   *
+   * @param address the raw bytes of an IPv4 address if this trie was built from IPv4 subnets or of an IPv6 address if
+   * it was built from IPv6 subnets
+   *
+   * @return the datacenters for the most specific matching subnet, or an empty list if no subnet matches
+   */
+  List<String> find(final byte[] address) {
+    return address.length == 4
+        ? find(ipv4Key(toLong(address, 0, 4)), 0)
+        : find(toLong(address, 0, 8), toLong(address, 8, 8));
+  }
+
+  private List<String> find(final long high, final long low) {
+    List<String> datacenters = Collections.emptyList();
+    Node node = root;
+
+    while (node != null && commonPrefixLength(node.high, node.low, high, low, node.prefixLength) == node.prefixLength) {
+      if (node.datacenters != null) {
+        datacenters = node.datacenters;
+      }
+
+      if (node.prefixLength == MAX_PREFIX_LENGTH) {
+        break;
+      }
+
+      node = bit(high, low, node.prefixLength) == 0 ? node.zero : node.one;
+    }
+
+    return datacenters;
+  }
+
+  int size() {
+    return size;
+  }
+
+  boolean isEmpty() {
+    return root == null;
+  }
+
+  private static Node insert(@Nullable final Node node,
+      final long high,
+      final long low,
+      final int prefixLength,
+      final List<String> datacenters) {
+
+    if (node == null) {
+      return new Node(high, low, prefixLength, datacenters);
+    }
+
+    final int common = commonPrefixLength(node.high, node.low, high, low, Math.min(node.prefixLength, prefixLength));
+
+    if (common == node.prefixLength) {
+      if (common == prefixLength) {
+        node.datacenters = datacenters;
+      } else if (bit(high, low, common) == 0) {
+        node.zero = insert(node.zero, high, low, prefixLength, datacenters);
+      } else {
+        node.one = insert(node.one, high, low, prefixLength, datacenters);
+      }
+
+      return node;
+    }
+
+    // The new subnet diverges from (or contains) this node's subnet, so this node moves under a new branch
+    final Node branch = common == prefixLength
+        ? new Node(high, low, prefixLength, datacenters)
+        : new Node(high & highMask(common), low & lowMask(common), common, null);
+
+    attach(branch, node);
+
+    if (common < prefixLength) {
+      attach(branch, new Node(high, low, prefixLength, datacenters));
+    }
+
+    return branch;
+  }
+
+  private static void attach(final Node parent, final Node child) {
+    if (bit(child.high, child.low, parent.prefixLength) == 0) {
+      parent.zero = child;
+    } else {
+      parent.one = child;
+    }
+  }
+
+  private static int commonPrefixLength(final long aHigh, final long aLow, final long bHigh, final long bLow,
+      final int maxLength) {
+
+    final long highDifference = aHigh ^ bHigh;
+
+    final int common = highDifference != 0
+        ? Long.numberOfLeadingZeros(highDifference)
+        : 64 + Long.numberOfLeadingZeros(aLow ^ bLow);
+
+    return Math.min(common, maxLength);
+  }
+
+  private static int bit(final long high, final long low, final int index) {
+    return (int) (index < 64 ? high >>> (63 - index) : low >>> (127 - index)) & 1;
+  }
+
+  private static long highMask(final int prefixLength) {
+    return prefixLength == 0 ? 0 : prefixLength >= 64 ? -1L : -1L << (64 - prefixLength);
+  }
+
+  private static long lowMask(final int prefixLength) {
+    return prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+  }
+
+  private static long ipv4Key(final long address) {
+    return address << 32;
+  }
+
+  private static long toLong(final byte[] bytes, final int offset, final int length) {
+    long value = 0;
+
+    for (int i = offset; i < offset + length; i++) {
+      value = value << 8 | (bytes[i] & 0xff);
+    }
+
+    return value;
+  }
+}
@@ -5,14 +5,11 @@
 
 package org.whispersystems.textsecuregcm.calls.routing;
 
-import com.maxmind.geoip2.DatabaseReader;
-import com.maxmind.geoip2.exception.GeoIp2Exception;
-import com.maxmind.geoip2.model.CityResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.geo.GeoIpLocator;
 import org.whispersystems.textsecuregcm.util.Util;
 import javax.annotation.Nonnull;
-import java.io.IOException;
 import java.net.InetAddress;
 import java.util.*;
 import java.util.function.Supplier;
@@ -30,20 +27,20 @@ public class TurnCallRouter {
   private final Supplier<CallRoutingTable> performanceRouting;
   private final Supplier<CallRoutingTable> manualRouting;
   private final DynamicConfigTurnRouter configTurnRouter;
-  private final Supplier<DatabaseReader> geoIp;
+  private final GeoIpLocator geoIpLocator;
 
   public TurnCallRouter(
       @Nonnull Supplier<CallDnsRecords> callDnsRecords,
       @Nonnull Supplier<CallRoutingTable> performanceRouting,
       @Nonnull Supplier<CallRoutingTable> manualRouting,
       @Nonnull DynamicConfigTurnRouter configTurnRouter,
-      @Nonnull Supplier<DatabaseReader> geoIp
+      @Nonnull GeoIpLocator geoIpLocator
   ) {
     this.performanceRouting = performanceRouting;
     this.callDnsRecords = callDnsRecords;
     this.manualRouting = manualRouting;
     this.configTurnRouter = configTurnRouter;
-    this.geoIp = geoIp;
+    this.geoIpLocator = geoIpLocator;
   }
 
   /**
@@ -85,29 +82,25 @@ public class TurnCallRouter {
       return new TurnServerOptions(hostname, null, this.configTurnRouter.randomUrls());
     }
 
-    CityResponse geoInfo;
-    try {
-      geoInfo = geoIp.get().city(clientAddress.get());
-    } catch (IOException | GeoIp2Exception e) {
-      throw new RuntimeException(e);
+    Optional<GeoIpLocator.GeoIpLocation> maybeLocation = geoIpLocator.locate(clientAddress.get());
+    if (maybeLocation.isEmpty()) {
+      return new TurnServerOptions(hostname, null, this.configTurnRouter.randomUrls());
     }
-    Optional<String> subdivision = !geoInfo.getSubdivisions().isEmpty()
-        ? Optional.of(geoInfo.getSubdivisions().getFirst().getIsoCode())
-        : Optional.empty();
+    GeoIpLocator.GeoIpLocation location = maybeLocation.get();
 
     List<String> datacenters = this.manualRouting.get().getDatacentersFor(
         clientAddress.get(),
-        geoInfo.getContinent().getCode(),
-        geoInfo.getCountry().getIsoCode(),
-        subdivision
+        location.continent(),
+        location.country(),
+        location.subdivision()
     );
 
     if (datacenters.isEmpty()){
       datacenters = this.performanceRouting.get().getDatacentersFor(
           clientAddress.get(),
-          geoInfo.getContinent().getCode(),
-          geoInfo.getCountry().getIsoCode(),
-          subdivision
+          location.continent(),
+          location.country(),
+          location.subdivision()
       );
     }
     List<String> urlsWithIps = getUrlsForInstances(selectInstances(datacenters, instanceLimit));
@@ -4,14 +4,46 @@
  */
 package org.whispersystems.textsecuregcm.configuration;
 
+import java.time.Duration;
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Positive;
 import org.whispersystems.textsecuregcm.configuration.secrets.SecretString;
 
-
+/**
+ * @param connectionsPerLane the number of connections to APNs for each lane (VOIP, alert, and background)
+ * @param maxInFlightPerLane the most notifications each lane may have awaiting a response from APNs at once; lanes
+ *                           reduce their limit below this when APNs is slow or overloaded
+ * @param maxWaitingPerLane  the most notifications each lane may have waiting to be sent once its in-flight limit has
+ *                           been reached; notifications beyond this fail immediately
+ * @param targetLatency      lanes reduce their in-flight limit when APNs takes longer than this to respond
+ */
 public record ApnConfiguration(@NotNull SecretString teamId,
                                @NotNull SecretString keyId,
                                @NotNull SecretString signingKey,
                                @NotBlank String bundleId,
-                               boolean sandbox) {
+                               boolean sandbox,
+                               @Positive int connectionsPerLane,
+                               @Positive int maxInFlightPerLane,
+                               @Positive int maxWaitingPerLane,
+                               @NotNull Duration targetLatency) {
+
+  public ApnConfiguration {
+    if (connectionsPerLane == 0) {
+      connectionsPerLane = 1;
+    }
+
+    if (maxInFlightPerLane == 0) {
+      // APNs allows up to 1,000 concurrent streams per connection
+      maxInFlightPerLane = 1_000 * connectionsPerLane;
+    }
+
+    if (maxWaitingPerLane == 0) {
+      maxWaitingPerLane = 10 * maxInFlightPerLane;
+    }
+
+    if (targetLatency == null) {
+      targetLatency = Duration.ofMillis(500);
+    }
+  }
 }
@@ -5,5 +5,25 @@
 package org.whispersystems.textsecuregcm.configuration;
 
 import java.time.Duration;
+import java.util.Collections;
+import java.util.Map;
+import javax.validation.Valid;
 
-public record VirtualThreadConfiguration(Duration pinEventThreshold) {}
+/**
+ * @param pinEventThreshold pin events that last longer than this threshold are logged and counted
+ * @param executors named executors that should run their tasks on virtual threads instead of on a fixed pool of
+ *                  platform threads; executors not listed here keep their platform thread pools
+ */
+public record VirtualThreadConfiguration(Duration pinEventThreshold,
+                                         Map<String, @Valid VirtualThreadExecutorConfiguration> executors) {
+
+  public VirtualThreadConfiguration {
+    if (executors == null) {
+      executors = Collections.emptyMap();
+    }
+  }
+
+  public VirtualThreadConfiguration(final Duration pinEventThreshold) {
+    this(pinEventThreshold, null);
+  }
+}
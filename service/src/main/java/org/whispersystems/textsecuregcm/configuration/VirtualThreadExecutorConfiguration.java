@@ -0,0 +1,16 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+package org.whispersystems.textsecuregcm.configuration;
+
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
+/**
+ * @param maxConcurrency the maximum number of the executor's tasks that may run at the same time
+ * @param maxQueued the maximum number of tasks that may wait for a running task to finish; tasks submitted while this
+ *                  many tasks are waiting are rejected according to the executor's rejection policy
+ */
+public record VirtualThreadExecutorConfiguration(@Positive int maxConcurrency, @PositiveOrZero int maxQueued) {
+}
@@ -67,6 +67,18 @@ public class DynamicConfiguration {
   @Valid
   DynamicMetricsConfiguration metricsConfiguration = new DynamicMetricsConfiguration(false);
 
+  @JsonProperty
+  @Valid
+  DynamicMessageDeliveryTraceConfiguration messageDeliveryTrace = new DynamicMessageDeliveryTraceConfiguration(0);
+
+  @JsonProperty
+  @Valid
+  DynamicPushLatencyConfiguration pushLatency = new DynamicPushLatencyConfiguration(1);
+
+  @JsonProperty
+  @Valid
+  DynamicProfileCacheConfiguration profileCache = new DynamicProfileCacheConfiguration(false);
+
   public Optional<DynamicExperimentEnrollmentConfiguration> getExperimentEnrollmentConfiguration(
       final String experimentName) {
     return Optional.ofNullable(experiments.get(experimentName));
@@ -121,4 +133,16 @@ public class DynamicConfiguration {
     return metricsConfiguration;
   }
 
+  public DynamicMessageDeliveryTraceConfiguration getMessageDeliveryTraceConfiguration() {
+    return messageDeliveryTrace;
+  }
+
+  public DynamicPushLatencyConfiguration getPushLatencyConfiguration() {
+    return pushLatency;
+  }
+
+  public DynamicProfileCacheConfiguration getProfileCacheConfiguration() {
+    return profileCache;
+  }
+
 }
@@ -0,0 +1,16 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+
+/**
+ * @param sampleRate the fraction of send requests, between 0 and 1, whose messages should carry a delivery trace and
+ *                   report per-stage delivery latency
+ */
+public record DynamicMessageDeliveryTraceConfiguration(@DecimalMin("0") @DecimalMax("1") double sampleRate) {
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+/**
+ * @param binaryEncoding whether cached profiles should be read from and written to the binary-encoded profile cache
+ *                       instead of the legacy JSON profile cache. This must only be enabled once every running instance
+ *                       understands the binary encoding.
+ */
+public record DynamicProfileCacheConfiguration(boolean binaryEncoding) {
+}
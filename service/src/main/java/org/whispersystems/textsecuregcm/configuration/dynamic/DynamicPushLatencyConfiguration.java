@@ -0,0 +1,15 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.configuration.dynamic;
+
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
+
+/**
+ * @param sampleRate the fraction of accounts, between 0 and 1, for which push latency should be measured
+ */
+public record DynamicPushLatencyConfiguration(@DecimalMin("0") @DecimalMax("1") double sampleRate) {
+}
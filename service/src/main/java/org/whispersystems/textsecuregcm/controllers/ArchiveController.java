@@ -14,7 +14,6 @@ import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import java.io.IOException;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -52,6 +51,7 @@ import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedBackupUser;
 import org.whispersystems.textsecuregcm.backup.BackupAuthManager;
 import org.whispersystems.textsecuregcm.backup.BackupManager;
+import org.whispersystems.textsecuregcm.backup.CopyRejectedException;
 import org.whispersystems.textsecuregcm.backup.InvalidLengthException;
 import org.whispersystems.textsecuregcm.backup.MediaEncryptionParameters;
 import org.whispersystems.textsecuregcm.backup.SourceObjectNotFoundException;
@@ -62,8 +62,6 @@ import org.whispersystems.textsecuregcm.util.ECPublicKeyAdapter;
 import org.whispersystems.textsecuregcm.util.ExactlySize;
 import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import org.whispersystems.textsecuregcm.util.Util;
-import reactor.core.publisher.Flux;
-import reactor.core.publisher.Mono;
 
 @Path("/v1/archives")
 @Tag(name = "Archive")
@@ -456,6 +454,8 @@ public class ArchiveController {
             throw new ClientErrorException("Source object not found " + unwrapped.getMessage(), Response.Status.GONE);
           } else if (unwrapped instanceof InvalidLengthException) {
             throw new BadRequestException("Invalid length " + unwrapped.getMessage());
+          } else if (unwrapped instanceof CopyRejectedException) {
+            throw new ClientErrorException(unwrapped.getMessage(), Response.Status.TOO_MANY_REQUESTS);
           } else {
             throw ExceptionUtils.wrap(e);
           }
@@ -494,6 +494,7 @@ public class ArchiveController {
             A 200 indicates the object was successfully copied.
             A 400 indicates an invalid argument in the request
             A 410 indicates that the source object was not found
+            A 429 indicates that too many copies were in progress and the copy may be retried later
             """)
         int status,
 
@@ -560,31 +561,34 @@ public class ArchiveController {
       throw new ClientErrorException("Media quota exhausted", Response.Status.REQUEST_ENTITY_TOO_LARGE);
     }
 
-    return Flux.fromIterable(copyMediaRequest.items)
-        // Operate sequentially, waiting for one copy to finish before starting the next one. At least right now,
-        // copying concurrently will introduce contention over the metadata.
-        .concatMap(request -> Mono
-            .fromCompletionStage(copyMediaImpl(backupUser, request))
-            .map(result -> new CopyMediaBatchResponse.Entry(200, null, result.cdn(), result.key()))
-            .onErrorResume(throwable -> ExceptionUtils.unwrap(throwable) instanceof IOException, throwable -> {
-              final Throwable unwrapped = ExceptionUtils.unwrap(throwable);
-
-              int status;
-              String error;
-              if (unwrapped instanceof SourceObjectNotFoundException) {
-                status = 410;
-                error = "Source object not found " + unwrapped.getMessage();
-              } else if (unwrapped instanceof InvalidLengthException) {
-                status = 400;
-                error = "Invalid length " + unwrapped.getMessage();
-              } else {
-                throw ExceptionUtils.wrap(throwable);
+    final List<BackupManager.CopyParameters> copyParameters = copyMediaRequest.items().stream()
+        .map(request -> new BackupManager.CopyParameters(
+            request.sourceAttachment.cdn,
+            request.sourceAttachment.key,
+            request.objectLength,
+            new MediaEncryptionParameters(request.encryptionKey, request.hmacKey, request.iv),
+            request.mediaId))
+        .toList();
+
+    return backupManager.copyToBackup(backupUser, copyParameters)
+        .thenApply(results -> results.stream()
+            .map(result -> switch (result) {
+              case BackupManager.CopySuccess success -> new CopyMediaBatchResponse.Entry(200, null,
+                  success.storageDescriptor().cdn(), success.storageDescriptor().key());
+              case BackupManager.CopyFailure failure -> {
+                if (failure.cause() instanceof SourceObjectNotFoundException) {
+                  yield new CopyMediaBatchResponse.Entry(410,
+                      "Source object not found " + failure.cause().getMessage(), null, failure.mediaId());
+                } else if (failure.cause() instanceof CopyRejectedException) {
+                  yield new CopyMediaBatchResponse.Entry(429, failure.cause().getMessage(), null, failure.mediaId());
+                } else {
+                  yield new CopyMediaBatchResponse.Entry(400,
+                      "Invalid length " + failure.cause().getMessage(), null, failure.mediaId());
+                }
               }
-              return Mono.just(new CopyMediaBatchResponse.Entry(status, error, null, request.mediaId));
-            }))
-        .collectList()
-        .map(list -> Response.status(207).entity(new CopyMediaBatchResponse(list)).build())
-        .toFuture();
+            })
+            .toList())
+        .thenApply(list -> Response.status(207).entity(new CopyMediaBatchResponse(list)).build());
   }
 
   @POST
@@ -19,6 +19,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import javax.annotation.Nonnull;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.DefaultValue;
@@ -30,12 +31,9 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.signal.libsignal.protocol.ServiceId;
-import org.signal.libsignal.zkgroup.GenericServerSecretParams;
-import org.signal.libsignal.zkgroup.auth.AuthCredentialWithPniResponse;
-import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
-import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
 import org.whispersystems.textsecuregcm.auth.CertificateGenerator;
+import org.whispersystems.textsecuregcm.auth.GroupCredentialIssuer;
 import org.whispersystems.textsecuregcm.entities.DeliveryCertificate;
 import org.whispersystems.textsecuregcm.entities.GroupCredentials;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
@@ -46,8 +44,7 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 public class CertificateController {
 
   private final CertificateGenerator certificateGenerator;
-  private final ServerZkAuthOperations serverZkAuthOperations;
-  private final GenericServerSecretParams genericServerSecretParams;
+  private final GroupCredentialIssuer groupCredentialIssuer;
   private final Clock clock;
 
   @VisibleForTesting
@@ -57,12 +54,10 @@ public class CertificateController {
 
   public CertificateController(
       @Nonnull CertificateGenerator certificateGenerator,
-      @Nonnull ServerZkAuthOperations serverZkAuthOperations,
-      @Nonnull GenericServerSecretParams genericServerSecretParams,
+      @Nonnull GroupCredentialIssuer groupCredentialIssuer,
       @Nonnull Clock clock) {
     this.certificateGenerator = Objects.requireNonNull(certificateGenerator);
-    this.serverZkAuthOperations = Objects.requireNonNull(serverZkAuthOperations);
-    this.genericServerSecretParams = genericServerSecretParams;
+    this.groupCredentialIssuer = Objects.requireNonNull(groupCredentialIssuer);
     this.clock = Objects.requireNonNull(clock);
   }
 
@@ -87,7 +82,7 @@ public class CertificateController {
   @GET
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/auth/group")
-  public GroupCredentials getGroupAuthenticationCredentials(
+  public CompletableFuture<GroupCredentials> getGroupAuthenticationCredentials(
       @Auth AuthenticatedAccount auth,
       @QueryParam("redemptionStartSeconds") long startSeconds,
       @QueryParam("redemptionEndSeconds") long endSeconds,
@@ -106,33 +101,22 @@ public class CertificateController {
       throw new BadRequestException();
     }
 
-    final List<GroupCredentials.GroupCredential> credentials = new ArrayList<>();
-    final List<GroupCredentials.CallLinkAuthCredential> callLinkAuthCredentials = new ArrayList<>();
+    final List<Instant> redemptions = new ArrayList<>();
 
     Instant redemption = redemptionStart;
 
-    ServiceId.Aci aci = new ServiceId.Aci(auth.getAccount().getUuid());
-    ServiceId.Pni pni = new ServiceId.Pni(auth.getAccount().getPhoneNumberIdentifier());
-
     while (!redemption.isAfter(redemptionEnd)) {
-      AuthCredentialWithPniResponse authCredentialWithPni;
-      if (pniAsServiceId) {
-        authCredentialWithPni = serverZkAuthOperations.issueAuthCredentialWithPniAsServiceId(aci, pni, redemption);
-      } else {
-        authCredentialWithPni = serverZkAuthOperations.issueAuthCredentialWithPniAsAci(aci, pni, redemption);
-      }
-      credentials.add(new GroupCredentials.GroupCredential(
-          authCredentialWithPni.serialize(),
-          (int) redemption.getEpochSecond()));
-
-      callLinkAuthCredentials.add(new GroupCredentials.CallLinkAuthCredential(
-          CallLinkAuthCredentialResponse.issueCredential(aci, redemption, genericServerSecretParams).serialize(),
-          redemption.getEpochSecond()));
-
+      redemptions.add(redemption);
       redemption = redemption.plus(Duration.ofDays(1));
     }
 
+    final ServiceId.Aci aci = new ServiceId.Aci(auth.getAccount().getUuid());
+    final ServiceId.Pni pni = new ServiceId.Pni(auth.getAccount().getPhoneNumberIdentifier());
 
-    return new GroupCredentials(credentials, callLinkAuthCredentials, pni.getRawUUID());
+    return groupCredentialIssuer.issueCredentials(aci, pni, redemptions, pniAsServiceId)
+        .thenApply(issuedCredentials -> new GroupCredentials(
+            issuedCredentials.stream().map(GroupCredentialIssuer.IssuedCredentials::groupCredential).toList(),
+            issuedCredentials.stream().map(GroupCredentialIssuer.IssuedCredentials::callLinkAuthCredential).toList(),
+            pni.getRawUUID()));
   }
 }
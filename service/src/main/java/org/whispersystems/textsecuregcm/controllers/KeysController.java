@@ -19,10 +19,14 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 import javax.ws.rs.Consumes;
@@ -42,9 +46,7 @@ import org.signal.libsignal.protocol.IdentityKey;
 import org.whispersystems.textsecuregcm.auth.Anonymous;
 import org.whispersystems.textsecuregcm.auth.AuthenticatedAccount;
 import org.whispersystems.textsecuregcm.auth.OptionalAccess;
-import org.whispersystems.textsecuregcm.entities.ECPreKey;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
-import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.PreKeyCount;
 import org.whispersystems.textsecuregcm.entities.PreKeyResponse;
 import org.whispersystems.textsecuregcm.entities.PreKeyResponseItem;
@@ -230,7 +232,7 @@ public class KeysController {
   @ApiResponse(responseCode = "429", description = "Rate limit exceeded.", headers = @Header(
       name = "Retry-After",
       description = "If present, a positive integer indicating the number of seconds before a subsequent attempt could succeed"))
-  public PreKeyResponse getDeviceKeys(@Auth Optional<AuthenticatedAccount> auth,
+  public CompletableFuture<PreKeyResponse> getDeviceKeys(@Auth Optional<AuthenticatedAccount> auth,
       @HeaderParam(HeaderUtils.UNIDENTIFIED_ACCESS_KEY) Optional<Anonymous> accessKey,
 
       @Parameter(description="the account or phone-number identifier to retrieve keys for")
@@ -264,56 +266,42 @@ public class KeysController {
     }
 
     final List<Device> devices = parseDeviceId(deviceId, target);
-    final List<PreKeyResponseItem> responseItems = new ArrayList<>(devices.size());
-
-    final List<CompletableFuture<Void>> tasks = devices.stream().map(device -> {
-          final CompletableFuture<Optional<ECPreKey>> unsignedEcPreKeyFuture =
-              keysManager.takeEC(targetIdentifier.uuid(), device.getId());
-
-          final CompletableFuture<Optional<ECSignedPreKey>> signedEcPreKeyFuture =
-              keysManager.getEcSignedPreKey(targetIdentifier.uuid(), device.getId());
-
-          final CompletableFuture<Optional<KEMSignedPreKey>> pqPreKeyFuture =
-              keysManager.takePQ(targetIdentifier.uuid(), device.getId());
-
-          return CompletableFuture.allOf(unsignedEcPreKeyFuture, signedEcPreKeyFuture, pqPreKeyFuture)
-              .thenAccept(ignored -> {
-                final KEMSignedPreKey pqPreKey = pqPreKeyFuture.join().orElse(null);
-                final ECPreKey unsignedEcPreKey = unsignedEcPreKeyFuture.join().orElse(null);
-                final ECSignedPreKey signedEcPreKey = signedEcPreKeyFuture.join().orElse(null);
-
-                Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
-                        Tag.of(PRIMARY_DEVICE_TAG_NAME, String.valueOf(device.isPrimary())),
-                        UserAgentTagUtil.getPlatformTag(userAgent),
-                        Tag.of("targetPlatform", getDevicePlatform(device).map(Enum::name).orElse("unknown")),
-                        Tag.of(IDENTITY_TYPE_TAG_NAME, targetIdentifier.identityType().name()),
-                        Tag.of("isStale", String.valueOf(isDeviceStale(device))),
-                        Tag.of("oneTimeEcKeyAvailable", String.valueOf(unsignedEcPreKey != null))))
-                    .increment();
-
-                if (signedEcPreKey != null || unsignedEcPreKey != null || pqPreKey != null) {
-                  final int registrationId = switch (targetIdentifier.identityType()) {
-                    case ACI -> device.getRegistrationId();
-                    case PNI -> device.getPhoneNumberIdentityRegistrationId().orElse(device.getRegistrationId());
-                  };
-
-                  responseItems.add(
-                      new PreKeyResponseItem(device.getId(), registrationId, signedEcPreKey, unsignedEcPreKey,
-                          pqPreKey));
-                }
-              });
-        })
-        .toList();
-
-    CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
-
-    final IdentityKey identityKey = target.getIdentityKey(targetIdentifier.identityType());
-
-    if (responseItems.isEmpty()) {
-      throw new WebApplicationException(Response.Status.NOT_FOUND);
-    }
-
-    return new PreKeyResponse(identityKey, responseItems);
+    final Map<Byte, Device> devicesById = devices.stream()
+        .collect(Collectors.toMap(Device::getId, Function.identity(), (a, b) -> a, LinkedHashMap::new));
+
+    return keysManager.takeDevicePreKeys(targetIdentifier.uuid(), List.copyOf(devicesById.keySet()))
+        .thenApply(devicePreKeys -> {
+          final List<PreKeyResponseItem> responseItems = new ArrayList<>(devicePreKeys.size());
+
+          for (final KeysManager.DevicePreKeys preKeys : devicePreKeys) {
+            final Device device = devicesById.get(preKeys.deviceId());
+
+            Metrics.counter(GET_KEYS_COUNTER_NAME, Tags.of(
+                    Tag.of(PRIMARY_DEVICE_TAG_NAME, String.valueOf(device.isPrimary())),
+                    UserAgentTagUtil.getPlatformTag(userAgent),
+                    Tag.of("targetPlatform", getDevicePlatform(device).map(Enum::name).orElse("unknown")),
+                    Tag.of(IDENTITY_TYPE_TAG_NAME, targetIdentifier.identityType().name()),
+                    Tag.of("isStale", String.valueOf(isDeviceStale(device))),
+                    Tag.of("oneTimeEcKeyAvailable", String.valueOf(preKeys.ecPreKey() != null))))
+                .increment();
+
+            if (preKeys.ecSignedPreKey() != null || preKeys.ecPreKey() != null || preKeys.kemPreKey() != null) {
+              final int registrationId = switch (targetIdentifier.identityType()) {
+                case ACI -> device.getRegistrationId();
+                case PNI -> device.getPhoneNumberIdentityRegistrationId().orElse(device.getRegistrationId());
+              };
+
+              responseItems.add(new PreKeyResponseItem(device.getId(), registrationId,
+                  preKeys.ecSignedPreKey(), preKeys.ecPreKey(), preKeys.kemPreKey()));
+            }
+          }
+
+          if (responseItems.isEmpty()) {
+            throw new WebApplicationException(Response.Status.NOT_FOUND);
+          }
+
+          return new PreKeyResponse(target.getIdentityKey(targetIdentifier.identityType()), responseItems);
+        });
   }
 
   private static Optional<ClientPlatform> getDevicePlatform(final Device device) {
@@ -105,6 +105,7 @@ import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.limits.CardinalityEstimator;
 import org.whispersystems.textsecuregcm.limits.RateLimiters;
+import org.whispersystems.textsecuregcm.metrics.MessageDeliveryTraceMetrics;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
@@ -244,6 +245,8 @@ public class MessageController {
       @Context ContainerRequestContext context) throws RateLimitExceededException {
 
     final Sample sample = Timer.start();
+    final long requestStartTimestamp = System.currentTimeMillis();
+    final long requestStartNanos = System.nanoTime();
     try {
       if (source.isEmpty() && accessKey.isEmpty() && !isStory) {
         throw new WebApplicationException(Response.Status.UNAUTHORIZED);
@@ -359,6 +362,8 @@ public class MessageController {
             Tag.of(SENDER_TYPE_TAG_NAME, senderType),
             Tag.of(IDENTITY_TYPE_TAG_NAME, destinationIdentifier.identityType().name()));
 
+        @Nullable final Envelope.DeliveryTrace deliveryTrace = startDeliveryTrace(requestStartTimestamp, requestStartNanos);
+
         for (IncomingMessage incomingMessage : messages.messages()) {
           Optional<Device> destinationDevice = destination.get().getDevice(incomingMessage.destinationDeviceId());
 
@@ -375,7 +380,8 @@ public class MessageController {
                 messages.urgent(),
                 incomingMessage,
                 userAgent,
-                spamReportToken);
+                spamReportToken,
+                deliveryTrace);
           }
         }
 
@@ -479,6 +485,9 @@ public class MessageController {
 
       @Context ContainerRequestContext context) throws RateLimitExceededException {
 
+    final long requestStartTimestamp = System.currentTimeMillis();
+    final long requestStartNanos = System.nanoTime();
+
     final Optional<Response> spamCheck = spamChecker.checkForSpam(context, Optional.empty(), Optional.empty());
     if (spamCheck.isPresent()) {
       return spamCheck.get();
@@ -575,6 +584,8 @@ public class MessageController {
 
     List<ServiceIdentifier> uuids404 = Collections.synchronizedList(new ArrayList<>());
 
+    @Nullable final Envelope.DeliveryTrace deliveryTrace = startDeliveryTrace(requestStartTimestamp, requestStartNanos);
+
     try {
       CompletableFuture.allOf(
           recipients.values().stream()
@@ -597,7 +608,7 @@ public class MessageController {
                               sentMessageCounter.increment();
                               sendCommonPayloadMessage(
                                   destinationAccount, destinationDevice, recipientData.serviceIdentifier(), timestamp, online,
-                                  isStory, isUrgent, payload);
+                                  isStory, isUrgent, payload, deliveryTrace);
                             } catch (NoSuchUserException e) {
                               // this should never happen, because we already asserted the device is present and enabled
                               Metrics.counter(
@@ -809,7 +820,8 @@ public class MessageController {
       boolean urgent,
       IncomingMessage incomingMessage,
       String userAgentString,
-      Optional<byte[]> spamReportToken)
+      Optional<byte[]> spamReportToken,
+      @Nullable Envelope.DeliveryTrace deliveryTrace)
       throws NoSuchUserException {
     try {
       final Envelope envelope;
@@ -830,7 +842,9 @@ public class MessageController {
         throw new BadRequestException(e);
       }
 
-      messageSender.sendMessage(destinationAccount, destinationDevice, envelope, online);
+      messageSender.sendMessage(destinationAccount, destinationDevice,
+          deliveryTrace != null ? envelope.toBuilder().setDeliveryTrace(deliveryTrace).build() : envelope,
+          online);
     } catch (NotPushRegisteredException e) {
       if (destinationDevice.isPrimary()) throw new NoSuchUserException(e);
       else                              logger.debug("Not registered", e);
@@ -844,7 +858,8 @@ public class MessageController {
       boolean online,
       boolean story,
       boolean urgent,
-      byte[] payload) throws NoSuchUserException {
+      byte[] payload,
+      @Nullable Envelope.DeliveryTrace deliveryTrace) throws NoSuchUserException {
     try {
       Envelope.Builder messageBuilder = Envelope.newBuilder();
       long serverTimestamp = System.currentTimeMillis();
@@ -858,6 +873,10 @@ public class MessageController {
           .setUrgent(urgent)
           .setDestinationUuid(serviceIdentifier.toServiceIdentifierString());
 
+      if (deliveryTrace != null) {
+        messageBuilder.setDeliveryTrace(deliveryTrace);
+      }
+
       messageSender.sendMessage(destinationAccount, destinationDevice, messageBuilder.build(), online);
     } catch (NotPushRegisteredException e) {
       if (destinationDevice.isPrimary()) {
@@ -868,6 +887,26 @@ public class MessageController {
     }
   }
 
+  /**
+   * Decides whether the messages in a send request should be traced and, if so, records the duration of the request's
+   * validation stage and starts a delivery trace for its messages.
+   *
+   * @return a delivery trace to attach to the request's messages, or {@code null} if the request should not be traced
+   */
+  @Nullable
+  private Envelope.DeliveryTrace startDeliveryTrace(final long requestStartTimestamp, final long requestStartNanos) {
+    if (!MessageDeliveryTraceMetrics.shouldTrace(
+        dynamicConfigurationManager.getConfiguration().getMessageDeliveryTraceConfiguration().sampleRate())) {
+      return null;
+    }
+
+    MessageDeliveryTraceMetrics.recordStage(MessageDeliveryTraceMetrics.Stage.VALIDATE,
+        System.nanoTime() - requestStartNanos);
+
+    return MessageDeliveryTraceMetrics.startTrace(requestStartTimestamp);
+  }
+
+
   private void checkMessageRateLimit(AuthenticatedAccount source, Account destination, String userAgent)
       throws RateLimitExceededException {
     final String senderCountryCode = Util.getCountryCode(source.getAccount().getNumber());
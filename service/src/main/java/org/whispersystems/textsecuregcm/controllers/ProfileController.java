@@ -7,30 +7,24 @@ package org.whispersystems.textsecuregcm.controllers;
 
 import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 
-import com.google.common.base.Preconditions;
 import io.dropwizard.auth.Auth;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tags;
 import io.swagger.v3.oas.annotations.tags.Tag;
-import io.vavr.Tuple;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.ZonedDateTime;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Base64;
-import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executor;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.Nullable;
@@ -56,7 +50,6 @@ import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import org.glassfish.jersey.server.ManagedAsync;
-import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ServiceId;
 import org.signal.libsignal.zkgroup.InvalidInputException;
 import org.signal.libsignal.zkgroup.VerificationFailedException;
@@ -75,6 +68,8 @@ import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfigurati
 import org.whispersystems.textsecuregcm.entities.BaseProfileResponse;
 import org.whispersystems.textsecuregcm.entities.BatchIdentityCheckRequest;
 import org.whispersystems.textsecuregcm.entities.BatchIdentityCheckResponse;
+import org.whispersystems.textsecuregcm.entities.BatchVersionedProfileRequest;
+import org.whispersystems.textsecuregcm.entities.BatchVersionedProfileResponse;
 import org.whispersystems.textsecuregcm.entities.CreateProfileRequest;
 import org.whispersystems.textsecuregcm.entities.CredentialProfileResponse;
 import org.whispersystems.textsecuregcm.entities.ExpiringProfileKeyCredentialProfileResponse;
@@ -96,9 +91,10 @@ import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
 import org.whispersystems.textsecuregcm.storage.ProfilesManager;
 import org.whispersystems.textsecuregcm.storage.VersionedProfile;
 import org.whispersystems.textsecuregcm.util.HeaderUtils;
+import org.whispersystems.textsecuregcm.util.IdentityKeyChecker;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.ProfileHelper;
-import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.DeleteObjectRequest;
 
@@ -122,7 +118,7 @@ public class ProfileController {
   private final S3Client            s3client;
   private final String              bucket;
 
-  private final Executor batchIdentityCheckExecutor;
+  private final IdentityKeyChecker identityKeyChecker;
 
   private static final String EXPIRING_PROFILE_KEY_CREDENTIAL_TYPE = "expiringProfileKey";
 
@@ -141,8 +137,7 @@ public class ProfileController {
       PostPolicyGenerator policyGenerator,
       PolicySigner policySigner,
       String bucket,
-      ServerZkProfileOperations zkProfileOperations,
-      Executor batchIdentityCheckExecutor) {
+      ServerZkProfileOperations zkProfileOperations) {
     this.clock = clock;
     this.rateLimiters        = rateLimiters;
     this.accountsManager     = accountsManager;
@@ -156,7 +151,7 @@ public class ProfileController {
     this.s3client            = s3client;
     this.policyGenerator     = policyGenerator;
     this.policySigner        = policySigner;
-    this.batchIdentityCheckExecutor = Preconditions.checkNotNull(batchIdentityCheckExecutor);
+    this.identityKeyChecker  = new IdentityKeyChecker(accountsManager);
   }
 
   @PUT
@@ -322,57 +317,58 @@ public class ProfileController {
   @Produces(MediaType.APPLICATION_JSON)
   @Path("/identity_check/batch")
   public CompletableFuture<BatchIdentityCheckResponse> runBatchIdentityCheck(@NotNull @Valid BatchIdentityCheckRequest request) {
-    return CompletableFuture.supplyAsync(() -> {
-          List<BatchIdentityCheckResponse.Element> responseElements = Collections.synchronizedList(new ArrayList<>());
-
-          final int targetBatchCount = 10;
-          // clamp the amount per batch to be in the closed range [30, 100]
-          final int batchSize = Math.min(Math.max(request.elements().size() / targetBatchCount, 30), 100);
-          // add 1 extra batch if there is any remainder to consume the final non-full batch
-          final int batchCount =
-              request.elements().size() / batchSize + (request.elements().size() % batchSize != 0 ? 1 : 0);
-
-          @SuppressWarnings("rawtypes") CompletableFuture[] futures = new CompletableFuture[batchCount];
-          for (int i = 0; i < batchCount; ++i) {
-            List<BatchIdentityCheckRequest.Element> batch = request.elements()
-                .subList(i * batchSize, Math.min((i + 1) * batchSize, request.elements().size()));
-            futures[i] = CompletableFuture.runAsync(() -> {
-              MessageDigest sha256;
-              try {
-                sha256 = MessageDigest.getInstance("SHA-256");
-              } catch (NoSuchAlgorithmException e) {
-                throw new AssertionError(e);
-              }
-              for (final BatchIdentityCheckRequest.Element element : batch) {
-                checkFingerprintAndAdd(element, responseElements, sha256);
-              }
-            }, batchIdentityCheckExecutor);
-          }
-
-          return Tuple.of(futures, responseElements);
-        }).thenCompose(tuple2 -> CompletableFuture.allOf(tuple2._1).thenApply((ignored) -> new BatchIdentityCheckResponse(tuple2._2)));
+    return identityKeyChecker.check(Flux.fromIterable(request.elements()),
+            element -> Objects.requireNonNullElse(element.uuid(), element.aci()),
+            BatchIdentityCheckRequest.Element::fingerprint)
+        .map(mismatch -> new BatchIdentityCheckResponse.Element(mismatch.check().uuid(), mismatch.check().aci(),
+            mismatch.identityKey()))
+        .collectList()
+        .map(BatchIdentityCheckResponse::new)
+        .toFuture();
   }
 
-  private void checkFingerprintAndAdd(BatchIdentityCheckRequest.Element element,
-      Collection<BatchIdentityCheckResponse.Element> responseElements, MessageDigest md) {
-
-    final ServiceIdentifier identifier = Objects.requireNonNullElse(element.uuid(), element.aci());
-    final Optional<Account> maybeAccount = accountsManager.getByServiceIdentifier(identifier);
+  // Fetches one version of the profile for each of several accounts at once (e.g. to refresh the profiles of every
+  // member of a group); each profile counts against the requester's profile rate limit as a single fetch would.
+  @POST
+  @Consumes(MediaType.APPLICATION_JSON)
+  @Produces(MediaType.APPLICATION_JSON)
+  @Path("/batch")
+  public CompletableFuture<BatchVersionedProfileResponse> getVersionedProfiles(
+      @Auth AuthenticatedAccount auth,
+      @Context ContainerRequestContext containerRequestContext,
+      @NotNull @Valid BatchVersionedProfileRequest request) throws RateLimitExceededException {
 
-    maybeAccount.ifPresent(account -> {
-      final IdentityKey identityKey = account.getIdentityKey(identifier.identityType());
-      if (identityKey == null) {
-        return;
-      }
+    rateLimiters.getProfileLimiter().validate(auth.getAccount().getUuid(), request.profiles().size());
 
-      md.reset();
-      byte[] digest = md.digest(identityKey.serialize());
-      byte[] fingerprint = Util.truncate(digest, 4);
+    final Map<UUID, String> versionsByAccountIdentifier = new HashMap<>();
 
-      if (!Arrays.equals(fingerprint, element.fingerprint())) {
-        responseElements.add(new BatchIdentityCheckResponse.Element(element.uuid(), element.aci(), identityKey));
+    for (final BatchVersionedProfileRequest.Element element : request.profiles()) {
+      if (versionsByAccountIdentifier.put(element.aci().uuid(), element.version()) != null) {
+        throw new BadRequestException("Duplicate account identifier");
       }
-    });
+    }
+
+    return accountsManager.getByServiceIdentifiersAsync(request.profiles().stream()
+            .<ServiceIdentifier>map(BatchVersionedProfileRequest.Element::aci)
+            .toList())
+        .thenCompose(accountsByServiceIdentifier -> {
+          final Map<UUID, Account> accountsByAccountIdentifier = accountsByServiceIdentifier.values().stream()
+              .filter(Account::isEnabled)
+              .collect(Collectors.toMap(Account::getUuid, Function.identity(), (a, b) -> a));
+
+          final Map<UUID, String> versionsByFoundAccountIdentifier = new HashMap<>(versionsByAccountIdentifier);
+          versionsByFoundAccountIdentifier.keySet().retainAll(accountsByAccountIdentifier.keySet());
+
+          return profilesManager.getAsync(versionsByFoundAccountIdentifier)
+              .thenApply(profilesByAccountIdentifier -> new BatchVersionedProfileResponse(request.profiles().stream()
+                  .filter(element -> accountsByAccountIdentifier.containsKey(element.aci().uuid()))
+                  .map(element -> buildVersionedProfileResponse(accountsByAccountIdentifier.get(element.aci().uuid()),
+                      element.version(),
+                      Optional.ofNullable(profilesByAccountIdentifier.get(element.aci().uuid())),
+                      ProfileHelper.isSelfProfileRequest(auth.getAccount().getUuid(), element.aci()),
+                      containerRequestContext))
+                  .toList()));
+        });
   }
 
   private ExpiringProfileKeyCredentialProfileResponse buildExpiringProfileKeyCredentialProfileResponse(
@@ -405,7 +401,15 @@ public class ProfileController {
       final boolean isSelf,
       final ContainerRequestContext containerRequestContext) {
 
-    final Optional<VersionedProfile> maybeProfile = profilesManager.get(account.getUuid(), version);
+    return buildVersionedProfileResponse(account, version, profilesManager.get(account.getUuid(), version), isSelf,
+        containerRequestContext);
+  }
+
+  private VersionedProfileResponse buildVersionedProfileResponse(final Account account,
+      final String version,
+      final Optional<VersionedProfile> maybeProfile,
+      final boolean isSelf,
+      final ContainerRequestContext containerRequestContext) {
 
     if (maybeProfile.isEmpty()) {
       // Hypothesis: this should basically never happen since clients can't delete versions
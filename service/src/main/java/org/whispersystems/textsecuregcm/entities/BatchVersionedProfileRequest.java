@@ -0,0 +1,32 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.entities;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import java.util.List;
+import javax.validation.Valid;
+import javax.validation.constraints.NotBlank;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.util.ServiceIdentifierAdapter;
+
+public record BatchVersionedProfileRequest(@Valid @NotNull @Size(min = 1, max = 1000) List<Element> profiles) {
+
+  /**
+   * @param aci     the account identifier of the account whose profile to retrieve
+   * @param version the version of the account's profile to retrieve
+   */
+  public record Element(@NotNull
+                        @JsonSerialize(using = ServiceIdentifierAdapter.ServiceIdentifierSerializer.class)
+                        @JsonDeserialize(using = ServiceIdentifierAdapter.AciServiceIdentifierDeserializer.class)
+                        AciServiceIdentifier aci,
+
+                        @NotBlank
+                        String version) {
+  }
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.entities;
+
+import java.util.List;
+
+/**
+ * @param profiles the requested profiles, in request order; accounts that were not found are omitted
+ */
+public record BatchVersionedProfileResponse(List<VersionedProfileResponse> profiles) {
+}
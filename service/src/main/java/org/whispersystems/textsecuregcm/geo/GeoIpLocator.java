@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.geo;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.annotations.VisibleForTesting;
+import com.maxmind.db.MaxMindDbConstructor;
+import com.maxmind.db.MaxMindDbParameter;
+import com.maxmind.db.Reader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import javax.annotation.Nullable;
+
+/**
+ * Resolves client addresses to the coarse location (continent, country, and first subdivision) used for call routing.
+ * Only those fields are decoded from the MaxMind city database; the rest of each record is skipped. Locations are
+ * cached by network prefix (/24 for IPv4, /48 for IPv6) on the assumption that addresses within a prefix share a
+ * location, and the cache is discarded whenever the underlying database is replaced.
+ */
+public class GeoIpLocator {
+
+  private final Supplier<Reader> databaseSupplier;
+  private final int maxCachedPrefixes;
+
+  private final AtomicReference<CachedDatabase> cachedDatabase = new AtomicReference<>();
+
+  private static final int DEFAULT_MAX_CACHED_PREFIXES = 100_000;
+
+  private static final String LOOKUP_COUNTER_NAME = name(GeoIpLocator.class, "lookup");
+  private static final Counter CACHE_HIT_COUNTER = Metrics.counter(LOOKUP_COUNTER_NAME, "cached", "true");
+  private static final Counter CACHE_MISS_COUNTER = Metrics.counter(LOOKUP_COUNTER_NAME, "cached", "false");
+  private static final Timer DECODE_TIMER = Metrics.timer(name(GeoIpLocator.class, "decode"));
+
+  /**
+   * A coarse client location. Any field may be absent if the database doesn't have it for a given network.
+   */
+  public record GeoIpLocation(@Nullable String continent, @Nullable String country, Optional<String> subdivision) {
+  }
+
+  /**
+   * A city database record with only the fields needed for routing. Must be public to be instantiated by the MaxMind
+   * decoder.
+   */
+  public record CityRecord(@MaxMindDbParameter(name = "continent") @Nullable ContinentRecord continent,
+                           @MaxMindDbParameter(name = "country") @Nullable IsoCodeRecord country,
+                           @MaxMindDbParameter(name = "subdivisions") @Nullable List<IsoCodeRecord> subdivisions) {
+
+    @MaxMindDbConstructor
+    public CityRecord {
+    }
+  }
+
+  public record ContinentRecord(@MaxMindDbParameter(name = "code") @Nullable String code) {
+
+    @MaxMindDbConstructor
+    public ContinentRecord {
+    }
+  }
+
+  public record IsoCodeRecord(@MaxMindDbParameter(name = "iso_code") @Nullable String isoCode) {
+
+    @MaxMindDbConstructor
+    public IsoCodeRecord {
+    }
+  }
+
+  private record CachedDatabase(Reader reader, Cache<Long, Optional<GeoIpLocation>> locationsByPrefix) {
+  }
+
+  public GeoIpLocator(final Supplier<Reader> databaseSupplier) {
+    this(databaseSupplier, DEFAULT_MAX_CACHED_PREFIXES);
+  }
+
+  @VisibleForTesting
+  GeoIpLocator(final Supplier<Reader> databaseSupplier, final int maxCachedPrefixes) {
+    this.databaseSupplier = databaseSupplier;
+    this.maxCachedPrefixes = maxCachedPrefixes;
+  }
+
+  /**
+   * Finds the location of the given address.
+   *
+   * @param address the address to locate
+   *
+   * @return the location of the given address, or empty if no database is loaded or the database has no record for
+   * the address
+   *
+   * @throws UncheckedIOException if the database could not be read
+   */
+  public Optional<GeoIpLocation> locate(final InetAddress address) {
+    @Nullable final Reader reader = databaseSupplier.get();
+
+    if (reader == null) {
+      return Optional.empty();
+    }
+
+    final Cache<Long, Optional<GeoIpLocation>> locationsByPrefix = getCachedDatabase(reader).locationsByPrefix();
+    final Long prefix = getPrefix(address);
+
+    @Nullable final Optional<GeoIpLocation> cachedLocation = locationsByPrefix.getIfPresent(prefix);
+
+    if (cachedLocation != null) {
+      CACHE_HIT_COUNTER.increment();
+      return cachedLocation;
+    }
+
+    CACHE_MISS_COUNTER.increment();
+    return locationsByPrefix.get(prefix, ignored -> decode(reader, address));
+  }
+
+  private CachedDatabase getCachedDatabase(final Reader reader) {
+    return cachedDatabase.updateAndGet(current -> current != null && current.reader() == reader
+        ? current
+        : new CachedDatabase(reader, Caffeine.newBuilder().maximumSize(maxCachedPrefixes).build()));
+  }
+
+  private static Optional<GeoIpLocation> decode(final Reader reader, final InetAddress address) {
+    final Timer.Sample sample = Timer.start();
+
+    try {
+      @Nullable final CityRecord cityRecord = reader.get(address, CityRecord.class);
+
+      if (cityRecord == null) {
+        return Optional.empty();
+      }
+
+      return Optional.of(new GeoIpLocation(
+          cityRecord.continent() != null ? cityRecord.continent().code() : null,
+          cityRecord.country() != null ? cityRecord.country().isoCode() : null,
+          cityRecord.subdivisions() != null && !cityRecord.subdivisions().isEmpty()
+              ? Optional.ofNullable(cityRecord.subdivisions().getFirst().isoCode())
+              : Optional.empty()));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } finally {
+      sample.stop(DECODE_TIMER);
+    }
+  }
+
+  /**
+   * Returns a key identifying the /24 (for IPv4) or /48 (for IPv6) network that contains the given address. IPv4 keys
+   * have a marker bit above the 48 bits used by IPv6 keys so the two can never collide.
+   */
+  @VisibleForTesting
+  static long getPrefix(final InetAddress address) {
+    final byte[] bytes = address.getAddress();
+
+    if (bytes.length == 4) {
+      return 1L << 48 | (bytes[0] & 0xffL) << 16 | (bytes[1] & 0xffL) << 8 | (bytes[2] & 0xffL);
+    }
+
+    long prefix = 0;
+
+    for (int i = 0; i < 6; i++) {
+      prefix = prefix << 8 | (bytes[i] & 0xffL);
+    }
+
+    return prefix;
+  }
+}
@@ -6,8 +6,7 @@
 package org.whispersystems.textsecuregcm.geo;
 
 import com.maxmind.db.CHMCache;
-import com.maxmind.geoip2.DatabaseReader;
-import com.maxmind.geoip2.GeoIp2Provider;
+import com.maxmind.db.Reader;
 import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
@@ -23,15 +22,22 @@ import javax.annotation.Nonnull;
 import java.io.BufferedInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Supplier;
 
-public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed {
+/**
+ * Loads a MaxMind database from S3 and replaces it whenever the object in S3 changes. Callers should generally read the
+ * database through a {@link GeoIpLocator} rather than directly.
+ */
+public class MaxMindDatabaseManager implements Supplier<Reader>, Managed {
 
   private final S3ObjectMonitor databaseMonitor;
 
-  private final AtomicReference<DatabaseReader> databaseReader = new AtomicReference<>();
+  private final AtomicReference<Reader> databaseReader = new AtomicReference<>();
 
   private final String databaseTag;
 
@@ -72,12 +78,20 @@ public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed
           if (nextEntry.getName().toLowerCase().endsWith(".mmdb")) {
             foundDatabaseEntry = true;
 
-            final DatabaseReader oldReader = databaseReader.getAndSet(
-                new DatabaseReader.Builder(tarInputStream).withCache(new CHMCache()).build()
-            );
-            if (oldReader != null) {
-              oldReader.close();
+            // Stream the database to a temporary file and memory-map it rather than reading it onto the heap. That keeps
+            // reloads from briefly holding two copies of the database (plus a read buffer) in memory, and deleting the
+            // file once it's mapped doesn't affect the mapping.
+            final Path databasePath = Files.createTempFile("maxmind-" + databaseTag, ".mmdb");
+
+            try {
+              Files.copy(tarInputStream, databasePath, StandardCopyOption.REPLACE_EXISTING);
+              databaseReader.set(new Reader(databasePath.toFile(), Reader.FileMode.MEMORY_MAPPED, new CHMCache()));
+            } finally {
+              Files.deleteIfExists(databasePath);
             }
+
+            // The previous reader is deliberately left open so lookups already in progress against it can finish; its
+            // mapping is released once it's no longer reachable.
             break;
           }
         }
@@ -102,14 +116,14 @@ public class MaxMindDatabaseManager implements Supplier<DatabaseReader>, Managed
     Managed.super.stop();
     databaseMonitor.stop();
 
-    final DatabaseReader reader = databaseReader.getAndSet(null);
+    final Reader reader = databaseReader.getAndSet(null);
     if(reader != null) {
       reader.close();
     }
   }
 
   @Override
-  public DatabaseReader get() {
+  public Reader get() {
     return this.databaseReader.get();
   }
 }
@@ -7,31 +7,29 @@ package org.whispersystems.textsecuregcm.grpc;
 
 import com.google.protobuf.ByteString;
 import io.grpc.Status;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Arrays;
 import org.signal.chat.keys.CheckIdentityKeyRequest;
 import org.signal.chat.keys.CheckIdentityKeyResponse;
 import org.signal.chat.keys.GetPreKeysAnonymousRequest;
 import org.signal.chat.keys.GetPreKeysResponse;
 import org.signal.chat.keys.ReactorKeysAnonymousGrpc;
-import org.signal.libsignal.protocol.IdentityKey;
 import org.whispersystems.textsecuregcm.auth.UnidentifiedAccessUtil;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.KeysManager;
+import org.whispersystems.textsecuregcm.util.IdentityKeyChecker;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.util.function.Tuples;
 
 public class KeysAnonymousGrpcService extends ReactorKeysAnonymousGrpc.KeysAnonymousImplBase {
 
   private final AccountsManager accountsManager;
   private final KeysManager keysManager;
+  private final IdentityKeyChecker identityKeyChecker;
 
   public KeysAnonymousGrpcService(final AccountsManager accountsManager, final KeysManager keysManager) {
     this.accountsManager = accountsManager;
     this.keysManager = keysManager;
+    this.identityKeyChecker = new IdentityKeyChecker(accountsManager);
   }
 
   @Override
@@ -52,32 +50,12 @@ public class KeysAnonymousGrpcService extends ReactorKeysAnonymousGrpc.KeysAnony
 
   @Override
   public Flux<CheckIdentityKeyResponse> checkIdentityKeys(final Flux<CheckIdentityKeyRequest> requests) {
-    return requests
-        .map(request -> Tuples.of(ServiceIdentifierUtil.fromGrpcServiceIdentifier(request.getTargetIdentifier()),
-            request.getFingerprint().toByteArray()))
-        .flatMap(serviceIdentifierAndFingerprint -> Mono.fromFuture(
-                () -> accountsManager.getByServiceIdentifierAsync(serviceIdentifierAndFingerprint.getT1()))
-            .flatMap(Mono::justOrEmpty)
-            .filter(account -> !fingerprintMatches(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
-                .identityType()), serviceIdentifierAndFingerprint.getT2()))
-            .map(account -> CheckIdentityKeyResponse.newBuilder()
-                    .setTargetIdentifier(
-                        ServiceIdentifierUtil.toGrpcServiceIdentifier(serviceIdentifierAndFingerprint.getT1()))
-                    .setIdentityKey(ByteString.copyFrom(account.getIdentityKey(serviceIdentifierAndFingerprint.getT1()
-                        .identityType()).serialize()))
-                    .build())
-        );
-  }
-
-  private static boolean fingerprintMatches(final IdentityKey identityKey, final byte[] fingerprint) {
-    final byte[] digest;
-    try {
-      digest = MessageDigest.getInstance("SHA-256").digest(identityKey.serialize());
-    } catch (NoSuchAlgorithmException e) {
-      // SHA-256 should always be supported as an algorithm
-      throw new AssertionError("All Java implementations must support the SHA-256 message digest");
-    }
-
-    return Arrays.equals(digest, 0, 4, fingerprint, 0, 4);
+    return identityKeyChecker.check(requests,
+            request -> ServiceIdentifierUtil.fromGrpcServiceIdentifier(request.getTargetIdentifier()),
+            request -> request.getFingerprint().toByteArray())
+        .map(mismatch -> CheckIdentityKeyResponse.newBuilder()
+            .setTargetIdentifier(mismatch.check().getTargetIdentifier())
+            .setIdentityKey(ByteString.copyFrom(mismatch.identityKey().serialize()))
+            .build());
   }
 }
@@ -8,13 +8,11 @@ package org.whispersystems.textsecuregcm.grpc;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.protobuf.ByteString;
 import io.grpc.Status;
+import java.util.function.Function;
 import org.signal.chat.common.EcPreKey;
 import org.signal.chat.common.EcSignedPreKey;
 import org.signal.chat.common.KemSignedPreKey;
 import org.signal.chat.keys.GetPreKeysResponse;
-import org.whispersystems.textsecuregcm.entities.ECPreKey;
-import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
-import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -40,38 +38,41 @@ class KeysGrpcHelper {
 
     return devices
         .filter(Device::isEnabled)
-        .switchIfEmpty(Mono.error(Status.NOT_FOUND.asException()))
-        .flatMap(device -> Flux.merge(
-                Mono.fromFuture(() -> keysManager.takeEC(targetAccount.getIdentifier(identityType), device.getId())),
-                Mono.fromFuture(() -> keysManager.getEcSignedPreKey(targetAccount.getIdentifier(identityType), device.getId())),
-                Mono.fromFuture(() -> keysManager.takePQ(targetAccount.getIdentifier(identityType), device.getId())))
-            .flatMap(Mono::justOrEmpty)
-            .reduce(GetPreKeysResponse.PreKeyBundle.newBuilder(), (builder, preKey) -> {
-              if (preKey instanceof ECPreKey ecPreKey) {
-                builder.setEcOneTimePreKey(EcPreKey.newBuilder()
-                    .setKeyId(ecPreKey.keyId())
-                    .setPublicKey(ByteString.copyFrom(ecPreKey.serializedPublicKey()))
-                    .build());
-              } else if (preKey instanceof ECSignedPreKey ecSignedPreKey) {
-                builder.setEcSignedPreKey(EcSignedPreKey.newBuilder()
-                    .setKeyId(ecSignedPreKey.keyId())
-                    .setPublicKey(ByteString.copyFrom(ecSignedPreKey.serializedPublicKey()))
-                    .setSignature(ByteString.copyFrom(ecSignedPreKey.signature()))
-                    .build());
-              } else if (preKey instanceof KEMSignedPreKey kemSignedPreKey) {
-                builder.setKemOneTimePreKey(KemSignedPreKey.newBuilder()
-                    .setKeyId(kemSignedPreKey.keyId())
-                    .setPublicKey(ByteString.copyFrom(kemSignedPreKey.serializedPublicKey()))
-                    .setSignature(ByteString.copyFrom(kemSignedPreKey.signature()))
-                    .build());
-              } else {
-                throw new AssertionError("Unexpected pre-key type: " + preKey.getClass());
-              }
+        .map(Device::getId)
+        .collectList()
+        .flatMap(deviceIds -> deviceIds.isEmpty()
+            ? Mono.error(Status.NOT_FOUND.asException())
+            : Mono.fromFuture(() -> keysManager.takeDevicePreKeys(targetAccount.getIdentifier(identityType), deviceIds)))
+        .flatMapIterable(Function.identity())
+        .map(devicePreKeys -> {
+          final GetPreKeysResponse.PreKeyBundle.Builder builder = GetPreKeysResponse.PreKeyBundle.newBuilder();
 
-              return builder;
-            })
-            // Cast device IDs to `int` to match data types in the response object’s protobuf definition
-            .map(builder -> Tuples.of((int) device.getId(), builder.build())))
+          if (devicePreKeys.ecPreKey() != null) {
+            builder.setEcOneTimePreKey(EcPreKey.newBuilder()
+                .setKeyId(devicePreKeys.ecPreKey().keyId())
+                .setPublicKey(ByteString.copyFrom(devicePreKeys.ecPreKey().serializedPublicKey()))
+                .build());
+          }
+
+          if (devicePreKeys.ecSignedPreKey() != null) {
+            builder.setEcSignedPreKey(EcSignedPreKey.newBuilder()
+                .setKeyId(devicePreKeys.ecSignedPreKey().keyId())
+                .setPublicKey(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().serializedPublicKey()))
+                .setSignature(ByteString.copyFrom(devicePreKeys.ecSignedPreKey().signature()))
+                .build());
+          }
+
+          if (devicePreKeys.kemPreKey() != null) {
+            builder.setKemOneTimePreKey(KemSignedPreKey.newBuilder()
+                .setKeyId(devicePreKeys.kemPreKey().keyId())
+                .setPublicKey(ByteString.copyFrom(devicePreKeys.kemPreKey().serializedPublicKey()))
+                .setSignature(ByteString.copyFrom(devicePreKeys.kemPreKey().signature()))
+                .build());
+          }
+
+          // Cast device IDs to `int` to match data types in the response object’s protobuf definition
+          return Tuples.of((int) devicePreKeys.deviceId(), builder.build());
+        })
         .collectMap(Tuple2::getT1, Tuple2::getT2)
         .map(preKeyBundles -> GetPreKeysResponse.newBuilder()
             .setIdentityKey(ByteString.copyFrom(targetAccount.getIdentityKey(identityType).serialize()))
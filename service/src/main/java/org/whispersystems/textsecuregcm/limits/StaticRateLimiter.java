@@ -142,26 +142,29 @@ public class StaticRateLimiter implements RateLimiter {
 
   private long executeValidateScript(final String key, final int amount, final boolean applyChanges) {
     final List<String> keys = List.of(bucketName(name, key));
-    final List<String> arguments = List.of(
-        String.valueOf(config.bucketSize()),
-        String.valueOf(config.leakRatePerMillis()),
-        String.valueOf(clock.millis()),
-        String.valueOf(amount),
-        String.valueOf(applyChanges)
-    );
+    final List<String> arguments = validateScriptArguments(config, clock.millis(), amount, applyChanges);
     return (Long) validateScript.execute(keys, arguments);
   }
 
   private CompletionStage<Long> executeValidateScriptAsync(final String key, final int amount, final boolean applyChanges) {
     final List<String> keys = List.of(bucketName(name, key));
-    final List<String> arguments = List.of(
+    final List<String> arguments = validateScriptArguments(config, clock.millis(), amount, applyChanges);
+    return validateScript.executeAsync(keys, arguments).thenApply(o -> (Long) o);
+  }
+
+  @VisibleForTesting
+  static List<String> validateScriptArguments(final RateLimiterConfig config,
+      final long currentTimeMillis,
+      final int amount,
+      final boolean applyChanges) {
+
+    return List.of(
         String.valueOf(config.bucketSize()),
         String.valueOf(config.leakRatePerMillis()),
-        String.valueOf(clock.millis()),
+        String.valueOf(currentTimeMillis),
         String.valueOf(amount),
         String.valueOf(applyChanges)
     );
-    return validateScript.executeAsync(keys, arguments).thenApply(o -> (Long) o);
   }
 
   @VisibleForTesting
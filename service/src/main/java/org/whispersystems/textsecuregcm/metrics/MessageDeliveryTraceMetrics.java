@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+
+/**
+ * Measures the latency of each stage of message delivery for a sample of messages. Sampled messages carry a
+ * {@link Envelope.DeliveryTrace} from the time the server accepts them until they're acknowledged by the destination
+ * device, which lets stages that happen on different hosts (like inserting a message on one host and delivering it
+ * from another) be measured. Stages that happen on a single host are measured with a monotonic clock; stages that span
+ * hosts are measured with wall-clock time and are subject to clock skew between hosts.
+ * <p>
+ * Delivery traces are for internal use only and must be removed from envelopes before they're sent to clients.
+ */
+public final class MessageDeliveryTraceMetrics {
+
+  public enum Stage {
+    /** From the start of a send request until its messages are handed off for delivery */
+    VALIDATE,
+    /** Checking whether the destination device is connected */
+    PRESENCE_CHECK,
+    /** Inserting the message into the destination's message queue */
+    INSERT,
+    /** From insertion until the destination's connection learns that new messages are available */
+    NOTIFY,
+    /** From insertion (or notification, if any) until the message has been read from the queue and is ready to send */
+    FETCH,
+    /** From sending the message to the destination device until the device acknowledges it */
+    ACKNOWLEDGE,
+    /** From the start of the send request until the destination device acknowledges the message */
+    END_TO_END
+  }
+
+  static final String STAGE_LATENCY_TIMER_NAME = name(MessageDeliveryTraceMetrics.class, "stageLatency");
+
+  private static final Map<Stage, Timer> STAGE_TIMERS = new EnumMap<>(Stage.class);
+
+  static {
+    for (final Stage stage : Stage.values()) {
+      STAGE_TIMERS.put(stage, Timer.builder(STAGE_LATENCY_TIMER_NAME)
+          .publishPercentileHistogram(true)
+          .tag("stage", stage.name().toLowerCase())
+          .register(Metrics.globalRegistry));
+    }
+  }
+
+  private MessageDeliveryTraceMetrics() {
+  }
+
+  /**
+   * Decides whether a send request should be traced.
+   *
+   * @param sampleRate the fraction of requests to trace, between 0 and 1
+   *
+   * @return {@code true} if the request should be traced or {@code false} otherwise
+   */
+  public static boolean shouldTrace(final double sampleRate) {
+    return sampleRate > 0 && ThreadLocalRandom.current().nextDouble() < sampleRate;
+  }
+
+  /**
+   * Starts a new delivery trace for a request accepted at the given time.
+   *
+   * @param acceptedTimestamp the time, in milliseconds since the epoch, at which the server began handling the request
+   *
+   * @return a new delivery trace
+   */
+  public static Envelope.DeliveryTrace startTrace(final long acceptedTimestamp) {
+    return Envelope.DeliveryTrace.newBuilder()
+        .setAcceptedTimestamp(acceptedTimestamp)
+        .build();
+  }
+
+  /**
+   * Records the duration of a stage that began at the given time, as measured by {@link System#nanoTime()}, and ended
+   * now. Does nothing if the given envelope is not being traced.
+   */
+  public static void recordStage(final Envelope envelope, final Stage stage, final long startNanos) {
+    if (envelope.hasDeliveryTrace()) {
+      recordStage(stage, System.nanoTime() - startNanos);
+    }
+  }
+
+  /**
+   * Records the duration, in nanoseconds, of a stage of a traced message's delivery.
+   */
+  public static void recordStage(final Stage stage, final long durationNanos) {
+    STAGE_TIMERS.get(stage).record(durationNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Returns a copy of the given envelope with the current time recorded as its insertion time if the envelope is being
+   * traced, or the given envelope if not.
+   */
+  public static Envelope withInsertedTimestamp(final Envelope envelope) {
+    if (!envelope.hasDeliveryTrace()) {
+      return envelope;
+    }
+
+    return envelope.toBuilder()
+        .setDeliveryTrace(envelope.getDeliveryTrace().toBuilder().setInsertedTimestamp(System.currentTimeMillis()))
+        .build();
+  }
+
+  /**
+   * Records the {@link Stage#NOTIFY} and {@link Stage#FETCH} stages for a traced message that's about to be sent to
+   * its destination device. Does nothing if the given envelope is not being traced.
+   *
+   * @param envelope the envelope about to be sent
+   * @param lastNotificationTimestamp the time, in milliseconds since the epoch, at which the destination's connection
+   * most recently learned that new messages were available, or 0 if it never has
+   */
+  public static void recordFetched(final Envelope envelope, final long lastNotificationTimestamp) {
+    if (envelope.hasDeliveryTrace() && envelope.getDeliveryTrace().hasInsertedTimestamp()) {
+      final long insertedTimestamp = envelope.getDeliveryTrace().getInsertedTimestamp();
+
+      getNotifyMillis(insertedTimestamp, lastNotificationTimestamp)
+          .ifPresent(notifyMillis -> recordStageMillis(Stage.NOTIFY, notifyMillis));
+
+      recordStageMillis(Stage.FETCH,
+          getFetchMillis(insertedTimestamp, lastNotificationTimestamp, System.currentTimeMillis()));
+    }
+  }
+
+  @VisibleForTesting
+  static OptionalLong getNotifyMillis(final long insertedTimestamp, final long lastNotificationTimestamp) {
+    // A notification that arrived before the message was inserted can't be a notification about this message; the
+    // message was most likely read as part of an initial queue drain or after being persisted
+    return lastNotificationTimestamp >= insertedTimestamp
+        ? OptionalLong.of(lastNotificationTimestamp - insertedTimestamp)
+        : OptionalLong.empty();
+  }
+
+  @VisibleForTesting
+  static long getFetchMillis(final long insertedTimestamp, final long lastNotificationTimestamp, final long now) {
+    return now - Math.max(insertedTimestamp, lastNotificationTimestamp);
+  }
+
+  /**
+   * Records the {@link Stage#ACKNOWLEDGE} and {@link Stage#END_TO_END} stages for a traced message that has just been
+   * acknowledged by its destination device. Does nothing if the given envelope is not being traced.
+   *
+   * @param envelope the acknowledged envelope
+   * @param sendStartNanos the time, as measured by {@link System#nanoTime()}, at which the message was sent
+   */
+  public static void recordAcknowledged(final Envelope envelope, final long sendStartNanos) {
+    if (envelope.hasDeliveryTrace()) {
+      recordStage(Stage.ACKNOWLEDGE, System.nanoTime() - sendStartNanos);
+      recordStageMillis(Stage.END_TO_END,
+          System.currentTimeMillis() - envelope.getDeliveryTrace().getAcceptedTimestamp());
+    }
+  }
+
+  private static void recordStageMillis(final Stage stage, final long durationMillis) {
+    // Negative durations can only come from clock skew between hosts and would be meaningless
+    if (durationMillis >= 0) {
+      STAGE_TIMERS.get(stage).record(durationMillis, TimeUnit.MILLISECONDS);
+    }
+  }
+}
@@ -14,6 +14,9 @@ import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.annotation.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.entities.MessageProtos;
@@ -31,6 +34,28 @@ public final class MessageMetrics {
 
   public static final String DELIVERY_LATENCY_TIMER_NAME = name(MessageMetrics.class, "deliveryLatency");
 
+  // The set of possible keys is bounded by (platforms × channels × active client versions), so there's no need to
+  // evict entries from this map
+  private static final Map<DeliveryLatencyTimerKey, Timer> DELIVERY_LATENCY_TIMERS = new ConcurrentHashMap<>();
+
+  private record DeliveryLatencyTimerKey(Tag platformTag, String channel, @Nullable Tag clientVersionTag) {
+
+    Timer register() {
+      final List<Tag> tags = new ArrayList<>(3);
+      tags.add(platformTag);
+      tags.add(Tag.of("channel", channel));
+
+      if (clientVersionTag != null) {
+        tags.add(clientVersionTag);
+      }
+
+      return Timer.builder(DELIVERY_LATENCY_TIMER_NAME)
+          .publishPercentileHistogram(true)
+          .tags(tags)
+          .register(Metrics.globalRegistry);
+    }
+  }
+
   public static void measureAccountOutgoingMessageUuidMismatches(final Account account,
       final OutgoingMessageEntity outgoingMessage) {
     measureAccountDestinationUuidMismatches(account, outgoingMessage.destinationUuid());
@@ -61,16 +86,11 @@ public final class MessageMetrics {
       final String userAgent,
       final ClientReleaseManager clientReleaseManager) {
 
-    final List<Tag> tags = new ArrayList<>(3);
-    tags.add(UserAgentTagUtil.getPlatformTag(userAgent));
-    tags.add(Tag.of("channel", channel));
-
-    UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager).ifPresent(tags::add);
+    final DeliveryLatencyTimerKey timerKey = new DeliveryLatencyTimerKey(UserAgentTagUtil.getPlatformTag(userAgent),
+        channel,
+        UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager).orElse(null));
 
-    Timer.builder(DELIVERY_LATENCY_TIMER_NAME)
-        .publishPercentileHistogram(true)
-        .tags(tags)
-        .register(Metrics.globalRegistry)
+    DELIVERY_LATENCY_TIMERS.computeIfAbsent(timerKey, DeliveryLatencyTimerKey::register)
         .record(Duration.between(Instant.ofEpochMilli(serverTimestamp), Instant.now()));
   }
 }
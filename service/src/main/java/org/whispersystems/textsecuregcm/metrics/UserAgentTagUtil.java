@@ -5,12 +5,13 @@
 
 package org.whispersystems.textsecuregcm.metrics;
 
-import com.vdurmont.semver4j.Semver;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.micrometer.core.instrument.Tag;
-import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
+import javax.annotation.Nullable;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
 import org.whispersystems.textsecuregcm.util.ua.ClientPlatform;
 import org.whispersystems.textsecuregcm.util.ua.UnrecognizedUserAgentException;
@@ -19,37 +20,82 @@ import org.whispersystems.textsecuregcm.util.ua.UserAgentUtil;
 
 /**
  * Utility class for extracting platform/version metrics tags from User-Agent strings.
+ * <p>
+ * Tags are derived on nearly every request and delivered message, but the set of distinct User-Agent strings seen in
+ * practice is small, so parsed User-Agents and their tags are kept in a bounded cache keyed by the raw User-Agent
+ * string.
  */
 public class UserAgentTagUtil {
 
   public static final String PLATFORM_TAG = "platform";
   public static final String VERSION_TAG = "clientVersion";
 
+  private static final int MAX_CACHED_USER_AGENTS = 10_000;
+
+  private static final Tag UNRECOGNIZED_PLATFORM_TAG = Tag.of(PLATFORM_TAG, "unrecognized");
+
+  private static final Map<ClientPlatform, Tag> PLATFORM_TAGS = new EnumMap<>(ClientPlatform.class);
+
+  static {
+    for (final ClientPlatform platform : ClientPlatform.values()) {
+      PLATFORM_TAGS.put(platform, Tag.of(PLATFORM_TAG, platform.name().toLowerCase()));
+    }
+  }
+
+  private static final Cache<String, ParsedUserAgent> PARSED_USER_AGENTS = Caffeine.newBuilder()
+      .maximumSize(MAX_CACHED_USER_AGENTS)
+      .build();
+
+  /**
+   * A parsed User-Agent and the metrics tags derived from it.
+   *
+   * @param userAgent the parsed User-Agent, or {@code null} if the User-Agent string was not recognized
+   * @param platformTag the platform tag for the User-Agent
+   * @param versionTag the client version tag for the User-Agent, or {@code null} if the User-Agent string was not
+   * recognized; callers must still check that the version is active before reporting this tag
+   */
+  private record ParsedUserAgent(@Nullable UserAgent userAgent, Tag platformTag, @Nullable Tag versionTag) {
+  }
+
+  private static final ParsedUserAgent UNRECOGNIZED_USER_AGENT =
+      new ParsedUserAgent(null, UNRECOGNIZED_PLATFORM_TAG, null);
+
   private UserAgentTagUtil() {
   }
 
   public static Tag getPlatformTag(final String userAgentString) {
-    String platform;
+    return getParsedUserAgent(userAgentString).platformTag();
+  }
 
-    try {
-      platform = UserAgentUtil.parseUserAgentString(userAgentString).getPlatform().name().toLowerCase();
-    } catch (final UnrecognizedUserAgentException e) {
-      platform = "unrecognized";
+  public static Optional<Tag> getClientVersionTag(final String userAgentString, final ClientReleaseManager clientReleaseManager) {
+    final ParsedUserAgent parsedUserAgent = getParsedUserAgent(userAgentString);
+    final UserAgent userAgent = parsedUserAgent.userAgent();
+
+    if (userAgent != null && clientReleaseManager.isVersionActive(userAgent.getPlatform(), userAgent.getVersion())) {
+      return Optional.of(parsedUserAgent.versionTag());
     }
 
-    return Tag.of(PLATFORM_TAG, platform);
+    return Optional.empty();
   }
 
-  public static Optional<Tag> getClientVersionTag(final String userAgentString, final ClientReleaseManager clientReleaseManager) {
+  private static ParsedUserAgent getParsedUserAgent(@Nullable final String userAgentString) {
+    // Caffeine doesn't allow null keys, and there's no point in caching a trivially-unrecognizable value anyhow
+    if (userAgentString == null) {
+      return UNRECOGNIZED_USER_AGENT;
+    }
+
+    return PARSED_USER_AGENTS.get(userAgentString, UserAgentTagUtil::parseUserAgent);
+  }
+
+  private static ParsedUserAgent parseUserAgent(final String userAgentString) {
     try {
       final UserAgent userAgent = UserAgentUtil.parseUserAgentString(userAgentString);
 
-      if (clientReleaseManager.isVersionActive(userAgent.getPlatform(), userAgent.getVersion())) {
-        return Optional.of(Tag.of(VERSION_TAG, userAgent.getVersion().toString()));
-      }
-    } catch (final UnrecognizedUserAgentException ignored) {
+      return new ParsedUserAgent(userAgent,
+          PLATFORM_TAGS.get(userAgent.getPlatform()),
+          Tag.of(VERSION_TAG, userAgent.getVersion().toString()));
+    } catch (final UnrecognizedUserAgentException e) {
+      return UNRECOGNIZED_USER_AGENT;
     }
-
-    return Optional.empty();
   }
 }
@@ -16,6 +16,7 @@ import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
 import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.lifecycle.Managed;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
@@ -23,15 +24,35 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 import org.whispersystems.textsecuregcm.configuration.ApnConfiguration;
 
+/**
+ * Sends push notifications via APNs. Notifications are divided into lanes by push type and priority, and each lane has
+ * its own connections to APNs and its own adaptive limit on the number of notifications awaiting a response, so bursts
+ * of low-priority background notifications can't delay VOIP or alert notifications.
+ */
 public class APNSender implements Managed, PushNotificationSender {
 
   private final ExecutorService executor;
   private final String bundleId;
-  private final ApnsClient apnsClient;
+  private final Map<Lane, ApnsClient> apnsClients;
+  private final Map<Lane, AdaptiveConcurrencyLimiter> concurrencyLimiters;
+
+  @VisibleForTesting
+  enum Lane {
+    VOIP,
+    ALERT,
+    BACKGROUND
+  }
 
   @VisibleForTesting
   static final String APN_VOIP_NOTIFICATION_PAYLOAD = new SimpleApnsPayloadBuilder()
@@ -55,26 +76,101 @@ public class APNSender implements Managed, PushNotificationSender {
 
   private static final String APNS_CA_FILENAME = "apns-certificates.pem";
 
-  private static final Timer SEND_NOTIFICATION_TIMER = Metrics.timer(name(APNSender.class, "sendNotification"));
+  // Rejection reasons that indicate APNs is overloaded or unhealthy rather than that a notification was bad
+  private static final Set<String> OVERLOADED_REJECTION_REASONS =
+      Set.of("TooManyRequests", "InternalServerError", "ServiceUnavailable", "Shutdown");
+
+  private static final int MIN_IN_FLIGHT_PER_LANE = 16;
+
+  private static final String SEND_NOTIFICATION_TIMER_NAME = name(APNSender.class, "sendNotification");
+  private static final String IN_FLIGHT_GAUGE_NAME = name(APNSender.class, "inFlight");
+  private static final String IN_FLIGHT_LIMIT_GAUGE_NAME = name(APNSender.class, "inFlightLimit");
+  private static final String WAITING_GAUGE_NAME = name(APNSender.class, "waiting");
+  private static final String LANE_TAG_NAME = "lane";
+
+  private static final Timer SEND_NOTIFICATION_TIMER = Metrics.timer(SEND_NOTIFICATION_TIMER_NAME);
+
+  // Limiters for every live sender, by lane, so each lane's gauges are registered once and cover all senders
+  private static final Map<Lane, Set<AdaptiveConcurrencyLimiter>> CONCURRENCY_LIMITERS_BY_LANE =
+      new EnumMap<>(Lane.class);
+
+  static {
+    for (final Lane lane : Lane.values()) {
+      final Set<AdaptiveConcurrencyLimiter> laneLimiters = ConcurrentHashMap.newKeySet();
+      CONCURRENCY_LIMITERS_BY_LANE.put(lane, laneLimiters);
+
+      final Tags tags = Tags.of(LANE_TAG_NAME, lane.name().toLowerCase());
+      Metrics.gauge(IN_FLIGHT_GAUGE_NAME, tags, laneLimiters,
+          limiters -> limiters.stream().mapToInt(AdaptiveConcurrencyLimiter::getInFlight).sum());
+      Metrics.gauge(IN_FLIGHT_LIMIT_GAUGE_NAME, tags, laneLimiters,
+          limiters -> limiters.stream().mapToInt(AdaptiveConcurrencyLimiter::getLimit).sum());
+      Metrics.gauge(WAITING_GAUGE_NAME, tags, laneLimiters,
+          limiters -> limiters.stream().mapToInt(AdaptiveConcurrencyLimiter::getWaiting).sum());
+    }
+  }
 
   public APNSender(ExecutorService executor, ApnConfiguration configuration)
       throws IOException, NoSuchAlgorithmException, InvalidKeyException
   {
-    this.executor = executor;
-    this.bundleId = configuration.bundleId();
-    this.apnsClient = new ApnsClientBuilder().setSigningKey(
-            ApnsSigningKey.loadFromInputStream(new ByteArrayInputStream(configuration.signingKey().value().getBytes()),
-                configuration.teamId().value(), configuration.keyId().value()))
-        .setTrustedServerCertificateChain(getClass().getResourceAsStream(APNS_CA_FILENAME))
-        .setApnsServer(configuration.sandbox() ? ApnsClientBuilder.DEVELOPMENT_APNS_HOST : ApnsClientBuilder.PRODUCTION_APNS_HOST)
-        .build();
+    this(executor, buildClients(configuration), configuration.bundleId(), configuration.maxInFlightPerLane(),
+        configuration.maxWaitingPerLane(), configuration.targetLatency());
   }
 
   @VisibleForTesting
   public APNSender(ExecutorService executor, ApnsClient apnsClient, String bundleId) {
+    this(executor,
+        Arrays.stream(Lane.values()).collect(Collectors.toMap(Function.identity(), ignored -> apnsClient)),
+        bundleId,
+        1_000,
+        10_000,
+        Duration.ofMillis(500));
+  }
+
+  @VisibleForTesting
+  APNSender(final ExecutorService executor,
+      final Map<Lane, ApnsClient> apnsClients,
+      final String bundleId,
+      final int maxInFlightPerLane,
+      final int maxWaitingPerLane,
+      final Duration targetLatency) {
+
     this.executor = executor;
-    this.apnsClient = apnsClient;
+    this.apnsClients = new EnumMap<>(apnsClients);
     this.bundleId = bundleId;
+    this.concurrencyLimiters = new EnumMap<>(Lane.class);
+
+    for (final Lane lane : Lane.values()) {
+      if (!this.apnsClients.containsKey(lane)) {
+        throw new IllegalArgumentException("No client for lane " + lane);
+      }
+
+      final AdaptiveConcurrencyLimiter concurrencyLimiter = new AdaptiveConcurrencyLimiter(
+          Math.min(MIN_IN_FLIGHT_PER_LANE, maxInFlightPerLane), maxInFlightPerLane, maxWaitingPerLane, targetLatency);
+
+      concurrencyLimiters.put(lane, concurrencyLimiter);
+      CONCURRENCY_LIMITERS_BY_LANE.get(lane).add(concurrencyLimiter);
+    }
+  }
+
+  private static Map<Lane, ApnsClient> buildClients(final ApnConfiguration configuration)
+      throws IOException, NoSuchAlgorithmException, InvalidKeyException {
+
+    final ApnsSigningKey signingKey = ApnsSigningKey.loadFromInputStream(
+        new ByteArrayInputStream(configuration.signingKey().value().getBytes()),
+        configuration.teamId().value(), configuration.keyId().value());
+
+    final Map<Lane, ApnsClient> apnsClients = new EnumMap<>(Lane.class);
+
+    for (final Lane lane : Lane.values()) {
+      apnsClients.put(lane, new ApnsClientBuilder()
+          .setSigningKey(signingKey)
+          .setTrustedServerCertificateChain(APNSender.class.getResourceAsStream(APNS_CA_FILENAME))
+          .setApnsServer(configuration.sandbox() ? ApnsClientBuilder.DEVELOPMENT_APNS_HOST : ApnsClientBuilder.PRODUCTION_APNS_HOST)
+          .setConcurrentConnections(configuration.connectionsPerLane())
+          .build());
+    }
+
+    return apnsClients;
   }
 
   @Override
@@ -139,20 +235,40 @@ public class APNSender implements Managed, PushNotificationSender {
         (notification.notificationType() == PushNotification.NotificationType.NOTIFICATION && notification.urgent() && !isVoip)
             ? "incoming-message" : null;
 
-    final Instant start = Instant.now();
+    final Lane lane;
 
-    return apnsClient.sendNotification(new SimpleApnsPushNotification(notification.deviceToken(),
+    if (pushType == PushType.VOIP) {
+      lane = Lane.VOIP;
+    } else {
+      lane = deliveryPriority == DeliveryPriority.IMMEDIATE ? Lane.ALERT : Lane.BACKGROUND;
+    }
+
+    final AdaptiveConcurrencyLimiter concurrencyLimiter = concurrencyLimiters.get(lane);
+    final SimpleApnsPushNotification apnsPushNotification = new SimpleApnsPushNotification(notification.deviceToken(),
         topic,
         payload,
         MAX_EXPIRATION,
         deliveryPriority,
         pushType,
-        collapseId))
-        .whenComplete((response, throwable) -> {
-          // Note that we deliberately run this small bit of non-blocking measurement on the "send notification" thread
-          // to avoid any measurement noise that could arise from dispatching to another executor and waiting in its
-          // queue
-          SEND_NOTIFICATION_TIMER.record(Duration.between(start, Instant.now()));
+        collapseId);
+
+    return concurrencyLimiter.acquire()
+        .thenCompose(ignored -> {
+          final Instant start = Instant.now();
+
+          return apnsClients.get(lane).sendNotification(apnsPushNotification)
+              .whenComplete((response, throwable) -> {
+                // Note that we deliberately run this small bit of non-blocking measurement on the "send notification"
+                // thread to avoid any measurement noise that could arise from dispatching to another executor and
+                // waiting in its queue
+                final Duration latency = Duration.between(start, Instant.now());
+                SEND_NOTIFICATION_TIMER.record(latency);
+
+                final boolean overloaded = throwable != null || (!response.isAccepted() &&
+                    response.getRejectionReason().map(OVERLOADED_REJECTION_REASONS::contains).orElse(false));
+
+                concurrencyLimiter.release(latency, overloaded);
+              });
         })
         .thenApplyAsync(response -> {
           final boolean accepted;
@@ -179,6 +295,17 @@ public class APNSender implements Managed, PushNotificationSender {
 
   @Override
   public void stop() {
-    this.apnsClient.close().join();
+    // Fail notifications that are still waiting for a permit; notifications already in flight finish before the
+    // clients close
+    concurrencyLimiters.forEach((lane, concurrencyLimiter) -> {
+      concurrencyLimiter.close();
+      CONCURRENCY_LIMITERS_BY_LANE.get(lane).remove(concurrencyLimiter);
+    });
+
+    CompletableFuture.allOf(apnsClients.values().stream()
+            .distinct()
+            .map(ApnsClient::close)
+            .toArray(CompletableFuture[]::new))
+        .join();
   }
 }
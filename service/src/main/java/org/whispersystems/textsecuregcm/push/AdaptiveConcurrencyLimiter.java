@@ -0,0 +1,183 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Limits the number of operations in flight at once, adjusting the limit based on how the downstream service responds.
+ * The limit grows additively while operations complete successfully within a target latency and shrinks
+ * multiplicatively when they're slow or the service reports that it's overloaded. Operations beyond the current limit
+ * wait in FIFO order for a permit, up to a fixed number of waiting operations; beyond that, and once the limiter has
+ * been closed, attempts to acquire a permit fail with a {@link RejectedExecutionException}.
+ */
+class AdaptiveConcurrencyLimiter {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final int maxWaiting;
+  private final Duration targetLatency;
+
+  private double limit;
+  private int inFlight = 0;
+  private boolean closed = false;
+
+  private final Queue<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+
+  // How much to scale the limit when an operation is slow or the service is overloaded
+  private static final double BACKOFF_RATIO = 0.9;
+
+  /**
+   * @param minLimit the lowest the limit may fall, regardless of observed latency or errors
+   * @param maxLimit the highest the limit may grow; also the initial limit
+   * @param maxWaiting the most operations that may wait for a permit at once
+   * @param targetLatency operations that take longer than this cause the limit to shrink
+   */
+  AdaptiveConcurrencyLimiter(final int minLimit, final int maxLimit, final int maxWaiting,
+      final Duration targetLatency) {
+
+    if (minLimit < 1 || maxLimit < minLimit) {
+      throw new IllegalArgumentException("Limits must be positive and max must be at least min");
+    }
+
+    if (maxWaiting < 0) {
+      throw new IllegalArgumentException("Max waiting operations must not be negative");
+    }
+
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.maxWaiting = maxWaiting;
+    this.targetLatency = targetLatency;
+    this.limit = maxLimit;
+  }
+
+  /**
+   * Acquires a permit to start an operation. Callers must call {@link #release(Duration, boolean)} exactly once for
+   * each acquired permit. Callers may cancel a returned future that hasn't yet completed to give up their place in the
+   * queue.
+   *
+   * @return a future that completes when the caller may start its operation, or that fails with a
+   * {@link RejectedExecutionException} if too many operations are already waiting or the limiter has been closed
+   */
+  CompletableFuture<Void> acquire() {
+    synchronized (this) {
+      if (closed) {
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Limiter closed"));
+      }
+
+      if (inFlight < (int) limit) {
+        inFlight++;
+        return CompletableFuture.completedFuture(null);
+      }
+
+      // Waiters that gave up before getting a permit shouldn't count against the queue's capacity
+      waiting.removeIf(CompletableFuture::isDone);
+
+      if (waiting.size() >= maxWaiting) {
+        return CompletableFuture.failedFuture(new RejectedExecutionException("Too many operations waiting"));
+      }
+
+      final CompletableFuture<Void> permit = new CompletableFuture<>();
+      waiting.add(permit);
+
+      return permit;
+    }
+  }
+
+  /**
+   * Returns a permit and adjusts the limit based on the outcome of the operation that held it.
+   *
+   * @param latency how long the operation took
+   * @param overloaded whether the downstream service failed or reported that it was overloaded
+   */
+  void release(final Duration latency, final boolean overloaded) {
+    final List<CompletableFuture<Void>> granted;
+
+    synchronized (this) {
+      if (overloaded || latency.compareTo(targetLatency) > 0) {
+        limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+      } else {
+        // Grow by roughly one permit for each full limit's worth of successful operations
+        limit = Math.min(maxLimit, limit + 1 / limit);
+      }
+
+      inFlight--;
+      granted = grantWaitingPermits();
+    }
+
+    completeGrantedPermits(granted);
+  }
+
+  /**
+   * Closes this limiter. Operations waiting for a permit and any later attempts to acquire a permit fail with a
+   * {@link RejectedExecutionException}; operations already in flight are unaffected.
+   */
+  void close() {
+    final List<CompletableFuture<Void>> rejected;
+
+    synchronized (this) {
+      closed = true;
+
+      rejected = new ArrayList<>(waiting);
+      waiting.clear();
+    }
+
+    rejected.forEach(permit -> permit.completeExceptionally(new RejectedExecutionException("Limiter closed")));
+  }
+
+  // Callers must hold this limiter's lock
+  private List<CompletableFuture<Void>> grantWaitingPermits() {
+    final List<CompletableFuture<Void>> granted = new ArrayList<>();
+
+    while (inFlight < (int) limit && !waiting.isEmpty()) {
+      final CompletableFuture<Void> permit = waiting.remove();
+
+      // Skip waiters that were cancelled while waiting
+      if (!permit.isDone()) {
+        inFlight++;
+        granted.add(permit);
+      }
+    }
+
+    return granted;
+  }
+
+  private void completeGrantedPermits(final List<CompletableFuture<Void>> granted) {
+    // Complete permits outside the lock, since waiting operations may start (and even finish) synchronously
+    for (final CompletableFuture<Void> permit : granted) {
+      if (!permit.complete(null)) {
+        // The waiter was cancelled after we granted it a permit, but before we could complete it; pass the permit on
+        // without treating it as a completed operation
+        final List<CompletableFuture<Void>> regranted;
+
+        synchronized (this) {
+          inFlight--;
+          regranted = grantWaitingPermits();
+        }
+
+        completeGrantedPermits(regranted);
+      }
+    }
+  }
+
+  synchronized int getLimit() {
+    return (int) limit;
+  }
+
+  synchronized int getInFlight() {
+    return inFlight;
+  }
+
+  synchronized int getWaiting() {
+    return (int) waiting.stream().filter(permit -> !permit.isDone()).count();
+  }
+}
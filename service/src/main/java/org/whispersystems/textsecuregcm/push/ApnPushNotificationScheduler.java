@@ -11,24 +11,27 @@ import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.lifecycle.Managed;
 import io.lettuce.core.Limit;
 import io.lettuce.core.Range;
-import io.lettuce.core.RedisException;
+import io.lettuce.core.ScoredValue;
 import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.SetArgs;
 import io.lettuce.core.cluster.SlotHash;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
@@ -41,6 +44,8 @@ import org.whispersystems.textsecuregcm.storage.Device;
 import org.whispersystems.textsecuregcm.util.Pair;
 import org.whispersystems.textsecuregcm.util.RedisClusterUtil;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class ApnPushNotificationScheduler implements Managed {
 
@@ -60,6 +65,7 @@ public class ApnPushNotificationScheduler implements Managed {
 
   private static final Counter backgroundNotificationScheduledCounter = Metrics.counter(name(ApnPushNotificationScheduler.class, "backgroundNotification", "scheduled"));
   private static final Counter backgroundNotificationSentCounter = Metrics.counter(name(ApnPushNotificationScheduler.class, "backgroundNotification", "sent"));
+  private static final Timer BACKGROUND_NOTIFICATION_BACKLOG_AGE_TIMER = Metrics.timer(name(ApnPushNotificationScheduler.class, "backgroundNotification", "backlogAge"));
 
   private final APNSender apnSender;
   private final AccountsManager accountsManager;
@@ -69,10 +75,16 @@ public class ApnPushNotificationScheduler implements Managed {
   private final ClusterLuaScript getPendingVoipDestinationsScript;
   private final ClusterLuaScript insertPendingVoipDestinationScript;
   private final ClusterLuaScript removePendingVoipDestinationScript;
+  private final ClusterLuaScript removePendingVoipDestinationsScript;
 
   private final ClusterLuaScript scheduleBackgroundNotificationScript;
 
   private final Thread[] workerThreads;
+  private final int maxConcurrency;
+  private final int slotsPerClaim;
+
+  private static final int DEFAULT_MAX_CONCURRENCY = 16;
+  private static final int DEFAULT_SLOTS_PER_CLAIM = 1;
 
   @VisibleForTesting
   static final Duration BACKGROUND_NOTIFICATION_PERIOD = Duration.ofMinutes(20);
@@ -87,7 +99,7 @@ public class ApnPushNotificationScheduler implements Managed {
     public void run() {
       do {
         try {
-          final long entriesProcessed = processNextSlot();
+          final long entriesProcessed = processNextSlots();
 
           if (entriesProcessed == 0) {
             Util.sleep(1000);
@@ -98,67 +110,130 @@ public class ApnPushNotificationScheduler implements Managed {
       } while (running.get());
     }
 
-    private long processNextSlot() {
-      final int slot = (int) (pushSchedulingCluster.withCluster(connection ->
-          connection.sync().incr(NEXT_SLOT_TO_PROCESS_KEY)) % SlotHash.SLOT_COUNT);
+    private long processNextSlots() {
+      // Claim a contiguous run of slots at once and process them concurrently
+      final long lastClaimedSlot = pushSchedulingCluster.withCluster(connection ->
+          connection.sync().incrby(NEXT_SLOT_TO_PROCESS_KEY, slotsPerClaim));
+
+      final Long entriesProcessed = Flux.range(0, slotsPerClaim)
+          .map(i -> (int) ((lastClaimedSlot - i) % SlotHash.SLOT_COUNT))
+          .flatMap(slot -> Mono.zip(processRecurringVoipNotifications(slot),
+              processScheduledBackgroundNotifications(slot), Long::sum))
+          .reduce(0L, Long::sum)
+          .block();
 
-      return processRecurringVoipNotifications(slot) + processScheduledBackgroundNotifications(slot);
+      return entriesProcessed != null ? entriesProcessed : 0;
     }
 
     @VisibleForTesting
-    long processRecurringVoipNotifications(final int slot) {
-      List<String> pendingDestinations;
-      long entriesProcessed = 0;
+    Mono<Long> processRecurringVoipNotifications(final int slot) {
+      // Fetching a page of destinations also reschedules them, so each fetch returns new destinations until the slot
+      // has no more pending notifications
+      return Mono.fromCompletionStage(() -> getPendingDestinationsForRecurringVoipNotifications(slot, PAGE_SIZE))
+          .flatMap(pendingDestinations -> Flux.fromIterable(pendingDestinations)
+              .flatMap(this::processRecurringVoipNotification, maxConcurrency)
+              .collectList()
+              .flatMap(endpointsToRemove -> removeRecurringVoipNotificationEntries(slot, endpointsToRemove))
+              .thenReturn(pendingDestinations.size()))
+          .repeat()
+          .takeWhile(entriesProcessed -> entriesProcessed > 0)
+          .reduce(0L, Long::sum);
+    }
 
-      do {
-        pendingDestinations = getPendingDestinationsForRecurringVoipNotifications(slot, PAGE_SIZE);
-        entriesProcessed += pendingDestinations.size();
-
-        for (final String destination : pendingDestinations) {
-          try {
-            getAccountAndDeviceFromPairString(destination).ifPresentOrElse(
-                accountAndDevice -> sendRecurringVoipNotification(accountAndDevice.first(), accountAndDevice.second()),
-                () -> removeRecurringVoipNotificationEntrySync(destination));
-          } catch (final IllegalArgumentException e) {
-            logger.warn("Failed to parse account/device pair: {}", destination, e);
-          }
-        }
-      } while (!pendingDestinations.isEmpty());
+    /**
+     * Sends a recurring VOIP notification to the given destination if it's still eligible to receive one.
+     *
+     * @return the endpoint key of the destination if it should no longer receive recurring VOIP notifications, or empty
+     * otherwise
+     */
+    private Mono<String> processRecurringVoipNotification(final String destination) {
+      final Pair<UUID, Byte> accountIdentifierAndDeviceId;
+
+      try {
+        accountIdentifierAndDeviceId = parsePairString(destination);
+      } catch (final IllegalArgumentException e) {
+        logger.warn("Failed to parse account/device pair: {}", destination, e);
+        return Mono.empty();
+      }
 
-      return entriesProcessed;
+      final String endpoint =
+          getEndpointKey(accountIdentifierAndDeviceId.first(), accountIdentifierAndDeviceId.second());
+
+      return Mono.fromCompletionStage(() -> getAccountAndDevice(accountIdentifierAndDeviceId))
+          .flatMap(maybeAccountAndDevice -> {
+            if (maybeAccountAndDevice.isEmpty()) {
+              return Mono.just(endpoint);
+            }
+
+            final Account account = maybeAccountAndDevice.get().first();
+            final Device device = maybeAccountAndDevice.get().second();
+
+            if (device.getVoipApnId() == null) {
+              return Mono.just(endpoint);
+            }
+
+            if (device.getLastSeen() < clock.millis() - TimeUnit.DAYS.toMillis(7)) {
+              evicted.increment();
+              return Mono.just(endpoint);
+            }
+
+            return sendRecurringVoipNotification(account, device).then(Mono.empty());
+          })
+          .onErrorResume(throwable -> {
+            logger.warn("Failed to send recurring VOIP notification to {}", destination, throwable);
+            return Mono.empty();
+          });
     }
 
     @VisibleForTesting
-    long processScheduledBackgroundNotifications(final int slot) {
+    Mono<Long> processScheduledBackgroundNotifications(final int slot) {
       final long currentTimeMillis = clock.millis();
       final String queueKey = getPendingBackgroundNotificationQueueKey(slot);
-
-      final long processedBackgroundNotifications = pushSchedulingCluster.withCluster(connection -> {
-        List<String> destinations;
-        long offset = 0;
-
-        do {
-          destinations = connection.sync().zrangebyscore(queueKey, Range.create(0, currentTimeMillis), Limit.create(offset, PAGE_SIZE));
-
-          for (final String destination : destinations) {
-            try {
-              getAccountAndDeviceFromPairString(destination).ifPresent(accountAndDevice ->
-                  sendBackgroundNotification(accountAndDevice.first(), accountAndDevice.second()));
-            } catch (final IllegalArgumentException e) {
-              logger.warn("Failed to parse account/device pair: {}", destination, e);
+      final AtomicLong offset = new AtomicLong();
+
+      return Mono.fromCompletionStage(() -> pushSchedulingCluster.withCluster(connection ->
+              connection.async().zrangebyscoreWithScores(queueKey,
+                  Range.create(0, currentTimeMillis), Limit.create(offset.get(), PAGE_SIZE))))
+          .flatMap(destinations -> {
+            if (offset.getAndAdd(destinations.size()) == 0 && !destinations.isEmpty()) {
+              // Destinations come back in order of scheduled time, so the first is the oldest
+              BACKGROUND_NOTIFICATION_BACKLOG_AGE_TIMER.record(
+                  Duration.ofMillis(currentTimeMillis - (long) destinations.getFirst().getScore()));
             }
-          }
 
-          offset += destinations.size();
-        } while (destinations.size() == PAGE_SIZE);
+            return Flux.fromIterable(destinations)
+                .map(ScoredValue::getValue)
+                .flatMap(this::processScheduledBackgroundNotification, maxConcurrency)
+                .then(Mono.just(destinations.size()));
+          })
+          .repeat()
+          .takeUntil(pageSize -> pageSize < PAGE_SIZE)
+          .reduce(0L, Long::sum)
+          .flatMap(processedBackgroundNotifications -> processedBackgroundNotifications > 0
+              ? Mono.fromCompletionStage(() -> pushSchedulingCluster.withCluster(connection ->
+                      connection.async().zremrangebyscore(queueKey, Range.create(0, currentTimeMillis))))
+                  .thenReturn(processedBackgroundNotifications)
+              : Mono.just(processedBackgroundNotifications));
+    }
 
-        return offset;
-      });
+    private Mono<Void> processScheduledBackgroundNotification(final String destination) {
+      final Pair<UUID, Byte> accountIdentifierAndDeviceId;
 
-      pushSchedulingCluster.useCluster(connection ->
-          connection.sync().zremrangebyscore(queueKey, Range.create(0, currentTimeMillis)));
+      try {
+        accountIdentifierAndDeviceId = parsePairString(destination);
+      } catch (final IllegalArgumentException e) {
+        logger.warn("Failed to parse account/device pair: {}", destination, e);
+        return Mono.empty();
+      }
 
-      return processedBackgroundNotifications;
+      return Mono.fromCompletionStage(() -> getAccountAndDevice(accountIdentifierAndDeviceId))
+          .flatMap(maybeAccountAndDevice -> Mono.justOrEmpty(maybeAccountAndDevice))
+          .flatMap(accountAndDevice -> Mono.fromCompletionStage(() ->
+              sendBackgroundNotification(accountAndDevice.first(), accountAndDevice.second())))
+          .onErrorResume(throwable -> {
+            logger.warn("Failed to send background notification to {}", destination, throwable);
+            return Mono.empty();
+          });
     }
   }
 
@@ -166,7 +241,24 @@ public class ApnPushNotificationScheduler implements Managed {
       APNSender apnSender, AccountsManager accountsManager, final int dedicatedProcessWorkerThreadCount)
       throws IOException {
 
-    this(pushSchedulingCluster, apnSender, accountsManager, Clock.systemUTC(), dedicatedProcessWorkerThreadCount);
+    this(pushSchedulingCluster, apnSender, accountsManager, dedicatedProcessWorkerThreadCount,
+        DEFAULT_MAX_CONCURRENCY, DEFAULT_SLOTS_PER_CLAIM);
+  }
+
+  /**
+   * @param dedicatedProcessWorkerThreadCount the number of threads that claim and process slots
+   * @param maxConcurrency the maximum number of notifications each slot may have in flight at once
+   * @param slotsPerClaim the number of slots each thread claims and processes concurrently
+   */
+  public ApnPushNotificationScheduler(FaultTolerantRedisCluster pushSchedulingCluster,
+      APNSender apnSender,
+      AccountsManager accountsManager,
+      final int dedicatedProcessWorkerThreadCount,
+      final int maxConcurrency,
+      final int slotsPerClaim) throws IOException {
+
+    this(pushSchedulingCluster, apnSender, accountsManager, Clock.systemUTC(), dedicatedProcessWorkerThreadCount,
+        maxConcurrency, slotsPerClaim);
   }
 
   @VisibleForTesting
@@ -176,10 +268,29 @@ public class ApnPushNotificationScheduler implements Managed {
       Clock clock,
       int dedicatedProcessThreadCount) throws IOException {
 
+    this(pushSchedulingCluster, apnSender, accountsManager, clock, dedicatedProcessThreadCount,
+        DEFAULT_MAX_CONCURRENCY, DEFAULT_SLOTS_PER_CLAIM);
+  }
+
+  @VisibleForTesting
+  ApnPushNotificationScheduler(FaultTolerantRedisCluster pushSchedulingCluster,
+      APNSender apnSender,
+      AccountsManager accountsManager,
+      Clock clock,
+      int dedicatedProcessThreadCount,
+      int maxConcurrency,
+      int slotsPerClaim) throws IOException {
+
+    if (maxConcurrency < 1 || slotsPerClaim < 1) {
+      throw new IllegalArgumentException("Concurrency and slots per claim must be positive");
+    }
+
     this.apnSender = apnSender;
     this.accountsManager = accountsManager;
     this.pushSchedulingCluster = pushSchedulingCluster;
     this.clock = clock;
+    this.maxConcurrency = maxConcurrency;
+    this.slotsPerClaim = slotsPerClaim;
 
     this.getPendingVoipDestinationsScript = ClusterLuaScript.fromResource(pushSchedulingCluster, "lua/apn/get.lua",
         ScriptOutputType.MULTI);
@@ -187,6 +298,8 @@ public class ApnPushNotificationScheduler implements Managed {
         ScriptOutputType.VALUE);
     this.removePendingVoipDestinationScript = ClusterLuaScript.fromResource(pushSchedulingCluster, "lua/apn/remove.lua",
         ScriptOutputType.INTEGER);
+    this.removePendingVoipDestinationsScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
+        "lua/apn/remove_batch.lua", ScriptOutputType.INTEGER);
 
     this.scheduleBackgroundNotificationScript = ClusterLuaScript.fromResource(pushSchedulingCluster,
         "lua/apn/schedule_background_notification.lua", ScriptOutputType.VALUE);
@@ -265,38 +378,30 @@ public class ApnPushNotificationScheduler implements Managed {
     }
   }
 
-  private void sendRecurringVoipNotification(final Account account, final Device device) {
-    String apnId = device.getVoipApnId();
-
-    if (apnId == null) {
-      removeRecurringVoipNotificationEntrySync(getEndpointKey(account, device));
-      return;
-    }
-
-    long deviceLastSeen = device.getLastSeen();
-    if (deviceLastSeen < clock.millis() - TimeUnit.DAYS.toMillis(7)) {
-      evicted.increment();
-      removeRecurringVoipNotificationEntrySync(getEndpointKey(account, device));
-      return;
-    }
-
-    apnSender.sendNotification(new PushNotification(apnId, PushNotification.TokenType.APN_VOIP, PushNotification.NotificationType.NOTIFICATION, null, account, device, true));
+  private Mono<SendPushNotificationResult> sendRecurringVoipNotification(final Account account, final Device device) {
     retry.increment();
+
+    return Mono.fromCompletionStage(() -> apnSender.sendNotification(new PushNotification(device.getVoipApnId(),
+        PushNotification.TokenType.APN_VOIP, PushNotification.NotificationType.NOTIFICATION, null, account, device,
+        true)));
   }
 
   @VisibleForTesting
-  void sendBackgroundNotification(final Account account, final Device device) {
-    if (StringUtils.isNotBlank(device.getApnId())) {
-      // It's okay for the "last notification" timestamp to expire after the "cooldown" period has elapsed; a missing
-      // timestamp and a timestamp older than the period are functionally equivalent.
-      pushSchedulingCluster.useCluster(connection -> connection.sync().set(
-          getLastBackgroundNotificationTimestampKey(account, device),
-          String.valueOf(clock.millis()), new SetArgs().ex(BACKGROUND_NOTIFICATION_PERIOD)));
-
-      apnSender.sendNotification(new PushNotification(device.getApnId(), PushNotification.TokenType.APN, PushNotification.NotificationType.NOTIFICATION, null, account, device, false));
-
-      backgroundNotificationSentCounter.increment();
+  CompletableFuture<Void> sendBackgroundNotification(final Account account, final Device device) {
+    if (StringUtils.isBlank(device.getApnId())) {
+      return CompletableFuture.completedFuture(null);
     }
+
+    // It's okay for the "last notification" timestamp to expire after the "cooldown" period has elapsed; a missing
+    // timestamp and a timestamp older than the period are functionally equivalent.
+    return pushSchedulingCluster.withCluster(connection -> connection.async().set(
+            getLastBackgroundNotificationTimestampKey(account, device),
+            String.valueOf(clock.millis()), new SetArgs().ex(BACKGROUND_NOTIFICATION_PERIOD)))
+        .thenCompose(ignored -> apnSender.sendNotification(new PushNotification(device.getApnId(),
+            PushNotification.TokenType.APN, PushNotification.NotificationType.NOTIFICATION, null, account, device,
+            false)))
+        .thenRun(backgroundNotificationSentCounter::increment)
+        .toCompletableFuture();
   }
 
   @VisibleForTesting
@@ -323,8 +428,7 @@ public class ApnPushNotificationScheduler implements Managed {
     return account.getUuid() + ":" + device.getId();
   }
 
-  @VisibleForTesting
-  Optional<Pair<Account, Device>> getAccountAndDeviceFromPairString(final String endpoint) {
+  private static Pair<UUID, Byte> parsePairString(final String endpoint) {
     try {
       if (StringUtils.isBlank(endpoint)) {
         throw new IllegalArgumentException("Endpoint must not be blank");
@@ -336,27 +440,19 @@ public class ApnPushNotificationScheduler implements Managed {
         throw new IllegalArgumentException("Could not parse endpoint string: " + endpoint);
       }
 
-      final Optional<Account> maybeAccount = accountsManager.getByAccountIdentifier(UUID.fromString(parts[0]));
-
-      return maybeAccount.flatMap(account -> account.getDevice(Byte.parseByte(parts[1])))
-          .map(device -> new Pair<>(maybeAccount.get(), device));
-
+      return new Pair<>(UUID.fromString(parts[0]), Byte.parseByte(parts[1]));
     } catch (final NumberFormatException e) {
       throw new IllegalArgumentException(e);
     }
   }
 
-  private boolean removeRecurringVoipNotificationEntrySync(final String endpoint) {
-    try {
-      return removeRecurringVoipNotificationEntry(endpoint).toCompletableFuture().get();
-    } catch (ExecutionException e) {
-      if (e.getCause() instanceof RedisException re) {
-        throw re;
-      }
-      throw new RuntimeException(e);
-    } catch (InterruptedException e) {
-      throw new RuntimeException(e);
-    }
+  private CompletableFuture<Optional<Pair<Account, Device>>> getAccountAndDevice(
+      final Pair<UUID, Byte> accountIdentifierAndDeviceId) {
+
+    return accountsManager.getByAccountIdentifierAsync(accountIdentifierAndDeviceId.first())
+        .thenApply(maybeAccount -> maybeAccount
+            .flatMap(account -> account.getDevice(accountIdentifierAndDeviceId.second())
+                .map(device -> new Pair<>(account, device))));
   }
 
   private CompletionStage<Boolean> removeRecurringVoipNotificationEntry(Account account, Device device) {
@@ -370,12 +466,30 @@ public class ApnPushNotificationScheduler implements Managed {
         .thenApply(result -> ((long) result) > 0);
   }
 
+  /**
+   * Removes the given endpoints, all of which must belong to the given slot, from the recurring VOIP notification queue
+   * in a single round trip.
+   */
+  private Mono<Long> removeRecurringVoipNotificationEntries(final int slot, final List<String> endpoints) {
+    if (endpoints.isEmpty()) {
+      return Mono.just(0L);
+    }
+
+    final List<String> keys = new ArrayList<>(endpoints.size() + 1);
+    keys.add(getPendingRecurringVoipNotificationQueueKey(slot));
+    keys.addAll(endpoints);
+
+    return Mono.fromCompletionStage(() -> removePendingVoipDestinationsScript.executeAsync(keys, Collections.emptyList()))
+        .map(removed -> (long) removed);
+  }
+
   @SuppressWarnings("unchecked")
   @VisibleForTesting
-  List<String> getPendingDestinationsForRecurringVoipNotifications(final int slot, final int limit) {
-    return (List<String>) getPendingVoipDestinationsScript.execute(
+  CompletableFuture<List<String>> getPendingDestinationsForRecurringVoipNotifications(final int slot, final int limit) {
+    return getPendingVoipDestinationsScript.executeAsync(
         List.of(getPendingRecurringVoipNotificationQueueKey(slot)),
-        List.of(String.valueOf(clock.millis()), String.valueOf(limit)));
+        List.of(String.valueOf(clock.millis()), String.valueOf(limit)))
+        .thenApply(destinations -> (List<String>) destinations);
   }
 
   private CompletionStage<Void> insertRecurringVoipNotificationEntry(final Account account, final Device device, final long timestamp, final long interval) {
@@ -392,7 +506,11 @@ public class ApnPushNotificationScheduler implements Managed {
 
   @VisibleForTesting
   static String getEndpointKey(final Account account, final Device device) {
-    return "apn_device::{" + account.getUuid() + "::" + device.getId() + "}";
+    return getEndpointKey(account.getUuid(), device.getId());
+  }
+
+  private static String getEndpointKey(final UUID accountIdentifier, final byte deviceId) {
+    return "apn_device::{" + accountIdentifier + "::" + deviceId + "}";
   }
 
   private static String getPendingRecurringVoipNotificationQueueKey(final String endpoint) {
@@ -9,6 +9,7 @@ import static org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 
 import io.micrometer.core.instrument.Metrics;
 import org.apache.commons.lang3.StringUtils;
+import org.whispersystems.textsecuregcm.metrics.MessageDeliveryTraceMetrics;
 import org.whispersystems.textsecuregcm.redis.RedisOperation;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
@@ -71,18 +72,18 @@ public class MessageSender {
     final boolean clientPresent;
 
     if (online) {
-      clientPresent = clientPresenceManager.isPresent(account.getUuid(), device.getId());
+      clientPresent = isPresent(account, device, message);
 
       if (clientPresent) {
-        messagesManager.insert(account.getUuid(), device.getId(), message.toBuilder().setEphemeral(true).build());
+        insert(account, device, message.toBuilder().setEphemeral(true).build());
       }
     } else {
-      messagesManager.insert(account.getUuid(), device.getId(), message);
+      insert(account, device, message);
 
       // We check for client presence after inserting the message to take a conservative view of notifications. If the
       // client wasn't present at the time of insertion but is now, they'll retrieve the message. If they were present
       // but disconnected before the message was delivered, we should send a notification.
-      clientPresent = clientPresenceManager.isPresent(account.getUuid(), device.getId());
+      clientPresent = isPresent(account, device, message);
 
       if (!clientPresent) {
         try {
@@ -108,4 +109,18 @@ public class MessageSender {
             HAS_SPAM_REPORTING_TOKEN_TAG_NAME, String.valueOf(message.getReportSpamToken() != null && !message.getReportSpamToken().isEmpty()))
         .increment();
   }
+
+  private boolean isPresent(final Account account, final Device device, final Envelope message) {
+    final long startNanos = System.nanoTime();
+    final boolean present = clientPresenceManager.isPresent(account.getUuid(), device.getId());
+    MessageDeliveryTraceMetrics.recordStage(message, MessageDeliveryTraceMetrics.Stage.PRESENCE_CHECK, startNanos);
+
+    return present;
+  }
+
+  private void insert(final Account account, final Device device, final Envelope message) {
+    final long startNanos = System.nanoTime();
+    messagesManager.insert(account.getUuid(), device.getId(), MessageDeliveryTraceMetrics.withInsertedTimestamp(message));
+    MessageDeliveryTraceMetrics.recordStage(message, MessageDeliveryTraceMetrics.Stage.INSERT, startNanos);
+  }
 }
@@ -6,48 +6,69 @@
 package org.whispersystems.textsecuregcm.push;
 
 import com.codahale.metrics.MetricRegistry;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.annotations.VisibleForTesting;
-import io.lettuce.core.SetArgs;
+import io.lettuce.core.ScriptOutputType;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.Timer;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import org.apache.commons.lang3.StringUtils;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
-import org.whispersystems.textsecuregcm.util.SystemMapper;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.util.UUIDUtil;
+import org.whispersystems.textsecuregcm.util.Util;
 
 /**
  * Measures and records the latency between sending a push notification to a device and that device draining its queue
  * of messages.
  * <p/>
- * When the server sends a push notification to a device, the push latency manager creates a Redis key/value pair
- * mapping the current timestamp to the given device if such a mapping doesn't already exist. When a client connects and
- * clears its message queue, the push latency manager gets and clears the time of the initial push notification to that
- * device and records the time elapsed since the push notification timestamp as a latency observation.
+ * When the server sends a push notification to a device, the push latency manager records the current timestamp for the
+ * given device if such a record doesn't already exist. When a client connects and clears its message queue, the push
+ * latency manager gets and clears the time of the initial push notification to that device and records the time
+ * elapsed since the push notification timestamp as a latency observation.
+ * <p/>
+ * Rather than storing one Redis key per device, records are packed into Redis hashes. Devices are spread across a
+ * fixed number of shards, and each shard has one hash per day; a device's record is a small binary field in its
+ * shard's hash for the day of its first unacknowledged push. Small hashes use Redis's compact encoding, and each whole
+ * hash expires once it can no longer hold live records. Only a configurable, stable fraction of accounts is measured.
  */
 public class PushLatencyManager {
 
   private final FaultTolerantRedisCluster redisCluster;
   private final ClientReleaseManager clientReleaseManager;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
+
+  private final ClusterLuaScript recordPushScript;
+  private final ClusterLuaScript takePushRecordScript;
 
   private final Clock clock;
 
   public static final String TIMER_NAME = MetricRegistry.name(PushLatencyManager.class, "latency");
-  private static final int TTL = (int) Duration.ofDays(1).toSeconds();
+  private static final Duration TTL = Duration.ofDays(1);
+
+  // Must be a power of two
+  @VisibleForTesting
+  static final int SHARD_COUNT = 1 << 16;
+
+  private static final int DEVICE_FIELD_LENGTH = 17;
+  private static final int PUSH_RECORD_LENGTH = 9;
 
-  private static final Logger log = LoggerFactory.getLogger(PushLatencyManager.class);
+  private static final byte VOIP_FLAG = 1;
+  private static final byte URGENT_FLAG = 1 << 1;
 
   @VisibleForTesting
   enum PushType {
@@ -59,40 +80,55 @@ public class PushLatencyManager {
   }
 
   public PushLatencyManager(final FaultTolerantRedisCluster redisCluster,
-      final ClientReleaseManager clientReleaseManager) {
+      final ClientReleaseManager clientReleaseManager,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) throws IOException {
 
-    this(redisCluster, clientReleaseManager, Clock.systemUTC());
+    this(redisCluster, clientReleaseManager, dynamicConfigurationManager, Clock.systemUTC());
   }
 
   @VisibleForTesting
   PushLatencyManager(final FaultTolerantRedisCluster redisCluster,
       final ClientReleaseManager clientReleaseManager,
-      final Clock clock) {
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager,
+      final Clock clock) throws IOException {
 
     this.redisCluster = redisCluster;
     this.clientReleaseManager = clientReleaseManager;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
     this.clock = clock;
+
+    this.recordPushScript = ClusterLuaScript.fromResource(redisCluster, "lua/push_latency/record_push.lua",
+        ScriptOutputType.INTEGER);
+
+    this.takePushRecordScript = ClusterLuaScript.fromResource(redisCluster, "lua/push_latency/take_push_record.lua",
+        ScriptOutputType.VALUE);
   }
 
-  void recordPushSent(final UUID accountUuid, final byte deviceId, final boolean isVoip, final boolean isUrgent) {
-    try {
-      final String recordJson = SystemMapper.jsonMapper().writeValueAsString(
-          new PushRecord(Instant.now(clock), isVoip ? PushType.VOIP : PushType.STANDARD, Optional.of(isUrgent)));
-
-      redisCluster.useCluster(connection ->
-          connection.async().set(getFirstUnacknowledgedPushKey(accountUuid, deviceId),
-              recordJson,
-              SetArgs.Builder.nx().ex(TTL)));
-    } catch (final JsonProcessingException e) {
-      // This should never happen
-      log.error("Failed to write push latency record JSON", e);
+  CompletableFuture<Void> recordPushSent(final UUID accountUuid, final byte deviceId, final boolean isVoip,
+      final boolean isUrgent) {
+
+    if (!isSampled(accountUuid)) {
+      return CompletableFuture.completedFuture(null);
     }
+
+    final Instant now = Instant.now(clock);
+
+    return recordPushScript.executeBinaryAsync(getBucketKeys(accountUuid, now),
+        List.of(getDeviceField(accountUuid, deviceId),
+            encodePushRecord(new PushRecord(now, isVoip ? PushType.VOIP : PushType.STANDARD, Optional.of(isUrgent))),
+            String.valueOf(TTL.toSeconds()).getBytes(StandardCharsets.UTF_8),
+            getExpiredBeforeArgument(now)))
+        .thenRun(Util.NOOP);
   }
 
   void recordQueueRead(final UUID accountUuid, final byte deviceId, final String userAgentString) {
+    if (!isSampled(accountUuid)) {
+      return;
+    }
+
     takePushRecord(accountUuid, deviceId).thenAccept(pushRecord -> {
       if (pushRecord != null) {
-        final Duration latency = Duration.between(pushRecord.timestamp(), Instant.now());
+        final Duration latency = Duration.between(pushRecord.timestamp(), Instant.now(clock));
 
         final List<Tag> tags = new ArrayList<>(3);
 
@@ -115,33 +151,79 @@ public class PushLatencyManager {
 
   @VisibleForTesting
   CompletableFuture<PushRecord> takePushRecord(final UUID accountUuid, final byte deviceId) {
-    final String key = getFirstUnacknowledgedPushKey(accountUuid, deviceId);
-
-    return redisCluster.withCluster(connection -> {
-      final CompletableFuture<PushRecord> getFuture = connection.async().get(key).toCompletableFuture()
-          .thenApply(recordJson -> {
-            if (StringUtils.isNotEmpty(recordJson)) {
-              try {
-                return SystemMapper.jsonMapper().readValue(recordJson, PushRecord.class);
-              } catch (JsonProcessingException e) {
-                return null;
-              }
-            } else {
-              return null;
-            }
-          });
-
-      getFuture.whenComplete((record, cause) -> {
-        if (cause == null) {
-          connection.async().del(key);
-        }
-      });
-
-      return getFuture;
-    });
+    final Instant now = Instant.now(clock);
+
+    return takePushRecordScript.executeBinaryAsync(getBucketKeys(accountUuid, now),
+            List.of(getDeviceField(accountUuid, deviceId), getExpiredBeforeArgument(now)))
+        .thenApply(result -> result instanceof byte[] encodedPushRecord && encodedPushRecord.length == PUSH_RECORD_LENGTH
+            ? decodePushRecord(encodedPushRecord)
+            : null);
   }
 
-  private static String getFirstUnacknowledgedPushKey(final UUID accountUuid, final byte deviceId) {
-    return "push_latency::v2::" + accountUuid.toString() + "::" + deviceId;
+  /**
+   * Buckets may outlive individual records, so scripts treat records from before the returned time (in milliseconds
+   * since the epoch) as expired.
+   */
+  private static byte[] getExpiredBeforeArgument(final Instant now) {
+    return String.valueOf(now.minus(TTL).toEpochMilli()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private boolean isSampled(final UUID accountUuid) {
+    final double sampleRate = dynamicConfigurationManager.getConfiguration().getPushLatencyConfiguration().sampleRate();
+
+    // Use bits that don't also choose the account's shard so sampled accounts stay spread across all shards
+    return (accountUuid.getMostSignificantBits() >>> 48) < sampleRate * 65536;
+  }
+
+  /**
+   * Returns the keys of the current and previous day's hashes for the shard to which the given account belongs. Both
+   * keys share a hash tag, and so always map to the same slot.
+   */
+  @VisibleForTesting
+  static List<byte[]> getBucketKeys(final UUID accountUuid, final Instant now) {
+    final int shard = (int) (accountUuid.getLeastSignificantBits() & (SHARD_COUNT - 1));
+    final long day = now.atOffset(ZoneOffset.UTC).toLocalDate().toEpochDay();
+
+    return List.of(getBucketKey(shard, day), getBucketKey(shard, day - 1));
+  }
+
+  private static byte[] getBucketKey(final int shard, final long day) {
+    return ("push_latency::v3::{" + shard + "}::" + day).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] getDeviceField(final UUID accountUuid, final byte deviceId) {
+    return ByteBuffer.allocate(DEVICE_FIELD_LENGTH)
+        .put(UUIDUtil.toBytes(accountUuid))
+        .put(deviceId)
+        .array();
+  }
+
+  @VisibleForTesting
+  static byte[] encodePushRecord(final PushRecord pushRecord) {
+    byte flags = 0;
+
+    if (pushRecord.pushType() == PushType.VOIP) {
+      flags |= VOIP_FLAG;
+    }
+
+    if (pushRecord.urgent().orElse(false)) {
+      flags |= URGENT_FLAG;
+    }
+
+    return ByteBuffer.allocate(PUSH_RECORD_LENGTH)
+        .putLong(pushRecord.timestamp().toEpochMilli())
+        .put(flags)
+        .array();
+  }
+
+  @VisibleForTesting
+  static PushRecord decodePushRecord(final byte[] encodedPushRecord) {
+    final ByteBuffer buffer = ByteBuffer.wrap(encodedPushRecord);
+    final Instant timestamp = Instant.ofEpochMilli(buffer.getLong());
+    final byte flags = buffer.get();
+
+    return new PushRecord(timestamp,
+        (flags & VOIP_FLAG) != 0 ? PushType.VOIP : PushType.STANDARD,
+        Optional.of((flags & URGENT_FLAG) != 0));
   }
 }
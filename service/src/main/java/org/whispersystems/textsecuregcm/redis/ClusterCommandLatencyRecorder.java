@@ -0,0 +1,113 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.redis;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.lettuce.core.metrics.CommandLatencyRecorder;
+import io.lettuce.core.protocol.ProtocolKeyword;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records Redis command latency for a single named cluster. Latency is reported twice: once by command type and once
+ * by the node that served the command. Keeping the two dimensions in separate timers (instead of tagging a single timer
+ * with both) keeps the number of distinct timers proportional to the number of commands plus the number of nodes rather
+ * than their product, and the number of distinct nodes is capped to guard against unbounded growth as nodes are
+ * replaced over the life of a process.
+ * <p/>
+ * Every measurement is also forwarded to a delegate recorder (usually the recorder configured on the shared client
+ * resources), so cluster-level metrics are reported in addition to, not instead of, any existing command metrics.
+ */
+class ClusterCommandLatencyRecorder implements CommandLatencyRecorder {
+
+  private final String clusterName;
+  private final MeterRegistry meterRegistry;
+  private final CommandLatencyRecorder delegate;
+
+  private final Map<ProtocolKeyword, Timer> commandTimers = new ConcurrentHashMap<>();
+  private final Map<SocketAddress, Timer> nodeTimers = new ConcurrentHashMap<>();
+  private final Timer otherNodeTimer;
+
+  private static final String COMMAND_LATENCY_TIMER_NAME = name(ClusterCommandLatencyRecorder.class, "commandLatency");
+  private static final String NODE_LATENCY_TIMER_NAME = name(ClusterCommandLatencyRecorder.class, "nodeLatency");
+
+  private static final String CLUSTER_TAG_NAME = "cluster";
+  private static final String COMMAND_TAG_NAME = "redisCommand";
+  private static final String NODE_TAG_NAME = "node";
+
+  @VisibleForTesting
+  static final String OTHER_NODE_TAG_VALUE = "other";
+
+  @VisibleForTesting
+  static final int MAX_NODES = 128;
+
+  ClusterCommandLatencyRecorder(final String clusterName,
+      final MeterRegistry meterRegistry,
+      final CommandLatencyRecorder delegate) {
+
+    this.clusterName = clusterName;
+    this.meterRegistry = meterRegistry;
+    this.delegate = delegate;
+
+    this.otherNodeTimer = Timer.builder(NODE_LATENCY_TIMER_NAME)
+        .tags(Tags.of(CLUSTER_TAG_NAME, clusterName, NODE_TAG_NAME, OTHER_NODE_TAG_VALUE))
+        .register(meterRegistry);
+  }
+
+  @Override
+  public void recordCommandLatency(final SocketAddress local,
+      final SocketAddress remote,
+      final ProtocolKeyword commandType,
+      final long firstResponseLatency,
+      final long completionLatency) {
+
+    if (delegate.isEnabled()) {
+      delegate.recordCommandLatency(local, remote, commandType, firstResponseLatency, completionLatency);
+    }
+
+    // Command types are (almost always) members of Lettuce's `CommandType` enum, and so are inherently bounded
+    commandTimers.computeIfAbsent(commandType, keyword -> Timer.builder(COMMAND_LATENCY_TIMER_NAME)
+            .tags(Tags.of(CLUSTER_TAG_NAME, clusterName, COMMAND_TAG_NAME, keyword.name()))
+            .register(meterRegistry))
+        .record(completionLatency, TimeUnit.NANOSECONDS);
+
+    getNodeTimer(remote).record(completionLatency, TimeUnit.NANOSECONDS);
+  }
+
+  private Timer getNodeTimer(final SocketAddress remote) {
+    final Timer nodeTimer = nodeTimers.get(remote);
+
+    if (nodeTimer != null) {
+      return nodeTimer;
+    }
+
+    // This check is racy, but may only allow the map to exceed its limit by the number of concurrent callers
+    if (nodeTimers.size() >= MAX_NODES) {
+      return otherNodeTimer;
+    }
+
+    return nodeTimers.computeIfAbsent(remote, address -> Timer.builder(NODE_LATENCY_TIMER_NAME)
+        .tags(Tags.of(CLUSTER_TAG_NAME, clusterName, NODE_TAG_NAME, getNodeTagValue(address)))
+        .register(meterRegistry));
+  }
+
+  @VisibleForTesting
+  static String getNodeTagValue(final SocketAddress address) {
+    if (address instanceof InetSocketAddress inetSocketAddress) {
+      return inetSocketAddress.getHostString() + ":" + inetSocketAddress.getPort();
+    }
+
+    return address.toString();
+  }
+}
@@ -5,11 +5,17 @@
 
 package org.whispersystems.textsecuregcm.redis;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.google.common.annotations.VisibleForTesting;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.RedisNoScriptException;
 import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
@@ -18,6 +24,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.publisher.Flux;
@@ -30,6 +37,14 @@ public class ClusterLuaScript {
   private final String script;
   private final String sha;
 
+  private final Timer executeTimer;
+  private final Counter noScriptCounter;
+
+  private static final String EXECUTE_TIMER_NAME = name(ClusterLuaScript.class, "execute");
+  private static final String NO_SCRIPT_COUNTER_NAME = name(ClusterLuaScript.class, "noScript");
+  private static final String CLUSTER_TAG_NAME = "cluster";
+  private static final String SCRIPT_TAG_NAME = "script";
+
   private static final String[] STRING_ARRAY = new String[0];
   private static final byte[][] BYTE_ARRAY_ARRAY = new byte[0][];
 
@@ -45,13 +60,20 @@ public class ClusterLuaScript {
       }
 
       return new ClusterLuaScript(redisCluster,
+          getScriptName(resource),
           new String(inputStream.readAllBytes(), StandardCharsets.UTF_8),
           scriptOutputType);
     }
   }
 
+  @VisibleForTesting
+  static String getScriptName(final String resource) {
+    return StringUtils.removeEnd(StringUtils.removeStart(resource, "lua/"), ".lua");
+  }
+
   @VisibleForTesting
   ClusterLuaScript(final FaultTolerantRedisCluster redisCluster,
+      final String name,
       final String script,
       final ScriptOutputType scriptOutputType) {
 
@@ -65,6 +87,10 @@ public class ClusterLuaScript {
       // All Java implementations are required to support SHA-1, so this should never happen
       throw new AssertionError(e);
     }
+
+    final Tags tags = Tags.of(CLUSTER_TAG_NAME, redisCluster.getName(), SCRIPT_TAG_NAME, name);
+    this.executeTimer = Metrics.timer(EXECUTE_TIMER_NAME, tags);
+    this.noScriptCounter = Metrics.counter(NO_SCRIPT_COUNTER_NAME, tags);
   }
 
   @VisibleForTesting
@@ -103,43 +129,60 @@ public class ClusterLuaScript {
   }
 
   private <T> Object execute(final StatefulRedisClusterConnection<T, T> connection, final T[] keys, final T[] args) {
+    final Timer.Sample sample = Timer.start();
+
     try {
       try {
         return connection.sync().evalsha(sha, scriptOutputType, keys, args);
       } catch (final RedisNoScriptException e) {
+        noScriptCounter.increment();
         return connection.sync().eval(script, scriptOutputType, keys, args);
       }
     } catch (final Exception e) {
       log.warn("Failed to execute script", e);
       throw e;
+    } finally {
+      sample.stop(executeTimer);
     }
   }
 
   private <T> CompletableFuture<Object> executeAsync(final StatefulRedisClusterConnection<T, T> connection,
       final T[] keys, final T[] args) {
 
+    final Timer.Sample sample = Timer.start();
+
     return connection.async().evalsha(sha, scriptOutputType, keys, args)
         .exceptionallyCompose(throwable -> {
           if (throwable instanceof RedisNoScriptException) {
+            noScriptCounter.increment();
             return connection.async().eval(script, scriptOutputType, keys, args);
           }
 
           log.warn("Failed to execute script", throwable);
           throw new RedisException(throwable);
-        }).toCompletableFuture();
+        })
+        .whenComplete((ignored, throwable) -> sample.stop(executeTimer))
+        .toCompletableFuture();
   }
 
   private <T> Flux<Object> executeReactive(final StatefulRedisClusterConnection<T, T> connection,
       final T[] keys, final T[] args) {
 
-    return connection.reactive().evalsha(sha, scriptOutputType, keys, args)
+    final Flux<Object> result = connection.reactive().evalsha(sha, scriptOutputType, keys, args)
         .onErrorResume(e -> {
           if (e instanceof RedisNoScriptException) {
+            noScriptCounter.increment();
             return connection.reactive().eval(script, scriptOutputType, keys, args);
           }
 
           log.warn("Failed to execute script", e);
           return Mono.error(e);
         });
+
+    // Start timing when the script is actually executed (i.e. on subscription) rather than when it's assembled
+    return Flux.defer(() -> {
+      final Timer.Sample sample = Timer.start();
+      return result.doFinally(ignored -> sample.stop(executeTimer));
+    });
   }
 }
@@ -23,6 +23,7 @@ import io.lettuce.core.cluster.api.StatefulRedisClusterConnection;
 import io.lettuce.core.cluster.pubsub.StatefulRedisClusterPubSubConnection;
 import io.lettuce.core.codec.ByteArrayCodec;
 import io.lettuce.core.resource.ClientResources;
+import io.micrometer.core.instrument.Metrics;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
@@ -57,8 +58,13 @@ public class FaultTolerantRedisCluster {
 
   public FaultTolerantRedisCluster(final String name, final RedisClusterConfiguration clusterConfiguration,
       final ClientResources clientResources) {
+    // Mutated client resources share the original's event loops and other resources, but also report command latency
+    // tagged with this cluster's name; the original resources' recorder still receives every measurement
     this(name,
-        RedisClusterClient.create(clientResources,
+        RedisClusterClient.create(clientResources.mutate()
+                .commandLatencyRecorder(new ClusterCommandLatencyRecorder(name, Metrics.globalRegistry,
+                    clientResources.commandLatencyRecorder()))
+                .build(),
             RedisUriUtil.createRedisUriWithTimeout(clusterConfiguration.getConfigurationUri(),
                 clusterConfiguration.getTimeout())),
         clusterConfiguration.getTimeout(),
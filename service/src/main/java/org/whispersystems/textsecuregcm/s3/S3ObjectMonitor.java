@@ -15,6 +15,7 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.HttpStatus;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.WhisperServerService;
@@ -23,8 +24,7 @@ import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
-import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
-import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 /**
  * An S3 object monitor watches a specific object in an S3 bucket and notifies a listener if that object changes.
@@ -124,40 +124,58 @@ public class S3ObjectMonitor {
 
     lastETag.set(response.response().eTag());
 
-    if (response.response().contentLength() <= maxObjectSize) {
-      return response;
-    } else {
-      log.warn("Object at s3://{}/{} has a size of {} bytes, which exceeds the maximum allowed size of {} bytes",
-          s3Bucket, objectKey, response.response().contentLength(), maxObjectSize);
-      response.abort();
-      throw new IOException("S3 object too large");
-    }
+    return checkSize(response);
   }
 
   /**
-   * Polls S3 for object metadata and notifies the listener provided at construction time if and only if the object has
-   * changed since the last call to {@link #getObject()} or {@code refresh()}.
+   * Polls S3 for the monitored object and notifies the listener provided at construction time if and only if the
+   * object has changed since the last call to {@link #getObject()} or {@code refresh()}. Polling is conditional on the
+   * object's ETag, so an unchanged object costs a single request with an empty response, and a changed object's body
+   * is streamed directly to the listener from the same response that reported the change.
    */
   @VisibleForTesting
   void refresh() {
-    try {
-      final HeadObjectResponse objectMetadata = s3Client.headObject(HeadObjectRequest.builder()
-          .bucket(s3Bucket)
-          .key(objectKey)
-          .build());
+    final String initialETag = lastETag.get();
+
+    final GetObjectRequest.Builder requestBuilder = GetObjectRequest.builder()
+        .key(objectKey)
+        .bucket(s3Bucket);
 
-      final String initialETag = lastETag.get();
-      final String refreshedETag = objectMetadata.eTag();
+    if (initialETag != null) {
+      requestBuilder.ifNoneMatch(initialETag);
+    }
+
+    try (final ResponseInputStream<GetObjectResponse> response = s3Client.getObject(requestBuilder.build())) {
+      final String refreshedETag = response.response().eTag();
 
       if (!StringUtils.equals(initialETag, refreshedETag) && lastETag.compareAndSet(initialETag, refreshedETag)) {
-        try (final ResponseInputStream<GetObjectResponse> response = getObject()) {
-          log.info("Object at s3://{}/{} has changed; new eTag is {} and object size is {} bytes",
-              s3Bucket, objectKey, response.response().eTag(), response.response().contentLength());
-          changeListener.accept(response);
-        }
+        checkSize(response);
+
+        log.info("Object at s3://{}/{} has changed; new eTag is {} and object size is {} bytes",
+            s3Bucket, objectKey, refreshedETag, response.response().contentLength());
+        changeListener.accept(response);
+      } else {
+        response.abort();
+      }
+    } catch (final S3Exception e) {
+      if (e.statusCode() != HttpStatus.SC_NOT_MODIFIED) {
+        log.warn("Failed to refresh monitored object", e);
       }
     } catch (final Exception e) {
       log.warn("Failed to refresh monitored object", e);
     }
   }
+
+  private ResponseInputStream<GetObjectResponse> checkSize(final ResponseInputStream<GetObjectResponse> response)
+      throws IOException {
+
+    if (response.response().contentLength() <= maxObjectSize) {
+      return response;
+    } else {
+      log.warn("Object at s3://{}/{} has a size of {} bytes, which exceeds the maximum allowed size of {} bytes",
+          s3Bucket, objectKey, response.response().contentLength(), maxObjectSize);
+      response.abort();
+      throw new IOException("S3 object too large");
+    }
+  }
 }
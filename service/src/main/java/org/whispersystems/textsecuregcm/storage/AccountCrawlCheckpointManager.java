@@ -0,0 +1,162 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
+import org.whispersystems.textsecuregcm.redis.ClusterLuaScript;
+import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
+import org.whispersystems.textsecuregcm.util.Util;
+
+/**
+ * Tracks the progress of a resumable, segmented crawl of the accounts table in Redis. Each segment of a crawl has a
+ * checkpoint, which records the last account evaluated in that segment (or that the segment is complete), and a lease,
+ * which gives one worker at a time the exclusive right to crawl the segment and advance its checkpoint. Leases expire if
+ * their holder stops renewing them, so segments held by a worker that crashed become available to others.
+ */
+public class AccountCrawlCheckpointManager {
+
+  private final FaultTolerantRedisCluster redisCluster;
+  private final String crawlId;
+  private final String leaseHolder;
+  private final Duration leaseDuration;
+
+  private final ClusterLuaScript updateCheckpointScript;
+  private final ClusterLuaScript renewLeaseScript;
+  private final ClusterLuaScript releaseLeaseScript;
+
+  @VisibleForTesting
+  static final Duration CHECKPOINT_TTL = Duration.ofDays(7);
+
+  private static final String COMPLETE_CHECKPOINT = "complete";
+
+  /**
+   * The state of a single segment of a crawl.
+   *
+   * @param lastEvaluatedUuid the identifier of the last account evaluated in this segment, if any
+   * @param complete whether every account in this segment has been crawled
+   */
+  public record Checkpoint(Optional<UUID> lastEvaluatedUuid, boolean complete) {
+
+    public static final Checkpoint NOT_STARTED = new Checkpoint(Optional.empty(), false);
+  }
+
+  /**
+   * @param redisCluster the cluster in which to store checkpoints and leases
+   * @param crawlId identifies a single run of a crawl; workers that share a crawl ID share checkpoints and leases
+   * @param leaseHolder identifies this worker among all workers participating in the crawl
+   * @param leaseDuration how long a lease lasts without its holder renewing it or advancing the segment's checkpoint
+   */
+  public AccountCrawlCheckpointManager(final FaultTolerantRedisCluster redisCluster,
+      final String crawlId,
+      final String leaseHolder,
+      final Duration leaseDuration) throws IOException {
+
+    this.redisCluster = redisCluster;
+    this.crawlId = crawlId;
+    this.leaseHolder = leaseHolder;
+    this.leaseDuration = leaseDuration;
+
+    this.updateCheckpointScript = ClusterLuaScript.fromResource(redisCluster,
+        "lua/account_crawler/update_checkpoint.lua", ScriptOutputType.INTEGER);
+
+    this.renewLeaseScript = ClusterLuaScript.fromResource(redisCluster,
+        "lua/account_crawler/renew_lease.lua", ScriptOutputType.INTEGER);
+
+    this.releaseLeaseScript = ClusterLuaScript.fromResource(redisCluster,
+        "lua/account_crawler/release_lease.lua", ScriptOutputType.INTEGER);
+  }
+
+  /**
+   * Attempts to acquire the lease for the given segment.
+   *
+   * @return a future that yields {@code true} if this worker now holds the lease or {@code false} if another worker
+   * holds it
+   */
+  public CompletableFuture<Boolean> tryAcquireLease(final int segment) {
+    return redisCluster.withCluster(connection -> connection.async()
+            .set(getLeaseKey(segment), leaseHolder, SetArgs.Builder.nx().px(leaseDuration.toMillis())))
+        .thenApply("OK"::equals)
+        .toCompletableFuture();
+  }
+
+  /**
+   * Extends the lease for the given segment by the lease duration if this worker holds it.
+   *
+   * @return a future that yields {@code true} if the lease was renewed or {@code false} if this worker no longer holds
+   * the lease
+   */
+  public CompletableFuture<Boolean> renewLease(final int segment) {
+    return renewLeaseScript.executeAsync(List.of(getLeaseKey(segment)),
+            List.of(leaseHolder, String.valueOf(leaseDuration.toMillis())))
+        .thenApply(result -> (long) result == 1);
+  }
+
+  /**
+   * Releases the lease for the given segment if this worker holds it.
+   */
+  public CompletableFuture<Void> releaseLease(final int segment) {
+    return releaseLeaseScript.executeAsync(List.of(getLeaseKey(segment)), List.of(leaseHolder))
+        .thenRun(Util.NOOP);
+  }
+
+  public Duration getLeaseDuration() {
+    return leaseDuration;
+  }
+
+  public CompletableFuture<Checkpoint> getCheckpoint(final int segment) {
+    return redisCluster.withCluster(connection -> connection.async().get(getCheckpointKey(segment)))
+        .thenApply(AccountCrawlCheckpointManager::parseCheckpoint)
+        .toCompletableFuture();
+  }
+
+  /**
+   * Advances the checkpoint for the given segment and renews this worker's lease on that segment, but only if this
+   * worker still holds the lease.
+   *
+   * @param segment the segment for which to advance the checkpoint
+   * @param lastEvaluatedUuid the identifier of the last account evaluated in the segment, or empty if the segment is
+   *                          complete
+   *
+   * @return a future that yields {@code true} if the checkpoint was updated or {@code false} if this worker no longer
+   * holds the lease for the segment
+   */
+  public CompletableFuture<Boolean> updateCheckpoint(final int segment, final Optional<UUID> lastEvaluatedUuid) {
+    return updateCheckpointScript.executeAsync(List.of(getLeaseKey(segment), getCheckpointKey(segment)),
+            List.of(leaseHolder,
+                lastEvaluatedUuid.map(UUID::toString).orElse(COMPLETE_CHECKPOINT),
+                String.valueOf(leaseDuration.toMillis()),
+                String.valueOf(CHECKPOINT_TTL.toSeconds())))
+        .thenApply(result -> (long) result == 1);
+  }
+
+  @VisibleForTesting
+  static Checkpoint parseCheckpoint(@Nullable final String checkpoint) {
+    if (checkpoint == null) {
+      return Checkpoint.NOT_STARTED;
+    } else if (COMPLETE_CHECKPOINT.equals(checkpoint)) {
+      return new Checkpoint(Optional.empty(), true);
+    } else {
+      return new Checkpoint(Optional.of(UUID.fromString(checkpoint)), false);
+    }
+  }
+
+  private String getLeaseKey(final int segment) {
+    return "account_crawl::{" + crawlId + "::" + segment + "}::lease";
+  }
+
+  private String getCheckpointKey(final int segment) {
+    return "account_crawl::{" + crawlId + "::" + segment + "}::checkpoint";
+  }
+}
@@ -11,6 +11,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Throwables;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.io.IOException;
@@ -53,6 +54,7 @@ import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.Put;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValuesOnConditionCheckFailure;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.TransactWriteItem;
@@ -97,6 +99,9 @@ public class Accounts extends AbstractDynamoDbStore {
   private static final Timer GET_BY_USERNAME_LINK_HANDLE_TIMER = Metrics.timer(name(Accounts.class, "getByUsernameLinkHandle"));
   private static final Timer GET_BY_PNI_TIMER = Metrics.timer(name(Accounts.class, "getByPni"));
   private static final Timer GET_BY_UUID_TIMER = Metrics.timer(name(Accounts.class, "getByUuid"));
+  private static final Timer BATCH_GET_TIMER = Metrics.timer(name(Accounts.class, "batchGet"));
+  private static final Counter BATCH_GET_UNPROCESSED_KEYS_COUNTER =
+      Metrics.counter(name(Accounts.class, "batchGetUnprocessedKeys"));
   private static final Timer DELETE_TIMER = Metrics.timer(name(Accounts.class, "delete"));
 
   private static final String CONDITIONAL_CHECK_FAILED = "ConditionalCheckFailed";
@@ -1016,6 +1021,45 @@ public class Accounts extends AbstractDynamoDbStore {
         .toCompletableFuture();
   }
 
+  /**
+   * Retrieves the accounts with the given identifiers in as few requests as possible. Identifiers that don't belong to
+   * an account are omitted from the results.
+   */
+  CompletableFuture<List<Account>> getByAccountIdentifiersAsync(final Collection<UUID> uuids) {
+    return Flux.fromIterable(uuids)
+        .distinct()
+        .map(uuid -> Map.of(KEY_ACCOUNT_UUID, AttributeValues.fromUUID(uuid)))
+        .buffer(DynamoDbBatchOperations.DYNAMO_DB_MAX_BATCH_GET_SIZE)
+        .flatMap(keys -> batchGet(accountsTableName, keys))
+        .map(Accounts::fromItem)
+        .collectList()
+        .toFuture();
+  }
+
+  /**
+   * Resolves the given phone number identifiers to account identifiers in as few requests as possible. Phone number
+   * identifiers that don't belong to an account are omitted from the results.
+   *
+   * @return a map of phone number identifiers to account identifiers
+   */
+  CompletableFuture<Map<UUID, UUID>> getAccountIdentifiersByPhoneNumberIdentifiersAsync(final Collection<UUID> pnis) {
+    return Flux.fromIterable(pnis)
+        .distinct()
+        .map(pni -> Map.of(ATTR_PNI_UUID, AttributeValues.fromUUID(pni)))
+        .buffer(DynamoDbBatchOperations.DYNAMO_DB_MAX_BATCH_GET_SIZE)
+        .flatMap(keys -> batchGet(phoneNumberIdentifierConstraintTableName, keys))
+        .collectMap(item -> AttributeValues.getUUID(item, ATTR_PNI_UUID, null),
+            item -> AttributeValues.getUUID(item, KEY_ACCOUNT_UUID, null))
+        .toFuture();
+  }
+
+  private Flux<Map<String, AttributeValue>> batchGet(final String tableName,
+      final List<Map<String, AttributeValue>> keys) {
+
+    return DynamoDbBatchOperations.batchGetItems(asyncClient, tableName, keys,
+        BATCH_GET_TIMER, BATCH_GET_UNPROCESSED_KEYS_COUNTER);
+  }
+
   public Optional<UUID> findRecentlyDeletedAccountIdentifier(final String e164) {
     final GetItemResponse response = db().getItem(GetItemRequest.builder()
         .tableName(deletedAccountsTableName)
@@ -1092,6 +1136,47 @@ public class Accounts extends AbstractDynamoDbStore {
         .sequential();
   }
 
+  /**
+   * A single page of accounts from one segment of a parallel scan of the accounts table.
+   *
+   * @param accounts the accounts in this page
+   * @param lastEvaluatedUuid the identifier of the last account evaluated for this page, from which a scan of the same
+   *                          segment can resume; empty if this was the last page in the segment
+   * @param consumedReadCapacityUnits the read capacity consumed to fetch this page
+   */
+  public record ScanPage(List<Account> accounts, Optional<UUID> lastEvaluatedUuid, double consumedReadCapacityUnits) {
+  }
+
+  CompletableFuture<ScanPage> scanSegment(final int segment,
+      final int totalSegments,
+      @Nullable final UUID exclusiveStartUuid,
+      final int pageSize) {
+
+    if (totalSegments < 1 || segment < 0 || segment >= totalSegments) {
+      throw new IllegalArgumentException("Segment must be between 0 and the total number of segments");
+    }
+
+    final ScanRequest.Builder scanRequestBuilder = ScanRequest.builder()
+        .tableName(accountsTableName)
+        .consistentRead(true)
+        .segment(segment)
+        .totalSegments(totalSegments)
+        .limit(pageSize)
+        .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+    if (exclusiveStartUuid != null) {
+      scanRequestBuilder.exclusiveStartKey(Map.of(KEY_ACCOUNT_UUID, AttributeValues.fromUUID(exclusiveStartUuid)));
+    }
+
+    return asyncClient.scan(scanRequestBuilder.build())
+        .thenApply(response -> new ScanPage(
+            response.items().stream().map(Accounts::fromItem).toList(),
+            response.hasLastEvaluatedKey()
+                ? Optional.ofNullable(AttributeValues.getUUID(response.lastEvaluatedKey(), KEY_ACCOUNT_UUID, null))
+                : Optional.empty(),
+            response.consumedCapacity() != null ? response.consumedCapacity().capacityUnits() : 0));
+  }
+
   @Nonnull
   private Optional<Account> getByIndirectLookup(
       final Timer timer,
@@ -15,6 +15,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectWriter;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Preconditions;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
 import io.micrometer.core.instrument.Metrics;
@@ -28,10 +29,13 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
@@ -41,6 +45,7 @@ import java.util.function.BiFunction;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.ObjectUtils;
@@ -80,6 +85,7 @@ public class AccountsManager {
   private static final Timer getByUsernameHashTimer = metricRegistry.timer(name(AccountsManager.class, "getByUsernameHash"));
   private static final Timer getByUsernameLinkHandleTimer = metricRegistry.timer(name(AccountsManager.class, "getByUsernameLinkHandle"));
   private static final Timer getByUuidTimer = metricRegistry.timer(name(AccountsManager.class, "getByUuid"));
+  private static final Timer getByServiceIdentifiersTimer = metricRegistry.timer(name(AccountsManager.class, "getByServiceIdentifiers"));
   private static final Timer deleteTimer = metricRegistry.timer(name(AccountsManager.class, "delete"));
 
   private static final Timer redisSetTimer = metricRegistry.timer(name(AccountsManager.class, "redisSet"));
@@ -923,6 +929,139 @@ public class AccountsManager {
     );
   }
 
+  /**
+   * Retrieves the accounts identified by the given service identifiers, checking the account cache for all of them at
+   * once and then reading any that weren't cached from DynamoDB in batches. This is much cheaper than resolving each
+   * identifier separately when checking many identifiers at once.
+   *
+   * @param serviceIdentifiers the service identifiers for which to retrieve accounts
+   *
+   * @return a future that yields a map of service identifiers to accounts; identifiers that don't belong to an account
+   * are omitted
+   */
+  public CompletableFuture<Map<ServiceIdentifier, Account>> getByServiceIdentifiersAsync(
+      final Collection<ServiceIdentifier> serviceIdentifiers) {
+
+    @SuppressWarnings("resource") final Timer.Context timerContext = getByServiceIdentifiersTimer.time();
+
+    final Set<UUID> pnis = new HashSet<>();
+    final Set<UUID> acis = new HashSet<>();
+
+    serviceIdentifiers.forEach(serviceIdentifier -> {
+      switch (serviceIdentifier.identityType()) {
+        case ACI -> acis.add(serviceIdentifier.uuid());
+        case PNI -> pnis.add(serviceIdentifier.uuid());
+      }
+    });
+
+    return resolvePhoneNumberIdentifiers(pnis)
+        .thenCompose(acisByPni -> {
+          final Set<UUID> allAcis = new HashSet<>(acis);
+          allAcis.addAll(acisByPni.values());
+
+          return getByAccountIdentifiersAsync(allAcis).thenApply(accountsByAci -> {
+            final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+            for (final ServiceIdentifier serviceIdentifier : serviceIdentifiers) {
+              final Account account = switch (serviceIdentifier.identityType()) {
+                case ACI -> accountsByAci.get(serviceIdentifier.uuid());
+                case PNI -> Optional.ofNullable(acisByPni.get(serviceIdentifier.uuid()))
+                    .map(accountsByAci::get)
+                    // Guard against a stale mapping for a phone number identifier that has since moved to another account
+                    .filter(a -> serviceIdentifier.uuid().equals(a.getPhoneNumberIdentifier()))
+                    .orElse(null);
+              };
+
+              if (account != null) {
+                accountsByServiceIdentifier.put(serviceIdentifier, account);
+              }
+            }
+
+            return accountsByServiceIdentifier;
+          });
+        })
+        .whenComplete((ignored, throwable) -> timerContext.close());
+  }
+
+  private CompletableFuture<Map<UUID, UUID>> resolvePhoneNumberIdentifiers(final Set<UUID> pnis) {
+    if (pnis.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    final Map<UUID, UUID> acisByPni = new HashMap<>();
+
+    return redisMultiGet(pnis.stream().map(pni -> getAccountMapKey(pni.toString())).toList())
+        .thenCompose(cachedAcis -> {
+          final List<UUID> uncachedPnis = new ArrayList<>();
+
+          for (final UUID pni : pnis) {
+            final String cachedAci = cachedAcis.get(getAccountMapKey(pni.toString()));
+
+            if (cachedAci != null) {
+              acisByPni.put(pni, UUID.fromString(cachedAci));
+            } else {
+              uncachedPnis.add(pni);
+            }
+          }
+
+          return uncachedPnis.isEmpty()
+              ? CompletableFuture.completedFuture(Collections.<UUID, UUID>emptyMap())
+              : accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(uncachedPnis);
+        })
+        .thenApply(uncachedAcisByPni -> {
+          acisByPni.putAll(uncachedAcisByPni);
+          return acisByPni;
+        });
+  }
+
+  private CompletableFuture<Map<UUID, Account>> getByAccountIdentifiersAsync(final Set<UUID> acis) {
+    if (acis.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyMap());
+    }
+
+    final Map<UUID, Account> accountsByAci = new HashMap<>();
+
+    return redisMultiGet(acis.stream().map(this::getAccountEntityKey).toList())
+        .thenCompose(cachedAccountJson -> {
+          final List<UUID> uncachedAcis = new ArrayList<>();
+
+          for (final UUID aci : acis) {
+            parseAccountJson(cachedAccountJson.get(getAccountEntityKey(aci)), aci)
+                .ifPresentOrElse(account -> accountsByAci.put(aci, account), () -> uncachedAcis.add(aci));
+          }
+
+          if (uncachedAcis.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+          }
+
+          return accounts.getByAccountIdentifiersAsync(uncachedAcis)
+              .thenCompose(uncachedAccounts -> {
+                uncachedAccounts.forEach(account -> accountsByAci.put(account.getUuid(), account));
+
+                return CompletableFuture.allOf(uncachedAccounts.stream()
+                    .map(this::redisSetAsync)
+                    .toArray(CompletableFuture[]::new));
+              });
+        })
+        .thenApply(ignored -> accountsByAci);
+  }
+
+  /**
+   * Gets the values of all the given keys from the account cache. Keys with no value, or all keys if the cache is
+   * unavailable, are omitted from the results.
+   */
+  private CompletableFuture<Map<String, String>> redisMultiGet(final List<String> keys) {
+    return cacheCluster.withCluster(connection -> connection.async().mget(keys.toArray(String[]::new)))
+        .thenApply(keyValues -> keyValues.stream()
+            .filter(KeyValue::hasValue)
+            .collect(Collectors.toMap(KeyValue::getKey, KeyValue::getValue)))
+        .exceptionally(throwable -> {
+          logger.warn("Failed to retrieve accounts from Redis", throwable);
+          return Collections.emptyMap();
+        })
+        .toCompletableFuture();
+  }
+
   public UUID getPhoneNumberIdentifier(String e164) {
     return phoneNumberIdentifiers.getPhoneNumberIdentifier(e164);
   }
@@ -939,6 +1078,14 @@ public class AccountsManager {
     return accounts.getAll(segments, scheduler);
   }
 
+  public CompletableFuture<Accounts.ScanPage> scanSegment(final int segment,
+      final int totalSegments,
+      @Nullable final UUID exclusiveStartUuid,
+      final int pageSize) {
+
+    return accounts.scanSegment(segment, totalSegments, exclusiveStartUuid, pageSize);
+  }
+
   public CompletableFuture<Void> delete(final Account account, final DeletionReason deletionReason) {
     @SuppressWarnings("resource") final Timer.Context timerContext = deleteTimer.time();
 
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+import reactor.util.retry.RetryBackoffSpec;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.ReturnConsumedCapacity;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+/**
+ * Executes single-table DynamoDB batch reads and writes, retrying any keys or items that DynamoDB leaves unprocessed
+ * (usually because of throttling) with a jittered exponential backoff.
+ */
+final class DynamoDbBatchOperations {
+
+  // This limit comes from DynamoDB itself; it will reject batch reads for more keys than this
+  static final int DYNAMO_DB_MAX_BATCH_GET_SIZE = 100;
+
+  @VisibleForTesting
+  static final int MAX_RETRIES = 8;
+
+  private static final Duration MIN_RETRY_BACKOFF = Duration.ofMillis(50);
+  private static final Duration MAX_RETRY_BACKOFF = Duration.ofSeconds(2);
+
+  private DynamoDbBatchOperations() {
+  }
+
+  /**
+   * Reads a batch of no more than {@link #DYNAMO_DB_MAX_BATCH_GET_SIZE} items from the given table with strongly
+   * consistent reads.
+   *
+   * @param dynamoDbAsyncClient the client with which to read items
+   * @param tableName the name of the table from which to read items
+   * @param keys the primary keys of the items to read
+   * @param batchGetTimer a timer for each batch read request, including retries
+   * @param unprocessedKeysCounter a counter for keys left unprocessed by individual requests
+   *
+   * @return a publisher of all items found for the given keys; fails if keys remain unprocessed after retries are
+   * exhausted
+   */
+  static Flux<Map<String, AttributeValue>> batchGetItems(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final List<Map<String, AttributeValue>> keys,
+      final Timer batchGetTimer,
+      final Counter unprocessedKeysCounter) {
+
+    final AtomicReference<List<Map<String, AttributeValue>>> pendingKeys = new AtomicReference<>(keys);
+    final List<Map<String, AttributeValue>> items = new ArrayList<>(keys.size());
+
+    return Mono.defer(() -> {
+          final Timer.Sample sample = Timer.start();
+
+          return Mono.fromFuture(dynamoDbAsyncClient.batchGetItem(BatchGetItemRequest.builder()
+                  .requestItems(Map.of(tableName, KeysAndAttributes.builder()
+                      .keys(pendingKeys.get())
+                      .consistentRead(true)
+                      .build()))
+                  .build()))
+              .doOnTerminate(() -> sample.stop(batchGetTimer));
+        })
+        .flatMap(response -> {
+          items.addAll(response.responses().getOrDefault(tableName, List.of()));
+
+          final List<Map<String, AttributeValue>> unprocessedKeys =
+              Optional.ofNullable(response.unprocessedKeys().get(tableName))
+                  .map(KeysAndAttributes::keys)
+                  .orElse(List.of());
+
+          if (unprocessedKeys.isEmpty()) {
+            return Mono.just(items);
+          }
+
+          unprocessedKeysCounter.increment(unprocessedKeys.size());
+          pendingKeys.set(unprocessedKeys);
+
+          return Mono.error(new UnprocessedRequestsException(
+              unprocessedKeys.size() + " keys left unprocessed after batch read"));
+        })
+        .retryWhen(retryUnprocessedRequests())
+        .flatMapMany(Flux::fromIterable);
+  }
+
+  /**
+   * Writes a batch of no more than {@link AbstractDynamoDbStore#DYNAMO_DB_MAX_BATCH_SIZE} items to the given table.
+   *
+   * @param dynamoDbAsyncClient the client with which to write items
+   * @param tableName the name of the table to which to write items
+   * @param writeRequests the write requests to execute as a batch
+   * @param batchWriteTimer a timer for each batch write request, including retries
+   * @param unprocessedItemsCounter a counter for items left unprocessed by individual requests
+   * @param consumedCapacityCounter a counter for write capacity units consumed by individual requests
+   *
+   * @return a publisher that completes when all items have been written or fails if items remain unprocessed after
+   * retries are exhausted
+   */
+  static Mono<Void> batchWriteItems(final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final String tableName,
+      final List<WriteRequest> writeRequests,
+      final Timer batchWriteTimer,
+      final Counter unprocessedItemsCounter,
+      final Counter consumedCapacityCounter) {
+
+    final AtomicReference<List<WriteRequest>> pendingWriteRequests = new AtomicReference<>(writeRequests);
+
+    return Mono.defer(() -> {
+          final Timer.Sample sample = Timer.start();
+
+          return Mono.fromFuture(dynamoDbAsyncClient.batchWriteItem(BatchWriteItemRequest.builder()
+                  .requestItems(Map.of(tableName, pendingWriteRequests.get()))
+                  .returnConsumedCapacity(ReturnConsumedCapacity.TOTAL)
+                  .build()))
+              .doOnTerminate(() -> sample.stop(batchWriteTimer));
+        })
+        .flatMap(response -> {
+          if (response.hasConsumedCapacity()) {
+            response.consumedCapacity().stream()
+                .map(ConsumedCapacity::capacityUnits)
+                .filter(Objects::nonNull)
+                .forEach(consumedCapacityCounter::increment);
+          }
+
+          final List<WriteRequest> unprocessedWriteRequests =
+              response.unprocessedItems().getOrDefault(tableName, List.of());
+
+          if (unprocessedWriteRequests.isEmpty()) {
+            return Mono.empty();
+          }
+
+          unprocessedItemsCounter.increment(unprocessedWriteRequests.size());
+          pendingWriteRequests.set(unprocessedWriteRequests);
+
+          return Mono.error(new UnprocessedRequestsException(
+              unprocessedWriteRequests.size() + " items left unprocessed after batch write"));
+        })
+        .retryWhen(retryUnprocessedRequests())
+        .then();
+  }
+
+  private static RetryBackoffSpec retryUnprocessedRequests() {
+    return Retry.backoff(MAX_RETRIES, MIN_RETRY_BACKOFF)
+        .maxBackoff(MAX_RETRY_BACKOFF)
+        .jitter(0.5)
+        .filter(UnprocessedRequestsException.class::isInstance)
+        .onRetryExhaustedThrow((spec, retrySignal) -> retrySignal.failure());
+  }
+
+  @VisibleForTesting
+  static class UnprocessedRequestsException extends RuntimeException {
+
+    UnprocessedRequestsException(final String message) {
+      super(message, null, true, false);
+    }
+  }
+}
@@ -6,10 +6,14 @@
 package org.whispersystems.textsecuregcm.storage;
 
 import com.google.common.annotations.VisibleForTesting;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nullable;
 import org.whispersystems.textsecuregcm.entities.ECPreKey;
 import org.whispersystems.textsecuregcm.entities.ECSignedPreKey;
 import org.whispersystems.textsecuregcm.entities.KEMSignedPreKey;
@@ -23,6 +27,8 @@ public class KeysManager {
   private final RepeatedUseECSignedPreKeyStore ecSignedPreKeys;
   private final RepeatedUseKEMSignedPreKeyStore pqLastResortKeys;
 
+  private static final CompletableFuture<?>[] EMPTY_FUTURE_ARRAY = new CompletableFuture[0];
+
   public KeysManager(
       final DynamoDbAsyncClient dynamoDbAsyncClient,
       final String ecTableName,
@@ -115,6 +121,82 @@ public class KeysManager {
     return ecSignedPreKeys.find(identifier, deviceId);
   }
 
+  /**
+   * The pre-keys available for a single device, any of which may be absent.
+   *
+   * @param deviceId the identifier of the device within its account
+   * @param ecSignedPreKey the device's signed EC pre-key, or {@code null} if the device has none
+   * @param ecPreKey a one-time EC pre-key taken from the device's supply, or {@code null} if the supply was empty
+   * @param kemPreKey a one-time KEM pre-key taken from the device's supply or, if the supply was empty, the device's
+   * last-resort KEM pre-key; {@code null} if the device has neither
+   */
+  public record DevicePreKeys(byte deviceId,
+                              @Nullable ECSignedPreKey ecSignedPreKey,
+                              @Nullable ECPreKey ecPreKey,
+                              @Nullable KEMSignedPreKey kemPreKey) {
+  }
+
+  /**
+   * Retrieves a pre-key bundle for each of the given devices, taking one-time pre-keys from each device's supply. Signed
+   * and last-resort pre-keys for all devices are read in batches rather than one device at a time, and one-time
+   * pre-keys are taken for all devices concurrently.
+   *
+   * @param identifier the identifier for the account/identity with which the target devices are associated
+   * @param deviceIds the identifiers for the target devices within the given account/identity
+   *
+   * @return a future that yields one bundle per distinct device ID, in the order in which device IDs were given
+   */
+  public CompletableFuture<List<DevicePreKeys>> takeDevicePreKeys(final UUID identifier,
+      final Collection<Byte> deviceIds) {
+
+    final List<Byte> distinctDeviceIds = deviceIds.stream().distinct().toList();
+
+    final CompletableFuture<Map<Byte, ECSignedPreKey>> ecSignedPreKeysFuture =
+        ecSignedPreKeys.find(identifier, distinctDeviceIds);
+
+    final Map<Byte, CompletableFuture<Optional<ECPreKey>>> ecPreKeyFutures = new HashMap<>();
+    final Map<Byte, CompletableFuture<Optional<KEMSignedPreKey>>> kemPreKeyFutures = new HashMap<>();
+
+    distinctDeviceIds.forEach(deviceId -> {
+      ecPreKeyFutures.put(deviceId, ecPreKeys.take(identifier, deviceId));
+      kemPreKeyFutures.put(deviceId, pqPreKeys.take(identifier, deviceId));
+    });
+
+    // Only devices whose supply of one-time KEM pre-keys is exhausted need a last-resort key; look those up together
+    // once all of the one-time KEM pre-keys have been taken
+    final CompletableFuture<Map<Byte, KEMSignedPreKey>> kemPreKeysFuture =
+        CompletableFuture.allOf(kemPreKeyFutures.values().toArray(EMPTY_FUTURE_ARRAY))
+            .thenCompose(ignored -> {
+              final Map<Byte, KEMSignedPreKey> kemPreKeys = new HashMap<>();
+
+              kemPreKeyFutures.forEach((deviceId, future) ->
+                  future.join().ifPresent(kemPreKey -> kemPreKeys.put(deviceId, kemPreKey)));
+
+              final List<Byte> devicesWithoutOneTimeKemPreKeys = distinctDeviceIds.stream()
+                  .filter(deviceId -> !kemPreKeys.containsKey(deviceId))
+                  .toList();
+
+              if (devicesWithoutOneTimeKemPreKeys.isEmpty()) {
+                return CompletableFuture.completedFuture(kemPreKeys);
+              }
+
+              return pqLastResortKeys.find(identifier, devicesWithoutOneTimeKemPreKeys)
+                  .thenApply(lastResortKeys -> {
+                    kemPreKeys.putAll(lastResortKeys);
+                    return kemPreKeys;
+                  });
+            });
+
+    return CompletableFuture.allOf(ecPreKeyFutures.values().toArray(EMPTY_FUTURE_ARRAY))
+        .thenCombine(ecSignedPreKeysFuture, (ignored, ecSignedPreKeysByDeviceId) -> ecSignedPreKeysByDeviceId)
+        .thenCombine(kemPreKeysFuture, (ecSignedPreKeysByDeviceId, kemPreKeysByDeviceId) -> distinctDeviceIds.stream()
+            .map(deviceId -> new DevicePreKeys(deviceId,
+                ecSignedPreKeysByDeviceId.get(deviceId),
+                ecPreKeyFutures.get(deviceId).join().orElse(null),
+                kemPreKeysByDeviceId.get(deviceId)))
+            .toList());
+  }
+
   public CompletableFuture<List<Byte>> getPqEnabledDevices(final UUID identifier) {
     return pqLastResortKeys.getDeviceIdsWithKeys(identifier).collectList().toFuture();
   }
@@ -5,53 +5,115 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import io.lettuce.core.RedisException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLongArray;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.util.SystemMapper;
 import org.whispersystems.textsecuregcm.util.Util;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 import javax.annotation.Nullable;
 
 public class ProfilesManager {
 
   private final Logger logger = LoggerFactory.getLogger(ProfilesManager.class);
 
-  private static final String CACHE_PREFIX = "profiles::";
+  // Profiles in the binary encoding live under their own prefix so instances that only understand JSON never read them.
+  // Only one of the two caches is in use at a time, chosen by the profileCache.binaryEncoding dynamic configuration
+  // switch, which is turned on once every instance understands the binary encoding. Once it has been on everywhere, a
+  // follow-up removes the switch along with the legacy JSON reads and writes, and unlinks the remaining legacy hashes.
+  private static final String CACHE_PREFIX = "profilesV2::";
+  private static final String LEGACY_CACHE_PREFIX = "profiles::";
+
+  // Profiles for the same account and version may still change, and the near cache is only invalidated by changes made
+  // through this instance, so entries must expire quickly
+  private static final Duration NEAR_CACHE_TTL = Duration.ofSeconds(10);
+  private static final int NEAR_CACHE_MAX_SIZE = 10_000;
+
+  private static final int NEAR_CACHE_GENERATION_STRIPES = 1024;
+
+  private static final int MAX_CONCURRENT_BATCH_READS = 32;
+
+  private static final Counter NEAR_CACHE_HIT_COUNTER =
+      Metrics.counter(name(ProfilesManager.class, "nearCache"), "outcome", "hit");
+
+  private static final Counter NEAR_CACHE_MISS_COUNTER =
+      Metrics.counter(name(ProfilesManager.class, "nearCache"), "outcome", "miss");
 
   private final Profiles profiles;
   private final FaultTolerantRedisCluster cacheCluster;
+  private final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager;
   private final ObjectMapper mapper;
 
+  private final Cache<NearCacheKey, VersionedProfile> nearCache;
+
+  // Each invalidation advances the generation of the account's stripe; a profile read before an invalidation may be
+  // stale, and is only added to the near cache if its stripe's generation hasn't changed since the read began
+  private final AtomicLongArray nearCacheGenerations = new AtomicLongArray(NEAR_CACHE_GENERATION_STRIPES);
+
+  private record NearCacheKey(UUID uuid, String version) {
+  }
 
   public ProfilesManager(final Profiles profiles,
-      final FaultTolerantRedisCluster cacheCluster) {
+      final FaultTolerantRedisCluster cacheCluster,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) {
     this.profiles = profiles;
     this.cacheCluster = cacheCluster;
+    this.dynamicConfigurationManager = dynamicConfigurationManager;
     this.mapper = SystemMapper.jsonMapper();
+
+    this.nearCache = Caffeine.newBuilder()
+        .maximumSize(NEAR_CACHE_MAX_SIZE)
+        .expireAfterWrite(NEAR_CACHE_TTL)
+        .build();
   }
 
   public void set(UUID uuid, VersionedProfile versionedProfile) {
-    redisSet(uuid, versionedProfile);
+    redisUpdate(uuid, versionedProfile);
     profiles.set(uuid, versionedProfile);
+    nearCacheInvalidate(uuid, versionedProfile.version());
   }
 
   public CompletableFuture<Void> setAsync(UUID uuid, VersionedProfile versionedProfile) {
     return profiles.setAsync(uuid, versionedProfile)
-        .thenCompose(ignored -> redisSetAsync(uuid, versionedProfile));
+        .thenCompose(ignored -> redisUpdateAsync(uuid, versionedProfile))
+        .whenComplete((ignored, throwable) -> nearCacheInvalidate(uuid, versionedProfile.version()));
   }
 
   public CompletableFuture<Void> deleteAll(UUID uuid) {
-    return CompletableFuture.allOf(redisDelete(uuid), profiles.deleteAll(uuid));
+    return CompletableFuture.allOf(redisDelete(uuid), profiles.deleteAll(uuid))
+        .whenComplete((ignored, throwable) -> nearCacheInvalidateAll(uuid));
   }
 
   public Optional<VersionedProfile> get(UUID uuid, String version) {
+    final Optional<VersionedProfile> maybeNearCachedProfile = nearCacheGet(uuid, version);
+
+    if (maybeNearCachedProfile.isPresent()) {
+      return maybeNearCachedProfile;
+    }
+
+    final long nearCacheGeneration = getNearCacheGeneration(uuid);
+
     Optional<VersionedProfile> profile = redisGet(uuid, version);
 
     if (profile.isEmpty()) {
@@ -59,49 +121,148 @@ public class ProfilesManager {
       profile.ifPresent(versionedProfile -> redisSet(uuid, versionedProfile));
     }
 
+    profile.ifPresent(versionedProfile -> nearCachePut(uuid, version, versionedProfile, nearCacheGeneration));
+
     return profile;
   }
 
   public CompletableFuture<Optional<VersionedProfile>> getAsync(UUID uuid, String version) {
+    final Optional<VersionedProfile> maybeNearCachedProfile = nearCacheGet(uuid, version);
+
+    if (maybeNearCachedProfile.isPresent()) {
+      return CompletableFuture.completedFuture(maybeNearCachedProfile);
+    }
+
+    final long nearCacheGeneration = getNearCacheGeneration(uuid);
+
     return redisGetAsync(uuid, version)
         .thenCompose(maybeVersionedProfile -> maybeVersionedProfile
             .map(versionedProfile -> CompletableFuture.completedFuture(maybeVersionedProfile))
             .orElseGet(() -> profiles.getAsync(uuid, version)
                 .thenCompose(maybeVersionedProfileFromDynamo -> maybeVersionedProfileFromDynamo
                     .map(profile -> redisSetAsync(uuid, profile).thenApply(ignored -> maybeVersionedProfileFromDynamo))
-                    .orElseGet(() -> CompletableFuture.completedFuture(maybeVersionedProfileFromDynamo)))));
+                    .orElseGet(() -> CompletableFuture.completedFuture(maybeVersionedProfileFromDynamo)))))
+        .whenComplete((maybeVersionedProfile, throwable) -> {
+          if (maybeVersionedProfile != null) {
+            maybeVersionedProfile.ifPresent(profile -> nearCachePut(uuid, version, profile, nearCacheGeneration));
+          }
+        });
+  }
+
+  /**
+   * Retrieves one version of the profile for each of several accounts. Each account's profiles are cached in their own
+   * hash, so rather than a single multi-key read, all of the cache reads are issued at once and pipelined over the
+   * shared cache connection; only profiles missing from the cache are read from the database.
+   *
+   * @param versionsByAccountIdentifier a map of account identifiers to the version of the profile to retrieve for that
+   *                                    account
+   *
+   * @return a future that yields a map of account identifiers to profiles; accounts with no profile for the requested
+   * version are omitted
+   */
+  public CompletableFuture<Map<UUID, VersionedProfile>> getAsync(final Map<UUID, String> versionsByAccountIdentifier) {
+    return Flux.fromIterable(versionsByAccountIdentifier.entrySet())
+        .flatMap(entry -> Mono.fromFuture(() -> getAsync(entry.getKey(), entry.getValue()))
+            .flatMap(Mono::justOrEmpty)
+            .map(profile -> Tuples.of(entry.getKey(), profile)), MAX_CONCURRENT_BATCH_READS)
+        .collectMap(Tuple2::getT1, Tuple2::getT2)
+        .toFuture();
+  }
+
+  private Optional<VersionedProfile> nearCacheGet(final UUID uuid, final String version) {
+    final Optional<VersionedProfile> maybeProfile =
+        Optional.ofNullable(nearCache.getIfPresent(new NearCacheKey(uuid, version)));
+
+    (maybeProfile.isPresent() ? NEAR_CACHE_HIT_COUNTER : NEAR_CACHE_MISS_COUNTER).increment();
+
+    return maybeProfile;
+  }
+
+  private void nearCachePut(final UUID uuid, final String version, final VersionedProfile profile,
+      final long generation) {
+
+    // Invalidations advance the generation before removing entries, and both the generation check and the removal hold
+    // the entry's lock, so a profile read before an invalidation can never outlive it in the near cache
+    nearCache.asMap().compute(new NearCacheKey(uuid, version), (key, existingProfile) ->
+        getNearCacheGeneration(uuid) == generation ? profile : existingProfile);
+  }
+
+  private void nearCacheInvalidate(final UUID uuid, final String version) {
+    nearCacheGenerations.incrementAndGet(getNearCacheGenerationStripe(uuid));
+    nearCache.invalidate(new NearCacheKey(uuid, version));
+  }
+
+  private void nearCacheInvalidateAll(final UUID uuid) {
+    nearCacheGenerations.incrementAndGet(getNearCacheGenerationStripe(uuid));
+    nearCache.asMap().keySet().removeIf(key -> key.uuid().equals(uuid));
+  }
+
+  private long getNearCacheGeneration(final UUID uuid) {
+    return nearCacheGenerations.get(getNearCacheGenerationStripe(uuid));
+  }
+
+  private static int getNearCacheGenerationStripe(final UUID uuid) {
+    return Math.floorMod(uuid.hashCode(), NEAR_CACHE_GENERATION_STRIPES);
+  }
+
+  private boolean isBinaryEncodingEnabled() {
+    return dynamicConfigurationManager.getConfiguration().getProfileCacheConfiguration().binaryEncoding();
+  }
+
+  /**
+   * Writes a changed profile to the cache currently in use and removes that version from the other cache, so switching
+   * caches never exposes a value that changed while the other cache was in use.
+   */
+  private void redisUpdate(UUID uuid, VersionedProfile profile) {
+    final boolean binaryEncodingEnabled = isBinaryEncodingEnabled();
+
+    redisSet(uuid, profile, binaryEncodingEnabled);
+    cacheCluster.useBinaryCluster(connection ->
+        connection.sync().hdel(getCacheKey(uuid, !binaryEncodingEnabled), getCacheField(profile.version())));
+  }
+
+  private CompletableFuture<Void> redisUpdateAsync(UUID uuid, VersionedProfile profile) {
+    final boolean binaryEncodingEnabled = isBinaryEncodingEnabled();
+
+    return CompletableFuture.allOf(
+        redisSetAsync(uuid, profile, binaryEncodingEnabled),
+        cacheCluster.withBinaryCluster(connection ->
+                connection.async().hdel(getCacheKey(uuid, !binaryEncodingEnabled), getCacheField(profile.version())))
+            .toCompletableFuture());
   }
 
   private void redisSet(UUID uuid, VersionedProfile profile) {
-    try {
-      final String profileJson = mapper.writeValueAsString(profile);
+    redisSet(uuid, profile, isBinaryEncodingEnabled());
+  }
 
-      cacheCluster.useCluster(connection -> connection.sync().hset(getCacheKey(uuid), profile.version(), profileJson));
-    } catch (JsonProcessingException e) {
-      throw new IllegalArgumentException(e);
-    }
+  private void redisSet(UUID uuid, VersionedProfile profile, boolean binaryEncodingEnabled) {
+    final byte[] value = binaryEncodingEnabled ? VersionedProfileCodec.encode(profile) : getProfileJson(profile);
+
+    cacheCluster.useBinaryCluster(connection ->
+        connection.sync().hset(getCacheKey(uuid, binaryEncodingEnabled), getCacheField(profile.version()), value));
   }
 
   private CompletableFuture<Void> redisSetAsync(UUID uuid, VersionedProfile profile) {
-    final String profileJson;
+    return redisSetAsync(uuid, profile, isBinaryEncodingEnabled());
+  }
 
-    try {
-      profileJson = mapper.writeValueAsString(profile);
-    } catch (JsonProcessingException e) {
-      throw new IllegalArgumentException(e);
-    }
+  private CompletableFuture<Void> redisSetAsync(UUID uuid, VersionedProfile profile, boolean binaryEncodingEnabled) {
+    final byte[] value = binaryEncodingEnabled ? VersionedProfileCodec.encode(profile) : getProfileJson(profile);
 
-    return cacheCluster.withCluster(connection ->
-        connection.async().hset(getCacheKey(uuid), profile.version(), profileJson))
-            .thenRun(Util.NOOP)
-            .toCompletableFuture();
+    return cacheCluster.withBinaryCluster(connection ->
+            connection.async().hset(getCacheKey(uuid, binaryEncodingEnabled), getCacheField(profile.version()), value))
+        .thenRun(Util.NOOP)
+        .toCompletableFuture();
   }
 
   private Optional<VersionedProfile> redisGet(UUID uuid, String version) {
+    final boolean binaryEncodingEnabled = isBinaryEncodingEnabled();
+
     try {
-      @Nullable final String json = cacheCluster.withCluster(connection -> connection.sync().hget(getCacheKey(uuid), version));
+      @Nullable final byte[] value = cacheCluster.withBinaryCluster(connection ->
+          connection.sync().hget(getCacheKey(uuid, binaryEncodingEnabled), getCacheField(version)));
 
-      return parseProfileJson(json);
+      return parseProfile(value, binaryEncodingEnabled);
     } catch (RedisException e) {
       logger.warn("Redis exception", e);
       return Optional.empty();
@@ -109,9 +270,11 @@ public class ProfilesManager {
   }
 
   private CompletableFuture<Optional<VersionedProfile>> redisGetAsync(UUID uuid, String version) {
-    return cacheCluster.withCluster(connection ->
-        connection.async().hget(getCacheKey(uuid), version))
-        .thenApply(this::parseProfileJson)
+    final boolean binaryEncodingEnabled = isBinaryEncodingEnabled();
+
+    return cacheCluster.withBinaryCluster(connection ->
+        connection.async().hget(getCacheKey(uuid, binaryEncodingEnabled), getCacheField(version)))
+        .thenApply(value -> parseProfile(value, binaryEncodingEnabled))
         .exceptionally(throwable -> {
           logger.warn("Failed to read versioned profile from Redis", throwable);
           return Optional.empty();
@@ -119,25 +282,61 @@ public class ProfilesManager {
         .toCompletableFuture();
   }
 
-  private Optional<VersionedProfile> parseProfileJson(@Nullable final String maybeJson) {
+  private Optional<VersionedProfile> parseProfile(@Nullable final byte[] value, final boolean binaryEncodingEnabled) {
+    if (value == null) {
+      return Optional.empty();
+    }
+
+    return binaryEncodingEnabled ? parseProfile(value) : parseLegacyProfile(value);
+  }
+
+  private Optional<VersionedProfile> parseProfile(final byte[] encodedProfile) {
     try {
-      if (maybeJson != null) {
-        return Optional.of(mapper.readValue(maybeJson, VersionedProfile.class));
-      }
+      return Optional.of(VersionedProfileCodec.decode(encodedProfile));
+    } catch (final IllegalArgumentException e) {
+      logger.warn("Error deserializing value...", e);
       return Optional.empty();
+    }
+  }
+
+  private Optional<VersionedProfile> parseLegacyProfile(final byte[] profileJson) {
+    try {
+      return Optional.of(mapper.readValue(profileJson, VersionedProfile.class));
     } catch (final IOException e) {
       logger.warn("Error deserializing value...", e);
       return Optional.empty();
     }
   }
 
+  private byte[] getProfileJson(final VersionedProfile profile) {
+    try {
+      return mapper.writeValueAsBytes(profile);
+    } catch (JsonProcessingException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
   private CompletableFuture<Void> redisDelete(UUID uuid) {
-    return cacheCluster.withCluster(connection -> connection.async().del(getCacheKey(uuid)))
-        .toCompletableFuture()
+    // Either cache may hold profiles for the account, depending on which was in use when they were cached
+    return cacheCluster.withBinaryCluster(connection -> CompletableFuture.allOf(
+            connection.async().del(getCacheKey(uuid)).toCompletableFuture(),
+            connection.async().del(getLegacyCacheKey(uuid)).toCompletableFuture()))
         .thenRun(Util.NOOP);
   }
 
-  private String getCacheKey(UUID uuid) {
-    return CACHE_PREFIX + uuid.toString();
+  private static byte[] getCacheKey(UUID uuid, boolean binaryEncodingEnabled) {
+    return binaryEncodingEnabled ? getCacheKey(uuid) : getLegacyCacheKey(uuid);
+  }
+
+  private static byte[] getCacheKey(UUID uuid) {
+    return (CACHE_PREFIX + uuid.toString()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] getLegacyCacheKey(UUID uuid) {
+    return (LEGACY_CACHE_PREFIX + uuid.toString()).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] getCacheField(String version) {
+    return version.getBytes(StandardCharsets.UTF_8);
   }
 }
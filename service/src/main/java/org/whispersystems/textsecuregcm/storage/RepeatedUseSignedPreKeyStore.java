@@ -5,8 +5,10 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -46,6 +48,9 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
   private final Timer storeSingleKeyTimer = Metrics.timer(MetricsUtil.name(getClass(), "storeSingleKey"));
 
   private final String findKeyTimerName = MetricsUtil.name(getClass(), "findKey");
+  private final Timer batchFindTimer = Metrics.timer(MetricsUtil.name(getClass(), "batchFind"));
+  private final Counter batchFindUnprocessedKeysCounter =
+      Metrics.counter(MetricsUtil.name(getClass(), "batchFindUnprocessedKeys"));
 
   public RepeatedUseSignedPreKeyStore(final DynamoDbAsyncClient dynamoDbAsyncClient, final String tableName) {
     this.dynamoDbAsyncClient = dynamoDbAsyncClient;
@@ -116,6 +121,27 @@ public abstract class RepeatedUseSignedPreKeyStore<K extends SignedPreKey<?>> {
     return findFuture;
   }
 
+  /**
+   * Finds repeated-use pre-keys for several devices associated with the same account/identity with a single batch read
+   * (or as few batch reads as DynamoDB's limits allow).
+   *
+   * @param identifier the identifier for the account/identity with which the target devices are associated
+   * @param deviceIds the identifiers for the target devices within the given account/identity
+   *
+   * @return a future that yields a map of device IDs to signed pre-keys; devices with no stored key are absent from the
+   * map
+   */
+  public CompletableFuture<Map<Byte, K>> find(final UUID identifier, final Collection<Byte> deviceIds) {
+    return Flux.fromIterable(deviceIds)
+        .distinct()
+        .map(deviceId -> getPrimaryKey(identifier, deviceId))
+        .buffer(DynamoDbBatchOperations.DYNAMO_DB_MAX_BATCH_GET_SIZE)
+        .flatMap(keys -> DynamoDbBatchOperations.batchGetItems(dynamoDbAsyncClient, tableName, keys,
+            batchFindTimer, batchFindUnprocessedKeysCounter))
+        .collectMap(item -> Byte.parseByte(item.get(KEY_DEVICE_ID).n()), this::getPreKeyFromItem)
+        .toFuture();
+  }
+
   public Flux<Byte> getDeviceIdsWithKeys(final UUID identifier) {
     return Flux.from(dynamoDbAsyncClient.queryPaginator(QueryRequest.builder()
             .tableName(tableName)
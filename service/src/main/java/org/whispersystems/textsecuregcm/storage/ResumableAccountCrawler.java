@@ -0,0 +1,310 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Crawls the accounts table with a parallel scan, presenting each page of accounts in the crawl to a processor and
+ * recording a checkpoint for each segment of the scan as the processor finishes each page of that segment, so that an
+ * interrupted crawl can resume where it left off instead of starting over. Several workers can participate
+ * in the same crawl; each segment is crawled by whichever worker holds its lease, and workers renew their leases
+ * periodically for as long as they're crawling a segment.
+ * <p/>
+ * A worker crawls every segment that isn't already complete or leased by another worker, then finishes. If a worker
+ * fails mid-crawl, the segments it held become available when their leases expire and will be picked up by the next
+ * worker to run the same crawl.
+ *
+ * @see AccountCrawlCheckpointManager
+ */
+public class ResumableAccountCrawler {
+
+  private final AccountsManager accountsManager;
+  private final AccountCrawlCheckpointManager checkpointManager;
+
+  private final int totalSegments;
+  private final int maxConcurrentSegments;
+  private final int pageSize;
+  private final double maxReadCapacityUnitsPerSecond;
+
+  private final Counter accountsCounter;
+  private final Counter pagesCounter;
+  private final Counter readCapacityUnitsCounter;
+  private final String crawlerName;
+
+  private final AtomicInteger completedSegments = new AtomicInteger();
+
+  // The time, in terms of System.nanoTime(), at which this crawler may next issue a read without exceeding its read
+  // capacity budget
+  private long nextReadNanos = System.nanoTime();
+
+  private static final String ACCOUNTS_COUNTER_NAME = name(ResumableAccountCrawler.class, "accounts");
+  private static final String PAGES_COUNTER_NAME = name(ResumableAccountCrawler.class, "pages");
+  private static final String READ_CAPACITY_UNITS_COUNTER_NAME = name(ResumableAccountCrawler.class, "readCapacityUnits");
+  private static final String SEGMENTS_COUNTER_NAME = name(ResumableAccountCrawler.class, "segments");
+  private static final String COMPLETED_SEGMENTS_GAUGE_NAME = name(ResumableAccountCrawler.class, "completedSegments");
+
+  private static final String CRAWLER_TAG_NAME = "crawler";
+  private static final String OUTCOME_TAG_NAME = "outcome";
+
+  private static final Logger log = LoggerFactory.getLogger(ResumableAccountCrawler.class);
+
+  private static class LeaseLostException extends RuntimeException {
+
+    LeaseLostException(final int segment) {
+      super("Lost lease for segment " + segment, null, true, false);
+    }
+  }
+
+  // Distinguishes processor failures, which end the whole crawl, from failures to crawl a single segment
+  private static class ProcessorException extends RuntimeException {
+
+    ProcessorException(final Throwable cause) {
+      super(cause);
+    }
+  }
+
+  private enum SegmentOutcome {
+    COMPLETE("complete"),
+    ALREADY_COMPLETE("alreadyComplete"),
+    LEASED("leased"),
+    FAILED("failed");
+
+    private final String tagValue;
+
+    SegmentOutcome(final String tagValue) {
+      this.tagValue = tagValue;
+    }
+  }
+
+  /**
+   * Describes how each segment of a crawl ended for this worker.
+   *
+   * @param completeSegments the number of segments this worker finished crawling
+   * @param alreadyCompleteSegments the number of segments that had already been crawled by some worker
+   * @param leasedSegments the number of segments this worker skipped because another worker held their leases
+   * @param failedSegments the number of segments this worker started, but could not finish
+   */
+  public record CrawlSummary(int completeSegments, int alreadyCompleteSegments, int leasedSegments,
+                             int failedSegments) {
+
+    /**
+     * Indicates whether every segment of the crawl has been crawled, whether by this worker or an earlier one.
+     */
+    public boolean complete() {
+      return leasedSegments == 0 && failedSegments == 0;
+    }
+  }
+
+  /**
+   * @param crawlerName a name for this crawler for use in metrics
+   * @param accountsManager the accounts manager from which to read accounts
+   * @param checkpointManager the checkpoint manager for this crawl
+   * @param totalSegments the total number of segments in the parallel scan; must be the same for all workers
+   *                      participating in a crawl
+   * @param maxConcurrentSegments the maximum number of segments this worker may crawl at the same time
+   * @param pageSize the maximum number of accounts to read in a single page
+   * @param maxReadCapacityUnitsPerSecond the maximum read capacity this worker may consume per second, or 0 for no limit
+   */
+  public ResumableAccountCrawler(final String crawlerName,
+      final AccountsManager accountsManager,
+      final AccountCrawlCheckpointManager checkpointManager,
+      final int totalSegments,
+      final int maxConcurrentSegments,
+      final int pageSize,
+      final double maxReadCapacityUnitsPerSecond) {
+
+    if (totalSegments < 1 || maxConcurrentSegments < 1 || pageSize < 1) {
+      throw new IllegalArgumentException("Segment counts and page size must be positive");
+    }
+
+    this.crawlerName = crawlerName;
+    this.accountsManager = accountsManager;
+    this.checkpointManager = checkpointManager;
+    this.totalSegments = totalSegments;
+    this.maxConcurrentSegments = maxConcurrentSegments;
+    this.pageSize = pageSize;
+    this.maxReadCapacityUnitsPerSecond = maxReadCapacityUnitsPerSecond;
+
+    final Tags tags = Tags.of(CRAWLER_TAG_NAME, crawlerName);
+
+    this.accountsCounter = Metrics.counter(ACCOUNTS_COUNTER_NAME, tags);
+    this.pagesCounter = Metrics.counter(PAGES_COUNTER_NAME, tags);
+    this.readCapacityUnitsCounter = Metrics.counter(READ_CAPACITY_UNITS_COUNTER_NAME, tags);
+
+    Metrics.gauge(COMPLETED_SEGMENTS_GAUGE_NAME, tags, completedSegments);
+  }
+
+  /**
+   * Crawls all available segments, passing each page of accounts to the given processor. Pages within a segment are
+   * processed one at a time and in order, but pages from up to {@code maxConcurrentSegments} different segments may be
+   * processed concurrently. A page's checkpoint is recorded only after the processor has finished processing the page,
+   * so a resumed crawl never skips an account, but may process the accounts in a page that was in progress when an
+   * earlier worker stopped a second time.
+   * <p/>
+   * Segments that can't be crawled (because, for example, this worker lost its lease) end early without interrupting
+   * other segments; if the processor fails, the whole crawl fails without recording a checkpoint for the failed page.
+   *
+   * @param processor a function that processes a page of accounts, completing once it has processed every account in
+   *                  the page
+   *
+   * @return a publisher that yields a summary of the outcome of each segment once this worker has crawled all the
+   * segments it can
+   */
+  public Mono<CrawlSummary> crawl(final Function<List<Account>, Mono<Void>> processor) {
+    final Map<SegmentOutcome, AtomicInteger> outcomes = new EnumMap<>(SegmentOutcome.class);
+
+    for (final SegmentOutcome outcome : SegmentOutcome.values()) {
+      outcomes.put(outcome, new AtomicInteger());
+    }
+
+    final Consumer<SegmentOutcome> outcomeRecorder = outcome -> {
+      outcomes.get(outcome).incrementAndGet();
+
+      Metrics.counter(SEGMENTS_COUNTER_NAME,
+          CRAWLER_TAG_NAME, crawlerName,
+          OUTCOME_TAG_NAME, outcome.tagValue).increment();
+    };
+
+    return Flux.range(0, totalSegments)
+        .flatMap(segment -> crawlSegment(segment, processor, outcomeRecorder), maxConcurrentSegments)
+        .then(Mono.fromSupplier(() -> new CrawlSummary(outcomes.get(SegmentOutcome.COMPLETE).get(),
+            outcomes.get(SegmentOutcome.ALREADY_COMPLETE).get(),
+            outcomes.get(SegmentOutcome.LEASED).get(),
+            outcomes.get(SegmentOutcome.FAILED).get())));
+  }
+
+  private Mono<Void> crawlSegment(final int segment,
+      final Function<List<Account>, Mono<Void>> processor,
+      final Consumer<SegmentOutcome> outcomeRecorder) {
+
+    return Mono.fromFuture(() -> checkpointManager.tryAcquireLease(segment))
+        .flatMap(acquired -> {
+          if (!acquired) {
+            outcomeRecorder.accept(SegmentOutcome.LEASED);
+            return Mono.empty();
+          }
+
+          return Mono.usingWhen(Mono.fromSupplier(() -> renewLeasePeriodically(segment)),
+              ignored -> Mono.fromFuture(() -> checkpointManager.getCheckpoint(segment))
+                  .flatMap(checkpoint -> {
+                    if (checkpoint.complete()) {
+                      completedSegments.incrementAndGet();
+                      outcomeRecorder.accept(SegmentOutcome.ALREADY_COMPLETE);
+
+                      return Mono.empty();
+                    }
+
+                    return crawlPages(segment, checkpoint.lastEvaluatedUuid().orElse(null), processor)
+                        .doOnSuccess(ignored2 -> {
+                          completedSegments.incrementAndGet();
+                          outcomeRecorder.accept(SegmentOutcome.COMPLETE);
+                        });
+                  }),
+              leaseRenewal -> releaseLease(segment, leaseRenewal),
+              (leaseRenewal, throwable) -> releaseLease(segment, leaseRenewal),
+              leaseRenewal -> releaseLease(segment, leaseRenewal));
+        })
+        .onErrorResume(throwable -> {
+          if (throwable instanceof ProcessorException) {
+            return Mono.error(throwable.getCause());
+          }
+
+          if (throwable instanceof LeaseLostException) {
+            log.warn("Lost lease for segment {}; another worker will continue the segment", segment);
+          } else {
+            log.warn("Failed to crawl segment {}", segment, throwable);
+          }
+
+          outcomeRecorder.accept(SegmentOutcome.FAILED);
+          return Mono.empty();
+        });
+  }
+
+  private Mono<Void> crawlPages(final int segment,
+      @Nullable final UUID exclusiveStartUuid,
+      final Function<List<Account>, Mono<Void>> processor) {
+
+    return crawlPage(segment, exclusiveStartUuid)
+        .expand(page -> page.lastEvaluatedUuid()
+            .map(lastEvaluatedUuid -> crawlPage(segment, lastEvaluatedUuid)
+                .delaySubscription(reserveReadCapacity(page.consumedReadCapacityUnits())))
+            .orElseGet(Mono::empty))
+        // Read no more than one page ahead of the processor, and finish a page that's already been read even if reading
+        // the next page fails
+        .concatMapDelayError(page -> Mono.defer(() -> processor.apply(page.accounts()))
+            .onErrorMap(ProcessorException::new)
+            .then(Mono.fromFuture(() -> checkpointManager.updateCheckpoint(segment, page.lastEvaluatedUuid())))
+            .flatMap(updated -> updated ? Mono.<Void>empty() : Mono.error(new LeaseLostException(segment))), false, 1)
+        .then();
+  }
+
+  private Mono<Accounts.ScanPage> crawlPage(final int segment, @Nullable final UUID exclusiveStartUuid) {
+    return Mono.fromFuture(() -> accountsManager.scanSegment(segment, totalSegments, exclusiveStartUuid, pageSize))
+        .doOnNext(page -> {
+          pagesCounter.increment();
+          accountsCounter.increment(page.accounts().size());
+          readCapacityUnitsCounter.increment(page.consumedReadCapacityUnits());
+        });
+  }
+
+  /**
+   * Renews this worker's lease on the given segment several times per lease duration until the returned
+   * {@link Disposable} is disposed. Advancing the segment's checkpoint also renews the lease, but renewing on a timer
+   * keeps the lease alive even if a single page takes longer than the lease duration to process.
+   */
+  private Disposable renewLeasePeriodically(final int segment) {
+    return Flux.interval(checkpointManager.getLeaseDuration().dividedBy(3))
+        .concatMap(ignored -> Mono.fromFuture(() -> checkpointManager.renewLease(segment))
+            .onErrorResume(throwable -> {
+              log.warn("Failed to renew lease for segment {}", segment, throwable);
+              return Mono.just(true);
+            }))
+        // If the lease is gone, the next checkpoint update will fail and end the segment
+        .takeUntil(renewed -> !renewed)
+        .subscribe();
+  }
+
+  private Mono<Void> releaseLease(final int segment, final Disposable leaseRenewal) {
+    leaseRenewal.dispose();
+    return Mono.fromFuture(() -> checkpointManager.releaseLease(segment));
+  }
+
+  /**
+   * Reserves the given amount of read capacity against this crawler's budget.
+   *
+   * @return how long the caller must wait before its next read to stay within the budget
+   */
+  private synchronized Duration reserveReadCapacity(final double readCapacityUnits) {
+    if (maxReadCapacityUnitsPerSecond <= 0) {
+      return Duration.ZERO;
+    }
+
+    final long now = System.nanoTime();
+
+    nextReadNanos = Math.max(nextReadNanos, now) + (long) (readCapacityUnits / maxReadCapacityUnitsPerSecond * 1e9);
+
+    return Duration.ofNanos(Math.max(0, nextReadNanos - now));
+  }
+}
@@ -9,33 +9,41 @@ import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
 import static org.whispersystems.textsecuregcm.storage.AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE;
 
 import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Timer;
 import java.nio.ByteBuffer;
 import java.time.Duration;
-import java.util.Comparator;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import org.whispersystems.textsecuregcm.entities.PreKey;
 import org.whispersystems.textsecuregcm.util.AttributeValues;
-import org.whispersystems.textsecuregcm.util.Util;
+import org.whispersystems.textsecuregcm.util.ExceptionUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
 import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
-import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
 import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
 import software.amazon.awssdk.services.dynamodb.model.ReturnValue;
 import software.amazon.awssdk.services.dynamodb.model.Select;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
 
 /**
  * A single-use pre-key store stores single-use pre-keys of a specific type. Keys returned by a single-use pre-key
@@ -54,8 +62,10 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
 
   private final String getKeyCountTimerName = name(getClass(), "getCount");
 
-  private final Timer storeKeyTimer = Metrics.timer(name(getClass(), "storeKey"));
   private final Timer storeKeyBatchTimer = Metrics.timer(name(getClass(), "storeKeyBatch"));
+  private final Timer batchWriteTimer = Metrics.timer(name(getClass(), "batchWrite"));
+  private final Counter batchWriteUnprocessedItemsCounter = Metrics.counter(name(getClass(), "batchWriteUnprocessedItems"));
+  private final Counter batchWriteConsumedCapacityCounter = Metrics.counter(name(getClass(), "batchWriteConsumedCapacity"));
   private final Timer deleteForDeviceTimer = Metrics.timer(name(getClass(), "deleteForDevice"));
   private final Timer deleteForAccountTimer = Metrics.timer(name(getClass(), "deleteForAccount"));
 
@@ -71,9 +81,26 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
       .distributionStatisticExpiry(Duration.ofMinutes(10))
       .register(Metrics.globalRegistry);
 
+  final DistributionSummary takeConflictsDistributionSummary = DistributionSummary
+      .builder(name(getClass(), "takeConflicts"))
+      .publishPercentiles(0.5, 0.75, 0.95, 0.99, 0.999)
+      .distributionStatisticExpiry(Duration.ofMinutes(10))
+      .register(Metrics.globalRegistry);
+
+  private final Counter takeAttemptsExhaustedCounter = Metrics.counter(name(getClass(), "takeAttemptsExhausted"));
+
   private final String takeKeyTimerName = name(getClass(), "takeKey");
   private static final String KEY_PRESENT_TAG_NAME = "keyPresent";
 
+  // Stores and deletes are written in batches; this limits the number of batches in flight for a single operation
+  private static final int MAX_CONCURRENT_BATCH_WRITES = 4;
+
+  @VisibleForTesting
+  static final int TAKE_CANDIDATE_BATCH_SIZE = 16;
+
+  @VisibleForTesting
+  static final int MAX_TAKE_ATTEMPTS = TAKE_CANDIDATE_BATCH_SIZE * 2;
+
   static final String KEY_ACCOUNT_UUID = "U";
   static final String KEY_DEVICE_ID_KEY_ID = "DK";
   static final String ATTR_PUBLIC_KEY = "P";
@@ -99,33 +126,39 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
   public CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final List<K> preKeys) {
     final Timer.Sample sample = Timer.start();
 
+    // A batch write may not contain more than one request for the same item, so collapse any keys with duplicate IDs
+    // (the last one wins, as it would if each key were written individually and in order)
+    final SortedMap<Long, K> preKeysById = new TreeMap<>();
+    preKeys.forEach(preKey -> preKeysById.put(preKey.keyId(), preKey));
+
+    final int keyCount = preKeysById.size();
+
     return Mono.fromFuture(() -> delete(identifier, deviceId))
-        .thenMany(
-            Flux.fromIterable(preKeys)
-                .sort(Comparator.comparing(preKey -> preKey.keyId()))
-                .zipWith(Flux.range(0, preKeys.size()).map(i -> preKeys.size() - i))
-                .flatMap(preKeyAndRemainingCount -> Mono.fromFuture(() ->
-                        store(identifier, deviceId, preKeyAndRemainingCount.getT1(), preKeyAndRemainingCount.getT2())),
-                    DYNAMO_DB_MAX_BATCH_SIZE))
+        .thenMany(Flux.fromIterable(preKeysById.values())
+            .index()
+            .map(indexAndPreKey -> WriteRequest.builder()
+                .putRequest(PutRequest.builder()
+                    .item(getItemFromPreKey(identifier, deviceId, indexAndPreKey.getT2(),
+                        (int) (keyCount - indexAndPreKey.getT1())))
+                    .build())
+                .build()))
+        .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+        .flatMap(this::batchWrite, MAX_CONCURRENT_BATCH_WRITES)
         .then()
         .toFuture()
         .thenRun(() -> sample.stop(storeKeyBatchTimer));
   }
 
-  private CompletableFuture<Void> store(final UUID identifier, final byte deviceId, final K preKey, final int remainingKeys) {
-    final Timer.Sample sample = Timer.start();
-
-    return dynamoDbAsyncClient.putItem(PutItemRequest.builder()
-            .tableName(tableName)
-            .item(getItemFromPreKey(identifier, deviceId, preKey, remainingKeys))
-            .build())
-        .thenRun(() -> sample.stop(storeKeyTimer));
-  }
-
   /**
    * Attempts to retrieve a single-use pre-key for a specific device. Keys may only be returned by this method at most
    * once; once the key is returned, it is removed from the key store and subsequent calls to this method will never
    * return the same key.
+   * <p>
+   * Callers first try to take the key with the lowest ID, which keeps key counts (see {@link #peekCount(UUID, byte)})
+   * accurate when there's no contention. Callers that lose a race for a key try the remaining candidates in random order
+   * so concurrent callers spread across different keys instead of all racing for the next-lowest key. Callers give up
+   * after {@value #MAX_TAKE_ATTEMPTS} failed attempts, in which case this method yields empty even though keys may
+   * remain.
    *
    * @param identifier the identifier for the account/identity with which the target device is associated
    * @param deviceId the identifier for the device within the given account/identity
@@ -149,14 +182,22 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
                 .consistentRead(false)
                 .build())
             .items())
+        .buffer(TAKE_CANDIDATE_BATCH_SIZE)
+        .flatMapIterable(SingleUsePreKeyStore::orderTakeCandidates)
+        .take(MAX_TAKE_ATTEMPTS)
         .map(item -> DeleteItemRequest.builder()
             .tableName(tableName)
             .key(Map.of(
                 KEY_ACCOUNT_UUID, partitionKey,
                 KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)))
+            // Make losing a race for a key explicit rather than relying on an empty response
+            .conditionExpression("attribute_exists(#uuid)")
+            .expressionAttributeNames(Map.of("#uuid", KEY_ACCOUNT_UUID))
             .returnValues(ReturnValue.ALL_OLD)
             .build())
-        .flatMap(deleteItemRequest -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(deleteItemRequest)), 1)
+        .flatMap(deleteItemRequest -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(deleteItemRequest))
+            .onErrorResume(throwable -> ExceptionUtils.unwrap(throwable) instanceof ConditionalCheckFailedException,
+                ignored -> Mono.just(DeleteItemResponse.builder().build())), 1)
         .doOnNext(deleteItemResponse -> keysConsidered.incrementAndGet())
         .filter(DeleteItemResponse::hasAttributes)
         .next()
@@ -164,11 +205,36 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
         .toFuture()
         .thenApply(Optional::ofNullable)
         .whenComplete((maybeKey, throwable) -> {
-          sample.stop(Metrics.timer(takeKeyTimerName, KEY_PRESENT_TAG_NAME, String.valueOf(maybeKey != null && maybeKey.isPresent())));
+          final boolean keyPresent = maybeKey != null && maybeKey.isPresent();
+
+          sample.stop(Metrics.timer(takeKeyTimerName, KEY_PRESENT_TAG_NAME, String.valueOf(keyPresent)));
           keysConsideredForTakeDistributionSummary.record(keysConsidered.get());
+          takeConflictsDistributionSummary.record(keyPresent ? keysConsidered.get() - 1 : keysConsidered.get());
+
+          if (!keyPresent && keysConsidered.get() >= MAX_TAKE_ATTEMPTS) {
+            takeAttemptsExhaustedCounter.increment();
+          }
         });
   }
 
+  /**
+   * Orders a batch of candidate keys for a take operation: the first (lowest) key stays first, and the rest are
+   * shuffled. In the common, uncontended case, a take succeeds with the first key it tries; if it doesn't, it's because
+   * another caller took that key first, and the shuffle keeps all of the callers that lost that race from colliding
+   * again on the next key.
+   */
+  @VisibleForTesting
+  static <T> List<T> orderTakeCandidates(final List<T> candidates) {
+    if (candidates.size() <= 2) {
+      return candidates;
+    }
+
+    final List<T> orderedCandidates = new ArrayList<>(candidates);
+    Collections.shuffle(orderedCandidates.subList(1, orderedCandidates.size()), ThreadLocalRandom.current());
+
+    return orderedCandidates;
+  }
+
   /**
    * Estimates the number of single-use pre-keys available for a given device.
 
@@ -301,18 +367,22 @@ public abstract class SingleUsePreKeyStore<K extends PreKey<?>> {
 
   private CompletableFuture<Void> deleteItems(final AttributeValue partitionKey, final Flux<Map<String, AttributeValue>> items) {
     return items
-        .map(item -> DeleteItemRequest.builder()
-            .tableName(tableName)
-            .key(Map.of(
-                KEY_ACCOUNT_UUID, partitionKey,
-                KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)
-            ))
+        .map(item -> WriteRequest.builder()
+            .deleteRequest(DeleteRequest.builder()
+                .key(Map.of(
+                    KEY_ACCOUNT_UUID, partitionKey,
+                    KEY_DEVICE_ID_KEY_ID, item.get(KEY_DEVICE_ID_KEY_ID)))
+                .build())
             .build())
-        .flatMap(deleteItemRequest -> Mono.fromFuture(() -> dynamoDbAsyncClient.deleteItem(deleteItemRequest)), DYNAMO_DB_MAX_BATCH_SIZE)
-        // Idiom: wait for everything to finish, but discard the results
-        .reduce(0, (a, b) -> 0)
-        .toFuture()
-        .thenRun(Util.NOOP);
+        .buffer(DYNAMO_DB_MAX_BATCH_SIZE)
+        .flatMap(this::batchWrite, MAX_CONCURRENT_BATCH_WRITES)
+        .then()
+        .toFuture();
+  }
+
+  private Mono<Void> batchWrite(final List<WriteRequest> writeRequests) {
+    return DynamoDbBatchOperations.batchWriteItems(dynamoDbAsyncClient, tableName, writeRequests,
+        batchWriteTimer, batchWriteUnprocessedItemsCounter, batchWriteConsumedCapacityCounter);
   }
 
   protected static AttributeValue getPartitionKey(final UUID accountUuid) {
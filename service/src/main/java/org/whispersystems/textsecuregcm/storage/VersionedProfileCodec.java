@@ -0,0 +1,132 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import javax.annotation.Nullable;
+
+/**
+ * Encodes versioned profiles in a compact binary form for the profile cache. Encoded profiles begin with a format
+ * version byte followed by each of the profile's fields in declaration order; each field is written as a four-byte
+ * length (or -1 for a {@code null} field) followed by that many bytes.
+ * <p/>
+ * Encoded profiles are not readable by instances that expect the JSON representation used by earlier versions of the
+ * cache, so they must be stored separately from JSON profiles. The format version byte allows the encoding itself to
+ * change in the future.
+ */
+class VersionedProfileCodec {
+
+  static final byte FORMAT_VERSION = 0x01;
+
+  private static final int NULL_LENGTH = -1;
+
+  private VersionedProfileCodec() {
+  }
+
+  static byte[] encode(final VersionedProfile profile) {
+    final byte[] version = encodeString(profile.version());
+    final byte[] avatar = encodeString(profile.avatar());
+
+    final ByteBuffer buffer = ByteBuffer.allocate(1 + encodedLength(version)
+        + encodedLength(profile.name())
+        + encodedLength(avatar)
+        + encodedLength(profile.aboutEmoji())
+        + encodedLength(profile.about())
+        + encodedLength(profile.paymentAddress())
+        + encodedLength(profile.phoneNumberSharing())
+        + encodedLength(profile.commitment()));
+
+    buffer.put(FORMAT_VERSION);
+    putField(buffer, version);
+    putField(buffer, profile.name());
+    putField(buffer, avatar);
+    putField(buffer, profile.aboutEmoji());
+    putField(buffer, profile.about());
+    putField(buffer, profile.paymentAddress());
+    putField(buffer, profile.phoneNumberSharing());
+    putField(buffer, profile.commitment());
+
+    return buffer.array();
+  }
+
+  /**
+   * Decodes a profile encoded by {@link #encode(VersionedProfile)}.
+   *
+   * @throws IllegalArgumentException if the given bytes are not an encoded profile
+   */
+  static VersionedProfile decode(final byte[] encodedProfile) {
+    final ByteBuffer buffer = ByteBuffer.wrap(encodedProfile);
+
+    try {
+      final byte formatVersion = buffer.get();
+
+      if (formatVersion != FORMAT_VERSION) {
+        throw new IllegalArgumentException("Unexpected format version: " + formatVersion);
+      }
+
+      final VersionedProfile profile = new VersionedProfile(
+          decodeString(getField(buffer)),
+          getField(buffer),
+          decodeString(getField(buffer)),
+          getField(buffer),
+          getField(buffer),
+          getField(buffer),
+          getField(buffer),
+          getField(buffer));
+
+      if (buffer.hasRemaining()) {
+        throw new IllegalArgumentException("Unexpected trailing bytes after encoded profile");
+      }
+
+      return profile;
+    } catch (final BufferUnderflowException e) {
+      throw new IllegalArgumentException("Truncated encoded profile", e);
+    }
+  }
+
+  private static int encodedLength(@Nullable final byte[] field) {
+    return Integer.BYTES + (field != null ? field.length : 0);
+  }
+
+  private static void putField(final ByteBuffer buffer, @Nullable final byte[] field) {
+    if (field == null) {
+      buffer.putInt(NULL_LENGTH);
+    } else {
+      buffer.putInt(field.length);
+      buffer.put(field);
+    }
+  }
+
+  @Nullable
+  private static byte[] getField(final ByteBuffer buffer) {
+    final int length = buffer.getInt();
+
+    if (length == NULL_LENGTH) {
+      return null;
+    }
+
+    if (length < 0 || length > buffer.remaining()) {
+      throw new IllegalArgumentException("Invalid field length: " + length);
+    }
+
+    final byte[] field = new byte[length];
+    buffer.get(field);
+
+    return field;
+  }
+
+  @Nullable
+  private static byte[] encodeString(@Nullable final String string) {
+    return string != null ? string.getBytes(StandardCharsets.UTF_8) : null;
+  }
+
+  @Nullable
+  private static String decodeString(@Nullable final byte[] bytes) {
+    return bytes != null ? new String(bytes, StandardCharsets.UTF_8) : null;
+  }
+}
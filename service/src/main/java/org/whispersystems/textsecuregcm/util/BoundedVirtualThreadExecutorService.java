@@ -0,0 +1,229 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+
+/**
+ * An executor service that runs tasks on virtual threads, but allows no more than a fixed number of tasks to run at the
+ * same time. Like a {@link java.util.concurrent.ThreadPoolExecutor} with a bounded work queue, tasks submitted while
+ * the executor is at its concurrency limit wait in a queue of fixed capacity, and tasks submitted while that queue is
+ * full are handled according to the executor's {@link ExecutorServiceFactory.RejectionPolicy}. Queued tasks run on the
+ * virtual thread of the task that finishes before them, so no threads are started until a task can run.
+ */
+class BoundedVirtualThreadExecutorService extends AbstractExecutorService {
+
+  private final ExecutorService delegate;
+  private final int maxConcurrency;
+  private final int maxQueued;
+  private final ExecutorServiceFactory.RejectionPolicy rejectionPolicy;
+
+  private final Object lock = new Object();
+  private final Queue<QueuedTask> queuedTasks = new ArrayDeque<>();
+  private int runningTasks = 0;
+  private boolean shutdown = false;
+
+  private final Timer queueWaitTimer;
+  private final Counter rejectedTasksCounter;
+
+  private static final String QUEUE_WAIT_TIMER_NAME = name(BoundedVirtualThreadExecutorService.class, "queueWait");
+  private static final String REJECTED_TASKS_COUNTER_NAME = name(BoundedVirtualThreadExecutorService.class, "rejectedTasks");
+  private static final String WAITING_TASKS_GAUGE_NAME = name(BoundedVirtualThreadExecutorService.class, "waitingTasks");
+  private static final String ACTIVE_TASKS_GAUGE_NAME = name(BoundedVirtualThreadExecutorService.class, "activeTasks");
+
+  private static final String EXECUTOR_TAG_NAME = "executor";
+
+  private record QueuedTask(Runnable command, long queuedNanos) {
+  }
+
+  /**
+   * @param executorName the name of this executor, used to tag its metrics
+   * @param maxConcurrency the maximum number of tasks that may run at the same time
+   * @param maxQueued the maximum number of tasks that may wait for a running task to finish
+   * @param rejectionPolicy the way to handle tasks submitted while the queue is full or after shutdown
+   * @param delegate an executor service that runs each task on a new virtual thread
+   */
+  BoundedVirtualThreadExecutorService(final String executorName,
+      final int maxConcurrency,
+      final int maxQueued,
+      final ExecutorServiceFactory.RejectionPolicy rejectionPolicy,
+      final ExecutorService delegate) {
+
+    if (maxConcurrency < 1) {
+      throw new IllegalArgumentException("Max concurrency must be positive");
+    }
+
+    if (maxQueued < 0) {
+      throw new IllegalArgumentException("Max queued tasks must not be negative");
+    }
+
+    this.delegate = delegate;
+    this.maxConcurrency = maxConcurrency;
+    this.maxQueued = maxQueued;
+    this.rejectionPolicy = rejectionPolicy;
+
+    final Tags tags = Tags.of(EXECUTOR_TAG_NAME, executorName);
+
+    this.queueWaitTimer = Metrics.timer(QUEUE_WAIT_TIMER_NAME, tags);
+    this.rejectedTasksCounter = Metrics.counter(REJECTED_TASKS_COUNTER_NAME, tags);
+    Metrics.gauge(WAITING_TASKS_GAUGE_NAME, tags, this, BoundedVirtualThreadExecutorService::getQueuedTasks);
+    Metrics.gauge(ACTIVE_TASKS_GAUGE_NAME, tags, this, BoundedVirtualThreadExecutorService::getRunningTasks);
+  }
+
+  @Override
+  public void execute(final Runnable command) {
+    final boolean start;
+
+    synchronized (lock) {
+      if (shutdown) {
+        start = false;
+      } else if (runningTasks < maxConcurrency) {
+        runningTasks += 1;
+        start = true;
+      } else if (queuedTasks.size() < maxQueued) {
+        queuedTasks.add(new QueuedTask(command, System.nanoTime()));
+        return;
+      } else {
+        start = false;
+      }
+    }
+
+    if (!start) {
+      reject(command);
+      return;
+    }
+
+    try {
+      delegate.execute(() -> runTasks(command));
+    } catch (final RejectedExecutionException e) {
+      // The delegate has been shut down out from under this executor
+      synchronized (lock) {
+        runningTasks -= 1;
+      }
+
+      reject(command);
+    }
+  }
+
+  private void runTasks(final Runnable firstCommand) {
+    @Nullable Runnable command = firstCommand;
+
+    while (command != null) {
+      try {
+        command.run();
+      } catch (final Throwable t) {
+        // Keep draining the queue; a pool thread would die here, but its replacement would carry on
+        final Thread currentThread = Thread.currentThread();
+        currentThread.getUncaughtExceptionHandler().uncaughtException(currentThread, t);
+      }
+
+      command = finishTask();
+    }
+  }
+
+  /**
+   * Marks a running task as finished and hands its slot to the next queued task, if any.
+   *
+   * @return the next queued task, which the caller must run, or {@code null} if no tasks are queued
+   */
+  @Nullable
+  private Runnable finishTask() {
+    final QueuedTask queuedTask;
+
+    synchronized (lock) {
+      queuedTask = queuedTasks.poll();
+
+      if (queuedTask == null) {
+        runningTasks -= 1;
+        return null;
+      }
+    }
+
+    queueWaitTimer.record(System.nanoTime() - queuedTask.queuedNanos(), TimeUnit.NANOSECONDS);
+    return queuedTask.command();
+  }
+
+  private void reject(final Runnable command) {
+    rejectedTasksCounter.increment();
+
+    switch (rejectionPolicy) {
+      case ABORT -> throw new RejectedExecutionException("Task rejected by bounded virtual thread executor");
+      case CALLER_RUNS -> {
+        // As with ThreadPoolExecutor.CallerRunsPolicy, tasks submitted after shutdown are discarded
+        if (!isShutdown()) {
+          command.run();
+        }
+      }
+    }
+  }
+
+  private int getQueuedTasks() {
+    synchronized (lock) {
+      return queuedTasks.size();
+    }
+  }
+
+  private int getRunningTasks() {
+    synchronized (lock) {
+      return runningTasks;
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    synchronized (lock) {
+      shutdown = true;
+    }
+
+    // Tasks that have already been queued still run on the threads of running tasks
+    delegate.shutdown();
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    final List<Runnable> unstartedTasks = new ArrayList<>();
+
+    synchronized (lock) {
+      shutdown = true;
+      queuedTasks.forEach(queuedTask -> unstartedTasks.add(queuedTask.command()));
+      queuedTasks.clear();
+    }
+
+    unstartedTasks.addAll(delegate.shutdownNow());
+    return unstartedTasks;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    synchronized (lock) {
+      return shutdown;
+    }
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return delegate.isTerminated();
+  }
+
+  @Override
+  public boolean awaitTermination(final long timeout, final TimeUnit unit) throws InterruptedException {
+    return delegate.awaitTermination(timeout, unit);
+  }
+}
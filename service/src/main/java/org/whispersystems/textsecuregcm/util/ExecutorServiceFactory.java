@@ -0,0 +1,133 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.configuration.VirtualThreadExecutorConfiguration;
+
+/**
+ * Creates named executor services that are backed either by a pool of platform threads or, if configured, by virtual
+ * threads with a limit on the number of concurrently-running tasks. Moving an executor to virtual threads is a
+ * configuration change that requires no code changes at the call site.
+ *
+ * @see org.whispersystems.textsecuregcm.configuration.VirtualThreadConfiguration#executors()
+ */
+public class ExecutorServiceFactory {
+
+  private final LifecycleEnvironment lifecycle;
+  private final Map<String, VirtualThreadExecutorConfiguration> virtualThreadExecutorConfigurations;
+
+  @VisibleForTesting
+  static final String OTHER_EXECUTOR_NAME = "other";
+
+  private static final Logger log = LoggerFactory.getLogger(ExecutorServiceFactory.class);
+
+  /**
+   * Describes how a virtual thread executor handles tasks submitted while its queue is full, mirroring the
+   * {@link java.util.concurrent.RejectedExecutionHandler} of the platform thread executor it replaces.
+   */
+  public enum RejectionPolicy {
+    /**
+     * Rejected tasks cause {@link java.util.concurrent.RejectedExecutionException} to be thrown to the caller.
+     */
+    ABORT,
+
+    /**
+     * Rejected tasks are run on the caller's thread, unless the executor has been shut down.
+     */
+    CALLER_RUNS
+  }
+
+  public ExecutorServiceFactory(final LifecycleEnvironment lifecycle,
+      final Map<String, VirtualThreadExecutorConfiguration> virtualThreadExecutorConfigurations) {
+
+    this.lifecycle = lifecycle;
+    this.virtualThreadExecutorConfigurations = virtualThreadExecutorConfigurations;
+  }
+
+  /**
+   * Returns an executor service for the given name that rejects tasks submitted while its queue is full by throwing
+   * {@link java.util.concurrent.RejectedExecutionException}.
+   *
+   * @see #executorService(String, RejectionPolicy, Supplier)
+   */
+  public ExecutorService executorService(final String executorName,
+      final Supplier<ExecutorService> platformExecutorServiceSupplier) {
+
+    return executorService(executorName, RejectionPolicy.ABORT, platformExecutorServiceSupplier);
+  }
+
+  /**
+   * Returns an executor service for the given name. If the name has a virtual thread executor configuration, the
+   * returned executor service runs each task on a virtual thread and is managed by this factory's lifecycle; otherwise,
+   * the platform thread executor service from the given supplier is returned unchanged.
+   *
+   * @param executorName the name of the executor
+   * @param rejectionPolicy the way a virtual thread executor should handle tasks submitted while its queue is full
+   * @param platformExecutorServiceSupplier a supplier of the platform thread executor service to use if the named
+   *                                        executor isn't configured to use virtual threads; the supplied executor
+   *                                        service must manage its own lifecycle
+   *
+   * @return an executor service for the given name
+   */
+  public ExecutorService executorService(final String executorName,
+      final RejectionPolicy rejectionPolicy,
+      final Supplier<ExecutorService> platformExecutorServiceSupplier) {
+
+    final VirtualThreadExecutorConfiguration configuration = virtualThreadExecutorConfigurations.get(executorName);
+
+    if (configuration == null) {
+      return platformExecutorServiceSupplier.get();
+    }
+
+    log.info("Using virtual threads with a concurrency limit of {} and a queue limit of {} for {} executor",
+        configuration.maxConcurrency(), configuration.maxQueued(), executorName);
+
+    final VirtualExecutorServiceProvider virtualExecutorServiceProvider =
+        new VirtualExecutorServiceProvider(getVirtualThreadNamePrefix(executorName));
+
+    final ExecutorService executorService = new BoundedVirtualThreadExecutorService(executorName,
+        configuration.maxConcurrency(),
+        configuration.maxQueued(),
+        rejectionPolicy,
+        virtualExecutorServiceProvider.getExecutorService());
+
+    lifecycle.manage(new Managed() {
+      @Override
+      public void stop() {
+        virtualExecutorServiceProvider.dispose(executorService);
+      }
+    });
+
+    return executorService;
+  }
+
+  /**
+   * Identifies the virtual thread executor, if any, that created the thread with the given name.
+   *
+   * @param threadName the name of a thread
+   *
+   * @return the name of the virtual thread executor that created the thread, or {@value #OTHER_EXECUTOR_NAME} if the
+   * thread wasn't created by a virtual thread executor from this factory
+   */
+  public String getExecutorName(final String threadName) {
+    return virtualThreadExecutorConfigurations.keySet().stream()
+        .filter(executorName -> threadName.startsWith(getVirtualThreadNamePrefix(executorName)))
+        .findFirst()
+        .orElse(OTHER_EXECUTOR_NAME);
+  }
+
+  private static String getVirtualThreadNamePrefix(final String executorName) {
+    return "virtual-" + executorName + "-";
+  }
+}
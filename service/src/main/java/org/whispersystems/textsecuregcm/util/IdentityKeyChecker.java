@@ -0,0 +1,146 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Metrics;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import javax.annotation.Nullable;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Checks whether clients' views of other accounts' identity keys are current. Clients send a short fingerprint of the
+ * identity key they have for each account, and the checker reports each account whose current identity key doesn't
+ * match.
+ * <p/>
+ * Checks are resolved in batches: all the accounts referenced by a batch are retrieved at once, and each distinct
+ * identity key's fingerprint is computed only once per batch with a digest reused by the calling thread. Mismatches are
+ * emitted as soon as their batch is resolved.
+ */
+public class IdentityKeyChecker {
+
+  private final AccountsManager accountsManager;
+
+  private static final int MAX_BATCH_SIZE = 100;
+  private static final Duration MAX_BATCH_DELAY = Duration.ofMillis(10);
+  private static final int MAX_CONCURRENT_BATCHES = 4;
+
+  private static final int FINGERPRINT_LENGTH = 4;
+
+  private static final ThreadLocal<MessageDigest> SHA_256 = ThreadLocal.withInitial(() -> {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError("All Java implementations must support the SHA-256 message digest", e);
+    }
+  });
+
+  private static final DistributionSummary BATCH_SIZE_DISTRIBUTION_SUMMARY =
+      Metrics.summary(name(IdentityKeyChecker.class, "batchSize"));
+
+  private static final DistributionSummary DISTINCT_ACCOUNTS_DISTRIBUTION_SUMMARY =
+      Metrics.summary(name(IdentityKeyChecker.class, "distinctAccounts"));
+
+  /**
+   * An identity key check whose fingerprint didn't match the current identity key for its account.
+   *
+   * @param check the original check
+   * @param identityKey the current identity key for the checked account
+   */
+  public record Mismatch<T>(T check, IdentityKey identityKey) {
+  }
+
+  public IdentityKeyChecker(final AccountsManager accountsManager) {
+    this.accountsManager = accountsManager;
+  }
+
+  /**
+   * Checks identity key fingerprints against the current identity keys for their accounts.
+   *
+   * @param checks the checks to perform
+   * @param serviceIdentifierExtractor a function that extracts the service identifier to check from a check
+   * @param fingerprintExtractor a function that extracts the fingerprint to check from a check
+   *
+   * @return a publisher of checks whose fingerprints didn't match the current identity key for their account; checks
+   * for accounts that don't exist or have no identity key are omitted
+   *
+   * @param <T> the type of check
+   */
+  public <T> Flux<Mismatch<T>> check(final Flux<T> checks,
+      final Function<T, ServiceIdentifier> serviceIdentifierExtractor,
+      final Function<T, byte[]> fingerprintExtractor) {
+
+    return checks
+        .bufferTimeout(MAX_BATCH_SIZE, MAX_BATCH_DELAY)
+        .flatMapSequential(batch -> checkBatch(batch, serviceIdentifierExtractor, fingerprintExtractor),
+            MAX_CONCURRENT_BATCHES);
+  }
+
+  private <T> Flux<Mismatch<T>> checkBatch(final List<T> batch,
+      final Function<T, ServiceIdentifier> serviceIdentifierExtractor,
+      final Function<T, byte[]> fingerprintExtractor) {
+
+    BATCH_SIZE_DISTRIBUTION_SUMMARY.record(batch.size());
+
+    return Mono.fromFuture(() -> accountsManager.getByServiceIdentifiersAsync(
+            batch.stream().map(serviceIdentifierExtractor).toList()))
+        .flatMapIterable(accountsByServiceIdentifier -> {
+          DISTINCT_ACCOUNTS_DISTRIBUTION_SUMMARY.record(accountsByServiceIdentifier.size());
+
+          final Map<ServiceIdentifier, byte[]> fingerprintsByServiceIdentifier = new HashMap<>();
+
+          return batch.stream()
+              .map(check -> {
+                final ServiceIdentifier serviceIdentifier = serviceIdentifierExtractor.apply(check);
+                final IdentityKey identityKey = getIdentityKey(accountsByServiceIdentifier.get(serviceIdentifier),
+                    serviceIdentifier);
+
+                if (identityKey == null) {
+                  return null;
+                }
+
+                final byte[] fingerprint = fingerprintsByServiceIdentifier.computeIfAbsent(serviceIdentifier,
+                    ignored -> getFingerprint(identityKey));
+
+                return fingerprintMatches(fingerprint, fingerprintExtractor.apply(check))
+                    ? null
+                    : new Mismatch<>(check, identityKey);
+              })
+              .filter(Objects::nonNull)
+              .toList();
+        });
+  }
+
+  @Nullable
+  private static IdentityKey getIdentityKey(@Nullable final Account account, final ServiceIdentifier serviceIdentifier) {
+    return account != null ? account.getIdentityKey(serviceIdentifier.identityType()) : null;
+  }
+
+  private static byte[] getFingerprint(final IdentityKey identityKey) {
+    // digest() resets the digest, so it's safe to reuse for the next fingerprint on this thread
+    return Arrays.copyOf(SHA_256.get().digest(identityKey.serialize()), FINGERPRINT_LENGTH);
+  }
+
+  private static boolean fingerprintMatches(final byte[] fingerprint, final byte[] expectedFingerprint) {
+    return expectedFingerprint != null && expectedFingerprint.length >= FINGERPRINT_LENGTH
+        && Arrays.equals(fingerprint, 0, FINGERPRINT_LENGTH, expectedFingerprint, 0, FINGERPRINT_LENGTH);
+  }
+}
@@ -12,8 +12,10 @@ import java.time.Duration;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import javax.annotation.Nullable;
 import jdk.jfr.consumer.RecordedEvent;
 import jdk.jfr.consumer.RecordedFrame;
 import jdk.jfr.consumer.RecordedStackTrace;
@@ -39,6 +41,8 @@ public class VirtualThreadPinEventMonitor implements Managed {
   private final Duration pinEventThreshold;
   private final RecordingStream recordingStream;
 
+  private final Function<String, String> executorNameResolver;
+
   private final BiConsumer<RecordedEvent, Boolean> pinEventConsumer;
 
   @VisibleForTesting
@@ -46,25 +50,46 @@ public class VirtualThreadPinEventMonitor implements Managed {
       final ExecutorService executorService,
       final Supplier<Set<String>> allowList,
       final Duration pinEventThreshold,
+      final Function<String, String> executorNameResolver,
       final BiConsumer<RecordedEvent, Boolean> pinEventConsumer) {
     this.executorService = executorService;
     this.allowList = allowList;
     this.pinEventThreshold = pinEventThreshold;
+    this.executorNameResolver = executorNameResolver;
     this.pinEventConsumer = pinEventConsumer;
     this.recordingStream = new RecordingStream();
   }
+
+  /**
+   * @param executorService the executor service on which to process pin events
+   * @param allowList a supplier of method names whose pin events are expected
+   * @param pinEventThreshold the minimum duration of pin events to report
+   * @param executorNameResolver a function that maps the name of a pinned thread to the name of the executor that
+   *                             created it, for use in metrics
+   */
   public VirtualThreadPinEventMonitor(
       final ExecutorService executorService,
       final Supplier<Set<String>> allowList,
-      final Duration pinEventThreshold) {
-    this(executorService, allowList, pinEventThreshold, VirtualThreadPinEventMonitor::processPinEvent);
+      final Duration pinEventThreshold,
+      final Function<String, String> executorNameResolver) {
+    this(executorService, allowList, pinEventThreshold, executorNameResolver,
+        VirtualThreadPinEventMonitor::processPinEvent);
   }
 
   @Override
   public void start() {
     recordingStream.setMaxSize(MAX_JFR_REPOSITORY_SIZE);
     recordingStream.enable(JFR_THREAD_PINNED_EVENT_NAME).withThreshold(pinEventThreshold).withStackTrace();
-    recordingStream.onEvent(JFR_THREAD_PINNED_EVENT_NAME, event -> pinEventConsumer.accept(event, allowed(event)));
+    recordingStream.onEvent(JFR_THREAD_PINNED_EVENT_NAME, event -> {
+      final boolean allowed = allowed(event);
+
+      Metrics.counter(PIN_COUNTER_NAME,
+              "allowed", String.valueOf(allowed),
+              "executor", getExecutorName(event.getThread()))
+          .increment();
+
+      pinEventConsumer.accept(event, allowed);
+    });
     executorService.submit(recordingStream::start);
   }
 
@@ -82,7 +107,14 @@ public class VirtualThreadPinEventMonitor implements Managed {
     } else {
       logger.error("Long forbidden virtual thread pin event detected {}", prettyEventString(event));
     }
-    Metrics.counter(PIN_COUNTER_NAME, "allowed", String.valueOf(allowedPinEvent)).increment();
+  }
+
+  private String getExecutorName(@Nullable final RecordedThread thread) {
+    if (thread == null || thread.getJavaName() == null) {
+      return ExecutorServiceFactory.OTHER_EXECUTOR_NAME;
+    }
+
+    return executorNameResolver.apply(thread.getJavaName());
   }
 
   private boolean allowed(final RecordedEvent event) {
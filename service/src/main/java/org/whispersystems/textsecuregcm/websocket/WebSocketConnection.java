@@ -41,6 +41,7 @@ import org.whispersystems.textsecuregcm.controllers.MessageController;
 import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
+import org.whispersystems.textsecuregcm.metrics.MessageDeliveryTraceMetrics;
 import org.whispersystems.textsecuregcm.metrics.MessageMetrics;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.metrics.UserAgentTagUtil;
@@ -131,6 +132,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   private final AtomicInteger consecutiveRetries = new AtomicInteger();
   private final AtomicReference<ScheduledFuture<?>> retryFuture = new AtomicReference<>();
   private final AtomicReference<Disposable> messageSubscription = new AtomicReference<>();
+  private volatile long lastNewMessagesAvailableTimestamp;
 
   private final Random random = new Random();
   private final Scheduler messageDeliveryScheduler;
@@ -206,14 +208,22 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
   }
 
   private CompletableFuture<Void> sendMessage(final Envelope message, StoredMessageInfo storedMessageInfo) {
-    // clear ephemeral field from the envelope
-    final Optional<byte[]> body = Optional.ofNullable(message.toBuilder().clearEphemeral().build().toByteArray());
+    MessageDeliveryTraceMetrics.recordFetched(message, lastNewMessagesAvailableTimestamp);
+
+    // clear server-internal fields from the envelope
+    final Optional<byte[]> body = Optional.ofNullable(message.toBuilder()
+        .clearEphemeral()
+        .clearDeliveryTrace()
+        .build()
+        .toByteArray());
 
     sendMessageMeter.mark();
     sentMessageCounter.increment();
     bytesSentMeter.mark(body.map(bytes -> bytes.length).orElse(0));
     MessageMetrics.measureAccountEnvelopeUuidMismatches(auth.getAccount(), message);
 
+    final long sendStartNanos = System.nanoTime();
+
     // X-Signal-Key: false must be sent until Android stops assuming it missing means true
     return client.sendRequest("PUT", "/api/v1/message",
             List.of(HeaderUtils.X_SIGNAL_KEY + ": false", HeaderUtils.getTimestampHeader()), body)
@@ -222,6 +232,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
             sendFailuresMeter.mark();
           } else {
             MessageMetrics.measureOutgoingMessageLatency(message.getServerTimestamp(), "websocket", client.getUserAgent(), clientReleaseManager);
+            MessageDeliveryTraceMetrics.recordAcknowledged(message, sendStartNanos);
           }
         }).thenCompose(response -> {
           final CompletableFuture<Void> result;
@@ -428,6 +439,7 @@ public class WebSocketConnection implements MessageAvailabilityListener, Displac
     }
 
     messageAvailableMeter.mark();
+    lastNewMessagesAvailableTimestamp = System.currentTimeMillis();
 
     storedMessageState.compareAndSet(StoredMessageState.EMPTY, StoredMessageState.CACHED_NEW_MESSAGES_AVAILABLE);
 
@@ -5,11 +5,14 @@
 
 package org.whispersystems.textsecuregcm.workers;
 
+import com.google.common.annotations.VisibleForTesting;
 import io.dropwizard.core.Application;
 import io.dropwizard.core.cli.Cli;
 import io.dropwizard.core.cli.EnvironmentCommand;
 import io.dropwizard.core.setup.Environment;
+import java.time.Duration;
 import java.util.Objects;
+import java.util.UUID;
 import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
@@ -17,18 +20,27 @@ import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.WhisperServerConfiguration;
 import org.whispersystems.textsecuregcm.metrics.MetricsUtil;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountCrawlCheckpointManager;
+import org.whispersystems.textsecuregcm.storage.ResumableAccountCrawler;
 import org.whispersystems.textsecuregcm.util.logging.UncaughtExceptionHandler;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 
 public abstract class AbstractSinglePassCrawlAccountsCommand extends EnvironmentCommand<WhisperServerConfiguration> {
 
-  private CommandDependencies commandDependencies;
-  private Namespace namespace;
-
   private final Logger logger = LoggerFactory.getLogger(getClass());
 
+  @VisibleForTesting
+  static final String DRY_RUN_ARGUMENT = "dry-run";
+
   private static final String SEGMENT_COUNT = "segments";
+  private static final String CRAWL_ID = "crawlId";
+  private static final String MAX_CONCURRENT_SEGMENTS = "maxConcurrentSegments";
+  private static final String PAGE_SIZE = "pageSize";
+  private static final String MAX_READ_CAPACITY_UNITS_PER_SECOND = "maxReadCapacityUnitsPerSecond";
+
+  private static final Duration LEASE_DURATION = Duration.ofMinutes(5);
 
   public AbstractSinglePassCrawlAccountsCommand(final String name, final String description) {
     super(new Application<>() {
@@ -48,14 +60,51 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends Environment
         .required(false)
         .setDefault(1)
         .help("The total number of segments for a DynamoDB scan");
-  }
 
-  protected CommandDependencies getCommandDependencies() {
-    return commandDependencies;
+    subparser.addArgument("--crawl-id")
+        .type(String.class)
+        .dest(CRAWL_ID)
+        .required(false)
+        .help("If present, record a checkpoint for each segment under this ID so an interrupted crawl can resume; " +
+            "workers that share a crawl ID divide the crawl's segments among themselves");
+
+    subparser.addArgument("--max-concurrent-segments")
+        .type(Integer.class)
+        .dest(MAX_CONCURRENT_SEGMENTS)
+        .required(false)
+        .setDefault(16)
+        .help("The maximum number of segments this worker crawls (and so pages it processes) at once when resuming " +
+            "from checkpoints");
+
+    subparser.addArgument("--page-size")
+        .type(Integer.class)
+        .dest(PAGE_SIZE)
+        .required(false)
+        .setDefault(100)
+        .help("The maximum number of accounts per checkpointed page");
+
+    subparser.addArgument("--max-read-capacity")
+        .type(Double.class)
+        .dest(MAX_READ_CAPACITY_UNITS_PER_SECOND)
+        .required(false)
+        .setDefault(0.0)
+        .help("The maximum read capacity units per second this worker may consume when resuming from checkpoints, " +
+            "or 0 for no limit");
+
+    subparser.addArgument("--dry-run")
+        .type(Boolean.class)
+        .dest(DRY_RUN_ARGUMENT)
+        .required(false)
+        .setDefault(true)
+        .help("If true, don't actually modify any accounts");
+
+    configureCrawl(subparser);
   }
 
-  protected Namespace getNamespace() {
-    return namespace;
+  /**
+   * Adds any arguments specific to this crawl to the given subparser.
+   */
+  protected void configureCrawl(final Subparser subparser) {
   }
 
   @Override
@@ -64,8 +113,7 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends Environment
 
     UncaughtExceptionHandler.register();
 
-    this.namespace = namespace;
-    this.commandDependencies = CommandDependencies.build(getName(), environment, configuration);
+    final CommandDependencies commandDependencies = CommandDependencies.build(getName(), environment, configuration);
 
     MetricsUtil.configureRegistries(configuration, environment, commandDependencies.dynamicConfigurationManager());
 
@@ -86,7 +134,45 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends Environment
         }
       });
 
-      crawlAccounts(commandDependencies.accountsManager().streamAllFromDynamo(segments, Schedulers.parallel()));
+      final String crawlId = namespace.getString(CRAWL_ID);
+
+      if (crawlId == null) {
+        crawlAccounts(commandDependencies.accountsManager().streamAllFromDynamo(segments, Schedulers.parallel()),
+            commandDependencies, namespace);
+      } else {
+        logger.info("Crawling accounts with checkpoints for crawl {}", crawlId);
+
+        final AccountCrawlCheckpointManager checkpointManager = new AccountCrawlCheckpointManager(
+            commandDependencies.cacheCluster(), crawlId, UUID.randomUUID().toString(), LEASE_DURATION);
+
+        final ResumableAccountCrawler crawler = new ResumableAccountCrawler(getName(),
+            commandDependencies.accountsManager(),
+            checkpointManager,
+            segments,
+            Objects.requireNonNull(namespace.getInt(MAX_CONCURRENT_SEGMENTS)),
+            Objects.requireNonNull(namespace.getInt(PAGE_SIZE)),
+            Objects.requireNonNull(namespace.getDouble(MAX_READ_CAPACITY_UNITS_PER_SECOND)));
+
+        // Subclasses block until they've processed every account in a page, so run them on threads that may block
+        final ResumableAccountCrawler.CrawlSummary summary =
+            crawler.crawl(accounts -> Mono.fromRunnable(() ->
+                        crawlAccounts(Flux.fromIterable(accounts), commandDependencies, namespace))
+                    .subscribeOn(Schedulers.boundedElastic())
+                    .then())
+                .block();
+
+        logger.info("Finished crawl {}: {} segments crawled, {} already complete, {} leased by other workers, {} failed",
+            crawlId,
+            summary.completeSegments(),
+            summary.alreadyCompleteSegments(),
+            summary.leasedSegments(),
+            summary.failedSegments());
+
+        if (!summary.complete()) {
+          throw new IllegalStateException("Crawl " + crawlId + " did not finish; " + summary.failedSegments() +
+              " segments failed and " + summary.leasedSegments() + " are leased by other workers");
+        }
+      }
     } finally {
       environment.lifecycle().getManagedObjects().forEach(managedObject -> {
         try {
@@ -103,5 +189,17 @@ public abstract class AbstractSinglePassCrawlAccountsCommand extends Environment
     logger.error("Unhandled error", throwable);
   }
 
-  protected abstract void crawlAccounts(final Flux<Account> accounts);
+  /**
+   * Processes every account in the given stream, blocking until all accounts have been processed. A crawl without
+   * checkpoints passes every account in a single stream; a crawl with checkpoints calls this method once per page, and
+   * may process pages from different segments concurrently. Implementations must throw if they could not process the
+   * stream, so a failed page is not checkpointed.
+   *
+   * @param accounts the accounts to process
+   * @param commandDependencies the dependencies for this run of the command
+   * @param namespace the arguments for this run of the command
+   */
+  protected abstract void crawlAccounts(final Flux<Account> accounts,
+      final CommandDependencies commandDependencies,
+      final Namespace namespace);
 }
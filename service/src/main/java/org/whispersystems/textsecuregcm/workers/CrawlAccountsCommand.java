@@ -0,0 +1,125 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import static org.whispersystems.textsecuregcm.metrics.MetricsUtil.name;
+
+import com.google.common.annotations.VisibleForTesting;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.whispersystems.textsecuregcm.storage.Account;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Runs several account crawl commands over a single shared scan of the accounts table, so a maintenance window that
+ * needs several crawls reads (and deserializes) each account once instead of once per crawl.
+ * <p/>
+ * Each processor consumes the shared stream of accounts independently with its own concurrency limits. A processor
+ * that fails doesn't stop the others, but the command fails once they've all finished, so a checkpointed crawl doesn't
+ * record progress past accounts a processor didn't process. Because processors share a single scan, the scan proceeds
+ * at the pace of the slowest processor.
+ */
+public class CrawlAccountsCommand extends AbstractSinglePassCrawlAccountsCommand {
+
+  private final Map<String, AbstractSinglePassCrawlAccountsCommand> processorsByName;
+
+  @VisibleForTesting
+  static final String PROCESSORS_ARGUMENT = "processors";
+
+  // How many accounts to buffer for processors that fall behind the fastest processor
+  private static final int BUFFER_SIZE = 1024;
+
+  private static final String PROCESSOR_TIMER_NAME = name(CrawlAccountsCommand.class, "processor");
+  private static final String PROCESSOR_TAG_NAME = "processor";
+  private static final String OUTCOME_TAG_NAME = "outcome";
+
+  private static final Logger log = LoggerFactory.getLogger(CrawlAccountsCommand.class);
+
+  public CrawlAccountsCommand(final List<AbstractSinglePassCrawlAccountsCommand> processors) {
+    super("crawl-accounts", "Runs several account crawls over a single pass of the accounts table");
+
+    processorsByName = new LinkedHashMap<>();
+    processors.forEach(processor -> processorsByName.put(processor.getName(), processor));
+  }
+
+  @Override
+  protected void configureCrawl(final Subparser subparser) {
+    subparser.addArgument("--processors")
+        .type(String.class)
+        .dest(PROCESSORS_ARGUMENT)
+        .nargs("+")
+        .choices(processorsByName.keySet())
+        .required(true)
+        .help("The crawls to run over the shared pass of the accounts table");
+
+    processorsByName.values().forEach(processor -> processor.configureCrawl(subparser));
+  }
+
+  @Override
+  protected void crawlAccounts(final Flux<Account> accounts,
+      final CommandDependencies commandDependencies,
+      final Namespace namespace) {
+
+    final List<AbstractSinglePassCrawlAccountsCommand> processors =
+        Objects.requireNonNull(namespace.<String>getList(PROCESSORS_ARGUMENT)).stream()
+            .distinct()
+            .map(processorsByName::get)
+            .toList();
+
+    // Don't start the scan until every processor has subscribed
+    final Flux<Account> sharedAccounts = accounts.publish(BUFFER_SIZE).autoConnect(processors.size());
+
+    final List<String> failedProcessors = Flux.fromIterable(processors)
+        .flatMap(processor -> {
+          final Timer.Sample sample = Timer.start();
+          final AtomicBoolean subscribed = new AtomicBoolean(false);
+
+          // Each processor's timer covers a single stream of accounts, which spans the entire scan for a crawl without
+          // checkpoints or a single page for a crawl with checkpoints
+          final Mono<String> outcomeMono = Mono.fromRunnable(() -> processor.crawlAccounts(
+                  sharedAccounts.doOnSubscribe(ignored -> subscribed.set(true)),
+                  commandDependencies,
+                  namespace))
+              .subscribeOn(Schedulers.boundedElastic())
+              .then(Mono.just("success"))
+              .onErrorResume(throwable -> {
+                log.error("Processor {} failed", processor.getName(), throwable);
+                return Mono.just("failure");
+              })
+              .doOnNext(outcome -> sample.stop(Timer.builder(PROCESSOR_TIMER_NAME)
+                  .tags(PROCESSOR_TAG_NAME, processor.getName(), OUTCOME_TAG_NAME, outcome)
+                  .register(Metrics.globalRegistry)))
+              .doFinally(ignored -> {
+                // A processor that finishes without ever subscribing would otherwise keep the scan from starting for
+                // everybody else; a subscription that's immediately cancelled still counts toward starting the scan
+                if (!subscribed.get()) {
+                  sharedAccounts.subscribe().dispose();
+                }
+              });
+
+          return outcomeMono
+              .filter("failure"::equals)
+              .map(ignored -> processor.getName());
+        }, processors.size())
+        .collectList()
+        .block();
+
+    if (failedProcessors != null && !failedProcessors.isEmpty()) {
+      throw new IllegalStateException("Processors failed: " + String.join(", ", failedProcessors));
+    }
+  }
+}
@@ -12,7 +12,7 @@ import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
-import net.sourceforge.argparse4j.inf.Subparser;
+import net.sourceforge.argparse4j.inf.Namespace;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,9 +30,6 @@ public class ProcessPushNotificationFeedbackCommand extends AbstractSinglePassCr
   @VisibleForTesting
   static final Duration MAX_TOKEN_REFRESH_DELAY = Duration.ofDays(3);
 
-  @VisibleForTesting
-  static final String DRY_RUN_ARGUMENT = "dry-run";
-
   private static final int MAX_CONCURRENCY = 16;
 
   private static final String EXPIRED_DEVICE_COUNTER_NAME =
@@ -50,20 +47,10 @@ public class ProcessPushNotificationFeedbackCommand extends AbstractSinglePassCr
   }
 
   @Override
-  public void configure(final Subparser subparser) {
-    super.configure(subparser);
-
-    subparser.addArgument("--dry-run")
-        .type(Boolean.class)
-        .dest(DRY_RUN_ARGUMENT)
-        .required(false)
-        .setDefault(true)
-        .help("If true, don't actually modify accounts with stale devices");
-  }
-
-  @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
-    final boolean isDryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
+  protected void crawlAccounts(final Flux<Account> accounts,
+      final CommandDependencies commandDependencies,
+      final Namespace namespace) {
+    final boolean isDryRun = namespace.getBoolean(DRY_RUN_ARGUMENT);
 
     accounts
         .filter(account -> account.getDevices().stream().anyMatch(this::deviceNeedsUpdate))
@@ -85,7 +72,7 @@ public class ProcessPushNotificationFeedbackCommand extends AbstractSinglePassCr
           if (isDryRun) {
             return Mono.just(account);
           } else {
-            return Mono.fromFuture(() -> getCommandDependencies().accountsManager().updateAsync(account,
+            return Mono.fromFuture(() -> commandDependencies.accountsManager().updateAsync(account,
                     a -> a.getDevices().stream()
                         .filter(this::deviceNeedsUpdate)
                         .forEach(device -> {
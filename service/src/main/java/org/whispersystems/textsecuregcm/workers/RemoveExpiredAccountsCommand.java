@@ -13,7 +13,7 @@ import io.micrometer.core.instrument.Metrics;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
-import net.sourceforge.argparse4j.inf.Subparser;
+import net.sourceforge.argparse4j.inf.Namespace;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.storage.Account;
@@ -28,9 +28,6 @@ public class RemoveExpiredAccountsCommand extends AbstractSinglePassCrawlAccount
   @VisibleForTesting
   static final Duration MAX_IDLE_DURATION = Duration.ofDays(180);
 
-  @VisibleForTesting
-  static final String DRY_RUN_ARGUMENT = "dry-run";
-
   private static final int MAX_CONCURRENCY = 16;
 
   private static final String DELETED_ACCOUNT_COUNTER_NAME =
@@ -45,20 +42,10 @@ public class RemoveExpiredAccountsCommand extends AbstractSinglePassCrawlAccount
   }
 
   @Override
-  public void configure(final Subparser subparser) {
-    super.configure(subparser);
-
-    subparser.addArgument("--dry-run")
-        .type(Boolean.class)
-        .dest(DRY_RUN_ARGUMENT)
-        .required(false)
-        .setDefault(true)
-        .help("If true, don't actually delete accounts");
-  }
-
-  @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
-    final boolean isDryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
+  protected void crawlAccounts(final Flux<Account> accounts,
+      final CommandDependencies commandDependencies,
+      final Namespace namespace) {
+    final boolean isDryRun = namespace.getBoolean(DRY_RUN_ARGUMENT);
     final Counter deletedAccountCounter =
         Metrics.counter(DELETED_ACCOUNT_COUNTER_NAME, "dryRun", String.valueOf(isDryRun));
 
@@ -66,7 +53,7 @@ public class RemoveExpiredAccountsCommand extends AbstractSinglePassCrawlAccount
         .flatMap(expiredAccount -> {
           final Mono<Void> deleteAccountMono = isDryRun
               ? Mono.empty()
-              : Mono.fromFuture(() -> getCommandDependencies().accountsManager().delete(expiredAccount, AccountsManager.DeletionReason.EXPIRED));
+              : Mono.fromFuture(() -> commandDependencies.accountsManager().delete(expiredAccount, AccountsManager.DeletionReason.EXPIRED));
 
           return deleteAccountMono
               .doOnSuccess(ignored -> deletedAccountCounter.increment())
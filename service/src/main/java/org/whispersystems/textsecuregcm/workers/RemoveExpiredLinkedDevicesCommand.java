@@ -18,10 +18,12 @@ import java.util.Set;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import net.sourceforge.argparse4j.inf.Namespace;
 import net.sourceforge.argparse4j.inf.Subparser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
 import org.whispersystems.textsecuregcm.storage.Device;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -35,7 +37,6 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
   private static final int DEFAULT_BUFFER_SIZE = 16_384;
   private static final int DEFAULT_RETRIES = 3;
 
-  private static final String DRY_RUN_ARGUMENT = "dry-run";
   private static final String MAX_CONCURRENCY_ARGUMENT = "max-concurrency";
   private static final String BUFFER_ARGUMENT = "buffer";
   private static final String RETRIES_ARGUMENT = "retries";
@@ -55,16 +56,7 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
   }
 
   @Override
-  public void configure(final Subparser subparser) {
-    super.configure(subparser);
-
-    subparser.addArgument("--dry-run")
-        .type(Boolean.class)
-        .dest(DRY_RUN_ARGUMENT)
-        .required(false)
-        .setDefault(true)
-        .help("If true, don’t actually modify accounts with expired linked devices");
-
+  protected void configureCrawl(final Subparser subparser) {
     subparser.addArgument("--max-concurrency")
         .type(Integer.class)
         .dest(MAX_CONCURRENCY_ARGUMENT)
@@ -85,12 +77,14 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
   }
 
   @Override
-  protected void crawlAccounts(final Flux<Account> accounts) {
+  protected void crawlAccounts(final Flux<Account> accounts,
+      final CommandDependencies commandDependencies,
+      final Namespace namespace) {
 
-    final boolean dryRun = getNamespace().getBoolean(DRY_RUN_ARGUMENT);
-    final int maxConcurrency = getNamespace().getInt(MAX_CONCURRENCY_ARGUMENT);
-    final int bufferSize = getNamespace().getInt(BUFFER_ARGUMENT);
-    final int maxRetries = getNamespace().getInt(RETRIES_ARGUMENT);
+    final boolean dryRun = namespace.getBoolean(DRY_RUN_ARGUMENT);
+    final int maxConcurrency = namespace.getInt(MAX_CONCURRENCY_ARGUMENT);
+    final int bufferSize = namespace.getInt(BUFFER_ARGUMENT);
+    final int maxRetries = namespace.getInt(RETRIES_ARGUMENT);
 
     final Counter successCounter = Metrics.counter(REMOVED_DEVICES_COUNTER_NAME, "dryRun", String.valueOf(dryRun));
 
@@ -110,7 +104,7 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
 
           final Mono<Long> accountUpdate = dryRun
               ? Mono.just((long) expiredDevices.size())
-              : deleteDevices(account, expiredDevices, maxRetries);
+              : deleteDevices(commandDependencies.accountsManager(), account, expiredDevices, maxRetries);
 
           return accountUpdate
               .doOnNext(successCounter::increment)
@@ -123,14 +117,15 @@ public class RemoveExpiredLinkedDevicesCommand extends AbstractSinglePassCrawlAc
         .block();
   }
 
-  private Mono<Long> deleteDevices(final Account account, final Set<Byte> expiredDevices, final int maxRetries) {
+  private Mono<Long> deleteDevices(final AccountsManager accountsManager, final Account account,
+      final Set<Byte> expiredDevices, final int maxRetries) {
 
     final Counter retryCounter = Metrics.counter(RETRIED_UPDATES_COUNTER_NAME);
     final Counter errorCounter = Metrics.counter(FAILED_UPDATES_COUNTER_NAME);
 
     return Flux.fromIterable(expiredDevices)
         .flatMap(deviceId ->
-                Mono.fromFuture(() -> getCommandDependencies().accountsManager().removeDevice(account, deviceId))
+                Mono.fromFuture(() -> accountsManager.removeDevice(account, deviceId))
                     .retryWhen(Retry.backoff(maxRetries, Duration.ofSeconds(1))
                         .doAfterRetry(ignored -> retryCounter.increment())
                         .onRetryExhaustedThrow((spec, rs) -> rs.failure()))
@@ -25,6 +25,8 @@ import org.whispersystems.textsecuregcm.util.logging.UncaughtExceptionHandler;
 public class ScheduledApnPushNotificationSenderServiceCommand extends ServerCommand<WhisperServerConfiguration> {
 
   private static final String WORKER_COUNT = "workers";
+  private static final String MAX_CONCURRENCY = "maxConcurrency";
+  private static final String SLOTS_PER_CLAIM = "slotsPerClaim";
 
   public ScheduledApnPushNotificationSenderServiceCommand() {
     super(new Application<>() {
@@ -44,6 +46,20 @@ public class ScheduledApnPushNotificationSenderServiceCommand extends ServerComm
         .dest(WORKER_COUNT)
         .required(true)
         .help("The number of worker threads");
+
+    subparser.addArgument("--max-concurrency")
+        .type(Integer.class)
+        .dest(MAX_CONCURRENCY)
+        .required(false)
+        .setDefault(16)
+        .help("The maximum number of notifications each slot may have in flight at once");
+
+    subparser.addArgument("--slots-per-claim")
+        .type(Integer.class)
+        .dest(SLOTS_PER_CLAIM)
+        .required(false)
+        .setDefault(1)
+        .help("The number of slots each worker thread claims and processes concurrently");
   }
 
   @Override
@@ -74,7 +90,8 @@ public class ScheduledApnPushNotificationSenderServiceCommand extends ServerComm
 
     final APNSender apnSender = new APNSender(apnSenderExecutor, configuration.getApnConfiguration());
     final ApnPushNotificationScheduler apnPushNotificationScheduler = new ApnPushNotificationScheduler(
-        pushSchedulerCluster, apnSender, deps.accountsManager(), namespace.getInt(WORKER_COUNT));
+        pushSchedulerCluster, apnSender, deps.accountsManager(), namespace.getInt(WORKER_COUNT),
+        namespace.getInt(MAX_CONCURRENCY), namespace.getInt(SLOTS_PER_CLAIM));
 
     environment.lifecycle().manage(apnSender);
     environment.lifecycle().manage(apnPushNotificationScheduler);
@@ -0,0 +1,8 @@
+-- keys: lease_key
+-- argv: lease_holder
+
+if redis.call("GET", KEYS[1]) == ARGV[1] then
+    return redis.call("DEL", KEYS[1])
+else
+    return 0
+end
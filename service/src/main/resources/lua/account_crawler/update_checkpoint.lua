@@ -0,0 +1,10 @@
+-- keys: lease_key, checkpoint_key
+-- argv: lease_holder, checkpoint, lease_millis, checkpoint_ttl_seconds
+
+if redis.call("GET", KEYS[1]) == ARGV[1] then
+    redis.call("SET", KEYS[2], ARGV[2], "EX", ARGV[4])
+    redis.call("PEXPIRE", KEYS[1], ARGV[3])
+    return 1
+else
+    return 0
+end
@@ -0,0 +1,10 @@
+local pendingNotificationQueue = KEYS[1]
+
+local removed = 0
+
+for i = 2, #KEYS do
+    redis.call("DEL", KEYS[i])
+    removed = removed + redis.call("ZREM", pendingNotificationQueue, KEYS[i])
+end
+
+return removed
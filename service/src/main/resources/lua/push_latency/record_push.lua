@@ -0,0 +1,37 @@
+-- Records the time of the first unacknowledged push to a device; a live record for the same device in the previous
+-- bucket takes precedence, since it's older, but a record that has outlived the TTL is replaced
+local currentBucket = KEYS[1]
+local previousBucket = KEYS[2]
+local device = ARGV[1]
+local pushRecord = ARGV[2]
+local ttlSeconds = ARGV[3]
+local expiredBeforeMillis = tonumber(ARGV[4])
+
+-- Push records begin with a big-endian timestamp in milliseconds since the epoch
+local function timestampMillis(record)
+    local millis = 0
+
+    for i = 1, 8 do
+        millis = millis * 256 + string.byte(record, i)
+    end
+
+    return millis
+end
+
+local previousRecord = redis.call("HGET", previousBucket, device)
+
+if previousRecord then
+    if timestampMillis(previousRecord) >= expiredBeforeMillis then
+        return 0
+    end
+
+    redis.call("HDEL", previousBucket, device)
+end
+
+local added = redis.call("HSETNX", currentBucket, device, pushRecord)
+
+if added == 1 then
+    redis.call("EXPIRE", currentBucket, ttlSeconds)
+end
+
+return added
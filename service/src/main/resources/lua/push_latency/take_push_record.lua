@@ -0,0 +1,35 @@
+-- Gets and clears the oldest live push record for a device; records that have outlived the TTL are cleared, but not
+-- returned
+local currentBucket = KEYS[1]
+local previousBucket = KEYS[2]
+local device = ARGV[1]
+local expiredBeforeMillis = tonumber(ARGV[2])
+
+-- Push records begin with a big-endian timestamp in milliseconds since the epoch
+local function timestampMillis(record)
+    local millis = 0
+
+    for i = 1, 8 do
+        millis = millis * 256 + string.byte(record, i)
+    end
+
+    return millis
+end
+
+local pushRecord = redis.call("HGET", previousBucket, device)
+
+if pushRecord then
+    redis.call("HDEL", previousBucket, device)
+
+    if timestampMillis(pushRecord) >= expiredBeforeMillis then
+        return pushRecord
+    end
+end
+
+pushRecord = redis.call("HGET", currentBucket, device)
+
+if pushRecord then
+    redis.call("HDEL", currentBucket, device)
+end
+
+return pushRecord
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm;
+
+import static org.mockito.Mockito.mock;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledExecutorService;
+import org.whispersystems.textsecuregcm.captcha.RecaptchaClient;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.push.APNSender;
+import org.whispersystems.textsecuregcm.push.FcmSender;
+import org.whispersystems.textsecuregcm.registration.RegistrationServiceClient;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.storage.StaticDynamicConfigurationManager;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+
+/**
+ * A Whisper server that reads its dynamic configuration from memory, stores its data in the given DynamoDB clients
+ * (usually connected to a {@link org.whispersystems.textsecuregcm.storage.DynamoDbExtension} stand-in) instead of in
+ * AWS, and uses mocks in place of the external services it would otherwise connect to at startup (APNs, FCM,
+ * reCAPTCHA and the registration service). Together with Redis stand-ins, this allows a complete server to run on a
+ * single machine for load tests.
+ */
+public class LocalWhisperServerService extends WhisperServerService {
+
+  private final DynamoDbClient dynamoDbClient;
+  private final DynamoDbAsyncClient dynamoDbAsyncClient;
+  private final DynamicConfiguration dynamicConfiguration;
+
+  public LocalWhisperServerService(final DynamoDbClient dynamoDbClient,
+      final DynamoDbAsyncClient dynamoDbAsyncClient,
+      final DynamicConfiguration dynamicConfiguration) {
+
+    this.dynamoDbClient = dynamoDbClient;
+    this.dynamoDbAsyncClient = dynamoDbAsyncClient;
+    this.dynamicConfiguration = dynamicConfiguration;
+  }
+
+  @Override
+  protected DynamicConfigurationManager<DynamicConfiguration> buildDynamicConfigurationManager(
+      final WhisperServerConfiguration config) {
+
+    return new StaticDynamicConfigurationManager<>(dynamicConfiguration);
+  }
+
+  @Override
+  protected DynamoDbClient buildDynamoDbClient(final WhisperServerConfiguration config) {
+    return dynamoDbClient;
+  }
+
+  @Override
+  protected DynamoDbAsyncClient buildDynamoDbAsyncClient(final WhisperServerConfiguration config) {
+    return dynamoDbAsyncClient;
+  }
+
+  @Override
+  protected RegistrationServiceClient buildRegistrationServiceClient(final WhisperServerConfiguration config,
+      final Executor callbackExecutor,
+      final ScheduledExecutorService identityRefreshExecutor) {
+
+    return mock(RegistrationServiceClient.class);
+  }
+
+  @Override
+  protected APNSender buildApnSender(final WhisperServerConfiguration config, final ExecutorService executor) {
+    return mock(APNSender.class);
+  }
+
+  @Override
+  protected FcmSender buildFcmSender(final WhisperServerConfiguration config, final ExecutorService executor) {
+    return mock(FcmSender.class);
+  }
+
+  @Override
+  protected RecaptchaClient buildRecaptchaClient(final WhisperServerConfiguration config,
+      final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager) {
+
+    return mock(RecaptchaClient.class);
+  }
+}
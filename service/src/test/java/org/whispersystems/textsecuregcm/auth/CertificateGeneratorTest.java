@@ -5,21 +5,31 @@
 
 package org.whispersystems.textsecuregcm.auth;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import com.google.protobuf.InvalidProtocolBufferException;
 import java.io.IOException;
 import java.security.InvalidKeyException;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.Base64;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.junit.jupiter.api.Test;
 import org.signal.libsignal.protocol.IdentityKey;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.signal.libsignal.protocol.ecc.ECPublicKey;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.SenderCertificate;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.storage.Account;
 import org.whispersystems.textsecuregcm.storage.Device;
+import org.whispersystems.textsecuregcm.util.MutableClock;
 
 class CertificateGeneratorTest {
 
@@ -41,4 +51,58 @@ class CertificateGeneratorTest {
       assertTrue(certificateGenerator.createFor(account, device, true).length > 0);
       assertTrue(certificateGenerator.createFor(account, device, false).length > 0);
     }
+
+    @Test
+    void testCreateForCached() throws Exception {
+      final Account account = mock(Account.class);
+      final Device device = mock(Device.class);
+      final MutableClock clock = new MutableClock(System.currentTimeMillis());
+      final AtomicLong tickerNanos = new AtomicLong();
+
+      final CertificateGenerator certificateGenerator = new CertificateGenerator(
+          Base64.getDecoder().decode(SIGNING_CERTIFICATE),
+          Curve.decodePrivatePoint(Base64.getDecoder().decode(SIGNING_KEY)),
+          1,
+          clock,
+          tickerNanos::get,
+          Runnable::run);
+
+      when(account.getIdentityKey(IdentityType.ACI)).thenReturn(IDENTITY_KEY);
+      when(account.getUuid()).thenReturn(UUID.randomUUID());
+      when(account.getNumber()).thenReturn("+18005551234");
+      when(device.getId()).thenReturn((byte) 4);
+
+      final byte[] certificate = certificateGenerator.createFor(account, device, true);
+
+      assertArrayEquals(certificate, certificateGenerator.createFor(account, device, true));
+      assertFalse(Arrays.equals(certificate, certificateGenerator.createFor(account, device, false)));
+      assertFalse(getCertificate(certificateGenerator.createFor(account, device, false)).hasSender());
+
+      // Certificates are re-signed when their contents change
+      when(account.getNumber()).thenReturn("+18005556789");
+      final byte[] changedNumberCertificate = certificateGenerator.createFor(account, device, true);
+      assertEquals("+18005556789", getCertificate(changedNumberCertificate).getSender());
+
+      when(account.getIdentityKey(IdentityType.ACI))
+          .thenReturn(new IdentityKey(Curve.generateKeyPair().getPublicKey()));
+      assertFalse(Arrays.equals(changedNumberCertificate, certificateGenerator.createFor(account, device, true)));
+
+      // ...and when they've been cached long enough to be refreshed
+      when(account.getIdentityKey(IdentityType.ACI)).thenReturn(IDENTITY_KEY);
+      when(account.getNumber()).thenReturn("+18005551234");
+
+      final Duration elapsed = CertificateGenerator.CERTIFICATE_REFRESH_AGE.plusMinutes(1);
+      clock.increment(elapsed.toMillis(), TimeUnit.MILLISECONDS);
+      tickerNanos.addAndGet(elapsed.toNanos());
+
+      final byte[] refreshedCertificate = certificateGenerator.createFor(account, device, true);
+      assertEquals(getCertificate(certificate).getExpires() + elapsed.toMillis(),
+          getCertificate(refreshedCertificate).getExpires());
+    }
+
+    private static SenderCertificate.Certificate getCertificate(final byte[] senderCertificate)
+        throws InvalidProtocolBufferException {
+
+      return SenderCertificate.Certificate.parseFrom(SenderCertificate.parseFrom(senderCertificate).getCertificate());
+    }
 }
@@ -0,0 +1,108 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.auth;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.ServiceId;
+import org.signal.libsignal.zkgroup.GenericServerSecretParams;
+import org.signal.libsignal.zkgroup.ServerSecretParams;
+import org.signal.libsignal.zkgroup.auth.AuthCredentialWithPniResponse;
+import org.signal.libsignal.zkgroup.auth.ClientZkAuthOperations;
+import org.signal.libsignal.zkgroup.auth.ServerZkAuthOperations;
+import org.signal.libsignal.zkgroup.calllinks.CallLinkAuthCredentialResponse;
+
+class GroupCredentialIssuerTest {
+
+  private ExecutorService executor;
+  private AtomicLong tickerNanos;
+  private GroupCredentialIssuer groupCredentialIssuer;
+
+  private static final ServerSecretParams SERVER_SECRET_PARAMS = ServerSecretParams.generate();
+  private static final GenericServerSecretParams GENERIC_SERVER_SECRET_PARAMS = GenericServerSecretParams.generate();
+
+  private static final ServiceId.Aci ACI = new ServiceId.Aci(UUID.randomUUID());
+  private static final ServiceId.Pni PNI = new ServiceId.Pni(UUID.randomUUID());
+
+  @BeforeEach
+  void setUp() {
+    executor = Executors.newFixedThreadPool(4);
+    tickerNanos = new AtomicLong();
+
+    groupCredentialIssuer = new GroupCredentialIssuer(new ServerZkAuthOperations(SERVER_SECRET_PARAMS),
+        GENERIC_SERVER_SECRET_PARAMS, executor, tickerNanos::get);
+  }
+
+  @AfterEach
+  void tearDown() {
+    executor.shutdown();
+  }
+
+  @Test
+  void issueCredentials() {
+    final Instant startOfDay = Instant.now().truncatedTo(ChronoUnit.DAYS);
+    final List<Instant> redemptions = IntStream.range(0, 8)
+        .mapToObj(day -> startOfDay.plus(Duration.ofDays(day)))
+        .toList();
+
+    final List<GroupCredentialIssuer.IssuedCredentials> issuedCredentials =
+        groupCredentialIssuer.issueCredentials(ACI, PNI, redemptions, true).join();
+
+    assertEquals(redemptions.size(), issuedCredentials.size());
+
+    final ClientZkAuthOperations clientZkAuthOperations =
+        new ClientZkAuthOperations(SERVER_SECRET_PARAMS.getPublicParams());
+
+    for (int i = 0; i < redemptions.size(); i++) {
+      final Instant redemption = redemptions.get(i);
+      final GroupCredentialIssuer.IssuedCredentials credentials = issuedCredentials.get(i);
+
+      assertEquals(redemption.getEpochSecond(), credentials.groupCredential().redemptionTime());
+      assertEquals(redemption.getEpochSecond(), credentials.callLinkAuthCredential().redemptionTime());
+
+      assertDoesNotThrow(() -> clientZkAuthOperations.receiveAuthCredentialWithPniAsServiceId(ACI, PNI,
+          redemption.getEpochSecond(), new AuthCredentialWithPniResponse(credentials.groupCredential().credential())));
+
+      assertDoesNotThrow(() -> new CallLinkAuthCredentialResponse(credentials.callLinkAuthCredential().credential())
+          .receive(ACI, redemption, GENERIC_SERVER_SECRET_PARAMS.getPublicParams()));
+    }
+  }
+
+  @Test
+  void issueCredentialsCached() {
+    final List<Instant> redemptions = List.of(Instant.now().truncatedTo(ChronoUnit.DAYS));
+
+    final byte[] credential =
+        groupCredentialIssuer.issueCredentials(ACI, PNI, redemptions, true).join().get(0).groupCredential().credential();
+
+    assertArrayEquals(credential,
+        groupCredentialIssuer.issueCredentials(ACI, PNI, redemptions, true).join().get(0).groupCredential().credential());
+
+    assertFalse(Arrays.equals(credential,
+        groupCredentialIssuer.issueCredentials(ACI, PNI, redemptions, false).join().get(0).groupCredential().credential()));
+
+    tickerNanos.addAndGet(GroupCredentialIssuer.MAX_CREDENTIAL_AGE.plusSeconds(1).toNanos());
+
+    assertFalse(Arrays.equals(credential,
+        groupCredentialIssuer.issueCredentials(ACI, PNI, redemptions, true).join().get(0).groupCredential().credential()));
+  }
+}
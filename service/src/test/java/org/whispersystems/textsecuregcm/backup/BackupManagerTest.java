@@ -10,10 +10,13 @@ import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.assertj.core.api.Assertions.assertThatNoException;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -37,8 +40,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
 import javax.annotation.Nullable;
 import org.apache.commons.lang3.StringUtils;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -92,6 +99,12 @@ public class BackupManagerTest {
         remoteStorageManager,
         Map.of(3, "cdn3.example.org/attachments"),
         testClock);
+    this.backupManager.start();
+  }
+
+  @AfterEach
+  public void teardown() {
+    backupManager.stop();
   }
 
   @ParameterizedTest
@@ -308,6 +321,130 @@ public class BackupManagerTest {
     assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_COUNT, -1L)).isEqualTo(0L);
   }
 
+  @Test
+  public void copyBatch() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    when(tusCredentialGenerator.generateUpload(any()))
+        .thenReturn(new MessageBackupUploadDescriptor(3, "def", Collections.emptyMap(), ""));
+
+    final List<BackupManager.CopyParameters> toCopy = IntStream.range(0, 50)
+        .mapToObj(i -> new BackupManager.CopyParameters(3, "source" + i, 100 + i,
+            new MediaEncryptionParameters(TestRandomUtil.nextBytes(32), TestRandomUtil.nextBytes(32),
+                TestRandomUtil.nextBytes(16)),
+            TestRandomUtil.nextBytes(15)))
+        .toList();
+
+    // Every third source object is missing, and copies complete out of order
+    when(remoteStorageManager.copy(any(), anyInt(), any(), any())).thenAnswer(invocation -> {
+      final URI source = invocation.getArgument(0);
+      final int index = Integer.parseInt(StringUtils.substringAfter(source.toString(), "source"));
+
+      return index % 3 == 0
+          ? CompletableFuture.failedFuture(new SourceObjectNotFoundException())
+          : CompletableFuture.supplyAsync(() -> null,
+              CompletableFuture.delayedExecutor(ThreadLocalRandom.current().nextInt(10), TimeUnit.MILLISECONDS));
+    });
+
+    final List<BackupManager.CopyResult> results = backupManager.copyToBackup(backupUser, toCopy).join();
+
+    assertThat(results).hasSize(toCopy.size());
+
+    long expectedBytes = 0;
+    long expectedCount = 0;
+
+    for (int i = 0; i < toCopy.size(); i++) {
+      final BackupManager.CopyParameters parameters = toCopy.get(i);
+
+      if (i % 3 == 0) {
+        assertThat(results.get(i)).isInstanceOfSatisfying(BackupManager.CopyFailure.class, failure -> {
+          assertThat(failure.mediaId()).isEqualTo(parameters.destinationMediaId());
+          assertThat(failure.cause()).isInstanceOf(SourceObjectNotFoundException.class);
+        });
+      } else {
+        assertThat(results.get(i)).isInstanceOfSatisfying(BackupManager.CopySuccess.class, success -> {
+          assertThat(success.storageDescriptor().cdn()).isEqualTo(3);
+          assertThat(success.storageDescriptor().key()).isEqualTo(parameters.destinationMediaId());
+        });
+
+        expectedBytes += parameters.encryptionParameters().outputSize(parameters.sourceLength());
+        expectedCount++;
+      }
+    }
+
+    // usage should include only successful copies
+    final Map<String, AttributeValue> backup = getBackupItem(backupUser);
+    assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_BYTES_USED, -1L)).isEqualTo(expectedBytes);
+    assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_COUNT, -1L)).isEqualTo(expectedCount);
+  }
+
+  @Test
+  public void copyRejectedOverPerBackupLimit() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    when(tusCredentialGenerator.generateUpload(any()))
+        .thenReturn(new MessageBackupUploadDescriptor(3, "def", Collections.emptyMap(), ""));
+
+    final CompletableFuture<Void> blockedCopy = new CompletableFuture<>();
+    when(remoteStorageManager.copy(any(), anyInt(), any(), any())).thenReturn(blockedCopy);
+
+    final MediaEncryptionParameters encryptionParams = new MediaEncryptionParameters(
+        TestRandomUtil.nextBytes(32),
+        TestRandomUtil.nextBytes(32),
+        TestRandomUtil.nextBytes(16));
+
+    final List<CompletableFuture<BackupManager.StorageDescriptor>> inProgress =
+        IntStream.range(0, BackupManager.MAX_COPIES_PER_BACKUP)
+            .mapToObj(i -> backupManager.copyToBackup(backupUser, 3, "abc", 100, encryptionParams,
+                TestRandomUtil.nextBytes(15)))
+            .toList();
+
+    // Wait for every in-progress copy to reach the cdn so that all of the backup's permits are held
+    verify(remoteStorageManager, timeout(1_000).times(BackupManager.MAX_COPIES_PER_BACKUP))
+        .copy(any(), anyInt(), any(), any());
+
+    final List<BackupManager.CopyResult> results = backupManager.copyToBackup(backupUser,
+        List.of(new BackupManager.CopyParameters(3, "abc", 100, encryptionParams, TestRandomUtil.nextBytes(15)))).join();
+
+    assertThat(results).singleElement().isInstanceOfSatisfying(BackupManager.CopyFailure.class,
+        failure -> assertThat(failure.cause()).isInstanceOf(CopyRejectedException.class));
+
+    CompletableFutureTestUtil.assertFailsWithCause(CopyRejectedException.class,
+        backupManager.copyToBackup(backupUser, 3, "abc", 100, encryptionParams, TestRandomUtil.nextBytes(15)));
+
+    // Other backups are unaffected by this backup's limit
+    final AuthenticatedBackupUser otherBackupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    final CompletableFuture<BackupManager.StorageDescriptor> otherCopy =
+        backupManager.copyToBackup(otherBackupUser, 3, "abc", 100, encryptionParams, TestRandomUtil.nextBytes(15));
+
+    blockedCopy.complete(null);
+    inProgress.forEach(CompletableFuture::join);
+    otherCopy.join();
+
+    // rejected copies should not be charged
+    final Map<String, AttributeValue> backup = getBackupItem(backupUser);
+    assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_BYTES_USED, -1L))
+        .isEqualTo(BackupManager.MAX_COPIES_PER_BACKUP * encryptionParams.outputSize(100));
+    assertThat(AttributeValues.getLong(backup, BackupsDb.ATTR_MEDIA_COUNT, -1L))
+        .isEqualTo(BackupManager.MAX_COPIES_PER_BACKUP);
+
+    // once earlier copies finish, the backup may copy again
+    backupManager.copyToBackup(backupUser, 3, "abc", 100, encryptionParams, TestRandomUtil.nextBytes(15)).join();
+  }
+
+  @Test
+  public void copyBatchUnexpectedFailure() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    when(tusCredentialGenerator.generateUpload(any()))
+        .thenReturn(new MessageBackupUploadDescriptor(3, "def", Collections.emptyMap(), ""));
+    when(remoteStorageManager.copy(any(), anyInt(), any(), any()))
+        .thenReturn(CompletableFuture.failedFuture(new RuntimeException("OH NO")));
+
+    CompletableFutureTestUtil.assertFailsWithCause(RuntimeException.class,
+        backupManager.copyToBackup(backupUser, List.of(new BackupManager.CopyParameters(3, "abc", 100,
+            new MediaEncryptionParameters(TestRandomUtil.nextBytes(32), TestRandomUtil.nextBytes(32),
+                TestRandomUtil.nextBytes(16)),
+            TestRandomUtil.nextBytes(15)))));
+  }
+
   @Test
   public void quotaEnforcementNoRecalculation() {
     final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
@@ -498,6 +635,57 @@ public class BackupManagerTest {
         .isEqualTo(new UsageInfo(100, 5));
   }
 
+  @Test
+  public void deleteUsageUnderflow() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    final byte[] mediaId = TestRandomUtil.nextBytes(16);
+    final String backupMediaKey = "%s/%s/%s".formatted(
+        BackupManager.encodeBackupIdForCdn(backupUser),
+        BackupManager.MEDIA_DIRECTORY_NAME,
+        BackupManager.encodeForCdn(mediaId));
+    final String backupMediaPrefix = "%s/%s/".formatted(
+        BackupManager.encodeBackupIdForCdn(backupUser),
+        BackupManager.MEDIA_DIRECTORY_NAME);
+
+    // tracked usage has drifted below what is actually stored
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(5, 1)).join();
+
+    when(remoteStorageManager.delete(backupMediaKey)).thenReturn(CompletableFuture.completedFuture(7L));
+    when(remoteStorageManager.cdnNumber()).thenReturn(5);
+    when(remoteStorageManager.calculateBytesUsed(eq(backupMediaPrefix)))
+        .thenReturn(CompletableFuture.completedFuture(new UsageInfo(11, 2)));
+
+    backupManager.delete(backupUser, List.of(new BackupManager.StorageDescriptor(5, mediaId))).toCompletableFuture()
+        .join();
+
+    verify(remoteStorageManager, times(1)).calculateBytesUsed(backupMediaPrefix);
+    assertThat(backupsDb.getMediaUsage(backupUser).join().usageInfo()).isEqualTo(new UsageInfo(11, 2));
+  }
+
+  @Test
+  public void deleteDoesNotRecalculate() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+
+    final List<BackupManager.StorageDescriptor> descriptors = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      final BackupManager.StorageDescriptor descriptor = new BackupManager.StorageDescriptor(5,
+          TestRandomUtil.nextBytes(15));
+      descriptors.add(descriptor);
+      when(remoteStorageManager.delete("%s/%s/%s".formatted(
+          BackupManager.encodeBackupIdForCdn(backupUser),
+          BackupManager.MEDIA_DIRECTORY_NAME,
+          BackupManager.encodeForCdn(descriptor.key()))))
+          .thenReturn(CompletableFuture.completedFuture(3L));
+    }
+    when(remoteStorageManager.cdnNumber()).thenReturn(5);
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(1000, 200)).join();
+
+    backupManager.delete(backupUser, descriptors).join();
+
+    verify(remoteStorageManager, never()).calculateBytesUsed(anyString());
+    assertThat(backupsDb.getMediaUsage(backupUser).join().usageInfo()).isEqualTo(new UsageInfo(700, 100));
+  }
+
   private Map<String, AttributeValue> getBackupItem(final AuthenticatedBackupUser backupUser) {
     return DYNAMO_DB_EXTENSION.getDynamoDbClient().getItem(GetItemRequest.builder()
             .tableName(DynamoDbExtensionSchema.Tables.BACKUPS.tableName())
@@ -2,9 +2,18 @@ package org.whispersystems.textsecuregcm.backup;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import javax.crypto.Cipher;
+import javax.crypto.Mac;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
+import org.reactivestreams.FlowAdapters;
 import org.whispersystems.textsecuregcm.util.TestRandomUtil;
+import reactor.core.publisher.Flux;
 
 public class BackupMediaEncrypterTest {
 
@@ -17,4 +26,63 @@ public class BackupMediaEncrypterTest {
     final BackupMediaEncrypter encrypter = new BackupMediaEncrypter(params);
     assertThat(params.outputSize(1)).isEqualTo(encrypter.outputSize(1));
   }
+
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void encryptBody(final boolean directBuffers) throws Exception {
+    final MediaEncryptionParameters params = new MediaEncryptionParameters(
+        TestRandomUtil.nextBytes(32),
+        TestRandomUtil.nextBytes(32), TestRandomUtil.nextBytes(16));
+
+    final byte[] media = TestRandomUtil.nextBytes(100_000);
+
+    // Deliver the source in irregularly-sized batches of irregularly-sized (and sometimes empty) read-only chunks
+    final List<List<ByteBuffer>> batches = new ArrayList<>();
+    int offset = 0;
+
+    while (offset < media.length) {
+      final List<ByteBuffer> batch = new ArrayList<>();
+
+      for (int i = 0; i < 3 && offset < media.length; i++) {
+        final int length = Math.min(media.length - offset, ThreadLocalRandom.current().nextInt(0, 5000));
+        final ByteBuffer chunk = directBuffers ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+        chunk.put(media, offset, length).flip();
+
+        batch.add(chunk.asReadOnlyBuffer());
+        offset += length;
+      }
+
+      batches.add(batch);
+    }
+
+    final BackupMediaEncrypter encrypter = new BackupMediaEncrypter(params);
+
+    final ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+    Flux.from(FlowAdapters.toPublisher(encrypter.encryptBody(FlowAdapters.toFlowPublisher(Flux.fromIterable(batches)))))
+        .doOnNext(buffer -> {
+          final byte[] bytes = new byte[buffer.remaining()];
+          buffer.get(bytes);
+          encrypted.writeBytes(bytes);
+        })
+        .blockLast();
+
+    final Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5Padding");
+    cipher.init(Cipher.ENCRYPT_MODE, params.aesEncryptionKey(), params.iv());
+
+    final Mac mac = Mac.getInstance("HmacSHA256");
+    mac.init(params.hmacSHA256Key());
+
+    final byte[] iv = cipher.getIV();
+    final byte[] ciphertext = cipher.doFinal(media);
+    mac.update(iv);
+    mac.update(ciphertext);
+
+    final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+    expected.writeBytes(iv);
+    expected.writeBytes(ciphertext);
+    expected.writeBytes(mac.doFinal());
+
+    assertThat(encrypted.toByteArray()).isEqualTo(expected.toByteArray());
+    assertThat(encrypted.size()).isEqualTo(encrypter.outputSize(media.length));
+  }
 }
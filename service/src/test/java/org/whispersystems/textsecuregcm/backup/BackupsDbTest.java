@@ -79,6 +79,35 @@ public class BackupsDbTest {
     assertThat(info.usageInfo().numObjects()).isEqualTo(17L);
   }
 
+  @Test
+  public void releaseMedia() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(100, 10)).join();
+
+    assertThat(backupsDb.releaseMedia(backupUser, 4, 40).join()).isTrue();
+    assertThat(backupsDb.getMediaUsage(backupUser).join().usageInfo()).isEqualTo(new UsageInfo(60, 6));
+
+    assertThat(backupsDb.releaseMedia(backupUser, 6, 60).join()).isTrue();
+    assertThat(backupsDb.getMediaUsage(backupUser).join().usageInfo()).isEqualTo(new UsageInfo(0, 0));
+  }
+
+  @Test
+  public void releaseMediaUnderflow() {
+    final AuthenticatedBackupUser backupUser = backupUser(TestRandomUtil.nextBytes(16), BackupTier.MEDIA);
+
+    // no usage tracked at all
+    assertThat(backupsDb.releaseMedia(backupUser, 1, 10).join()).isFalse();
+
+    backupsDb.setMediaUsage(backupUser, new UsageInfo(100, 10)).join();
+
+    // more bytes than tracked
+    assertThat(backupsDb.releaseMedia(backupUser, 1, 101).join()).isFalse();
+    // more objects than tracked
+    assertThat(backupsDb.releaseMedia(backupUser, 11, 10).join()).isFalse();
+
+    assertThat(backupsDb.getMediaUsage(backupUser).join().usageInfo()).isEqualTo(new UsageInfo(100, 10));
+  }
+
   private AuthenticatedBackupUser backupUser(final byte[] backupId, final BackupTier backupTier) {
     return new AuthenticatedBackupUser(backupId, backupTier);
   }
@@ -7,6 +7,7 @@ package org.whispersystems.textsecuregcm.calls.routing;
 
 import org.junit.jupiter.api.Test;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.IOException;
 import java.io.StringReader;
@@ -242,4 +243,13 @@ public class CallRoutingTableParserTest {
     assertThat(CallRoutingTableParser.fromJson(new StringReader(input))).isEqualTo(CallRoutingTable.empty());
     assertThat(CallRoutingTableParser.fromJson(new StringReader("{}"))).isEqualTo(CallRoutingTable.empty());
   }
+
+  @Test
+  public void testJsonParserUnrecognizedSection() {
+    assertThatThrownBy(() -> CallRoutingTableParser.fromJson(new StringReader("{\"ipv7SubnetsToDatacenters\": {}}")))
+        .isInstanceOf(IOException.class);
+
+    assertThatThrownBy(() -> CallRoutingTableParser.fromJson(new StringReader("[]")))
+        .isInstanceOf(IOException.class);
+  }
 }
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.calls.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.Inet4Address;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class SubnetTrieTest {
+
+  @Test
+  void findIpv4() throws UnknownHostException {
+    final SubnetTrie trie = SubnetTrie.ofIpv4(Map.of(
+        (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("0.0.0.0/0"), List.of("default"),
+        (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("10.0.0.0/8"), List.of("ten"),
+        (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("10.1.0.0/16"), List.of("ten-one"),
+        (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("10.1.2.3/32"), List.of("host"),
+        (CidrBlock.IpV4CidrBlock) CidrBlock.parseCidrBlock("192.168.0.0/24"), List.of("private")));
+
+    assertThat(trie.size()).isEqualTo(5);
+    assertThat(trie.find(address("10.1.2.3"))).containsExactly("host");
+    assertThat(trie.find(address("10.1.2.4"))).containsExactly("ten-one");
+    assertThat(trie.find(address("10.2.0.0"))).containsExactly("ten");
+    assertThat(trie.find(address("192.168.0.255"))).containsExactly("private");
+    assertThat(trie.find(address("192.168.1.0"))).containsExactly("default");
+    assertThat(trie.find(address("255.255.255.255"))).containsExactly("default");
+  }
+
+  @Test
+  void findIpv6() throws UnknownHostException {
+    final SubnetTrie trie = SubnetTrie.ofIpv6(Map.of(
+        (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("2001:db8::/32"), List.of("documentation"),
+        (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("2001:db8:b0aa::/48"), List.of("b0aa"),
+        (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("2001:db8:b0aa:1::/80"), List.of("low-word"),
+        (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("2001:db8:b0aa:1::1/128"), List.of("host"),
+        (CidrBlock.IpV6CidrBlock) CidrBlock.parseCidrBlock("ff00::/8"), List.of("multicast")));
+
+    assertThat(trie.find(address("2001:db8:b0aa:1::1"))).containsExactly("host");
+    assertThat(trie.find(address("2001:db8:b0aa:1::2"))).containsExactly("low-word");
+    assertThat(trie.find(address("2001:db8:b0aa:1:1::"))).containsExactly("b0aa");
+    assertThat(trie.find(address("2001:db8:b0ab::"))).containsExactly("documentation");
+    assertThat(trie.find(address("ff02::1"))).containsExactly("multicast");
+    assertThat(trie.find(address("2001:db9::"))).isEmpty();
+  }
+
+  @Test
+  void findEmpty() throws UnknownHostException {
+    final SubnetTrie trie = SubnetTrie.ofIpv4(Map.of());
+
+    assertThat(trie.isEmpty()).isTrue();
+    assertThat(trie.find(address("10.0.0.1"))).isEmpty();
+  }
+
+  @Test
+  void findMatchesLinearScan() throws UnknownHostException {
+    final Random random = new Random(1);
+
+    final Map<CidrBlock.IpV4CidrBlock, List<String>> ipv4Subnets = new HashMap<>();
+    final Map<CidrBlock.IpV6CidrBlock, List<String>> ipv6Subnets = new HashMap<>();
+
+    // Use a small address space for the high bits so that subnets frequently nest and overlap
+    for (int i = 0; i < 1000; i++) {
+      final byte[] ipv4Address = randomBytes(random, 4);
+      ipv4Address[0] &= 0x03;
+
+      ipv4Subnets.put(CidrBlock.IpV4CidrBlock.of((Inet4Address) InetAddress.getByAddress(ipv4Address),
+          random.nextInt(33)), List.of("v4-" + i));
+
+      final byte[] ipv6Address = randomBytes(random, 16);
+      ipv6Address[0] &= 0x03;
+
+      ipv6Subnets.put(CidrBlock.IpV6CidrBlock.of((Inet6Address) InetAddress.getByAddress(ipv6Address),
+          random.nextInt(129)), List.of("v6-" + i));
+    }
+
+    final SubnetTrie ipv4Trie = SubnetTrie.ofIpv4(ipv4Subnets);
+    final SubnetTrie ipv6Trie = SubnetTrie.ofIpv6(ipv6Subnets);
+
+    final List<byte[]> ipv4Addresses = new ArrayList<>();
+    final List<byte[]> ipv6Addresses = new ArrayList<>();
+
+    for (int i = 0; i < 1000; i++) {
+      final byte[] ipv4Address = randomBytes(random, 4);
+      ipv4Address[0] &= 0x03;
+      ipv4Addresses.add(ipv4Address);
+
+      final byte[] ipv6Address = randomBytes(random, 16);
+      ipv6Address[0] &= 0x03;
+      ipv6Addresses.add(ipv6Address);
+    }
+
+    ipv4Subnets.keySet().forEach(block -> ipv4Addresses.add(
+        new byte[] { (byte) (block.subnet() >>> 24), (byte) (block.subnet() >>> 16), (byte) (block.subnet() >>> 8), (byte) block.subnet() }));
+
+    for (final byte[] address : ipv4Addresses) {
+      assertThat(ipv4Trie.find(address)).isEqualTo(linearScan(ipv4Subnets, InetAddress.getByAddress(address)));
+    }
+
+    for (final byte[] address : ipv6Addresses) {
+      assertThat(ipv6Trie.find(address)).isEqualTo(linearScan(ipv6Subnets, InetAddress.getByAddress(address)));
+    }
+  }
+
+  private static <T extends CidrBlock> List<String> linearScan(final Map<T, List<String>> subnets,
+      final InetAddress address) {
+
+    int longestPrefix = -1;
+    List<String> datacenters = List.of();
+
+    for (final Map.Entry<T, List<String>> entry : subnets.entrySet()) {
+      final int prefixLength = switch (entry.getKey()) {
+        case CidrBlock.IpV4CidrBlock ipv4Block -> ipv4Block.cidrBlockSize();
+        case CidrBlock.IpV6CidrBlock ipv6Block -> ipv6Block.cidrBlockSize();
+        default -> throw new AssertionError();
+      };
+
+      if (prefixLength > longestPrefix && entry.getKey().ipInBlock(address)) {
+        longestPrefix = prefixLength;
+        datacenters = entry.getValue();
+      }
+    }
+
+    return datacenters;
+  }
+
+  private static byte[] address(final String address) throws UnknownHostException {
+    return InetAddress.getByName(address).getAddress();
+  }
+
+  private static byte[] randomBytes(final Random random, final int length) {
+    final byte[] bytes = new byte[length];
+    random.nextBytes(bytes);
+
+    return bytes;
+  }
+}
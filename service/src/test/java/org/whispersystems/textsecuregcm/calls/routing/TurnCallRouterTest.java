@@ -5,19 +5,12 @@
 
 package org.whispersystems.textsecuregcm.calls.routing;
 
-import com.maxmind.geoip2.DatabaseReader;
-import com.maxmind.geoip2.exception.GeoIp2Exception;
-import com.maxmind.geoip2.model.CityResponse;
-import com.maxmind.geoip2.record.Continent;
-import com.maxmind.geoip2.record.Country;
-import com.maxmind.geoip2.record.Subdivision;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.geo.GeoIpLocator;
 
-import java.io.IOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -41,26 +34,16 @@ public class TurnCallRouterTest {
   private CallRoutingTable performanceTable;
   private CallRoutingTable manualTable;
   private DynamicConfigTurnRouter configTurnRouter;
-  private DatabaseReader geoIp;
-  private Country country;
-  private Continent continent;
+  private GeoIpLocator geoIpLocator;
   private CallDnsRecords callDnsRecords;
-  private Subdivision subdivision;
   private UUID aci = UUID.randomUUID();
 
   @BeforeEach
-  void setup() throws IOException, GeoIp2Exception {
+  void setup() {
     performanceTable = mock(CallRoutingTable.class);
     manualTable = mock(CallRoutingTable.class);
     configTurnRouter = mock(DynamicConfigTurnRouter.class);
-    geoIp = mock(DatabaseReader.class);
-    continent = mock(Continent.class);
-    country = mock(Country.class);
-    subdivision = mock(Subdivision.class);
-    ArrayList<Subdivision> subdivisions = new ArrayList<>();
-    subdivisions.add(subdivision);
-
-    when(geoIp.city(any())).thenReturn(new CityResponse(null, continent, country, null, null, null, null, null, subdivisions, null));
+    geoIpLocator = mock(GeoIpLocator.class);
     setupDefault();
   }
 
@@ -70,9 +53,8 @@ public class TurnCallRouterTest {
     when(configTurnRouter.getHostname()).thenReturn(TEST_HOSTNAME);
     when(configTurnRouter.shouldRandomize()).thenReturn(false);
     when(manualTable.getDatacentersFor(any(), any(), any(), any())).thenReturn(Collections.emptyList());
-    when(continent.getCode()).thenReturn("NA");
-    when(country.getIsoCode()).thenReturn("US");
-    when(subdivision.getIsoCode()).thenReturn("VA");
+    when(geoIpLocator.locate(any()))
+        .thenReturn(Optional.of(new GeoIpLocator.GeoIpLocation("NA", "US", Optional.of("VA"))));
     try {
       callDnsRecords = new CallDnsRecords(
           Map.of(
@@ -105,7 +87,7 @@ public class TurnCallRouterTest {
         () -> performanceTable,
         () -> manualTable,
          configTurnRouter,
-        () -> geoIp
+        geoIpLocator
     );
   }
 
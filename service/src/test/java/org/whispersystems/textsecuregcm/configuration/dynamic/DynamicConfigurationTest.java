@@ -390,4 +390,84 @@ class DynamicConfigurationTest {
     }
   }
 
+  @Test
+  void testParseMessageDeliveryTraceConfiguration() throws JsonProcessingException {
+    {
+      final String emptyConfigYaml = REQUIRED_CONFIG.concat("test: true");
+      final DynamicConfiguration emptyConfig =
+          DynamicConfigurationManager.parseConfiguration(emptyConfigYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertThat(emptyConfig.getMessageDeliveryTraceConfiguration().sampleRate()).isZero();
+    }
+
+    {
+      final String messageDeliveryTraceYaml = REQUIRED_CONFIG.concat("""
+          messageDeliveryTrace:
+            sampleRate: 0.01
+          """);
+
+      final DynamicConfiguration config =
+          DynamicConfigurationManager.parseConfiguration(messageDeliveryTraceYaml, DynamicConfiguration.class)
+              .orElseThrow();
+
+      assertThat(config.getMessageDeliveryTraceConfiguration().sampleRate()).isEqualTo(0.01);
+    }
+
+    {
+      final String invalidSampleRateYaml = REQUIRED_CONFIG.concat("""
+          messageDeliveryTrace:
+            sampleRate: 2
+          """);
+
+      assertThat(DynamicConfigurationManager.parseConfiguration(invalidSampleRateYaml, DynamicConfiguration.class))
+          .isEmpty();
+    }
+  }
+
+  @Test
+  void testParsePushLatencyConfiguration() throws JsonProcessingException {
+    {
+      final String emptyConfigYaml = REQUIRED_CONFIG.concat("test: true");
+      final DynamicConfiguration emptyConfig =
+          DynamicConfigurationManager.parseConfiguration(emptyConfigYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertThat(emptyConfig.getPushLatencyConfiguration().sampleRate()).isEqualTo(1);
+    }
+
+    {
+      final String pushLatencyYaml = REQUIRED_CONFIG.concat("""
+          pushLatency:
+            sampleRate: 0.1
+          """);
+
+      final DynamicConfiguration config =
+          DynamicConfigurationManager.parseConfiguration(pushLatencyYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertThat(config.getPushLatencyConfiguration().sampleRate()).isEqualTo(0.1);
+    }
+  }
+
+  @Test
+  void testParseProfileCacheConfiguration() throws JsonProcessingException {
+    {
+      final String emptyConfigYaml = REQUIRED_CONFIG.concat("test: true");
+      final DynamicConfiguration emptyConfig =
+          DynamicConfigurationManager.parseConfiguration(emptyConfigYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertThat(emptyConfig.getProfileCacheConfiguration().binaryEncoding()).isFalse();
+    }
+
+    {
+      final String profileCacheYaml = REQUIRED_CONFIG.concat("""
+          profileCache:
+            binaryEncoding: true
+          """);
+
+      final DynamicConfiguration config =
+          DynamicConfigurationManager.parseConfiguration(profileCacheYaml, DynamicConfiguration.class).orElseThrow();
+
+      assertThat(config.getProfileCacheConfiguration().binaryEncoding()).isTrue();
+    }
+  }
+
 }
@@ -8,6 +8,7 @@ package org.whispersystems.textsecuregcm.controllers;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -56,6 +57,7 @@ import org.whispersystems.textsecuregcm.backup.BackupAuthManager;
 import org.whispersystems.textsecuregcm.backup.BackupAuthTestUtil;
 import org.whispersystems.textsecuregcm.backup.BackupManager;
 import org.whispersystems.textsecuregcm.backup.BackupTier;
+import org.whispersystems.textsecuregcm.backup.CopyRejectedException;
 import org.whispersystems.textsecuregcm.backup.InvalidLengthException;
 import org.whispersystems.textsecuregcm.backup.SourceObjectNotFoundException;
 import org.whispersystems.textsecuregcm.mappers.CompletionExceptionMapper;
@@ -313,10 +315,13 @@ public class ArchiveControllerTest {
         .thenReturn(CompletableFuture.completedFuture(
             new AuthenticatedBackupUser(presentation.getBackupId(), BackupTier.MEDIA)));
     when(backupManager.canStoreMedia(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
-    when(backupManager.copyToBackup(any(), anyInt(), any(), anyInt(), any(), any()))
+    when(backupManager.copyToBackup(any(), anyList()))
         .thenAnswer(invocation -> {
-          byte[] mediaId = invocation.getArgument(5, byte[].class);
-          return CompletableFuture.completedFuture(new BackupManager.StorageDescriptor(1, mediaId));
+          final List<BackupManager.CopyParameters> copyParameters = invocation.getArgument(1);
+          return CompletableFuture.completedFuture(copyParameters.stream()
+              .<BackupManager.CopyResult>map(parameters -> new BackupManager.CopySuccess(
+                  new BackupManager.StorageDescriptor(1, parameters.destinationMediaId())))
+              .toList());
         });
 
     final byte[][] mediaIds = new byte[][]{TestRandomUtil.nextBytes(15), TestRandomUtil.nextBytes(15)};
@@ -364,15 +369,15 @@ public class ArchiveControllerTest {
         .thenReturn(CompletableFuture.completedFuture(
             new AuthenticatedBackupUser(presentation.getBackupId(), BackupTier.MEDIA)));
 
-    final byte[][] mediaIds = IntStream.range(0, 3).mapToObj(i -> TestRandomUtil.nextBytes(15)).toArray(byte[][]::new);
+    final byte[][] mediaIds = IntStream.range(0, 4).mapToObj(i -> TestRandomUtil.nextBytes(15)).toArray(byte[][]::new);
     when(backupManager.canStoreMedia(any(), anyLong())).thenReturn(CompletableFuture.completedFuture(true));
 
-    when(backupManager.copyToBackup(any(), anyInt(), any(), anyInt(), any(), eq(mediaIds[0])))
-        .thenReturn(CompletableFuture.completedFuture(new BackupManager.StorageDescriptor(1, mediaIds[0])));
-    when(backupManager.copyToBackup(any(), anyInt(), any(), anyInt(), any(), eq(mediaIds[1])))
-        .thenReturn(CompletableFuture.failedFuture(new SourceObjectNotFoundException()));
-    when(backupManager.copyToBackup(any(), anyInt(), any(), anyInt(), any(), eq(mediaIds[2])))
-        .thenReturn(CompletableFuture.failedFuture(new InvalidLengthException("bad length")));
+    when(backupManager.copyToBackup(any(), anyList()))
+        .thenReturn(CompletableFuture.completedFuture(List.of(
+            new BackupManager.CopySuccess(new BackupManager.StorageDescriptor(1, mediaIds[0])),
+            new BackupManager.CopyFailure(mediaIds[1], new SourceObjectNotFoundException()),
+            new BackupManager.CopyFailure(mediaIds[2], new InvalidLengthException("bad length")),
+            new BackupManager.CopyFailure(mediaIds[3], new CopyRejectedException("too many copies")))));
 
     final List<ArchiveController.CopyMediaRequest> copyRequests = Arrays.stream(mediaIds)
         .map(mediaId -> new ArchiveController.CopyMediaRequest(
@@ -394,7 +399,7 @@ public class ArchiveControllerTest {
     final ArchiveController.CopyMediaBatchResponse copyResponse = r.readEntity(
         ArchiveController.CopyMediaBatchResponse.class);
 
-    assertThat(copyResponse.responses()).hasSize(3);
+    assertThat(copyResponse.responses()).hasSize(4);
 
     final ArchiveController.CopyMediaBatchResponse.Entry r1 = copyResponse.responses().get(0);
     assertThat(r1.cdn()).isEqualTo(1);
@@ -410,6 +415,11 @@ public class ArchiveControllerTest {
     assertThat(r3.mediaId()).isEqualTo(mediaIds[2]);
     assertThat(r3.status()).isEqualTo(400);
     assertThat(r3.failureReason()).isNotBlank();
+
+    final ArchiveController.CopyMediaBatchResponse.Entry r4 = copyResponse.responses().get(3);
+    assertThat(r4.mediaId()).isEqualTo(mediaIds[3]);
+    assertThat(r4.status()).isEqualTo(429);
+    assertThat(r4.failureReason()).isNotBlank();
   }
 
   @Test
@@ -22,6 +22,8 @@ import static org.mockito.Mockito.when;
 
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.Table;
 import io.dropwizard.auth.AuthValueFactoryProvider;
 import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
 import io.dropwizard.testing.junit5.ResourceExtension;
@@ -119,8 +121,11 @@ class KeysControllerTest {
   private final ECSignedPreKey SAMPLE_SIGNED_PNI_KEY = KeysHelper.signedECPreKey(4444, PNI_IDENTITY_KEY_PAIR);
   private final ECSignedPreKey SAMPLE_SIGNED_PNI_KEY2 = KeysHelper.signedECPreKey(5555, PNI_IDENTITY_KEY_PAIR);
   private final ECSignedPreKey SAMPLE_SIGNED_PNI_KEY3 = KeysHelper.signedECPreKey(6666, PNI_IDENTITY_KEY_PAIR);
-  private final ECSignedPreKey VALID_DEVICE_SIGNED_KEY = KeysHelper.signedECPreKey(89898, IDENTITY_KEY_PAIR);
-  private final ECSignedPreKey VALID_DEVICE_PNI_SIGNED_KEY = KeysHelper.signedECPreKey(7777, PNI_IDENTITY_KEY_PAIR);
+
+  // Keys available to the mock `KeysManager`, by identifier and device ID
+  private final Table<UUID, Byte, ECSignedPreKey> ecSignedPreKeys = HashBasedTable.create();
+  private final Table<UUID, Byte, ECPreKey> ecPreKeys = HashBasedTable.create();
+  private final Table<UUID, Byte, KEMSignedPreKey> kemPreKeys = HashBasedTable.create();
 
   private final static KeysManager KEYS = mock(KeysManager.class               );
   private final static AccountsManager             accounts                    = mock(AccountsManager.class            );
@@ -236,46 +241,36 @@ class KeysControllerTest {
     when(KEYS.storePqLastResort(any(), anyByte(), any()))
         .thenReturn(CompletableFutureTestUtil.almostCompletedFuture(null));
 
-    when(KEYS.getEcSignedPreKey(any(), anyByte())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
     when(KEYS.storeEcSignedPreKeys(any(), anyByte(), any())).thenReturn(CompletableFutureTestUtil.almostCompletedFuture(null));
 
-    when(KEYS.getEcSignedPreKey(EXISTS_UUID, sampleDeviceId))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_KEY)));
-
-    when(KEYS.getEcSignedPreKey(EXISTS_UUID, sampleDevice2Id))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_KEY2)));
-
-    when(KEYS.getEcSignedPreKey(EXISTS_UUID, sampleDevice3Id))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_KEY3)));
-
-    when(KEYS.getEcSignedPreKey(EXISTS_PNI, sampleDeviceId))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_PNI_KEY)));
+    ecSignedPreKeys.put(EXISTS_UUID, sampleDeviceId, SAMPLE_SIGNED_KEY);
+    ecSignedPreKeys.put(EXISTS_UUID, sampleDevice2Id, SAMPLE_SIGNED_KEY2);
+    ecSignedPreKeys.put(EXISTS_UUID, sampleDevice3Id, SAMPLE_SIGNED_KEY3);
+    ecSignedPreKeys.put(EXISTS_PNI, sampleDeviceId, SAMPLE_SIGNED_PNI_KEY);
+    ecSignedPreKeys.put(EXISTS_PNI, sampleDevice2Id, SAMPLE_SIGNED_PNI_KEY2);
+    ecSignedPreKeys.put(EXISTS_PNI, sampleDevice3Id, SAMPLE_SIGNED_PNI_KEY3);
 
-    when(KEYS.getEcSignedPreKey(EXISTS_PNI, sampleDevice2Id))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_PNI_KEY2)));
-
-    when(KEYS.getEcSignedPreKey(EXISTS_PNI, sampleDevice3Id))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(SAMPLE_SIGNED_PNI_KEY3)));
-
-    when(KEYS.takeEC(EXISTS_UUID, sampleDeviceId)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY)));
-    when(KEYS.takePQ(EXISTS_UUID, sampleDeviceId)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY)));
-    when(KEYS.takeEC(EXISTS_PNI, sampleDeviceId)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY_PNI)));
-    when(KEYS.takePQ(EXISTS_PNI, sampleDeviceId)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY_PNI)));
+    ecPreKeys.put(EXISTS_UUID, sampleDeviceId, SAMPLE_KEY);
+    kemPreKeys.put(EXISTS_UUID, sampleDeviceId, SAMPLE_PQ_KEY);
+    ecPreKeys.put(EXISTS_PNI, sampleDeviceId, SAMPLE_KEY_PNI);
+    kemPreKeys.put(EXISTS_PNI, sampleDeviceId, SAMPLE_PQ_KEY_PNI);
 
     when(KEYS.getEcCount(AuthHelper.VALID_UUID, sampleDeviceId)).thenReturn(CompletableFuture.completedFuture(5));
     when(KEYS.getPqCount(AuthHelper.VALID_UUID, sampleDeviceId)).thenReturn(CompletableFuture.completedFuture(5));
 
     when(AuthHelper.VALID_ACCOUNT.getIdentityKey(IdentityType.ACI)).thenReturn(null);
 
-    when(KEYS.getEcSignedPreKey(AuthHelper.VALID_UUID, AuthHelper.VALID_DEVICE.getId()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(VALID_DEVICE_SIGNED_KEY)));
+    when(KEYS.takeDevicePreKeys(any(), any())).thenAnswer(invocation -> {
+      final UUID identifier = invocation.getArgument(0);
+      final List<Byte> deviceIds = invocation.getArgument(1);
 
-    when(KEYS.getEcSignedPreKey(AuthHelper.VALID_PNI, AuthHelper.VALID_DEVICE.getId()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(VALID_DEVICE_PNI_SIGNED_KEY)));
+      return CompletableFuture.completedFuture(deviceIds.stream()
+          .map(deviceId -> new KeysManager.DevicePreKeys(deviceId,
+              ecSignedPreKeys.get(identifier, deviceId),
+              ecPreKeys.get(identifier, deviceId),
+              kemPreKeys.get(identifier, deviceId)))
+          .toList());
+    });
   }
 
   @AfterEach
@@ -353,15 +348,13 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
   @Test
   void validSingleRequestPqTestNoPqKeysV2() {
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    kemPreKeys.remove(EXISTS_UUID, SAMPLE_DEVICE_ID);
 
     PreKeyResponse result = resources.getJerseyTest()
         .target(String.format("/v2/keys/%s/1", EXISTS_UUID))
@@ -377,9 +370,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -399,9 +390,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -420,9 +409,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_PNI_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_PNI_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_PNI, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_PNI, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -442,9 +429,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_PNI_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_PNI_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_PNI, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_PNI, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -465,9 +450,7 @@ class KeysControllerTest {
     assertThat(result.getDevice(SAMPLE_DEVICE_ID).getRegistrationId()).isEqualTo(SAMPLE_REGISTRATION_ID);
     assertEquals(SAMPLE_SIGNED_PNI_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_PNI, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_PNI, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_PNI, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -501,9 +484,7 @@ class KeysControllerTest {
     assertEquals(SAMPLE_PQ_KEY, result.getDevice(SAMPLE_DEVICE_ID).getPqPreKey());
     assertEquals(SAMPLE_SIGNED_KEY, result.getDevice(SAMPLE_DEVICE_ID).getSignedPreKey());
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -549,23 +530,15 @@ class KeysControllerTest {
 
   @Test
   void validMultiRequestTestV2() {
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY)));
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID2)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY2)));
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID3)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY3)));
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID4)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY4)));
-
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID2)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY2)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID3)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY3)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID4)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY4)));
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID, SAMPLE_KEY);
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID2, SAMPLE_KEY2);
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID3, SAMPLE_KEY3);
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID4, SAMPLE_KEY4);
+
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID, SAMPLE_PQ_KEY);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID2, SAMPLE_PQ_KEY2);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID3, SAMPLE_PQ_KEY3);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID4, SAMPLE_PQ_KEY4);
 
     PreKeyResponse results = resources.getJerseyTest()
         .target(String.format("/v2/keys/%s/*", EXISTS_UUID))
@@ -606,35 +579,21 @@ class KeysControllerTest {
     assertThat(signedPreKey).isNull();
     assertThat(deviceId).isEqualTo(SAMPLE_DEVICE_ID4);
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID4);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID4);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID4);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID, SAMPLE_DEVICE_ID2, SAMPLE_DEVICE_ID4));
     verifyNoMoreInteractions(KEYS);
   }
 
   @Test
   void validMultiRequestPqTestV2() {
-    when(KEYS.takeEC(any(), anyByte())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
-    when(KEYS.takePQ(any(), anyByte())).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
-
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY)));
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID3)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY3)));
-    when(KEYS.takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID4)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_KEY4)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID2)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY2)));
-    when(KEYS.takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID3)).thenReturn(
-        CompletableFuture.completedFuture(Optional.of(SAMPLE_PQ_KEY3)));
+    ecPreKeys.clear();
+    kemPreKeys.clear();
+
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID, SAMPLE_KEY);
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID3, SAMPLE_KEY3);
+    ecPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID4, SAMPLE_KEY4);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID, SAMPLE_PQ_KEY);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID2, SAMPLE_PQ_KEY2);
+    kemPreKeys.put(EXISTS_UUID, SAMPLE_DEVICE_ID3, SAMPLE_PQ_KEY3);
 
     PreKeyResponse results = resources.getJerseyTest()
         .target(String.format("/v2/keys/%s/*", EXISTS_UUID))
@@ -682,15 +641,7 @@ class KeysControllerTest {
     assertThat(signedPreKey).isNull();
     assertThat(deviceId).isEqualTo(SAMPLE_DEVICE_ID4);
 
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).takeEC(EXISTS_UUID, SAMPLE_DEVICE_ID4);
-    verify(KEYS).takePQ(EXISTS_UUID, SAMPLE_DEVICE_ID4);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID2);
-    verify(KEYS).getEcSignedPreKey(EXISTS_UUID, SAMPLE_DEVICE_ID4);
+    verify(KEYS).takeDevicePreKeys(EXISTS_UUID, List.of(SAMPLE_DEVICE_ID, SAMPLE_DEVICE_ID2, SAMPLE_DEVICE_ID4));
     verifyNoMoreInteractions(KEYS);
   }
 
@@ -33,7 +33,9 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Base64;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HexFormat;
 import java.util.List;
 import java.util.Map;
@@ -41,7 +43,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.core.MediaType;
@@ -84,6 +85,8 @@ import org.whispersystems.textsecuregcm.entities.BadgeSvg;
 import org.whispersystems.textsecuregcm.entities.BaseProfileResponse;
 import org.whispersystems.textsecuregcm.entities.BatchIdentityCheckRequest;
 import org.whispersystems.textsecuregcm.entities.BatchIdentityCheckResponse;
+import org.whispersystems.textsecuregcm.entities.BatchVersionedProfileRequest;
+import org.whispersystems.textsecuregcm.entities.BatchVersionedProfileResponse;
 import org.whispersystems.textsecuregcm.entities.CreateProfileRequest;
 import org.whispersystems.textsecuregcm.entities.ExpiringProfileKeyCredentialProfileResponse;
 import org.whispersystems.textsecuregcm.entities.ProfileAvatarUploadAttributes;
@@ -170,8 +173,7 @@ class ProfileControllerTest {
           postPolicyGenerator,
           policySigner,
           "profilesBucket",
-          zkProfileOperations,
-          Executors.newSingleThreadExecutor()))
+          zkProfileOperations))
       .build();
 
   @BeforeEach
@@ -210,6 +212,15 @@ class ProfileControllerTest {
     when(capabilitiesAccount.isEnabled()).thenReturn(true);
 
     when(accountsManager.getByServiceIdentifier(any())).thenReturn(Optional.empty());
+    when(accountsManager.getByServiceIdentifiersAsync(any())).thenAnswer(invocation -> {
+      final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = new HashMap<>();
+
+      invocation.<Collection<ServiceIdentifier>>getArgument(0).forEach(serviceIdentifier ->
+          accountsManager.getByServiceIdentifier(serviceIdentifier)
+              .ifPresent(account -> accountsByServiceIdentifier.put(serviceIdentifier, account)));
+
+      return CompletableFuture.completedFuture(accountsByServiceIdentifier);
+    });
 
     when(accountsManager.getByE164(AuthHelper.VALID_NUMBER_TWO)).thenReturn(Optional.of(profileAccount));
     when(accountsManager.getByAccountIdentifier(AuthHelper.VALID_UUID_TWO)).thenReturn(Optional.of(profileAccount));
@@ -885,6 +896,56 @@ class ProfileControllerTest {
     verify(rateLimiter, times(1)).validate(AuthHelper.VALID_UUID);
   }
 
+  @Test
+  void testGetProfilesByVersion() throws RateLimitExceededException {
+    final byte[] name = TestRandomUtil.nextBytes(81);
+    final String version = versionHex("validversion");
+    final UUID unknownAccountIdentifier = UUID.randomUUID();
+
+    when(profilesManager.getAsync(Map.of(AuthHelper.VALID_UUID_TWO, version)))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(AuthHelper.VALID_UUID_TWO, new VersionedProfile(
+            version, name, "profiles/validavatar", null, null, null, null, "validcommitment".getBytes()))));
+
+    final BatchVersionedProfileResponse response = resources.getJerseyTest()
+        .target("/v1/profile/batch")
+        .request()
+        .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+        .post(Entity.json(new BatchVersionedProfileRequest(List.of(
+            new BatchVersionedProfileRequest.Element(new AciServiceIdentifier(unknownAccountIdentifier), version),
+            new BatchVersionedProfileRequest.Element(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO), version)))),
+            BatchVersionedProfileResponse.class);
+
+    assertThat(response.profiles()).hasSize(1);
+
+    final VersionedProfileResponse profile = response.profiles().get(0);
+    assertThat(profile.getBaseProfileResponse().getUuid()).isEqualTo(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO));
+    assertThat(profile.getBaseProfileResponse().getIdentityKey()).isEqualTo(ACCOUNT_TWO_IDENTITY_KEY);
+    assertThat(profile.getName()).containsExactly(name);
+    assertThat(profile.getAvatar()).isEqualTo("profiles/validavatar");
+
+    verify(profilesManager).getAsync(Map.of(AuthHelper.VALID_UUID_TWO, version));
+    verify(profilesManager, never()).get(any(), any());
+    verify(rateLimiter).validate(AuthHelper.VALID_UUID, 2);
+  }
+
+  @Test
+  void testGetProfilesByVersionDuplicateAccount() {
+    final String version = versionHex("validversion");
+
+    try (final Response response = resources.getJerseyTest()
+        .target("/v1/profile/batch")
+        .request()
+        .header("Authorization", AuthHelper.getAuthHeader(AuthHelper.VALID_UUID, AuthHelper.VALID_PASSWORD))
+        .post(Entity.json(new BatchVersionedProfileRequest(List.of(
+            new BatchVersionedProfileRequest.Element(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO), version),
+            new BatchVersionedProfileRequest.Element(new AciServiceIdentifier(AuthHelper.VALID_UUID_TWO), version)))))) {
+
+      assertThat(response.getStatus()).isEqualTo(400);
+    }
+
+    verify(profilesManager, never()).getAsync(any());
+  }
+
   @Test
   void testSetProfileUpdatesAccountCurrentVersion() throws InvalidInputException {
     final ProfileKeyCommitment commitment = new ProfileKey(new byte[32]).getCommitment(new ServiceId.Aci(AuthHelper.VALID_UUID_TWO));
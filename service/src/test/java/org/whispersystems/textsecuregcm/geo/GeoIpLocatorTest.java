@@ -0,0 +1,126 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.geo;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.maxmind.db.Reader;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class GeoIpLocatorTest {
+
+  private Reader reader;
+  private AtomicReference<Reader> currentReader;
+
+  private GeoIpLocator geoIpLocator;
+
+  private static final GeoIpLocator.CityRecord CITY_RECORD = new GeoIpLocator.CityRecord(
+      new GeoIpLocator.ContinentRecord("NA"),
+      new GeoIpLocator.IsoCodeRecord("US"),
+      List.of(new GeoIpLocator.IsoCodeRecord("NY"), new GeoIpLocator.IsoCodeRecord("XX")));
+
+  @BeforeEach
+  void setUp() throws IOException {
+    reader = mock(Reader.class);
+    when(reader.get(any(), any())).thenReturn(CITY_RECORD);
+
+    currentReader = new AtomicReference<>(reader);
+    geoIpLocator = new GeoIpLocator(currentReader::get, 16);
+  }
+
+  @Test
+  void locate() throws IOException {
+    assertEquals(Optional.of(new GeoIpLocator.GeoIpLocation("NA", "US", Optional.of("NY"))),
+        geoIpLocator.locate(InetAddress.getByName("192.0.2.1")));
+  }
+
+  @Test
+  void locatePartialRecord() throws IOException {
+    when(reader.get(any(), any())).thenReturn(new GeoIpLocator.CityRecord(null, new GeoIpLocator.IsoCodeRecord("US"), null));
+
+    assertEquals(Optional.of(new GeoIpLocator.GeoIpLocation(null, "US", Optional.empty())),
+        geoIpLocator.locate(InetAddress.getByName("192.0.2.1")));
+  }
+
+  @Test
+  void locateNotFound() throws IOException {
+    when(reader.get(any(), any())).thenReturn(null);
+
+    assertTrue(geoIpLocator.locate(InetAddress.getByName("192.0.2.1")).isEmpty());
+    assertTrue(geoIpLocator.locate(InetAddress.getByName("192.0.2.2")).isEmpty());
+
+    verify(reader, times(1)).get(any(), any());
+  }
+
+  @Test
+  void locateNoDatabase() throws IOException {
+    currentReader.set(null);
+
+    assertTrue(geoIpLocator.locate(InetAddress.getByName("192.0.2.1")).isEmpty());
+  }
+
+  @Test
+  void locateCachedByPrefix() throws IOException {
+    geoIpLocator.locate(InetAddress.getByName("192.0.2.1"));
+    geoIpLocator.locate(InetAddress.getByName("192.0.2.254"));
+    geoIpLocator.locate(InetAddress.getByName("2001:db8:1234:1::1"));
+    geoIpLocator.locate(InetAddress.getByName("2001:db8:1234:ffff::1"));
+
+    verify(reader, times(2)).get(any(), any());
+
+    geoIpLocator.locate(InetAddress.getByName("192.0.3.1"));
+    geoIpLocator.locate(InetAddress.getByName("2001:db8:1235::1"));
+
+    verify(reader, times(4)).get(any(), any());
+  }
+
+  @Test
+  void locateDatabaseReplaced() throws IOException {
+    geoIpLocator.locate(InetAddress.getByName("192.0.2.1"));
+    verify(reader).get(any(), any());
+
+    final Reader replacementReader = mock(Reader.class);
+    when(replacementReader.get(any(), any())).thenReturn(new GeoIpLocator.CityRecord(
+        new GeoIpLocator.ContinentRecord("EU"), new GeoIpLocator.IsoCodeRecord("DE"), List.of()));
+
+    currentReader.set(replacementReader);
+
+    assertEquals(Optional.of(new GeoIpLocator.GeoIpLocation("EU", "DE", Optional.empty())),
+        geoIpLocator.locate(InetAddress.getByName("192.0.2.1")));
+  }
+
+  @Test
+  void getPrefix() throws IOException {
+    assertEquals(GeoIpLocator.getPrefix(InetAddress.getByName("192.0.2.1")),
+        GeoIpLocator.getPrefix(InetAddress.getByName("192.0.2.255")));
+
+    assertNotEquals(GeoIpLocator.getPrefix(InetAddress.getByName("192.0.2.1")),
+        GeoIpLocator.getPrefix(InetAddress.getByName("192.0.3.1")));
+
+    assertEquals(GeoIpLocator.getPrefix(InetAddress.getByName("2001:db8:1234::")),
+        GeoIpLocator.getPrefix(InetAddress.getByName("2001:db8:1234:ffff:ffff:ffff:ffff:ffff")));
+
+    assertNotEquals(GeoIpLocator.getPrefix(InetAddress.getByName("2001:db8:1234::")),
+        GeoIpLocator.getPrefix(InetAddress.getByName("2001:db8:1235::")));
+
+    // An IPv6 address whose first 24 bits match an IPv4 address's should still have a different prefix
+    assertNotEquals(GeoIpLocator.getPrefix(InetAddress.getByName("192.0.2.1")),
+        GeoIpLocator.getPrefix(InetAddress.getByName("0:c0:2::")));
+  }
+}
@@ -19,6 +19,7 @@ import io.grpc.StatusRuntimeException;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -96,14 +97,9 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
     final ECSignedPreKey ecSignedPreKey = KeysHelper.signedECPreKey(2, identityKeyPair);
     final KEMSignedPreKey kemSignedPreKey = KeysHelper.signedKEMPreKey(3, identityKeyPair);
 
-    when(keysManager.takeEC(identifier, Device.PRIMARY_ID))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(ecPreKey)));
-
-    when(keysManager.takePQ(identifier, Device.PRIMARY_ID))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(kemSignedPreKey)));
-
-    when(keysManager.getEcSignedPreKey(identifier, Device.PRIMARY_ID))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(ecSignedPreKey)));
+    when(keysManager.takeDevicePreKeys(identifier, List.of(Device.PRIMARY_ID)))
+        .thenReturn(CompletableFuture.completedFuture(List.of(
+            new KeysManager.DevicePreKeys(Device.PRIMARY_ID, ecSignedPreKey, ecPreKey, kemSignedPreKey))));
 
     final GetPreKeysResponse response = unauthenticatedServiceStub().getPreKeys(GetPreKeysAnonymousRequest.newBuilder()
         .setUnidentifiedAccessKey(ByteString.copyFrom(unidentifiedAccessKey))
@@ -218,9 +214,6 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
   @Test
   void checkIdentityKeys() {
     final ReactorKeysAnonymousGrpc.ReactorKeysAnonymousStub reactiveKeysAnonymousStub = ReactorKeysAnonymousGrpc.newReactorStub(SimpleBaseGrpcTest.GRPC_SERVER_EXTENSION_UNAUTHENTICATED.getChannel());
-    when(accountsManager.getByServiceIdentifierAsync(any()))
-        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
-
     final Account mismatchedAciFingerprintAccount = mock(Account.class);
     final UUID mismatchedAciFingerprintAccountIdentifier = UUID.randomUUID();
     final IdentityKey mismatchedAciFingerprintAccountIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
@@ -234,16 +227,16 @@ class KeysAnonymousGrpcServiceTest extends SimpleBaseGrpcTest<KeysAnonymousGrpcS
     final IdentityKey mismatchedPniFingerpringAccountIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
 
     when(mismatchedAciFingerprintAccount.getIdentityKey(IdentityType.ACI)).thenReturn(mismatchedAciFingerprintAccountIdentityKey);
-    when(accountsManager.getByServiceIdentifierAsync(new AciServiceIdentifier(mismatchedAciFingerprintAccountIdentifier)))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(mismatchedAciFingerprintAccount)));
 
     when(matchingAciFingerprintAccount.getIdentityKey(IdentityType.ACI)).thenReturn(matchingAciFingerprintAccountIdentityKey);
-    when(accountsManager.getByServiceIdentifierAsync(new AciServiceIdentifier(matchingAciFingerprintAccountIdentifier)))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(matchingAciFingerprintAccount)));
 
     when(mismatchedPniFingerprintAccount.getIdentityKey(IdentityType.PNI)).thenReturn(mismatchedPniFingerpringAccountIdentityKey);
-    when(accountsManager.getByServiceIdentifierAsync(new PniServiceIdentifier(mismatchedPniFingerprintAccountIdentifier)))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(mismatchedPniFingerprintAccount)));
+
+    when(accountsManager.getByServiceIdentifiersAsync(any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(
+            new AciServiceIdentifier(mismatchedAciFingerprintAccountIdentifier), mismatchedAciFingerprintAccount,
+            new AciServiceIdentifier(matchingAciFingerprintAccountIdentifier), matchingAciFingerprintAccount,
+            new PniServiceIdentifier(mismatchedPniFingerprintAccountIdentifier), mismatchedPniFingerprintAccount)));
 
     final Flux<CheckIdentityKeyRequest> requests = Flux.just(
         buildCheckIdentityKeyRequest(org.signal.chat.common.IdentityType.IDENTITY_TYPE_ACI, mismatchedAciFingerprintAccountIdentifier,
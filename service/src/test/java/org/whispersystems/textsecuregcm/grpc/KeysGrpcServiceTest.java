@@ -11,6 +11,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyByte;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -497,14 +498,16 @@ class KeysGrpcServiceTest extends SimpleBaseGrpcTest<KeysGrpcService, KeysGrpc.K
 
     when(targetAccount.getDevices()).thenReturn(new ArrayList<>(devices.values()));
 
-    ecOneTimePreKeys.forEach((deviceId, preKey) -> when(keysManager.takeEC(identifier, deviceId))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(preKey))));
+    when(keysManager.takeDevicePreKeys(eq(identifier), any())).thenAnswer(invocation -> {
+      final List<Byte> deviceIds = invocation.getArgument(1);
 
-    ecSignedPreKeys.forEach((deviceId, preKey) -> when(keysManager.getEcSignedPreKey(identifier, deviceId))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(preKey))));
-
-    kemPreKeys.forEach((deviceId, preKey) -> when(keysManager.takePQ(identifier, deviceId))
-        .thenReturn(CompletableFuture.completedFuture(Optional.of(preKey))));
+      return CompletableFuture.completedFuture(deviceIds.stream()
+          .map(deviceId -> new KeysManager.DevicePreKeys(deviceId,
+              ecSignedPreKeys.get(deviceId),
+              ecOneTimePreKeys.get(deviceId),
+              kemPreKeys.get(deviceId)))
+          .toList());
+    });
 
     {
       final GetPreKeysResponse response = authenticatedServiceStub().getPreKeys(GetPreKeysRequest.newBuilder()
@@ -538,8 +541,8 @@ class KeysGrpcServiceTest extends SimpleBaseGrpcTest<KeysGrpcService, KeysGrpc.K
       assertEquals(expectedResponse, response);
     }
 
-    when(keysManager.takeEC(identifier, deviceId2)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
-    when(keysManager.takePQ(identifier, deviceId2)).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+    ecOneTimePreKeys.remove(deviceId2);
+    kemPreKeys.remove(deviceId2);
 
     {
       final GetPreKeysResponse response = authenticatedServiceStub().getPreKeys(GetPreKeysRequest.newBuilder()
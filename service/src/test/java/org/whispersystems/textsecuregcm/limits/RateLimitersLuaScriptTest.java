@@ -124,6 +124,7 @@ public class RateLimitersLuaScriptTest {
     when(configuration.getRateLimitPolicy()).thenReturn(new DynamicRateLimitPolicy(true));
     final RateLimiters.For descriptor = RateLimiters.For.REGISTRATION;
     final FaultTolerantRedisCluster redisCluster = mock(FaultTolerantRedisCluster.class);
+    when(redisCluster.getName()).thenReturn("mock-cluster");
     final RateLimiters limiters = new RateLimiters(
         Map.of(descriptor.id(), new RateLimiterConfig(1000, Duration.ofSeconds(1))),
         dynamicConfig,
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.OptionalLong;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.whispersystems.textsecuregcm.entities.MessageProtos.Envelope;
+
+class MessageDeliveryTraceMetricsTest {
+
+  @Test
+  void shouldTrace() {
+    for (int i = 0; i < 100; i++) {
+      assertFalse(MessageDeliveryTraceMetrics.shouldTrace(0));
+      assertTrue(MessageDeliveryTraceMetrics.shouldTrace(1));
+    }
+  }
+
+  @Test
+  void withInsertedTimestamp() {
+    final Envelope untracedEnvelope = Envelope.newBuilder().setServerTimestamp(1234).build();
+    assertSame(untracedEnvelope, MessageDeliveryTraceMetrics.withInsertedTimestamp(untracedEnvelope));
+
+    final Envelope tracedEnvelope = untracedEnvelope.toBuilder()
+        .setDeliveryTrace(MessageDeliveryTraceMetrics.startTrace(5678))
+        .build();
+
+    final long start = System.currentTimeMillis();
+    final Envelope insertedEnvelope = MessageDeliveryTraceMetrics.withInsertedTimestamp(tracedEnvelope);
+
+    assertEquals(5678, insertedEnvelope.getDeliveryTrace().getAcceptedTimestamp());
+    assertTrue(insertedEnvelope.getDeliveryTrace().getInsertedTimestamp() >= start);
+    assertEquals(tracedEnvelope.getServerTimestamp(), insertedEnvelope.getServerTimestamp());
+  }
+
+  @ParameterizedTest
+  @CsvSource({
+      "1000, 1250, 1400, 250, 150",
+      "1000, 1000, 1400, 0, 400",
+      "1000, 0, 1400, -1, 400",
+      "1000, 900, 1400, -1, 400",
+  })
+  void getStageMillis(final long insertedTimestamp, final long lastNotificationTimestamp, final long now,
+      final long expectedNotifyMillis, final long expectedFetchMillis) {
+
+    assertEquals(expectedNotifyMillis >= 0 ? OptionalLong.of(expectedNotifyMillis) : OptionalLong.empty(),
+        MessageDeliveryTraceMetrics.getNotifyMillis(insertedTimestamp, lastNotificationTimestamp));
+
+    assertEquals(expectedFetchMillis,
+        MessageDeliveryTraceMetrics.getFetchMillis(insertedTimestamp, lastNotificationTimestamp, now));
+  }
+}
@@ -6,6 +6,7 @@
 package org.whispersystems.textsecuregcm.metrics;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -17,6 +18,7 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
@@ -50,6 +52,18 @@ class UserAgentTagUtilTest {
     );
   }
 
+  @Test
+  void getClientVersionTagCached() {
+    final ClientReleaseManager clientReleaseManager = mock(ClientReleaseManager.class);
+    when(clientReleaseManager.isVersionActive(any(), any())).thenReturn(true);
+
+    // Version tags are built when a User-Agent is parsed, so the same instance means the User-Agent was parsed once
+    final String userAgent = "Signal-Android/7.8.9 (Android 14)";
+
+    assertSame(UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager).orElseThrow(),
+        UserAgentTagUtil.getClientVersionTag(userAgent, clientReleaseManager).orElseThrow());
+  }
+
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   @ParameterizedTest
   @MethodSource
@@ -10,24 +10,44 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import com.eatthepath.pushy.apns.ApnsClient;
+import com.eatthepath.pushy.apns.ApnsClientBuilder;
 import com.eatthepath.pushy.apns.ApnsPushNotification;
 import com.eatthepath.pushy.apns.DeliveryPriority;
 import com.eatthepath.pushy.apns.PushNotificationResponse;
 import com.eatthepath.pushy.apns.PushType;
+import com.eatthepath.pushy.apns.auth.ApnsSigningKey;
+import com.eatthepath.pushy.apns.server.MockApnsServer;
+import com.eatthepath.pushy.apns.server.MockApnsServerBuilder;
+import com.eatthepath.pushy.apns.server.RejectedNotificationException;
+import com.eatthepath.pushy.apns.server.RejectionReason;
 import com.eatthepath.pushy.apns.util.SimpleApnsPushNotification;
 import com.eatthepath.pushy.apns.util.concurrent.PushNotificationFuture;
 import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.stubbing.Answer;
@@ -213,6 +233,178 @@ class APNSenderTest {
     verifyNoMoreInteractions(apnsClient);
   }
 
+  @ParameterizedTest
+  @CsvSource({
+      "APN_VOIP, true, VOIP",
+      "APN_VOIP, false, VOIP",
+      "APN, true, ALERT",
+      "APN, false, BACKGROUND",
+  })
+  void testLanes(final PushNotification.TokenType tokenType, final boolean urgent, final APNSender.Lane expectedLane) {
+    final PushNotificationResponse<SimpleApnsPushNotification> response = mock(PushNotificationResponse.class);
+    when(response.isAccepted()).thenReturn(true);
+
+    final Map<APNSender.Lane, ApnsClient> apnsClients = new EnumMap<>(APNSender.Lane.class);
+
+    for (final APNSender.Lane lane : APNSender.Lane.values()) {
+      final ApnsClient laneClient = mock(ApnsClient.class);
+      when(laneClient.sendNotification(any(SimpleApnsPushNotification.class)))
+          .thenAnswer(
+              (Answer) invocationOnMock -> new MockPushNotificationFuture<>(invocationOnMock.getArgument(0), response));
+
+      apnsClients.put(lane, laneClient);
+    }
+
+    final APNSender laneSender = new APNSender(new SynchronousExecutorService(), apnsClients, BUNDLE_ID, 16, 16,
+        Duration.ofSeconds(1));
+
+    assertThat(laneSender.sendNotification(new PushNotification(DESTINATION_DEVICE_TOKEN, tokenType,
+        PushNotification.NotificationType.NOTIFICATION, null, destinationAccount, destinationDevice, urgent)).join().accepted())
+        .isTrue();
+
+    apnsClients.forEach((lane, laneClient) -> {
+      if (lane == expectedLane) {
+        verify(laneClient).sendNotification(any());
+      } else {
+        verifyNoInteractions(laneClient);
+      }
+    });
+  }
+
+  @Test
+  void testStopFailsWaitingNotifications() {
+    // Notifications are never acknowledged, so only the first may be in flight and the next must wait for a permit
+    when(apnsClient.sendNotification(any(SimpleApnsPushNotification.class)))
+        .thenAnswer(invocation -> new PushNotificationFuture<>(invocation.getArgument(0)));
+    when(apnsClient.close()).thenReturn(CompletableFuture.completedFuture(null));
+
+    final APNSender limitedSender = new APNSender(new SynchronousExecutorService(),
+        Map.of(APNSender.Lane.VOIP, apnsClient, APNSender.Lane.ALERT, apnsClient, APNSender.Lane.BACKGROUND, apnsClient),
+        BUNDLE_ID, 1, 1, Duration.ofSeconds(1));
+
+    final PushNotification pushNotification = new PushNotification(DESTINATION_DEVICE_TOKEN,
+        PushNotification.TokenType.APN, PushNotification.NotificationType.NOTIFICATION, null, destinationAccount,
+        destinationDevice, true);
+
+    final CompletableFuture<SendPushNotificationResult> inFlight = limitedSender.sendNotification(pushNotification);
+    final CompletableFuture<SendPushNotificationResult> waiting = limitedSender.sendNotification(pushNotification);
+
+    // The waiting queue is full
+    assertThatThrownBy(() -> limitedSender.sendNotification(pushNotification).join())
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(RejectedExecutionException.class);
+
+    limitedSender.stop();
+
+    assertThat(inFlight).isNotDone();
+
+    assertThatThrownBy(waiting::join)
+        .isInstanceOf(CompletionException.class)
+        .hasCauseInstanceOf(RejectedExecutionException.class);
+
+    verify(apnsClient).sendNotification(any());
+  }
+
+  @Nested
+  class WithMockApnsServer {
+
+    private MockApnsServer mockApnsServer;
+    private Map<APNSender.Lane, ApnsClient> mockServerClients;
+
+    private final AtomicInteger notificationsReceived = new AtomicInteger();
+
+    private static final String UNREGISTERED_DEVICE_TOKEN = RandomStringUtils.randomAlphanumeric(32);
+    private static final String OVERLOADED_DEVICE_TOKEN = RandomStringUtils.randomAlphanumeric(32);
+
+    @BeforeEach
+    void setUp() throws Exception {
+      mockApnsServer = new MockApnsServerBuilder()
+          .setServerCredentials(getClass().getResourceAsStream("mock-apns-server-cert.pem"),
+              getClass().getResourceAsStream("mock-apns-server-key.pem"), null)
+          .setHandlerFactory(sslSession -> (headers, payload) -> {
+            notificationsReceived.incrementAndGet();
+
+            final String path = headers.path().toString();
+
+            if (path.endsWith(UNREGISTERED_DEVICE_TOKEN)) {
+              throw new RejectedNotificationException(RejectionReason.BAD_DEVICE_TOKEN);
+            } else if (path.endsWith(OVERLOADED_DEVICE_TOKEN)) {
+              throw new RejectedNotificationException(RejectionReason.TOO_MANY_REQUESTS);
+            }
+          })
+          .build();
+
+      final int port;
+
+      try (final ServerSocket serverSocket = new ServerSocket(0)) {
+        port = serverSocket.getLocalPort();
+      }
+
+      mockApnsServer.start(port).get();
+
+      final ApnsSigningKey signingKey = ApnsSigningKey.loadFromInputStream(
+          getClass().getResourceAsStream("mock-apns-signing-key.p8"), "TEAM000000", "KEY0000000");
+
+      mockServerClients = new EnumMap<>(APNSender.Lane.class);
+
+      for (final APNSender.Lane lane : APNSender.Lane.values()) {
+        mockServerClients.put(lane, new ApnsClientBuilder()
+            .setApnsServer("localhost", port)
+            .setSigningKey(signingKey)
+            .setTrustedServerCertificateChain(getClass().getResourceAsStream("mock-apns-server-cert.pem"))
+            .setConcurrentConnections(2)
+            .build());
+      }
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+      for (final ApnsClient client : mockServerClients.values()) {
+        client.close().get();
+      }
+
+      mockApnsServer.shutdown().get();
+    }
+
+    @Test
+    void testSendNotifications() {
+      // A low in-flight limit forces most notifications to wait for a permit
+      final APNSender mockServerSender =
+          new APNSender(Executors.newSingleThreadExecutor(), mockServerClients, BUNDLE_ID, 2, 100,
+              Duration.ofSeconds(10));
+
+      final List<CompletableFuture<SendPushNotificationResult>> results = new ArrayList<>();
+
+      for (int i = 0; i < 100; i++) {
+        results.add(mockServerSender.sendNotification(new PushNotification(DESTINATION_DEVICE_TOKEN,
+            i % 2 == 0 ? PushNotification.TokenType.APN : PushNotification.TokenType.APN_VOIP,
+            PushNotification.NotificationType.NOTIFICATION, null, destinationAccount, destinationDevice, i % 3 == 0)));
+      }
+
+      results.forEach(result -> assertThat(result.join().accepted()).isTrue());
+      assertThat(notificationsReceived.get()).isEqualTo(100);
+    }
+
+    @Test
+    void testRejectedNotifications() {
+      final APNSender mockServerSender =
+          new APNSender(new SynchronousExecutorService(), mockServerClients, BUNDLE_ID, 16, 16,
+              Duration.ofSeconds(10));
+
+      final SendPushNotificationResult unregisteredResult = mockServerSender.sendNotification(
+          new PushNotification(UNREGISTERED_DEVICE_TOKEN, PushNotification.TokenType.APN,
+              PushNotification.NotificationType.NOTIFICATION, null, destinationAccount, destinationDevice, true)).join();
+
+      assertThat(unregisteredResult).isEqualTo(new SendPushNotificationResult(false, "BadDeviceToken", true));
+
+      final SendPushNotificationResult overloadedResult = mockServerSender.sendNotification(
+          new PushNotification(OVERLOADED_DEVICE_TOKEN, PushNotification.TokenType.APN,
+              PushNotification.NotificationType.NOTIFICATION, null, destinationAccount, destinationDevice, true)).join();
+
+      assertThat(overloadedResult).isEqualTo(new SendPushNotificationResult(false, "TooManyRequests", false));
+    }
+  }
+
   private static class MockPushNotificationFuture<P extends ApnsPushNotification, V> extends
       PushNotificationFuture<P, V> {
 
@@ -0,0 +1,174 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import org.junit.jupiter.api.Test;
+
+class AdaptiveConcurrencyLimiterTest {
+
+  private static final Duration TARGET_LATENCY = Duration.ofMillis(100);
+  private static final Duration FAST = Duration.ofMillis(10);
+  private static final Duration SLOW = Duration.ofMillis(1_000);
+
+  @Test
+  void acquireUpToLimit() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 2, 100, TARGET_LATENCY);
+
+    assertTrue(limiter.acquire().isDone());
+    assertTrue(limiter.acquire().isDone());
+
+    final CompletableFuture<Void> third = limiter.acquire();
+    final CompletableFuture<Void> fourth = limiter.acquire();
+
+    assertFalse(third.isDone());
+    assertFalse(fourth.isDone());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(2, limiter.getWaiting());
+
+    limiter.release(FAST, false);
+
+    // Waiting operations are granted permits in order
+    assertTrue(third.isDone());
+    assertFalse(fourth.isDone());
+    assertEquals(2, limiter.getInFlight());
+    assertEquals(1, limiter.getWaiting());
+  }
+
+  @Test
+  void backOffWhenSlowOrOverloaded() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 100, 100, TARGET_LATENCY);
+    assertEquals(100, limiter.getLimit());
+
+    limiter.acquire();
+    limiter.release(SLOW, false);
+    assertEquals(90, limiter.getLimit());
+
+    limiter.acquire();
+    limiter.release(FAST, true);
+    assertEquals(81, limiter.getLimit());
+
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire();
+      limiter.release(FAST, true);
+    }
+
+    assertEquals(4, limiter.getLimit());
+  }
+
+  @Test
+  void recoverWhenHealthy() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(4, 8, 100, TARGET_LATENCY);
+
+    for (int i = 0; i < 20; i++) {
+      limiter.acquire();
+      limiter.release(FAST, true);
+    }
+
+    assertEquals(4, limiter.getLimit());
+
+    // Each successful operation grows the limit by the reciprocal of the current limit
+    for (int i = 0; i < 5; i++) {
+      limiter.acquire();
+      limiter.release(FAST, false);
+    }
+
+    assertEquals(5, limiter.getLimit());
+
+    for (int i = 0; i < 100; i++) {
+      limiter.acquire();
+      limiter.release(FAST, false);
+    }
+
+    assertEquals(8, limiter.getLimit());
+  }
+
+  @Test
+  void releaseAfterBackOffDoesNotGrantPermitsBeyondLimit() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 4, 100, TARGET_LATENCY);
+
+    final List<CompletableFuture<Void>> permits = new ArrayList<>();
+
+    for (int i = 0; i < 8; i++) {
+      permits.add(limiter.acquire());
+    }
+
+    assertEquals(4, permits.stream().filter(CompletableFuture::isDone).count());
+
+    // The limit shrinks to 3, and 3 operations are still in flight, so no waiting operation may start
+    limiter.release(SLOW, false);
+
+    assertEquals(3, limiter.getLimit());
+    assertEquals(3, limiter.getInFlight());
+    assertEquals(4, permits.stream().filter(CompletableFuture::isDone).count());
+  }
+
+  @Test
+  void rejectWhenTooManyWaiting() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, TARGET_LATENCY);
+
+    assertTrue(limiter.acquire().isDone());
+
+    final CompletableFuture<Void> waiting = limiter.acquire();
+    assertFalse(waiting.isDone());
+
+    final CompletableFuture<Void> rejected = limiter.acquire();
+    assertTrue(rejected.isCompletedExceptionally());
+    assertInstanceOf(RejectedExecutionException.class, assertThrows(ExecutionException.class, rejected::get).getCause());
+
+    // A cancelled waiter gives up its place in the queue and is skipped when a permit is released
+    waiting.cancel(false);
+
+    final CompletableFuture<Void> next = limiter.acquire();
+    assertFalse(next.isDone());
+    assertEquals(1, limiter.getWaiting());
+
+    limiter.release(FAST, false);
+
+    assertTrue(next.isDone());
+    assertFalse(next.isCompletedExceptionally());
+    assertEquals(1, limiter.getInFlight());
+    assertEquals(0, limiter.getWaiting());
+  }
+
+  @Test
+  void close() {
+    final AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 100, TARGET_LATENCY);
+
+    assertTrue(limiter.acquire().isDone());
+
+    final CompletableFuture<Void> waiting = limiter.acquire();
+    assertFalse(waiting.isDone());
+
+    limiter.close();
+
+    assertInstanceOf(RejectedExecutionException.class, assertThrows(ExecutionException.class, waiting::get).getCause());
+    assertInstanceOf(RejectedExecutionException.class,
+        assertThrows(ExecutionException.class, () -> limiter.acquire().get()).getCause());
+
+    // Operations that were already in flight may still release their permits
+    limiter.release(FAST, false);
+    assertEquals(0, limiter.getInFlight());
+  }
+
+  @Test
+  void invalidLimits() {
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(0, 4, 100, TARGET_LATENCY));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(4, 2, 100, TARGET_LATENCY));
+    assertThrows(IllegalArgumentException.class, () -> new AdaptiveConcurrencyLimiter(1, 2, -1, TARGET_LATENCY));
+  }
+}
@@ -12,16 +12,21 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import io.lettuce.core.cluster.SlotHash;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import org.apache.commons.lang3.RandomStringUtils;
 import org.junit.jupiter.api.BeforeEach;
@@ -46,6 +51,7 @@ class ApnPushNotificationSchedulerTest {
   private Account account;
   private Device device;
 
+  private AccountsManager accountsManager;
   private APNSender apnSender;
   private TestClock clock;
 
@@ -71,11 +77,14 @@ class ApnPushNotificationSchedulerTest {
     when(account.getNumber()).thenReturn(ACCOUNT_NUMBER);
     when(account.getDevice(DEVICE_ID)).thenReturn(Optional.of(device));
 
-    final AccountsManager accountsManager = mock(AccountsManager.class);
+    accountsManager = mock(AccountsManager.class);
     when(accountsManager.getByE164(ACCOUNT_NUMBER)).thenReturn(Optional.of(account));
-    when(accountsManager.getByAccountIdentifier(ACCOUNT_UUID)).thenReturn(Optional.of(account));
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(account)));
 
     apnSender = mock(APNSender.class);
+    when(apnSender.sendNotification(any()))
+        .thenReturn(CompletableFuture.completedFuture(new SendPushNotificationResult(true, null, false)));
     clock = TestClock.now();
 
     apnPushNotificationScheduler = new ApnPushNotificationScheduler(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
@@ -88,13 +97,13 @@ class ApnPushNotificationSchedulerTest {
     final long currentTimeMillis = System.currentTimeMillis();
 
     assertTrue(
-        apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 1).isEmpty());
+        apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 1).join().isEmpty());
 
     clock.pin(Instant.ofEpochMilli(currentTimeMillis - 30_000));
     apnPushNotificationScheduler.scheduleRecurringVoipNotification(account, device).toCompletableFuture().get();
 
     clock.pin(Instant.ofEpochMilli(currentTimeMillis));
-    final List<String> pendingDestinations = apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 2);
+    final List<String> pendingDestinations = apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 2).join();
     assertEquals(1, pendingDestinations.size());
 
     final Optional<Pair<String, Byte>> maybeUuidAndDeviceId = ApnPushNotificationScheduler.getSeparated(
@@ -105,7 +114,7 @@ class ApnPushNotificationSchedulerTest {
     assertEquals(DEVICE_ID, maybeUuidAndDeviceId.get().second());
 
     assertTrue(
-        apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 1).isEmpty());
+        apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(SlotHash.getSlot(endpoint), 1).join().isEmpty());
   }
 
   @Test
@@ -120,7 +129,7 @@ class ApnPushNotificationSchedulerTest {
 
     final int slot = SlotHash.getSlot(ApnPushNotificationScheduler.getEndpointKey(account, device));
 
-    assertEquals(1, worker.processRecurringVoipNotifications(slot));
+    assertEquals(1, worker.processRecurringVoipNotifications(slot).block());
 
     final ArgumentCaptor<PushNotification> notificationCaptor = ArgumentCaptor.forClass(PushNotification.class);
     verify(apnSender).sendNotification(notificationCaptor.capture());
@@ -131,7 +140,7 @@ class ApnPushNotificationSchedulerTest {
     assertEquals(account, pushNotification.destination());
     assertEquals(device, pushNotification.destinationDevice());
 
-    assertEquals(0, worker.processRecurringVoipNotifications(slot));
+    assertEquals(0, worker.processRecurringVoipNotifications(slot).block());
   }
 
   @Test
@@ -159,7 +168,7 @@ class ApnPushNotificationSchedulerTest {
 
     // Insert a timestamp for a recently-sent background push notification
     clock.pin(Instant.ofEpochMilli(recentNotificationTimestamp.toEpochMilli()));
-    apnPushNotificationScheduler.sendBackgroundNotification(account, device);
+    apnPushNotificationScheduler.sendBackgroundNotification(account, device).join();
 
     clock.pin(now);
     apnPushNotificationScheduler.scheduleBackgroundNotification(account, device).toCompletableFuture().get();
@@ -184,10 +193,10 @@ class ApnPushNotificationSchedulerTest {
         SlotHash.getSlot(ApnPushNotificationScheduler.getPendingBackgroundNotificationQueueKey(account, device));
 
     clock.pin(Instant.ofEpochMilli(now.minusMillis(1).toEpochMilli()));
-    assertEquals(0, worker.processScheduledBackgroundNotifications(slot));
+    assertEquals(0, worker.processScheduledBackgroundNotifications(slot).block());
 
     clock.pin(now);
-    assertEquals(1, worker.processScheduledBackgroundNotifications(slot));
+    assertEquals(1, worker.processScheduledBackgroundNotifications(slot).block());
 
     final ArgumentCaptor<PushNotification> notificationCaptor = ArgumentCaptor.forClass(PushNotification.class);
     verify(apnSender).sendNotification(notificationCaptor.capture());
@@ -201,7 +210,7 @@ class ApnPushNotificationSchedulerTest {
     assertEquals(PushNotification.NotificationType.NOTIFICATION, pushNotification.notificationType());
     assertFalse(pushNotification.urgent());
 
-    assertEquals(0, worker.processRecurringVoipNotifications(slot));
+    assertEquals(0, worker.processRecurringVoipNotifications(slot).block());
   }
 
   @Test
@@ -217,9 +226,78 @@ class ApnPushNotificationSchedulerTest {
     final int slot =
         SlotHash.getSlot(ApnPushNotificationScheduler.getPendingBackgroundNotificationQueueKey(account, device));
 
-    assertEquals(0, worker.processScheduledBackgroundNotifications(slot));
+    assertEquals(0, worker.processScheduledBackgroundNotifications(slot).block());
+
+    verify(apnSender, never()).sendNotification(any());
+  }
+
+  @Test
+  void testProcessRecurringVoipNotificationsAccountRemoved() throws ExecutionException, InterruptedException {
+    final ApnPushNotificationScheduler.NotificationWorker worker = apnPushNotificationScheduler.new NotificationWorker();
+    final long currentTimeMillis = System.currentTimeMillis();
+
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis - 30_000));
+    apnPushNotificationScheduler.scheduleRecurringVoipNotification(account, device).toCompletableFuture().get();
+
+    when(accountsManager.getByAccountIdentifierAsync(ACCOUNT_UUID))
+        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis));
+
+    final int slot = SlotHash.getSlot(ApnPushNotificationScheduler.getEndpointKey(account, device));
 
+    assertEquals(1, worker.processRecurringVoipNotifications(slot).block());
     verify(apnSender, never()).sendNotification(any());
+
+    // The entry should have been removed rather than rescheduled
+    clock.pin(Instant.ofEpochMilli(currentTimeMillis + Duration.ofHours(2).toMillis()));
+    assertTrue(apnPushNotificationScheduler.getPendingDestinationsForRecurringVoipNotifications(slot, 1).join().isEmpty());
+  }
+
+  @Test
+  void testProcessScheduledBackgroundNotificationsConcurrently() {
+    final ApnPushNotificationScheduler.NotificationWorker worker = apnPushNotificationScheduler.new NotificationWorker();
+
+    final Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    clock.pin(now);
+
+    final int slot =
+        SlotHash.getSlot(ApnPushNotificationScheduler.getPendingBackgroundNotificationQueueKey(account, device));
+
+    // Find other accounts whose background notifications land in the same slot
+    final List<Account> accounts = new ArrayList<>(List.of(account));
+
+    while (accounts.size() < 3) {
+      final UUID uuid = UUID.randomUUID();
+
+      if (SlotHash.getSlot(uuid + ":" + DEVICE_ID) == slot) {
+        final Account sameSlotAccount = mock(Account.class);
+        when(sameSlotAccount.getUuid()).thenReturn(uuid);
+        when(sameSlotAccount.getDevice(DEVICE_ID)).thenReturn(Optional.of(device));
+        when(accountsManager.getByAccountIdentifierAsync(uuid))
+            .thenReturn(CompletableFuture.completedFuture(Optional.of(sameSlotAccount)));
+
+        accounts.add(sameSlotAccount);
+      }
+    }
+
+    accounts.forEach(a -> apnPushNotificationScheduler.scheduleBackgroundNotification(a, device).toCompletableFuture().join());
+
+    final CompletableFuture<SendPushNotificationResult> apnsResponse = new CompletableFuture<>();
+    when(apnSender.sendNotification(any())).thenReturn(apnsResponse);
+
+    final CompletableFuture<Long> processed = worker.processScheduledBackgroundNotifications(slot).toFuture();
+
+    // All notifications should be in flight at once rather than waiting for each other's responses
+    verify(apnSender, timeout(1_000).times(3)).sendNotification(any());
+    assertFalse(processed.isDone());
+
+    apnsResponse.complete(new SendPushNotificationResult(true, null, false));
+    assertEquals(3, processed.join());
+
+    for (final Account a : accounts) {
+      assertEquals(Optional.empty(), apnPushNotificationScheduler.getNextScheduledBackgroundNotificationTimestamp(a, device));
+    }
   }
 
   @ParameterizedTest
@@ -231,6 +309,7 @@ class ApnPushNotificationSchedulerTest {
       throws Exception {
 
     final FaultTolerantRedisCluster redisCluster = mock(FaultTolerantRedisCluster.class);
+    when(redisCluster.getName()).thenReturn("mock-cluster");
     when(redisCluster.withCluster(any())).thenReturn(0L);
 
     final AccountsManager accountsManager = mock(AccountsManager.class);
@@ -244,7 +323,9 @@ class ApnPushNotificationSchedulerTest {
     if (expectActivity) {
       verify(redisCluster, atLeastOnce()).withCluster(any());
     } else {
-      verifyNoInteractions(redisCluster);
+      // Scripts read the cluster's name to tag their metrics, but nothing else should touch the cluster
+      verify(redisCluster, atLeastOnce()).getName();
+      verifyNoMoreInteractions(redisCluster);
       verifyNoInteractions(accountsManager);
       verifyNoInteractions(apnSender);
     }
@@ -16,14 +16,25 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.api.core.SettableApiFuture;
+import com.google.auth.oauth2.AccessToken;
+import com.google.auth.oauth2.GoogleCredentials;
+import com.google.firebase.FirebaseApp;
+import com.google.firebase.FirebaseOptions;
 import com.google.firebase.messaging.FirebaseMessaging;
 import com.google.firebase.messaging.FirebaseMessagingException;
 import com.google.firebase.messaging.Message;
 import com.google.firebase.messaging.MessagingErrorCode;
 import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.apache.http.HttpStatus;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -124,4 +135,35 @@ class FcmSenderTest {
     verify(firebaseMessaging).sendAsync(any(Message.class));
     assertTrue(completionException.getCause() instanceof IOException);
   }
+
+  @Test
+  void testSendMessagesStubEndpoint() {
+    final StubFcmHttpTransport stubFcm = new StubFcmHttpTransport();
+    stubFcm.rejectToken("unregistered", HttpStatus.SC_NOT_FOUND, "UNREGISTERED");
+    stubFcm.rejectToken("quota-exceeded", 429, "QUOTA_EXCEEDED");
+
+    final FirebaseApp firebaseApp = FirebaseApp.initializeApp(FirebaseOptions.builder()
+        .setCredentials(GoogleCredentials.create(new AccessToken("test", Date.from(Instant.now().plus(Duration.ofDays(1))))))
+        .setProjectId("test")
+        .setHttpTransport(stubFcm)
+        .build(), "fcm-sender-test");
+
+    try {
+      final FcmSender stubSender = new FcmSender(executorService, FirebaseMessaging.getInstance(firebaseApp));
+
+      final List<CompletableFuture<SendPushNotificationResult>> futures =
+          Stream.of("accepted", "unregistered", "quota-exceeded")
+              .map(token -> new PushNotification(token, PushNotification.TokenType.FCM,
+                  PushNotification.NotificationType.NOTIFICATION, null, null, null, true))
+              .map(stubSender::sendNotification)
+              .toList();
+
+      assertEquals(new SendPushNotificationResult(true, null, false), futures.get(0).join());
+      assertEquals(new SendPushNotificationResult(false, "UNREGISTERED", true), futures.get(1).join());
+      assertEquals(new SendPushNotificationResult(false, "QUOTA_EXCEEDED", false), futures.get(2).join());
+      assertEquals(3, stubFcm.getMessageCount());
+    } finally {
+      firebaseApp.delete();
+    }
+  }
 }
@@ -5,46 +5,73 @@
 
 package org.whispersystems.textsecuregcm.push;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
-import java.time.Clock;
+import java.time.Duration;
 import java.time.Instant;
-import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
 import java.util.stream.Stream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicPushLatencyConfiguration;
 import org.whispersystems.textsecuregcm.push.PushLatencyManager.PushRecord;
 import org.whispersystems.textsecuregcm.push.PushLatencyManager.PushType;
 import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
 import org.whispersystems.textsecuregcm.storage.ClientReleaseManager;
+import org.whispersystems.textsecuregcm.storage.DynamicConfigurationManager;
+import org.whispersystems.textsecuregcm.util.TestClock;
 
 class PushLatencyManagerTest {
 
   @RegisterExtension
   static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
 
+  private DynamicConfiguration dynamicConfiguration;
+  private TestClock clock;
+
+  private PushLatencyManager pushLatencyManager;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    dynamicConfiguration = mock(DynamicConfiguration.class);
+    when(dynamicConfiguration.getPushLatencyConfiguration()).thenReturn(new DynamicPushLatencyConfiguration(1));
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    clock = TestClock.pinned(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+
+    pushLatencyManager = new PushLatencyManager(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        mock(ClientReleaseManager.class), dynamicConfigurationManager, clock);
+  }
+
   @ParameterizedTest
   @MethodSource
   void testTakeRecord(final boolean isVoip, final boolean isUrgent) throws ExecutionException, InterruptedException {
     final UUID accountUuid = UUID.randomUUID();
     final byte deviceId = 1;
 
-    final Instant pushTimestamp = Instant.now();
-
-    final PushLatencyManager pushLatencyManager = new PushLatencyManager(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
-        mock(ClientReleaseManager.class), Clock.fixed(pushTimestamp, ZoneId.systemDefault()));
+    final Instant pushTimestamp = clock.instant();
 
     assertNull(pushLatencyManager.takePushRecord(accountUuid, deviceId).get());
 
-    pushLatencyManager.recordPushSent(accountUuid, deviceId, isVoip, isUrgent);
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, isVoip, isUrgent).join();
 
     final PushRecord pushRecord = pushLatencyManager.takePushRecord(accountUuid, deviceId).get();
 
@@ -64,4 +91,104 @@ class PushLatencyManagerTest {
         Arguments.of(false, false)
     );
   }
+
+  @Test
+  void testFirstPushRetained() throws ExecutionException, InterruptedException {
+    final UUID accountUuid = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final Instant firstPushTimestamp = clock.instant();
+
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, false, true).join();
+
+    // A later push on the following day lands in a different bucket, but shouldn't replace the earlier record
+    clock.pin(firstPushTimestamp.plus(Duration.ofHours(23)));
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, true, false).join();
+
+    final PushRecord pushRecord = pushLatencyManager.takePushRecord(accountUuid, deviceId).get();
+
+    assertNotNull(pushRecord);
+    assertEquals(firstPushTimestamp, pushRecord.timestamp());
+    assertEquals(PushType.STANDARD, pushRecord.pushType());
+
+    assertNull(pushLatencyManager.takePushRecord(accountUuid, deviceId).get());
+  }
+
+  @Test
+  void testExpiredRecord() throws ExecutionException, InterruptedException {
+    final UUID accountUuid = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, false, true).join();
+
+    clock.pin(clock.instant().plus(Duration.ofDays(1)).plusMillis(1));
+
+    assertNull(pushLatencyManager.takePushRecord(accountUuid, deviceId).get());
+  }
+
+  @Test
+  void testExpiredRecordReplaced() throws ExecutionException, InterruptedException {
+    final UUID accountUuid = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, false, true).join();
+
+    // The first record is still in the previous day's bucket, but has expired and shouldn't block a new record
+    final Instant secondPushTimestamp = clock.instant().plus(Duration.ofDays(1)).plusMillis(1);
+    clock.pin(secondPushTimestamp);
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, true, false).join();
+
+    final PushRecord pushRecord = pushLatencyManager.takePushRecord(accountUuid, deviceId).get();
+
+    assertNotNull(pushRecord);
+    assertEquals(secondPushTimestamp, pushRecord.timestamp());
+    assertEquals(PushType.VOIP, pushRecord.pushType());
+
+    assertNull(pushLatencyManager.takePushRecord(accountUuid, deviceId).get());
+  }
+
+  @Test
+  void testNotSampled() throws ExecutionException, InterruptedException {
+    when(dynamicConfiguration.getPushLatencyConfiguration()).thenReturn(new DynamicPushLatencyConfiguration(0));
+
+    final UUID accountUuid = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    pushLatencyManager.recordPushSent(accountUuid, deviceId, false, true).join();
+
+    assertNull(pushLatencyManager.takePushRecord(accountUuid, deviceId).get());
+  }
+
+  @Test
+  void testDevicesShareBuckets() throws ExecutionException, InterruptedException {
+    final UUID accountUuid = UUID.randomUUID();
+    final byte firstDeviceId = 1;
+    final byte secondDeviceId = 2;
+
+    pushLatencyManager.recordPushSent(accountUuid, firstDeviceId, false, true).join();
+    pushLatencyManager.recordPushSent(accountUuid, secondDeviceId, true, true).join();
+
+    assertEquals(PushType.STANDARD, pushLatencyManager.takePushRecord(accountUuid, firstDeviceId).get().pushType());
+    assertEquals(PushType.VOIP, pushLatencyManager.takePushRecord(accountUuid, secondDeviceId).get().pushType());
+  }
+
+  @Test
+  void testGetBucketKeys() {
+    final UUID accountUuid = new UUID(0, PushLatencyManager.SHARD_COUNT + 7);
+    final Instant timestamp = Instant.parse("2024-01-02T12:00:00Z");
+
+    final List<byte[]> bucketKeys = PushLatencyManager.getBucketKeys(accountUuid, timestamp);
+
+    assertArrayEquals("push_latency::v3::{7}::19724".getBytes(), bucketKeys.get(0));
+    assertArrayEquals("push_latency::v3::{7}::19723".getBytes(), bucketKeys.get(1));
+  }
+
+  @Test
+  void testEncodeDecodePushRecord() {
+    final PushRecord pushRecord = new PushRecord(Instant.ofEpochMilli(1_700_000_000_123L), PushType.VOIP, Optional.of(true));
+    final byte[] encoded = PushLatencyManager.encodePushRecord(pushRecord);
+
+    assertEquals(9, encoded.length);
+    assertEquals(pushRecord, PushLatencyManager.decodePushRecord(encoded));
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.push;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.http.HttpStatus;
+import org.whispersystems.textsecuregcm.util.SystemMapper;
+
+/**
+ * A minimal, offline stand-in for the FCM v1 HTTP API. Every message is accepted unless its token has been registered
+ * with an error code via {@link #rejectToken(String, int, String)}, in which case FCM's error response for that code is
+ * returned instead.
+ */
+class StubFcmHttpTransport extends MockHttpTransport {
+
+  private record Rejection(int statusCode, String errorCode) {
+  }
+
+  private final Map<String, Rejection> rejectedTokens = new ConcurrentHashMap<>();
+  private final AtomicInteger messageCount = new AtomicInteger();
+
+  /**
+   * Reject any future messages sent to the given token.
+   *
+   * @param token      the device token to reject
+   * @param statusCode the HTTP status code of the rejection
+   * @param errorCode  the FCM error code (e.g. {@code UNREGISTERED}) of the rejection
+   */
+  void rejectToken(final String token, final int statusCode, final String errorCode) {
+    rejectedTokens.put(token, new Rejection(statusCode, errorCode));
+  }
+
+  /**
+   * Returns the number of messages received so far, whether accepted or not.
+   */
+  int getMessageCount() {
+    return messageCount.get();
+  }
+
+  @Override
+  public LowLevelHttpRequest buildRequest(final String method, final String url) {
+    return new MockLowLevelHttpRequest(url) {
+      @Override
+      public LowLevelHttpResponse execute() throws IOException {
+        final int messageId = messageCount.incrementAndGet();
+
+        final JsonNode request = SystemMapper.jsonMapper().readTree(getContentAsString());
+        final String token = request.path("message").path("token").asText();
+
+        final Rejection rejection = rejectedTokens.get(token);
+
+        final MockLowLevelHttpResponse response = new MockLowLevelHttpResponse().setContentType(Json.MEDIA_TYPE);
+
+        if (rejection == null) {
+          return response
+              .setStatusCode(HttpStatus.SC_OK)
+              .setContent(SystemMapper.jsonMapper().writeValueAsString(
+                  Map.of("name", "projects/test/messages/" + messageId)));
+        }
+
+        return response
+            .setStatusCode(rejection.statusCode())
+            .setContent(SystemMapper.jsonMapper().writeValueAsString(Map.of("error", Map.of(
+                "code", rejection.statusCode(),
+                "message", "Rejected by stub",
+                "status", "FAILED_PRECONDITION",
+                "details", new Object[]{Map.of(
+                    "@type", "type.googleapis.com/google.firebase.fcm.v1.FcmError",
+                    "errorCode", rejection.errorCode())}))));
+      }
+    };
+  }
+}
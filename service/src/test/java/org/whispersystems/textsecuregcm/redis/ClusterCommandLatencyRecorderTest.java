@@ -0,0 +1,91 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.redis;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lettuce.core.metrics.CommandLatencyRecorder;
+import io.lettuce.core.protocol.CommandType;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.search.Search;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ClusterCommandLatencyRecorderTest {
+
+  private SimpleMeterRegistry meterRegistry;
+  private CommandLatencyRecorder delegate;
+  private ClusterCommandLatencyRecorder recorder;
+
+  private static final InetSocketAddress LOCAL_ADDRESS = InetSocketAddress.createUnresolved("localhost", 12345);
+
+  @BeforeEach
+  void setUp() {
+    meterRegistry = new SimpleMeterRegistry();
+    delegate = mock(CommandLatencyRecorder.class);
+    when(delegate.isEnabled()).thenReturn(true);
+
+    recorder = new ClusterCommandLatencyRecorder("test-cluster", meterRegistry, delegate);
+  }
+
+  @Test
+  void recordCommandLatency() {
+    final InetSocketAddress node = InetSocketAddress.createUnresolved("10.0.0.1", 6379);
+
+    recorder.recordCommandLatency(LOCAL_ADDRESS, node, CommandType.GET, 1, Duration.ofMillis(2).toNanos());
+    recorder.recordCommandLatency(LOCAL_ADDRESS, node, CommandType.GET, 1, Duration.ofMillis(4).toNanos());
+    recorder.recordCommandLatency(LOCAL_ADDRESS, node, CommandType.EVALSHA, 1, Duration.ofMillis(8).toNanos());
+
+    final Timer getTimer = Search.in(meterRegistry)
+        .tags("cluster", "test-cluster", "redisCommand", "GET")
+        .timer();
+
+    assertNotNull(getTimer);
+    assertEquals(2, getTimer.count());
+    assertEquals(6, getTimer.totalTime(TimeUnit.MILLISECONDS), 0.001);
+
+    final Timer nodeTimer = Search.in(meterRegistry)
+        .tags("cluster", "test-cluster", "node", "10.0.0.1:6379")
+        .timer();
+
+    assertNotNull(nodeTimer);
+    assertEquals(3, nodeTimer.count());
+  }
+
+  @Test
+  void recordCommandLatencyDelegate() {
+    final InetSocketAddress node = InetSocketAddress.createUnresolved("10.0.0.1", 6379);
+
+    recorder.recordCommandLatency(LOCAL_ADDRESS, node, CommandType.GET, 1, 2);
+
+    verify(delegate).recordCommandLatency(LOCAL_ADDRESS, node, CommandType.GET, 1, 2);
+  }
+
+  @Test
+  void recordCommandLatencyNodeLimit() {
+    for (int i = 0; i < ClusterCommandLatencyRecorder.MAX_NODES + 10; i++) {
+      recorder.recordCommandLatency(LOCAL_ADDRESS, InetSocketAddress.createUnresolved("10.0.0.1", 1000 + i),
+          CommandType.GET, 1, 2);
+    }
+
+    assertEquals(ClusterCommandLatencyRecorder.MAX_NODES + 1, Search.in(meterRegistry).tagKeys("node").timers().size());
+
+    final Timer otherNodeTimer = Search.in(meterRegistry)
+        .tags("node", ClusterCommandLatencyRecorder.OTHER_NODE_TAG_VALUE)
+        .timer();
+
+    assertNotNull(otherNodeTimer);
+    assertEquals(10, otherNodeTimer.count());
+  }
+}
@@ -31,6 +31,7 @@ import java.util.concurrent.TimeUnit;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.junit.jupiter.params.provider.EnumSource;
 import org.whispersystems.textsecuregcm.tests.util.RedisClusterHelper;
 import reactor.core.publisher.Flux;
@@ -40,6 +41,15 @@ class ClusterLuaScriptTest {
   @RegisterExtension
   static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
 
+  @ParameterizedTest
+  @CsvSource({
+      "lua/insert_item.lua, insert_item",
+      "lua/apn/get.lua, apn/get",
+  })
+  void testGetScriptName(final String resource, final String expectedName) {
+    assertEquals(expectedName, ClusterLuaScript.getScriptName(resource));
+  }
+
   @Test
   void testExecute() {
     final RedisAdvancedClusterCommands<String, String> commands = mock(RedisAdvancedClusterCommands.class);
@@ -52,7 +62,7 @@ class ClusterLuaScriptTest {
 
     when(commands.evalsha(any(), any(), any(), any())).thenReturn("OK");
 
-    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, script, scriptOutputType);
+    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, "test", script, scriptOutputType);
     luaScript.execute(keys, values);
 
     verify(commands).evalsha(luaScript.getSha(), scriptOutputType, keys.toArray(new String[0]), values.toArray(new String[0]));
@@ -71,7 +81,7 @@ class ClusterLuaScriptTest {
 
     when(commands.evalsha(any(), any(), any(), any())).thenThrow(new RedisNoScriptException("OH NO"));
 
-    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, script, scriptOutputType);
+    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, "test", script, scriptOutputType);
     luaScript.execute(keys, values);
 
     verify(commands).eval(script, scriptOutputType, keys.toArray(new String[0]), values.toArray(new String[0]));
@@ -94,7 +104,7 @@ class ClusterLuaScriptTest {
 
     when(binaryCommands.evalsha(any(), any(), any(), any())).thenThrow(new RedisNoScriptException("OH NO"));
 
-    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, script, scriptOutputType);
+    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, "test", script, scriptOutputType);
     luaScript.executeBinary(keys, values);
 
     verify(binaryCommands).eval(script, scriptOutputType, keys.toArray(new byte[0][]), values.toArray(new byte[0][]));
@@ -123,7 +133,7 @@ class ClusterLuaScriptTest {
     when(binaryAsyncCommands.evalsha(any(), any(), any(), any())).thenReturn((RedisFuture<Object>) evalShaFailure);
     when(binaryAsyncCommands.eval(anyString(), any(), any(), any())).thenReturn((RedisFuture<Object>) evalSuccess);
 
-    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, script, scriptOutputType);
+    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, "test", script, scriptOutputType);
     luaScript.executeBinaryAsync(keys, values).get(5, TimeUnit.SECONDS);
 
     verify(binaryAsyncCommands).eval(script, scriptOutputType, keys.toArray(new byte[0][]),
@@ -148,7 +158,7 @@ class ClusterLuaScriptTest {
         .thenReturn(Flux.error(new RedisNoScriptException("OH NO")));
     when(binaryReactiveCommands.eval(anyString(), any(), any(), any())).thenReturn(Flux.just("ok"));
 
-    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, script, scriptOutputType);
+    final ClusterLuaScript luaScript = new ClusterLuaScript(mockCluster, "test", script, scriptOutputType);
     luaScript.executeBinaryReactive(keys, values).blockLast(Duration.ofSeconds(5));
 
     verify(binaryReactiveCommands).eval(script, scriptOutputType, keys.toArray(new byte[0][]),
@@ -164,6 +174,7 @@ class ClusterLuaScriptTest {
     REDIS_CLUSTER_EXTENSION.getRedisCluster().withCluster(c -> c.sync().configResetstat());
 
     final ClusterLuaScript script = new ClusterLuaScript(REDIS_CLUSTER_EXTENSION.getRedisCluster(),
+        "test",
         "return 2;",
         ScriptOutputType.INTEGER);
 
@@ -81,12 +81,8 @@ public class RedisClusterExtension implements BeforeAllCallback, BeforeEachCallb
 
   @Override
   public void beforeEach(final ExtensionContext context) throws Exception {
-    final List<String> urls = Arrays.stream(CLUSTER_NODES)
-        .map(node -> String.format("redis://127.0.0.1:%d", node.ports().get(0)))
-        .toList();
-
     redisCluster = new FaultTolerantRedisCluster("test-cluster",
-        RedisClusterClient.create(urls.stream().map(RedisURI::create).collect(Collectors.toList())),
+        RedisClusterClient.create(getClusterUrls().stream().map(RedisURI::create).collect(Collectors.toList())),
         timeout,
         new CircuitBreakerConfiguration(),
         retryConfiguration);
@@ -124,6 +120,15 @@ public class RedisClusterExtension implements BeforeAllCallback, BeforeEachCallb
     return redisCluster;
   }
 
+  /**
+   * @return the URLs of the nodes of the cluster started by {@link #beforeAll(ExtensionContext)}
+   */
+  public List<String> getClusterUrls() {
+    return Arrays.stream(CLUSTER_NODES)
+        .map(node -> String.format("redis://127.0.0.1:%d", node.ports().get(0)))
+        .toList();
+  }
+
   private static RedisServer buildClusterNode(final int port) throws IOException {
     final File clusterConfigFile = File.createTempFile("redis", ".conf");
     clusterConfigFile.deleteOnExit();
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.s3;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import org.apache.http.HttpStatus;
+import software.amazon.awssdk.core.sync.ResponseTransformer;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.NoSuchKeyException;
+import software.amazon.awssdk.services.s3.model.S3Exception;
+
+/**
+ * A minimal, local stand-in for S3 that serves objects from a directory on the local filesystem. Objects are files
+ * named {@code <root>/<bucket>/<key>}, and each object's ETag is the quoted hex MD5 digest of its contents, as it would
+ * be for an S3 object uploaded in a single part. Only {@code GetObject} (including {@code If-None-Match}) is supported.
+ */
+class FileSystemS3Client implements S3Client {
+
+  private final Path root;
+
+  private int getObjectRequests = 0;
+
+  FileSystemS3Client(final Path root) {
+    this.root = root;
+  }
+
+  /**
+   * Returns the number of {@code GetObject} requests served so far, including requests that returned no content.
+   */
+  int getObjectRequests() {
+    return getObjectRequests;
+  }
+
+  @Override
+  public <ReturnT> ReturnT getObject(final GetObjectRequest getObjectRequest,
+      final ResponseTransformer<GetObjectResponse, ReturnT> responseTransformer) {
+
+    getObjectRequests++;
+
+    final Path path = root.resolve(getObjectRequest.bucket()).resolve(getObjectRequest.key());
+
+    if (!Files.isRegularFile(path)) {
+      throw NoSuchKeyException.builder().statusCode(HttpStatus.SC_NOT_FOUND).build();
+    }
+
+    try {
+      final String eTag = eTag(path);
+
+      if (eTag.equals(getObjectRequest.ifNoneMatch())) {
+        throw S3Exception.builder().statusCode(HttpStatus.SC_NOT_MODIFIED).build();
+      }
+
+      final GetObjectResponse response = GetObjectResponse.builder()
+          .eTag(eTag)
+          .contentLength(Files.size(path))
+          .build();
+
+      return responseTransformer.transform(response, AbortableInputStream.create(Files.newInputStream(path)));
+    } catch (final IOException e) {
+      throw new UncheckedIOException(e);
+    } catch (final Exception e) {
+      if (e instanceof RuntimeException runtimeException) {
+        throw runtimeException;
+      }
+
+      throw new RuntimeException(e);
+    }
+  }
+
+  private static String eTag(final Path path) throws IOException {
+    try {
+      return "\"" + HexFormat.of().formatHex(MessageDigest.getInstance("MD5").digest(Files.readAllBytes(path))) + "\"";
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError("All Java implementations must support MD5", e);
+    }
+  }
+
+  @Override
+  public String serviceName() {
+    return SERVICE_NAME;
+  }
+
+  @Override
+  public void close() {
+  }
+}
@@ -5,6 +5,7 @@
 
 package org.whispersystems.textsecuregcm.s3;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -14,19 +15,25 @@ import static org.mockito.Mockito.when;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import software.amazon.awssdk.core.ResponseInputStream;
 import software.amazon.awssdk.http.AbortableInputStream;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.GetObjectRequest;
 import software.amazon.awssdk.services.s3.model.GetObjectResponse;
 import software.amazon.awssdk.services.s3.model.HeadObjectRequest;
-import software.amazon.awssdk.services.s3.model.HeadObjectResponse;
+import software.amazon.awssdk.services.s3.model.S3Exception;
 
 class S3ObjectMonitorTest {
 
@@ -50,15 +57,16 @@ class S3ObjectMonitorTest {
         listener);
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(
-        HeadObjectResponse.builder().eTag(uuid).build());
     final ResponseInputStream<GetObjectResponse> ris = responseInputStreamFromString("abc", uuid);
     when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(ris);
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(uuid).build()))
+        .thenThrow(S3Exception.builder().statusCode(304).build());
 
     objectMonitor.refresh();
     objectMonitor.refresh();
 
     verify(listener).accept(ris);
+    verify(s3Client, never()).headObject(any(HeadObjectRequest.class));
   }
 
   @Test
@@ -81,10 +89,10 @@ class S3ObjectMonitorTest {
         listener);
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().key(objectKey).bucket(bucket).build()))
-        .thenReturn(HeadObjectResponse.builder().eTag(uuid).build());
     final ResponseInputStream<GetObjectResponse> responseInputStream = responseInputStreamFromString("abc", uuid);
     when(s3Client.getObject(GetObjectRequest.builder().key(objectKey).bucket(bucket).build())).thenReturn(responseInputStream);
+    when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).ifNoneMatch(uuid).build()))
+        .thenThrow(S3Exception.builder().statusCode(304).build());
 
     objectMonitor.getObject();
     objectMonitor.refresh();
@@ -119,8 +127,6 @@ class S3ObjectMonitorTest {
         listener);
 
     final String uuid = UUID.randomUUID().toString();
-    when(s3Client.headObject(HeadObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(
-        HeadObjectResponse.builder().eTag(uuid).contentLength(maxObjectSize+1).build());
     final ResponseInputStream<GetObjectResponse> ris = responseInputStreamFromString("a".repeat((int) maxObjectSize+1), uuid);
     when(s3Client.getObject(GetObjectRequest.builder().bucket(bucket).key(objectKey).build())).thenReturn(ris);
 
@@ -128,4 +134,63 @@ class S3ObjectMonitorTest {
 
     verify(listener, never()).accept(any());
   }
+
+  @Test
+  void refreshFromFileSystem(@TempDir final Path root) throws IOException {
+    final String bucket = "s3bucket";
+    final String objectKey = "routing-table.json";
+
+    Files.createDirectories(root.resolve(bucket));
+    final Path objectPath = root.resolve(bucket).resolve(objectKey);
+    Files.writeString(objectPath, "first");
+
+    final FileSystemS3Client s3Client = new FileSystemS3Client(root);
+    final List<String> observedContents = new ArrayList<>();
+
+    final S3ObjectMonitor objectMonitor = new S3ObjectMonitor(
+        s3Client,
+        bucket,
+        objectKey,
+        16 * 1024 * 1024,
+        mock(ScheduledExecutorService.class),
+        Duration.ofMinutes(1),
+        inputStream -> {
+          try {
+            observedContents.add(new String(inputStream.readAllBytes(), StandardCharsets.UTF_8));
+          } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        });
+
+    objectMonitor.refresh();
+    objectMonitor.refresh();
+
+    assertEquals(List.of("first"), observedContents);
+
+    Files.writeString(objectPath, "second");
+    objectMonitor.refresh();
+    objectMonitor.refresh();
+
+    assertEquals(List.of("first", "second"), observedContents);
+    assertEquals(4, s3Client.getObjectRequests());
+  }
+
+  @Test
+  void refreshMissingObjectFromFileSystem(@TempDir final Path root) {
+    //noinspection unchecked
+    final Consumer<InputStream> listener = mock(Consumer.class);
+
+    final S3ObjectMonitor objectMonitor = new S3ObjectMonitor(
+        new FileSystemS3Client(root),
+        "s3bucket",
+        "missing.json",
+        16 * 1024 * 1024,
+        mock(ScheduledExecutorService.class),
+        Duration.ofMinutes(1),
+        listener);
+
+    objectMonitor.refresh();
+
+    verify(listener, never()).accept(any());
+  }
 }
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+
+class AccountCrawlCheckpointManagerTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private AccountCrawlCheckpointManager checkpointManager;
+  private AccountCrawlCheckpointManager otherCheckpointManager;
+
+  private static final int SEGMENT = 7;
+
+  @BeforeEach
+  void setUp() throws Exception {
+    checkpointManager = new AccountCrawlCheckpointManager(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test", "worker",
+        Duration.ofMinutes(1));
+
+    otherCheckpointManager = new AccountCrawlCheckpointManager(REDIS_CLUSTER_EXTENSION.getRedisCluster(), "test",
+        "other-worker", Duration.ofMinutes(1));
+  }
+
+  @Test
+  void lease() {
+    assertTrue(checkpointManager.tryAcquireLease(SEGMENT).join());
+    assertFalse(otherCheckpointManager.tryAcquireLease(SEGMENT).join());
+
+    // Only the lease holder can release a lease
+    otherCheckpointManager.releaseLease(SEGMENT).join();
+    assertFalse(otherCheckpointManager.tryAcquireLease(SEGMENT).join());
+
+    checkpointManager.releaseLease(SEGMENT).join();
+    assertTrue(otherCheckpointManager.tryAcquireLease(SEGMENT).join());
+  }
+
+  @Test
+  void renewLease() {
+    // Only the lease holder can renew a lease
+    assertFalse(checkpointManager.renewLease(SEGMENT).join());
+
+    assertTrue(checkpointManager.tryAcquireLease(SEGMENT).join());
+    assertTrue(checkpointManager.renewLease(SEGMENT).join());
+    assertFalse(otherCheckpointManager.renewLease(SEGMENT).join());
+
+    checkpointManager.releaseLease(SEGMENT).join();
+    assertFalse(checkpointManager.renewLease(SEGMENT).join());
+  }
+
+  @Test
+  void updateCheckpoint() {
+    final UUID lastEvaluatedUuid = UUID.randomUUID();
+
+    assertEquals(AccountCrawlCheckpointManager.Checkpoint.NOT_STARTED, checkpointManager.getCheckpoint(SEGMENT).join());
+
+    // Only the lease holder may update a checkpoint
+    assertFalse(checkpointManager.updateCheckpoint(SEGMENT, Optional.of(lastEvaluatedUuid)).join());
+    assertEquals(AccountCrawlCheckpointManager.Checkpoint.NOT_STARTED, checkpointManager.getCheckpoint(SEGMENT).join());
+
+    assertTrue(checkpointManager.tryAcquireLease(SEGMENT).join());
+    assertTrue(checkpointManager.updateCheckpoint(SEGMENT, Optional.of(lastEvaluatedUuid)).join());
+    assertFalse(otherCheckpointManager.updateCheckpoint(SEGMENT, Optional.empty()).join());
+
+    assertEquals(new AccountCrawlCheckpointManager.Checkpoint(Optional.of(lastEvaluatedUuid), false),
+        otherCheckpointManager.getCheckpoint(SEGMENT).join());
+
+    assertTrue(checkpointManager.updateCheckpoint(SEGMENT, Optional.empty()).join());
+    assertEquals(new AccountCrawlCheckpointManager.Checkpoint(Optional.empty(), true),
+        checkpointManager.getCheckpoint(SEGMENT).join());
+  }
+}
@@ -32,6 +32,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.i18n.phonenumbers.PhoneNumberUtil;
+import io.lettuce.core.KeyValue;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
@@ -74,6 +75,7 @@ import org.whispersystems.textsecuregcm.experiment.ExperimentEnrollmentManager;
 import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
 import org.whispersystems.textsecuregcm.identity.IdentityType;
 import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
 import org.whispersystems.textsecuregcm.push.ClientPresenceManager;
 import org.whispersystems.textsecuregcm.securestorage.SecureStorageClient;
 import org.whispersystems.textsecuregcm.securevaluerecovery.SecureValueRecovery2Client;
@@ -281,6 +283,54 @@ class AccountsManagerTest {
   }
 
 
+  @Test
+  void testGetByServiceIdentifiersAsync() {
+    final UUID cachedAci = UUID.randomUUID();
+    final UUID cachedPni = UUID.randomUUID();
+
+    final UUID uncachedAci = UUID.randomUUID();
+    final UUID uncachedPni = UUID.randomUUID();
+
+    final UUID missingPni = UUID.randomUUID();
+
+    final Map<String, String> cachedValues = Map.of(
+        "Account3::" + cachedAci, "{\"number\": \"+14152222222\", \"pni\": \"" + cachedPni + "\"}",
+        "AccountMap::" + uncachedPni, uncachedAci.toString());
+
+    when(asyncCommands.mget(any(String[].class))).thenAnswer(invocation -> {
+      final List<KeyValue<String, String>> keyValues = new ArrayList<>();
+
+      for (final Object key : invocation.getArguments()) {
+        keyValues.add(KeyValue.fromNullable((String) key, cachedValues.get((String) key)));
+      }
+
+      return MockRedisFuture.completedFuture(keyValues);
+    });
+
+    final Account uncachedAccount =
+        AccountsHelper.generateTestAccount("+14153333333", uncachedAci, uncachedPni, new ArrayList<>(), null);
+
+    when(accounts.getByAccountIdentifiersAsync(List.of(uncachedAci)))
+        .thenReturn(CompletableFuture.completedFuture(List.of(uncachedAccount)));
+
+    when(accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(any()))
+        .thenReturn(CompletableFuture.completedFuture(Collections.emptyMap()));
+
+    final Map<ServiceIdentifier, Account> accountsByServiceIdentifier = accountsManager.getByServiceIdentifiersAsync(
+        List.of(new AciServiceIdentifier(cachedAci),
+            new PniServiceIdentifier(uncachedPni),
+            new PniServiceIdentifier(missingPni),
+            // An account identifier is never also a phone number identifier
+            new PniServiceIdentifier(cachedAci))).join();
+
+    assertEquals(2, accountsByServiceIdentifier.size());
+    assertEquals(cachedAci, accountsByServiceIdentifier.get(new AciServiceIdentifier(cachedAci)).getUuid());
+    assertEquals(uncachedAci, accountsByServiceIdentifier.get(new PniServiceIdentifier(uncachedPni)).getUuid());
+
+    // Accounts read from the database should be cached for next time
+    verify(asyncCommands).setex(eq("Account3::" + uncachedAci), anyLong(), any());
+  }
+
   @Test
   void testGetAccountByUuidInCache() {
     UUID uuid = UUID.randomUUID();
@@ -656,6 +656,73 @@ class AccountsTest {
         retrievedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()));
   }
 
+  @Test
+  void testScanSegment() {
+    final List<Account> expectedAccounts = new ArrayList<>();
+
+    for (int i = 1; i <= 25; i++) {
+      final Account account = generateAccount("+1" + String.format("%03d", i), UUID.randomUUID(), UUID.randomUUID());
+      expectedAccounts.add(account);
+      createAccount(account);
+    }
+
+    final List<Account> retrievedAccounts = new ArrayList<>();
+
+    for (int segment = 0; segment < 2; segment++) {
+      UUID exclusiveStartUuid = null;
+
+      do {
+        final Accounts.ScanPage page = accounts.scanSegment(segment, 2, exclusiveStartUuid, 10).join();
+
+        assertTrue(page.accounts().size() <= 10);
+        retrievedAccounts.addAll(page.accounts());
+
+        exclusiveStartUuid = page.lastEvaluatedUuid().orElse(null);
+      } while (exclusiveStartUuid != null);
+    }
+
+    assertEquals(expectedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()),
+        retrievedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()));
+
+    assertEquals(expectedAccounts.size(), retrievedAccounts.size());
+  }
+
+  @Test
+  void testGetByAccountIdentifiersAsync() {
+    final List<Account> expectedAccounts = new ArrayList<>();
+
+    // Enough accounts to need more than one batch
+    for (int i = 1; i <= 150; i++) {
+      final Account account = generateAccount("+1" + String.format("%03d", i), UUID.randomUUID(), UUID.randomUUID());
+      expectedAccounts.add(account);
+      createAccount(account);
+    }
+
+    final List<UUID> requestedUuids = new ArrayList<>(expectedAccounts.stream().map(Account::getUuid).toList());
+    requestedUuids.add(UUID.randomUUID());
+    requestedUuids.add(expectedAccounts.get(0).getUuid());
+
+    final List<Account> retrievedAccounts = accounts.getByAccountIdentifiersAsync(requestedUuids).join();
+
+    assertEquals(expectedAccounts.size(), retrievedAccounts.size());
+    assertEquals(expectedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()),
+        retrievedAccounts.stream().map(Account::getUuid).collect(Collectors.toSet()));
+  }
+
+  @Test
+  void testGetAccountIdentifiersByPhoneNumberIdentifiersAsync() {
+    final Account firstAccount = generateAccount("+14151112222", UUID.randomUUID(), UUID.randomUUID());
+    final Account secondAccount = generateAccount("+14151113333", UUID.randomUUID(), UUID.randomUUID());
+
+    createAccount(firstAccount);
+    createAccount(secondAccount);
+
+    assertEquals(Map.of(firstAccount.getPhoneNumberIdentifier(), firstAccount.getUuid(),
+            secondAccount.getPhoneNumberIdentifier(), secondAccount.getUuid()),
+        accounts.getAccountIdentifiersByPhoneNumberIdentifiersAsync(List.of(firstAccount.getPhoneNumberIdentifier(),
+            secondAccount.getPhoneNumberIdentifier(), UUID.randomUUID())).join());
+  }
+
   @Test
   void testDelete() {
     final Device deletedDevice = generateDevice(DEVICE_ID_1);
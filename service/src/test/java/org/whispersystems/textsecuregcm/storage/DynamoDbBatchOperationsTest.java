@@ -0,0 +1,103 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.whispersystems.textsecuregcm.util.AttributeValues;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchGetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.DeleteRequest;
+import software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes;
+import software.amazon.awssdk.services.dynamodb.model.WriteRequest;
+
+class DynamoDbBatchOperationsTest {
+
+  private DynamoDbAsyncClient dynamoDbAsyncClient;
+  private Timer timer;
+  private Counter unprocessedCounter;
+  private Counter consumedCapacityCounter;
+
+  private static final String TABLE_NAME = "test";
+
+  private static final Map<String, AttributeValue> FIRST_KEY = Map.of("K", AttributeValues.fromInt(1));
+  private static final Map<String, AttributeValue> SECOND_KEY = Map.of("K", AttributeValues.fromInt(2));
+
+  @BeforeEach
+  void setUp() {
+    final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    dynamoDbAsyncClient = mock(DynamoDbAsyncClient.class);
+    timer = meterRegistry.timer("batch");
+    unprocessedCounter = meterRegistry.counter("unprocessed");
+    consumedCapacityCounter = meterRegistry.counter("consumedCapacity");
+  }
+
+  @Test
+  void batchGetItemsRetriesUnprocessedKeys() {
+    when(dynamoDbAsyncClient.batchGetItem(any(BatchGetItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+            .responses(Map.of(TABLE_NAME, List.of(FIRST_KEY)))
+            .unprocessedKeys(Map.of(TABLE_NAME, KeysAndAttributes.builder().keys(SECOND_KEY).build()))
+            .build()))
+        .thenReturn(CompletableFuture.completedFuture(BatchGetItemResponse.builder()
+            .responses(Map.of(TABLE_NAME, List.of(SECOND_KEY)))
+            .build()));
+
+    final List<Map<String, AttributeValue>> items = DynamoDbBatchOperations.batchGetItems(dynamoDbAsyncClient,
+            TABLE_NAME, List.of(FIRST_KEY, SECOND_KEY), timer, unprocessedCounter)
+        .collectList()
+        .block();
+
+    assertEquals(List.of(FIRST_KEY, SECOND_KEY), items);
+    assertEquals(1, unprocessedCounter.count());
+    assertEquals(2, timer.count());
+
+    final ArgumentCaptor<BatchGetItemRequest> requestCaptor = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+    verify(dynamoDbAsyncClient, times(2)).batchGetItem(requestCaptor.capture());
+
+    assertEquals(List.of(SECOND_KEY), requestCaptor.getAllValues().get(1).requestItems().get(TABLE_NAME).keys());
+  }
+
+  @Test
+  void batchWriteItemsRetriesExhausted() {
+    final WriteRequest writeRequest = WriteRequest.builder()
+        .deleteRequest(DeleteRequest.builder().key(FIRST_KEY).build())
+        .build();
+
+    when(dynamoDbAsyncClient.batchWriteItem(any(BatchWriteItemRequest.class)))
+        .thenReturn(CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+            .unprocessedItems(Map.of(TABLE_NAME, List.of(writeRequest)))
+            .build()));
+
+    final Exception exception = assertThrows(Exception.class,
+        () -> DynamoDbBatchOperations.batchWriteItems(dynamoDbAsyncClient, TABLE_NAME, List.of(writeRequest),
+            timer, unprocessedCounter, consumedCapacityCounter).block());
+
+    assertInstanceOf(DynamoDbBatchOperations.UnprocessedRequestsException.class, exception);
+    verify(dynamoDbAsyncClient, times(DynamoDbBatchOperations.MAX_RETRIES + 1)).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+}
@@ -55,6 +55,8 @@ public class DynamoDbExtension implements BeforeEachCallback, AfterEachCallback
 
   private static final AtomicBoolean libraryLoaded = new AtomicBoolean();
 
+  private static final String SQLITE_LIBRARY_PATH_PROPERTY = "sqlite4java.library.path";
+
   private DynamoDBProxyServer server;
   private int port;
 
@@ -73,7 +75,7 @@ public class DynamoDbExtension implements BeforeEachCallback, AfterEachCallback
     }
     if (libraryLoaded.compareAndSet(false, true)) {
       // if you see a library failed to load error, you need to run mvn test-compile at least once first
-      SQLite.setLibraryPath("target/lib");
+      SQLite.setLibraryPath(System.getProperty(SQLITE_LIBRARY_PATH_PROPERTY, "target/lib"));
     }
   }
 
@@ -99,6 +99,37 @@ class KeysManagerTest {
     assertEquals(1, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
   }
 
+  @Test
+  void takeDevicePreKeys() {
+    final byte deviceId2 = DEVICE_ID + 1;
+    final byte deviceId3 = DEVICE_ID + 2;
+
+    final ECSignedPreKey ecSignedPreKey1 = generateTestECSignedPreKey(1);
+    final ECSignedPreKey ecSignedPreKey2 = generateTestECSignedPreKey(2);
+    final ECPreKey ecPreKey1 = generateTestPreKey(3);
+    final KEMSignedPreKey kemPreKey1 = generateTestKEMSignedPreKey(4);
+    final KEMSignedPreKey lastResortKey2 = generateTestKEMSignedPreKey(5);
+
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, DEVICE_ID, ecSignedPreKey1).join();
+    keysManager.storeEcSignedPreKeys(ACCOUNT_UUID, deviceId2, ecSignedPreKey2).join();
+    keysManager.storeEcOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(ecPreKey1)).join();
+    keysManager.storeKemOneTimePreKeys(ACCOUNT_UUID, DEVICE_ID, List.of(kemPreKey1)).join();
+    keysManager.storePqLastResort(ACCOUNT_UUID, deviceId2, lastResortKey2).join();
+
+    assertEquals(List.of(
+            new KeysManager.DevicePreKeys(deviceId3, null, null, null),
+            new KeysManager.DevicePreKeys(DEVICE_ID, ecSignedPreKey1, ecPreKey1, kemPreKey1),
+            new KeysManager.DevicePreKeys(deviceId2, ecSignedPreKey2, null, lastResortKey2)),
+        keysManager.takeDevicePreKeys(ACCOUNT_UUID, List.of(deviceId3, DEVICE_ID, deviceId2, DEVICE_ID)).join());
+
+    assertEquals(0, keysManager.getEcCount(ACCOUNT_UUID, DEVICE_ID).join());
+    assertEquals(0, keysManager.getPqCount(ACCOUNT_UUID, DEVICE_ID).join());
+
+    // One-time keys have been consumed, but signed and last-resort keys remain
+    assertEquals(List.of(new KeysManager.DevicePreKeys(DEVICE_ID, ecSignedPreKey1, null, null)),
+        keysManager.takeDevicePreKeys(ACCOUNT_UUID, List.of(DEVICE_ID)).join());
+  }
+
   @Test
   void testTakePQ() {
     assertEquals(Optional.empty(), keysManager.takeEC(ACCOUNT_UUID, DEVICE_ID).join());
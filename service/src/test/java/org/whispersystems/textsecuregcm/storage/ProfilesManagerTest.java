@@ -8,11 +8,13 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalMatchers.aryEq;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -21,15 +23,24 @@ import static org.mockito.Mockito.when;
 import io.lettuce.core.RedisException;
 import io.lettuce.core.cluster.api.async.RedisAdvancedClusterAsyncCommands;
 import io.lettuce.core.cluster.api.sync.RedisAdvancedClusterCommands;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.signal.libsignal.protocol.ServiceId;
 import org.signal.libsignal.zkgroup.InvalidInputException;
 import org.signal.libsignal.zkgroup.profiles.ProfileKey;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicConfiguration;
+import org.whispersystems.textsecuregcm.configuration.dynamic.DynamicProfileCacheConfiguration;
 import org.whispersystems.textsecuregcm.redis.FaultTolerantRedisCluster;
 import org.whispersystems.textsecuregcm.tests.util.MockRedisFuture;
 import org.whispersystems.textsecuregcm.tests.util.ProfileTestHelper;
@@ -40,8 +51,9 @@ import org.whispersystems.textsecuregcm.util.TestRandomUtil;
 public class ProfilesManagerTest {
 
   private Profiles profiles;
-  private RedisAdvancedClusterCommands<String, String> commands;
-  private RedisAdvancedClusterAsyncCommands<String, String> asyncCommands;
+  private RedisAdvancedClusterCommands<byte[], byte[]> commands;
+  private RedisAdvancedClusterAsyncCommands<byte[], byte[]> asyncCommands;
+  private DynamicConfiguration dynamicConfiguration;
 
   private ProfilesManager profilesManager;
 
@@ -51,13 +63,25 @@ public class ProfilesManagerTest {
     commands = mock(RedisAdvancedClusterCommands.class);
     asyncCommands = mock(RedisAdvancedClusterAsyncCommands.class);
     final FaultTolerantRedisCluster cacheCluster = RedisClusterHelper.builder()
-        .stringCommands(commands)
-        .stringAsyncCommands(asyncCommands)
+        .binaryCommands(commands)
+        .binaryAsyncCommands(asyncCommands)
         .build();
 
     profiles = mock(Profiles.class);
 
-    profilesManager = new ProfilesManager(profiles, cacheCluster);
+    dynamicConfiguration = mock(DynamicConfiguration.class);
+    setBinaryEncodingEnabled(false);
+
+    @SuppressWarnings("unchecked") final DynamicConfigurationManager<DynamicConfiguration> dynamicConfigurationManager =
+        mock(DynamicConfigurationManager.class);
+    when(dynamicConfigurationManager.getConfiguration()).thenReturn(dynamicConfiguration);
+
+    profilesManager = new ProfilesManager(profiles, cacheCluster, dynamicConfigurationManager);
+  }
+
+  private void setBinaryEncodingEnabled(final boolean binaryEncodingEnabled) {
+    when(dynamicConfiguration.getProfileCacheConfiguration())
+        .thenReturn(new DynamicProfileCacheConfiguration(binaryEncodingEnabled));
   }
 
   @Test
@@ -65,10 +89,10 @@ public class ProfilesManagerTest {
     final UUID uuid = UUID.randomUUID();
     final byte[] name = TestRandomUtil.nextBytes(81);
     final byte[] commitment = new ProfileKey(new byte[32]).getCommitment(new ServiceId.Aci(uuid)).serialize();
-    when(commands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(String.format(
+    when(commands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenReturn(String.format(
         "{\"version\": \"someversion\", \"name\": \"%s\", \"avatar\": \"someavatar\", \"commitment\":\"%s\"}",
         ProfileTestHelper.encodeToBase64(name),
-        ProfileTestHelper.encodeToBase64(commitment)));
+        ProfileTestHelper.encodeToBase64(commitment)).getBytes(StandardCharsets.UTF_8));
 
     Optional<VersionedProfile> profile = profilesManager.get(uuid, "someversion");
 
@@ -77,7 +101,7 @@ public class ProfilesManagerTest {
     assertEquals(profile.get().avatar(), "someavatar");
     assertArrayEquals(profile.get().commitment(), commitment);
 
-    verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(commands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
     verifyNoMoreInteractions(commands);
     verifyNoMoreInteractions(profiles);
   }
@@ -88,10 +112,10 @@ public class ProfilesManagerTest {
     final byte[] name = TestRandomUtil.nextBytes(81);
     final byte[] commitment = new ProfileKey(new byte[32]).getCommitment(new ServiceId.Aci(uuid)).serialize();
 
-    when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(
+    when(asyncCommands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenReturn(
         MockRedisFuture.completedFuture(String.format("{\"version\": \"someversion\", \"name\": \"%s\", \"avatar\": \"someavatar\", \"commitment\":\"%s\"}",
             ProfileTestHelper.encodeToBase64(name),
-            ProfileTestHelper.encodeToBase64(commitment))));
+            ProfileTestHelper.encodeToBase64(commitment)).getBytes(StandardCharsets.UTF_8)));
 
     Optional<VersionedProfile> profile = profilesManager.getAsync(uuid, "someversion").join();
 
@@ -100,7 +124,7 @@ public class ProfilesManagerTest {
     assertEquals(profile.get().avatar(), "someavatar");
     assertArrayEquals(profile.get().commitment(), commitment);
 
-    verify(asyncCommands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
+    verify(asyncCommands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
     verifyNoMoreInteractions(asyncCommands);
     verifyNoMoreInteractions(profiles);
   }
@@ -112,7 +136,7 @@ public class ProfilesManagerTest {
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
         null, null, "somecommitment".getBytes());
 
-    when(commands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(null);
+    when(commands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenReturn(null);
     when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.of(profile));
 
     Optional<VersionedProfile> retrieved = profilesManager.get(uuid, "someversion");
@@ -120,8 +144,8 @@ public class ProfilesManagerTest {
     assertTrue(retrieved.isPresent());
     assertSame(retrieved.get(), profile);
 
-    verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
-    verify(commands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
+    verify(commands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
+    verify(commands, times(1)).hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any());
     verifyNoMoreInteractions(commands);
 
     verify(profiles, times(1)).get(eq(uuid), eq("someversion"));
@@ -135,8 +159,8 @@ public class ProfilesManagerTest {
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
         null, null, "somecommitment".getBytes());
 
-    when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(MockRedisFuture.completedFuture(null));
-    when(asyncCommands.hset(eq("profiles::" + uuid), eq("someversion"), anyString())).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any())).thenReturn(MockRedisFuture.completedFuture(null));
     when(profiles.getAsync(eq(uuid), eq("someversion"))).thenReturn(CompletableFuture.completedFuture(Optional.of(profile)));
 
     Optional<VersionedProfile> retrieved = profilesManager.getAsync(uuid, "someversion").join();
@@ -144,8 +168,8 @@ public class ProfilesManagerTest {
     assertTrue(retrieved.isPresent());
     assertSame(retrieved.get(), profile);
 
-    verify(asyncCommands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
-    verify(asyncCommands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
+    verify(asyncCommands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
+    verify(asyncCommands, times(1)).hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any());
     verifyNoMoreInteractions(asyncCommands);
 
     verify(profiles, times(1)).getAsync(eq(uuid), eq("someversion"));
@@ -159,7 +183,7 @@ public class ProfilesManagerTest {
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
         null, null, "somecommitment".getBytes());
 
-    when(commands.hget(eq("profiles::" + uuid), eq("someversion"))).thenThrow(new RedisException("Connection lost"));
+    when(commands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenThrow(new RedisException("Connection lost"));
     when(profiles.get(eq(uuid), eq("someversion"))).thenReturn(Optional.of(profile));
 
     Optional<VersionedProfile> retrieved = profilesManager.get(uuid, "someversion");
@@ -167,8 +191,8 @@ public class ProfilesManagerTest {
     assertTrue(retrieved.isPresent());
     assertSame(retrieved.get(), profile);
 
-    verify(commands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
-    verify(commands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
+    verify(commands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
+    verify(commands, times(1)).hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any());
     verifyNoMoreInteractions(commands);
 
     verify(profiles, times(1)).get(eq(uuid), eq("someversion"));
@@ -182,8 +206,8 @@ public class ProfilesManagerTest {
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
         null, null, "somecommitment".getBytes());
 
-    when(asyncCommands.hget(eq("profiles::" + uuid), eq("someversion"))).thenReturn(MockRedisFuture.failedFuture(new RedisException("Connection lost")));
-    when(asyncCommands.hset(eq("profiles::" + uuid), eq("someversion"), anyString())).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")))).thenReturn(MockRedisFuture.failedFuture(new RedisException("Connection lost")));
+    when(asyncCommands.hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any())).thenReturn(MockRedisFuture.completedFuture(null));
     when(profiles.getAsync(eq(uuid), eq("someversion"))).thenReturn(CompletableFuture.completedFuture(Optional.of(profile)));
 
     Optional<VersionedProfile> retrieved = profilesManager.getAsync(uuid, "someversion").join();
@@ -191,16 +215,19 @@ public class ProfilesManagerTest {
     assertTrue(retrieved.isPresent());
     assertSame(retrieved.get(), profile);
 
-    verify(asyncCommands, times(1)).hget(eq("profiles::" + uuid), eq("someversion"));
-    verify(asyncCommands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), anyString());
+    verify(asyncCommands, times(1)).hget(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")));
+    verify(asyncCommands, times(1)).hset(aryEq(legacyCacheKey(uuid)), aryEq(cacheField("someversion")), any());
     verifyNoMoreInteractions(asyncCommands);
 
     verify(profiles, times(1)).getAsync(eq(uuid), eq("someversion"));
     verifyNoMoreInteractions(profiles);
   }
 
-  @Test
-  public void testSet() {
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testSet(final boolean binaryEncodingEnabled) {
+    setBinaryEncodingEnabled(binaryEncodingEnabled);
+
     final UUID uuid = UUID.randomUUID();
     final byte[] name = TestRandomUtil.nextBytes(81);
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
@@ -208,29 +235,263 @@ public class ProfilesManagerTest {
 
     profilesManager.set(uuid, profile);
 
-    verify(commands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), any());
+    final byte[] activeCacheKey = binaryEncodingEnabled ? cacheKey(uuid) : legacyCacheKey(uuid);
+    final byte[] inactiveCacheKey = binaryEncodingEnabled ? legacyCacheKey(uuid) : cacheKey(uuid);
+
+    verify(commands, times(1)).hset(aryEq(activeCacheKey), aryEq(cacheField("someversion")), any());
+    verify(commands, times(1)).hdel(aryEq(inactiveCacheKey), aryEq(cacheField("someversion")));
     verifyNoMoreInteractions(commands);
 
     verify(profiles, times(1)).set(eq(uuid), eq(profile));
     verifyNoMoreInteractions(profiles);
   }
 
-  @Test
-  public void testSetAsync() {
+  @ParameterizedTest
+  @ValueSource(booleans = {true, false})
+  public void testSetAsync(final boolean binaryEncodingEnabled) {
+    setBinaryEncodingEnabled(binaryEncodingEnabled);
+
     final UUID uuid = UUID.randomUUID();
     final byte[] name = TestRandomUtil.nextBytes(81);
     final VersionedProfile profile = new VersionedProfile("someversion", name, "someavatar", null, null,
         null, null, "somecommitment".getBytes());
 
-    when(asyncCommands.hset(eq("profiles::" + uuid), eq("someversion"), anyString())).thenReturn(MockRedisFuture.completedFuture(null));
+    final byte[] activeCacheKey = binaryEncodingEnabled ? cacheKey(uuid) : legacyCacheKey(uuid);
+    final byte[] inactiveCacheKey = binaryEncodingEnabled ? legacyCacheKey(uuid) : cacheKey(uuid);
+
+    when(asyncCommands.hset(aryEq(activeCacheKey), aryEq(cacheField("someversion")), any())).thenReturn(MockRedisFuture.completedFuture(null));
+    when(asyncCommands.hdel(aryEq(inactiveCacheKey), aryEq(cacheField("someversion")))).thenReturn(MockRedisFuture.completedFuture(0L));
     when(profiles.setAsync(eq(uuid), eq(profile))).thenReturn(CompletableFuture.completedFuture(null));
 
     profilesManager.setAsync(uuid, profile).join();
 
-    verify(asyncCommands, times(1)).hset(eq("profiles::" + uuid), eq("someversion"), any());
+    verify(asyncCommands, times(1)).hset(aryEq(activeCacheKey), aryEq(cacheField("someversion")), any());
+    verify(asyncCommands, times(1)).hdel(aryEq(inactiveCacheKey), aryEq(cacheField("someversion")));
     verifyNoMoreInteractions(asyncCommands);
 
     verify(profiles, times(1)).setAsync(eq(uuid), eq(profile));
     verifyNoMoreInteractions(profiles);
   }
+
+  @Test
+  public void testGetProfileInCacheBinaryEncoding() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID uuid = UUID.randomUUID();
+    final VersionedProfile profile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar",
+        null, null, null, null, "somecommitment".getBytes());
+
+    when(commands.hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion"))))
+        .thenReturn(VersionedProfileCodec.encode(profile));
+
+    final Optional<VersionedProfile> retrieved = profilesManager.get(uuid, "someversion");
+
+    assertTrue(retrieved.isPresent());
+    assertProfilesEqual(profile, retrieved.get());
+
+    verify(commands, times(1)).hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion")));
+    verifyNoMoreInteractions(commands);
+    verifyNoMoreInteractions(profiles);
+  }
+
+  @Test
+  public void testGetProfileAsyncNearCache() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID uuid = UUID.randomUUID();
+    final VersionedProfile profile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar",
+        null, null, null, null, "somecommitment".getBytes());
+
+    when(asyncCommands.hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(VersionedProfileCodec.encode(profile)));
+
+    final VersionedProfile first = profilesManager.getAsync(uuid, "someversion").join().orElseThrow();
+    final VersionedProfile second = profilesManager.getAsync(uuid, "someversion").join().orElseThrow();
+    final VersionedProfile third = profilesManager.get(uuid, "someversion").orElseThrow();
+
+    assertProfilesEqual(profile, first);
+    assertSame(first, second);
+    assertSame(first, third);
+
+    verify(asyncCommands, times(1)).hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion")));
+    verifyNoMoreInteractions(asyncCommands);
+    verifyNoMoreInteractions(commands);
+    verifyNoMoreInteractions(profiles);
+  }
+
+  @Test
+  public void testSetAsyncInvalidatesNearCache() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID uuid = UUID.randomUUID();
+    final VersionedProfile profile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar",
+        null, null, null, null, "somecommitment".getBytes());
+
+    final VersionedProfile updatedProfile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81),
+        "someotheravatar", null, null, null, null, "somecommitment".getBytes());
+
+    when(asyncCommands.hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(VersionedProfileCodec.encode(profile)))
+        .thenReturn(MockRedisFuture.completedFuture(VersionedProfileCodec.encode(updatedProfile)));
+
+    when(asyncCommands.hset(any(), aryEq(cacheField("someversion")), any()))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    when(asyncCommands.hdel(any(), aryEq(cacheField("someversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(0L));
+
+    when(profiles.setAsync(uuid, updatedProfile)).thenReturn(CompletableFuture.completedFuture(null));
+
+    assertProfilesEqual(profile, profilesManager.getAsync(uuid, "someversion").join().orElseThrow());
+    profilesManager.setAsync(uuid, updatedProfile).join();
+    assertProfilesEqual(updatedProfile, profilesManager.getAsync(uuid, "someversion").join().orElseThrow());
+
+    verify(asyncCommands, times(2)).hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion")));
+  }
+
+  @Test
+  public void testDeleteAllInvalidatesNearCache() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID uuid = UUID.randomUUID();
+    final VersionedProfile profile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar",
+        null, null, null, null, "somecommitment".getBytes());
+
+    when(asyncCommands.hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(VersionedProfileCodec.encode(profile)))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    when(asyncCommands.del(any())).thenReturn(MockRedisFuture.completedFuture(1L));
+    when(profiles.deleteAll(uuid)).thenReturn(CompletableFuture.completedFuture(null));
+    when(profiles.getAsync(uuid, "someversion")).thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    assertTrue(profilesManager.getAsync(uuid, "someversion").join().isPresent());
+    profilesManager.deleteAll(uuid).join();
+    assertTrue(profilesManager.getAsync(uuid, "someversion").join().isEmpty());
+
+    verify(asyncCommands).del(aryEq(cacheKey(uuid)));
+    verify(asyncCommands).del(aryEq(legacyCacheKey(uuid)));
+  }
+
+  @Test
+  public void testSetDuringGetDoesNotPopulateNearCache() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID uuid = UUID.randomUUID();
+    final VersionedProfile profile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar",
+        null, null, null, null, "somecommitment".getBytes());
+
+    final VersionedProfile updatedProfile = new VersionedProfile("someversion", TestRandomUtil.nextBytes(81),
+        "someotheravatar", null, null, null, null, "somecommitment".getBytes());
+
+    // The profile changes after it has been read from the cache, but before the read has finished
+    when(commands.hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion"))))
+        .thenAnswer(invocation -> {
+          profilesManager.set(uuid, updatedProfile);
+          return VersionedProfileCodec.encode(profile);
+        })
+        .thenReturn(VersionedProfileCodec.encode(updatedProfile));
+
+    assertProfilesEqual(profile, profilesManager.get(uuid, "someversion").orElseThrow());
+    assertProfilesEqual(updatedProfile, profilesManager.get(uuid, "someversion").orElseThrow());
+
+    verify(commands, times(2)).hget(aryEq(cacheKey(uuid)), aryEq(cacheField("someversion")));
+  }
+
+  @Test
+  public void testGetProfilesAsync() {
+    setBinaryEncodingEnabled(true);
+
+    final UUID cachedUuid = UUID.randomUUID();
+    final UUID uncachedUuid = UUID.randomUUID();
+    final UUID missingUuid = UUID.randomUUID();
+
+    final VersionedProfile cachedProfile = new VersionedProfile("cachedversion", TestRandomUtil.nextBytes(81),
+        "someavatar", null, null, null, null, "somecommitment".getBytes());
+
+    final VersionedProfile uncachedProfile = new VersionedProfile("uncachedversion", TestRandomUtil.nextBytes(81),
+        "someavatar", null, null, null, null, "somecommitment".getBytes());
+
+    when(asyncCommands.hget(aryEq(cacheKey(cachedUuid)), aryEq(cacheField("cachedversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(VersionedProfileCodec.encode(cachedProfile)));
+
+    when(asyncCommands.hget(aryEq(cacheKey(uncachedUuid)), aryEq(cacheField("uncachedversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    when(asyncCommands.hget(aryEq(cacheKey(missingUuid)), aryEq(cacheField("missingversion"))))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    when(asyncCommands.hset(aryEq(cacheKey(uncachedUuid)), aryEq(cacheField("uncachedversion")), any()))
+        .thenReturn(MockRedisFuture.completedFuture(null));
+
+    when(profiles.getAsync(uncachedUuid, "uncachedversion"))
+        .thenReturn(CompletableFuture.completedFuture(Optional.of(uncachedProfile)));
+
+    when(profiles.getAsync(missingUuid, "missingversion"))
+        .thenReturn(CompletableFuture.completedFuture(Optional.empty()));
+
+    final Map<UUID, VersionedProfile> retrieved = profilesManager.getAsync(Map.of(
+        cachedUuid, "cachedversion",
+        uncachedUuid, "uncachedversion",
+        missingUuid, "missingversion")).join();
+
+    assertEquals(2, retrieved.size());
+    assertProfilesEqual(cachedProfile, retrieved.get(cachedUuid));
+    assertSame(uncachedProfile, retrieved.get(uncachedUuid));
+
+    verify(profiles, never()).getAsync(cachedUuid, "cachedversion");
+  }
+
+  @ParameterizedTest
+  @MethodSource
+  void testCodecRoundTrip(final VersionedProfile profile) {
+    assertProfilesEqual(profile, VersionedProfileCodec.decode(VersionedProfileCodec.encode(profile)));
+  }
+
+  private static List<VersionedProfile> testCodecRoundTrip() {
+    return List.of(
+        new VersionedProfile("someversion", TestRandomUtil.nextBytes(81), "someavatar", TestRandomUtil.nextBytes(60),
+            TestRandomUtil.nextBytes(156), TestRandomUtil.nextBytes(582), TestRandomUtil.nextBytes(29),
+            TestRandomUtil.nextBytes(97)),
+        new VersionedProfile("someversion", null, null, null, null, null, null, "somecommitment".getBytes()),
+        new VersionedProfile("\u00fcnicode", new byte[0], "", new byte[0], null, null, null, new byte[0]));
+  }
+
+  @Test
+  void testCodecRejectsMalformedInput() {
+    final byte[] encoded = VersionedProfileCodec.encode(new VersionedProfile("someversion",
+        TestRandomUtil.nextBytes(81), "someavatar", null, null, null, null, "somecommitment".getBytes()));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> VersionedProfileCodec.decode(Arrays.copyOf(encoded, encoded.length - 1)));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> VersionedProfileCodec.decode(Arrays.copyOf(encoded, encoded.length + 1)));
+
+    assertThrows(IllegalArgumentException.class,
+        () -> VersionedProfileCodec.decode("{}".getBytes(StandardCharsets.UTF_8)));
+  }
+
+  private static void assertProfilesEqual(final VersionedProfile expected, final VersionedProfile actual) {
+    assertEquals(expected.version(), actual.version());
+    assertArrayEquals(expected.name(), actual.name());
+    assertEquals(expected.avatar(), actual.avatar());
+    assertArrayEquals(expected.aboutEmoji(), actual.aboutEmoji());
+    assertArrayEquals(expected.about(), actual.about());
+    assertArrayEquals(expected.paymentAddress(), actual.paymentAddress());
+    assertArrayEquals(expected.phoneNumberSharing(), actual.phoneNumberSharing());
+    assertArrayEquals(expected.commitment(), actual.commitment());
+  }
+
+  private static byte[] cacheKey(final UUID uuid) {
+    return ("profilesV2::" + uuid).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] legacyCacheKey(final UUID uuid) {
+    return ("profiles::" + uuid).getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] cacheField(final String version) {
+    return version.getBytes(StandardCharsets.UTF_8);
+  }
 }
@@ -8,6 +8,9 @@ package org.whispersystems.textsecuregcm.storage;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,6 +41,25 @@ abstract class RepeatedUseSignedPreKeyStoreTest<K extends SignedPreKey<?>> {
     assertEquals(Optional.of(signedPreKey), keys.find(identifier, deviceId).join());
   }
 
+  @Test
+  void storeFindMultipleDevices() {
+    final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
+
+    final UUID identifier = UUID.randomUUID();
+    final Map<Byte, K> signedPreKeys = new HashMap<>();
+
+    for (byte deviceId = 1; deviceId <= 3; deviceId++) {
+      final K signedPreKey = generateSignedPreKey();
+
+      keys.store(identifier, deviceId, signedPreKey).join();
+      signedPreKeys.put(deviceId, signedPreKey);
+    }
+
+    assertEquals(Collections.emptyMap(), keys.find(UUID.randomUUID(), List.of((byte) 1, (byte) 2)).join());
+    assertEquals(signedPreKeys, keys.find(identifier, List.of((byte) 1, (byte) 2, (byte) 3, (byte) 4)).join());
+    assertEquals(Map.of((byte) 2, signedPreKeys.get((byte) 2)), keys.find(identifier, List.of((byte) 2)).join());
+  }
+
   @Test
   void buildTransactWriteItemForInsertion() {
     final RepeatedUseSignedPreKeyStore<K> keys = getKeyStore();
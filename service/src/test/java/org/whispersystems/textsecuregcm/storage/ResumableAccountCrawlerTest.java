@@ -0,0 +1,239 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.mockito.invocation.InvocationOnMock;
+import org.whispersystems.textsecuregcm.redis.RedisClusterExtension;
+import reactor.core.publisher.Mono;
+
+class ResumableAccountCrawlerTest {
+
+  @RegisterExtension
+  static final RedisClusterExtension REDIS_CLUSTER_EXTENSION = RedisClusterExtension.builder().build();
+
+  private static final int TOTAL_SEGMENTS = 2;
+  private static final int ACCOUNTS_PER_SEGMENT = 10;
+  private static final int PAGE_SIZE = 3;
+
+  private static final String CRAWL_ID = "test";
+
+  private List<List<Account>> accountsBySegment;
+  private AccountsManager accountsManager;
+
+  @BeforeEach
+  void setUp() {
+    accountsBySegment = IntStream.range(0, TOTAL_SEGMENTS)
+        .mapToObj(ignored -> IntStream.range(0, ACCOUNTS_PER_SEGMENT)
+            .mapToObj(ignored2 -> {
+              final Account account = mock(Account.class);
+              when(account.getUuid()).thenReturn(UUID.randomUUID());
+
+              return account;
+            })
+            .toList())
+        .toList();
+
+    accountsManager = mock(AccountsManager.class);
+
+    when(accountsManager.scanSegment(anyInt(), anyInt(), any(), anyInt())).thenAnswer(this::scanSegment);
+  }
+
+  private CompletableFuture<Accounts.ScanPage> scanSegment(final InvocationOnMock invocation) {
+    final int segment = invocation.getArgument(0);
+    final UUID exclusiveStartUuid = invocation.getArgument(2);
+    final int pageSize = invocation.getArgument(3);
+
+    final List<Account> segmentAccounts = accountsBySegment.get(segment);
+    int start = 0;
+
+    if (exclusiveStartUuid != null) {
+      while (!segmentAccounts.get(start).getUuid().equals(exclusiveStartUuid)) {
+        start++;
+      }
+
+      start++;
+    }
+
+    final int end = Math.min(start + pageSize, segmentAccounts.size());
+    final List<Account> page = segmentAccounts.subList(start, end);
+
+    return CompletableFuture.completedFuture(new Accounts.ScanPage(page,
+        end < segmentAccounts.size() ? Optional.of(page.getLast().getUuid()) : Optional.empty(),
+        1));
+  }
+
+  private AccountCrawlCheckpointManager buildCheckpointManager(final String leaseHolder) throws Exception {
+    return buildCheckpointManager(leaseHolder, Duration.ofMinutes(1));
+  }
+
+  private AccountCrawlCheckpointManager buildCheckpointManager(final String leaseHolder, final Duration leaseDuration)
+      throws Exception {
+
+    return new AccountCrawlCheckpointManager(REDIS_CLUSTER_EXTENSION.getRedisCluster(), CRAWL_ID, leaseHolder,
+        leaseDuration);
+  }
+
+  private ResumableAccountCrawler buildCrawler(final AccountCrawlCheckpointManager checkpointManager) {
+    return new ResumableAccountCrawler("test", accountsManager, checkpointManager, TOTAL_SEGMENTS, 1, PAGE_SIZE, 0);
+  }
+
+  @Test
+  void crawl() throws Exception {
+    final AccountCrawlCheckpointManager checkpointManager = buildCheckpointManager("worker");
+    final List<Account> crawledAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    assertEquals(new ResumableAccountCrawler.CrawlSummary(TOTAL_SEGMENTS, 0, 0, 0),
+        buildCrawler(checkpointManager).crawl(page -> Mono.fromRunnable(() -> crawledAccounts.addAll(page))).block());
+
+    assertEquals(TOTAL_SEGMENTS * ACCOUNTS_PER_SEGMENT, crawledAccounts.size());
+    assertEquals(accountsBySegment.stream().flatMap(List::stream).collect(Collectors.toSet()),
+        Set.copyOf(crawledAccounts));
+
+    for (int segment = 0; segment < TOTAL_SEGMENTS; segment++) {
+      assertTrue(checkpointManager.getCheckpoint(segment).join().complete());
+    }
+
+    // A second pass over a completed crawl shouldn't read anything
+    crawledAccounts.clear();
+
+    final ResumableAccountCrawler.CrawlSummary summary =
+        buildCrawler(checkpointManager).crawl(page -> Mono.fromRunnable(() -> crawledAccounts.addAll(page))).block();
+
+    assertEquals(new ResumableAccountCrawler.CrawlSummary(0, TOTAL_SEGMENTS, 0, 0), summary);
+    assertTrue(summary.complete());
+    assertTrue(crawledAccounts.isEmpty());
+  }
+
+  @Test
+  void crawlResume() throws Exception {
+    final AccountCrawlCheckpointManager checkpointManager = buildCheckpointManager("worker");
+    final List<Account> crawledAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    // Fail to read the third page of the first segment; the second segment should still complete
+    final UUID lastAccountBeforeFailureUuid = accountsBySegment.getFirst().get(PAGE_SIZE * 2 - 1).getUuid();
+    final AtomicBoolean failScan = new AtomicBoolean(true);
+
+    doAnswer(invocation -> failScan.get()
+        ? CompletableFuture.failedFuture(new RuntimeException("OH NO"))
+        : scanSegment(invocation))
+        .when(accountsManager).scanSegment(eq(0), anyInt(), eq(lastAccountBeforeFailureUuid), anyInt());
+
+    final ResumableAccountCrawler.CrawlSummary summary =
+        buildCrawler(checkpointManager).crawl(page -> Mono.fromRunnable(() -> crawledAccounts.addAll(page))).block();
+
+    assertEquals(new ResumableAccountCrawler.CrawlSummary(TOTAL_SEGMENTS - 1, 0, 0, 1), summary);
+    assertFalse(summary.complete());
+    assertEquals(PAGE_SIZE * 2 + ACCOUNTS_PER_SEGMENT, crawledAccounts.size());
+    assertEquals(Optional.of(lastAccountBeforeFailureUuid), checkpointManager.getCheckpoint(0).join().lastEvaluatedUuid());
+
+    // The failed worker released its lease, so a new worker can pick up where it left off
+    failScan.set(false);
+    crawledAccounts.clear();
+
+    buildCrawler(buildCheckpointManager("replacement"))
+        .crawl(page -> Mono.fromRunnable(() -> crawledAccounts.addAll(page))).block();
+
+    assertEquals(accountsBySegment.getFirst().subList(PAGE_SIZE * 2, ACCOUNTS_PER_SEGMENT), crawledAccounts);
+    assertTrue(checkpointManager.getCheckpoint(0).join().complete());
+  }
+
+  @Test
+  void crawlProcessorFailure() throws Exception {
+    final AccountCrawlCheckpointManager checkpointManager = buildCheckpointManager("worker");
+
+    assertThrows(RuntimeException.class, () -> buildCrawler(checkpointManager)
+        .crawl(page -> Mono.error(new RuntimeException("OH NO")))
+        .block());
+
+    // The failed page must not be checkpointed, so a later crawl processes it again
+    assertTrue(checkpointManager.getCheckpoint(0).join().lastEvaluatedUuid().isEmpty());
+    assertFalse(checkpointManager.getCheckpoint(0).join().complete());
+  }
+
+  @Test
+  void crawlCheckpointsAfterProcessing() throws Exception {
+    final AccountCrawlCheckpointManager checkpointManager = buildCheckpointManager("worker");
+    final List<Account> processedAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    // Accept the first two pages of the first segment, then fail while processing the third
+    final UUID lastProcessedUuid = accountsBySegment.getFirst().get(PAGE_SIZE * 2 - 1).getUuid();
+
+    assertThrows(RuntimeException.class, () -> new ResumableAccountCrawler("test", accountsManager,
+        checkpointManager, 1, 1, PAGE_SIZE, 0)
+        .crawl(page -> processedAccounts.size() < PAGE_SIZE * 2
+            ? Mono.delay(Duration.ofMillis(10)).then(Mono.fromRunnable(() -> processedAccounts.addAll(page)))
+            : Mono.error(new RuntimeException("OH NO")))
+        .block());
+
+    assertEquals(Optional.of(lastProcessedUuid), checkpointManager.getCheckpoint(0).join().lastEvaluatedUuid());
+
+    // A replacement worker should resume with the page that failed
+    processedAccounts.clear();
+
+    new ResumableAccountCrawler("test", accountsManager, buildCheckpointManager("replacement"), 1, 1, PAGE_SIZE, 0)
+        .crawl(page -> Mono.fromRunnable(() -> processedAccounts.addAll(page)))
+        .block();
+
+    assertEquals(accountsBySegment.getFirst().subList(PAGE_SIZE * 2, ACCOUNTS_PER_SEGMENT), processedAccounts);
+  }
+
+  @Test
+  void crawlLeasedSegment() throws Exception {
+    final AccountCrawlCheckpointManager otherWorkerCheckpointManager = buildCheckpointManager("other-worker");
+    assertTrue(otherWorkerCheckpointManager.tryAcquireLease(1).join());
+
+    final List<Account> crawledAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    final ResumableAccountCrawler.CrawlSummary summary = buildCrawler(buildCheckpointManager("worker"))
+        .crawl(page -> Mono.fromRunnable(() -> crawledAccounts.addAll(page))).block();
+
+    assertEquals(new ResumableAccountCrawler.CrawlSummary(1, 0, 1, 0), summary);
+    assertFalse(summary.complete());
+    assertEquals(accountsBySegment.getFirst(), crawledAccounts);
+  }
+
+  @Test
+  void crawlRenewsLease() throws Exception {
+    // Each page takes longer to process than the lease lasts, so the lease must be renewed while processing
+    final Duration leaseDuration = Duration.ofMillis(400);
+    final AccountCrawlCheckpointManager checkpointManager = buildCheckpointManager("worker", leaseDuration);
+    final List<Account> crawledAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    final ResumableAccountCrawler.CrawlSummary summary = new ResumableAccountCrawler("test", accountsManager,
+        checkpointManager, 1, 1, PAGE_SIZE, 0)
+        .crawl(page -> Mono.delay(leaseDuration.multipliedBy(3).dividedBy(2))
+            .then(Mono.fromRunnable(() -> crawledAccounts.addAll(page))))
+        .block();
+
+    assertEquals(new ResumableAccountCrawler.CrawlSummary(1, 0, 0, 0), summary);
+    assertEquals(accountsBySegment.getFirst(), crawledAccounts);
+  }
+}
@@ -5,11 +5,28 @@
 
 package org.whispersystems.textsecuregcm.storage;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 import org.signal.libsignal.protocol.ecc.Curve;
 import org.whispersystems.textsecuregcm.entities.ECPreKey;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
 import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.BatchWriteItemResponse;
 import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
 import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
@@ -29,6 +46,43 @@ class SingleUseECPreKeyStoreTest extends SingleUsePreKeyStoreTest<ECPreKey> {
         DynamoDbExtensionSchema.Tables.EC_KEYS.tableName());
   }
 
+  @Test
+  void storeUnprocessedItems() {
+    final DynamoDbAsyncClient dynamoDbAsyncClient = spy(DYNAMO_DB_EXTENSION.getDynamoDbAsyncClient());
+    final AtomicBoolean returnedUnprocessedItems = new AtomicBoolean(false);
+
+    doAnswer(invocation -> {
+      final BatchWriteItemRequest request = invocation.getArgument(0);
+
+      // Pretend that DynamoDB couldn't process the first batch at all
+      if (!returnedUnprocessedItems.getAndSet(true)) {
+        return CompletableFuture.completedFuture(BatchWriteItemResponse.builder()
+            .unprocessedItems(request.requestItems())
+            .build());
+      }
+
+      return invocation.callRealMethod();
+    }).when(dynamoDbAsyncClient).batchWriteItem(any(BatchWriteItemRequest.class));
+
+    final SingleUseECPreKeyStore preKeyStore = new SingleUseECPreKeyStore(dynamoDbAsyncClient,
+        DynamoDbExtensionSchema.Tables.EC_KEYS.tableName());
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final List<ECPreKey> preKeys = IntStream.range(0, AbstractDynamoDbStore.DYNAMO_DB_MAX_BATCH_SIZE * 2)
+        .mapToObj(this::generatePreKey)
+        .toList();
+
+    preKeyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    assertTrue(returnedUnprocessedItems.get());
+    assertEquals(preKeys.size(), preKeyStore.scanCount(accountIdentifier, deviceId).join());
+
+    // Two batches, one of which needed to be retried
+    verify(dynamoDbAsyncClient, times(3)).batchWriteItem(any(BatchWriteItemRequest.class));
+  }
+
   @Override
   protected SingleUsePreKeyStore<ECPreKey> getPreKeyStore() {
     return preKeyStore;
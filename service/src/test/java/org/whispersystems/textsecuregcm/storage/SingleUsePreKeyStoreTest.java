@@ -7,6 +7,7 @@ package org.whispersystems.textsecuregcm.storage;
 
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -15,7 +16,9 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.IntStream;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -53,6 +56,77 @@ abstract class SingleUsePreKeyStoreTest<K extends PreKey<?>> {
     assertEquals(Optional.of(sortedPreKeys.get(1)), preKeyStore.take(accountIdentifier, deviceId).join());
   }
 
+  @Test
+  void takeConcurrent() {
+    final SingleUsePreKeyStore<K> preKeyStore = getPreKeyStore();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final List<K> preKeys = generateRandomPreKeys();
+    preKeyStore.store(accountIdentifier, deviceId, preKeys).join();
+
+    final int takers = KEY_COUNT / 2;
+
+    final List<K> takenPreKeys = IntStream.range(0, takers)
+        .mapToObj(ignored -> preKeyStore.take(accountIdentifier, deviceId))
+        .toList()
+        .stream()
+        .map(CompletableFuture::join)
+        .flatMap(Optional::stream)
+        .toList();
+
+    // Every key may only be taken once, and every taken key must have come from the stored set
+    assertEquals(takenPreKeys.size(), new HashSet<>(takenPreKeys).size());
+    assertTrue(preKeys.containsAll(takenPreKeys));
+    assertEquals(KEY_COUNT - takenPreKeys.size(), preKeyStore.scanCount(accountIdentifier, deviceId).join());
+  }
+
+  @Test
+  void orderTakeCandidates() {
+    final List<Integer> candidates = IntStream.range(0, SingleUsePreKeyStore.TAKE_CANDIDATE_BATCH_SIZE).boxed().toList();
+    final List<Integer> orderedCandidates = SingleUsePreKeyStore.orderTakeCandidates(candidates);
+
+    assertEquals(candidates.getFirst(), orderedCandidates.getFirst());
+    assertEquals(new HashSet<>(candidates), new HashSet<>(orderedCandidates));
+    assertEquals(candidates.size(), orderedCandidates.size());
+  }
+
+  @Test
+  void storeReplacesExistingKeys() {
+    final SingleUsePreKeyStore<K> preKeyStore = getPreKeyStore();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    preKeyStore.store(accountIdentifier, deviceId, generateRandomPreKeys()).join();
+
+    final List<K> replacementPreKeys = List.of(generatePreKey(KEY_COUNT + 1), generatePreKey(KEY_COUNT + 2));
+    preKeyStore.store(accountIdentifier, deviceId, replacementPreKeys).join();
+
+    assertEquals(Optional.of(replacementPreKeys.size()), preKeyStore.peekCount(accountIdentifier, deviceId).join());
+    assertEquals(replacementPreKeys.size(), preKeyStore.scanCount(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(replacementPreKeys.get(0)), preKeyStore.take(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(replacementPreKeys.get(1)), preKeyStore.take(accountIdentifier, deviceId).join());
+    assertEquals(Optional.empty(), preKeyStore.take(accountIdentifier, deviceId).join());
+  }
+
+  @Test
+  void storeDuplicateKeyIds() {
+    final SingleUsePreKeyStore<K> preKeyStore = getPreKeyStore();
+
+    final UUID accountIdentifier = UUID.randomUUID();
+    final byte deviceId = 1;
+
+    final K duplicatePreKey = generatePreKey(1);
+    final List<K> preKeys = List.of(generatePreKey(1), generatePreKey(2), duplicatePreKey);
+
+    assertDoesNotThrow(() -> preKeyStore.store(accountIdentifier, deviceId, preKeys).join());
+
+    assertEquals(Optional.of(2), preKeyStore.peekCount(accountIdentifier, deviceId).join());
+    assertEquals(Optional.of(duplicatePreKey), preKeyStore.take(accountIdentifier, deviceId).join());
+  }
+
   @ParameterizedTest
   @ValueSource(booleans = {true, false})
   void getCount(final boolean hasKeyCountAttribute) {
@@ -0,0 +1,29 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.storage;
+
+/**
+ * A dynamic configuration manager that always returns the same configuration and never contacts AWS AppConfig.
+ */
+public class StaticDynamicConfigurationManager<T> extends DynamicConfigurationManager<T> {
+
+  private final T configuration;
+
+  @SuppressWarnings("unchecked")
+  public StaticDynamicConfigurationManager(final T configuration) {
+    super(null, null, null, null, (Class<T>) configuration.getClass());
+    this.configuration = configuration;
+  }
+
+  @Override
+  public T getConfiguration() {
+    return configuration;
+  }
+
+  @Override
+  public void start() {
+  }
+}
@@ -32,6 +32,7 @@ public class RedisClusterHelper {
       final RedisAdvancedClusterAsyncCommands<byte[], byte[]> binaryAsyncCommands,
       final RedisAdvancedClusterReactiveCommands<byte[], byte[]> binaryReactiveCommands) {
     final FaultTolerantRedisCluster cluster = mock(FaultTolerantRedisCluster.class);
+    when(cluster.getName()).thenReturn("mock-cluster");
     final StatefulRedisClusterConnection<String, String> stringConnection = mock(StatefulRedisClusterConnection.class);
     final StatefulRedisClusterConnection<byte[], byte[]> binaryConnection = mock(StatefulRedisClusterConnection.class);
 
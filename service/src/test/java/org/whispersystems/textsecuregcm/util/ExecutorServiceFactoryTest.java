@@ -0,0 +1,205 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import io.dropwizard.lifecycle.Managed;
+import io.dropwizard.lifecycle.setup.LifecycleEnvironment;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.whispersystems.textsecuregcm.configuration.VirtualThreadExecutorConfiguration;
+
+@Timeout(value = 10, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+class ExecutorServiceFactoryTest {
+
+  private LifecycleEnvironment lifecycle;
+  private ExecutorServiceFactory executorServiceFactory;
+
+  private final List<ExecutorService> executorServices = new ArrayList<>();
+
+  private static final String VIRTUAL_EXECUTOR_NAME = "virtualExecutor";
+  private static final int MAX_CONCURRENCY = 2;
+  private static final int MAX_QUEUED = 8;
+
+  @BeforeEach
+  void setUp() {
+    lifecycle = mock(LifecycleEnvironment.class);
+    executorServiceFactory = new ExecutorServiceFactory(lifecycle,
+        Map.of(VIRTUAL_EXECUTOR_NAME, new VirtualThreadExecutorConfiguration(MAX_CONCURRENCY, MAX_QUEUED)));
+  }
+
+  @AfterEach
+  void tearDown() throws InterruptedException {
+    for (final ExecutorService executorService : executorServices) {
+      executorService.shutdown();
+      executorService.awaitTermination(1, TimeUnit.SECONDS);
+    }
+  }
+
+  @Test
+  void platformExecutorService() {
+    final ExecutorService platformExecutorService = Executors.newSingleThreadExecutor();
+    executorServices.add(platformExecutorService);
+
+    assertSame(platformExecutorService,
+        executorServiceFactory.executorService("platformExecutor", () -> platformExecutorService));
+
+    verify(lifecycle, never()).manage(any(Managed.class));
+  }
+
+  @Test
+  void virtualThreadExecutorService() throws Exception {
+    final ExecutorService platformExecutorService = Executors.newSingleThreadExecutor();
+    executorServices.add(platformExecutorService);
+
+    final ExecutorService executorService =
+        executorServiceFactory.executorService(VIRTUAL_EXECUTOR_NAME, () -> platformExecutorService);
+
+    executorServices.add(executorService);
+
+    assertNotSame(platformExecutorService, executorService);
+    verify(lifecycle).manage(any(Managed.class));
+
+    final Thread thread = executorService.submit(Thread::currentThread).get();
+
+    assertTrue(thread.isVirtual());
+    assertEquals(VIRTUAL_EXECUTOR_NAME, executorServiceFactory.getExecutorName(thread.getName()));
+    assertEquals(ExecutorServiceFactory.OTHER_EXECUTOR_NAME,
+        executorServiceFactory.getExecutorName(Thread.currentThread().getName()));
+  }
+
+  @Test
+  void virtualThreadExecutorServiceConcurrencyLimit() throws Exception {
+    final ExecutorService executorService =
+        executorServiceFactory.executorService(VIRTUAL_EXECUTOR_NAME, () -> {
+          throw new AssertionError("Should not create a platform executor service");
+        });
+
+    executorServices.add(executorService);
+
+    final AtomicInteger runningTasks = new AtomicInteger();
+    final AtomicInteger maxRunningTasks = new AtomicInteger();
+    final CountDownLatch limitReachedLatch = new CountDownLatch(MAX_CONCURRENCY);
+    final CompletableFuture<Void> releaseTasks = new CompletableFuture<>();
+
+    final List<Future<?>> futures = new ArrayList<>();
+
+    for (int i = 0; i < MAX_CONCURRENCY + MAX_QUEUED; i++) {
+      futures.add(executorService.submit(() -> {
+        maxRunningTasks.accumulateAndGet(runningTasks.incrementAndGet(), Math::max);
+        limitReachedLatch.countDown();
+
+        releaseTasks.join();
+
+        runningTasks.decrementAndGet();
+      }));
+    }
+
+    assertTrue(limitReachedLatch.await(5, TimeUnit.SECONDS));
+    assertEquals(MAX_CONCURRENCY, runningTasks.get());
+
+    releaseTasks.complete(null);
+
+    for (final Future<?> future : futures) {
+      future.get();
+    }
+
+    assertEquals(MAX_CONCURRENCY, maxRunningTasks.get());
+  }
+
+  @ParameterizedTest
+  @EnumSource(ExecutorServiceFactory.RejectionPolicy.class)
+  void virtualThreadExecutorServiceQueueLimit(final ExecutorServiceFactory.RejectionPolicy rejectionPolicy)
+      throws Exception {
+
+    final ExecutorService executorService =
+        executorServiceFactory.executorService(VIRTUAL_EXECUTOR_NAME, rejectionPolicy, () -> {
+          throw new AssertionError("Should not create a platform executor service");
+        });
+
+    executorServices.add(executorService);
+
+    final CompletableFuture<Void> releaseTasks = new CompletableFuture<>();
+    final List<Future<?>> futures = new ArrayList<>();
+
+    for (int i = 0; i < MAX_CONCURRENCY + MAX_QUEUED; i++) {
+      futures.add(executorService.submit(releaseTasks::join));
+    }
+
+    final Thread currentThread = Thread.currentThread();
+
+    switch (rejectionPolicy) {
+      case ABORT -> assertThrows(RejectedExecutionException.class,
+          () -> executorService.submit(() -> fail("Rejected task should not run")));
+
+      case CALLER_RUNS ->
+          assertSame(currentThread, executorService.submit(Thread::currentThread).get(0, TimeUnit.SECONDS));
+    }
+
+    releaseTasks.complete(null);
+
+    for (final Future<?> future : futures) {
+      future.get();
+    }
+  }
+
+  @Test
+  void virtualThreadExecutorServiceShutdownNow() throws Exception {
+    final ExecutorService executorService =
+        executorServiceFactory.executorService(VIRTUAL_EXECUTOR_NAME, () -> {
+          throw new AssertionError("Should not create a platform executor service");
+        });
+
+    final CountDownLatch limitReachedLatch = new CountDownLatch(MAX_CONCURRENCY);
+    final AtomicInteger interruptedTasks = new AtomicInteger();
+
+    for (int i = 0; i < MAX_CONCURRENCY + MAX_QUEUED; i++) {
+      executorService.execute(() -> {
+        limitReachedLatch.countDown();
+
+        try {
+          new CountDownLatch(1).await();
+        } catch (final InterruptedException e) {
+          interruptedTasks.incrementAndGet();
+        }
+      });
+    }
+
+    assertTrue(limitReachedLatch.await(5, TimeUnit.SECONDS));
+
+    // Tasks that never started are handed back to the caller rather than silently dropped
+    assertEquals(MAX_QUEUED, executorService.shutdownNow().size());
+    assertTrue(executorService.awaitTermination(5, TimeUnit.SECONDS));
+    assertEquals(MAX_CONCURRENCY, interruptedTasks.get());
+
+    assertThrows(RejectedExecutionException.class, () -> executorService.execute(() -> {}));
+  }
+}
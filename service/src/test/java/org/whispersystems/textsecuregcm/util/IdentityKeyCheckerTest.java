@@ -0,0 +1,115 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.signal.libsignal.protocol.IdentityKey;
+import org.signal.libsignal.protocol.ecc.Curve;
+import org.whispersystems.textsecuregcm.identity.AciServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.IdentityType;
+import org.whispersystems.textsecuregcm.identity.PniServiceIdentifier;
+import org.whispersystems.textsecuregcm.identity.ServiceIdentifier;
+import org.whispersystems.textsecuregcm.storage.Account;
+import org.whispersystems.textsecuregcm.storage.AccountsManager;
+import reactor.core.publisher.Flux;
+
+class IdentityKeyCheckerTest {
+
+  private AccountsManager accountsManager;
+  private IdentityKeyChecker identityKeyChecker;
+
+  private record Check(ServiceIdentifier serviceIdentifier, byte[] fingerprint) {
+  }
+
+  @BeforeEach
+  void setUp() {
+    accountsManager = mock(AccountsManager.class);
+    identityKeyChecker = new IdentityKeyChecker(accountsManager);
+  }
+
+  @Test
+  void check() {
+    final IdentityKey aciIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+    final IdentityKey pniIdentityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+
+    final Account account = mock(Account.class);
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(aciIdentityKey);
+    when(account.getIdentityKey(IdentityType.PNI)).thenReturn(pniIdentityKey);
+
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+    final PniServiceIdentifier pni = new PniServiceIdentifier(UUID.randomUUID());
+
+    when(accountsManager.getByServiceIdentifiersAsync(any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(aci, account, pni, account)));
+
+    final Check matchingCheck = new Check(aci, fingerprint(aciIdentityKey));
+    final Check mismatchedCheck = new Check(pni, fingerprint(aciIdentityKey));
+    final Check truncatedCheck = new Check(aci, new byte[2]);
+    final Check missingAccountCheck = new Check(new AciServiceIdentifier(UUID.randomUUID()), new byte[4]);
+
+    final List<IdentityKeyChecker.Mismatch<Check>> mismatches = identityKeyChecker.check(
+            Flux.just(matchingCheck, mismatchedCheck, truncatedCheck, missingAccountCheck),
+            Check::serviceIdentifier,
+            Check::fingerprint)
+        .collectList()
+        .block();
+
+    assertEquals(List.of(new IdentityKeyChecker.Mismatch<>(mismatchedCheck, pniIdentityKey),
+        new IdentityKeyChecker.Mismatch<>(truncatedCheck, aciIdentityKey)), mismatches);
+
+    // All four checks should have been resolved with a single lookup
+    verify(accountsManager, times(1)).getByServiceIdentifiersAsync(any());
+  }
+
+  @Test
+  void checkBatches() {
+    final IdentityKey identityKey = new IdentityKey(Curve.generateKeyPair().getPublicKey());
+
+    final Account account = mock(Account.class);
+    when(account.getIdentityKey(IdentityType.ACI)).thenReturn(identityKey);
+
+    final AciServiceIdentifier aci = new AciServiceIdentifier(UUID.randomUUID());
+
+    when(accountsManager.getByServiceIdentifiersAsync(any()))
+        .thenReturn(CompletableFuture.completedFuture(Map.of(aci, account)));
+
+    final List<Check> checks = IntStream.range(0, 250)
+        .mapToObj(i -> new Check(aci, new byte[4]))
+        .toList();
+
+    final long mismatches = identityKeyChecker.check(Flux.fromIterable(checks), Check::serviceIdentifier,
+            Check::fingerprint)
+        .count()
+        .block();
+
+    assertEquals(checks.size(), mismatches);
+    verify(accountsManager, times(3)).getByServiceIdentifiersAsync(any());
+  }
+
+  private static byte[] fingerprint(final IdentityKey identityKey) {
+    try {
+      return Arrays.copyOf(MessageDigest.getInstance("SHA-256").digest(identityKey.serialize()), 4);
+    } catch (final NoSuchAlgorithmException e) {
+      throw new AssertionError(e);
+    }
+  }
+}
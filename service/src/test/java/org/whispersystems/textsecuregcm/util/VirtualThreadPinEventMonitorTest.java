@@ -95,6 +95,7 @@ public class VirtualThreadPinEventMonitorTest {
     return new VirtualThreadPinEventMonitor(exec,
         () -> allowedMethods,
         Duration.ofMillis(1),
+        threadName -> "test",
         (event, allowed) -> {
           try {
             bq.put(Pair.of(event, allowed));
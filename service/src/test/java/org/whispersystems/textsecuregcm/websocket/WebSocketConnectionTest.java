@@ -629,6 +629,67 @@ class WebSocketConnectionTest {
     verify(client).sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), any(List.class), eq(Optional.empty()));
   }
 
+  @Test
+  void testProcessStoredMessagesClearsDeliveryTrace() {
+    final WebSocketClient client = mock(WebSocketClient.class);
+    final WebSocketConnection connection = new WebSocketConnection(receiptSender, messagesManager, auth, device, client,
+        retrySchedulingExecutor, Schedulers.immediate(), clientReleaseManager);
+
+    final UUID accountUuid = UUID.randomUUID();
+    when(account.getUuid()).thenReturn(accountUuid);
+    when(device.getId()).thenReturn(Device.PRIMARY_ID);
+    when(client.isOpen()).thenReturn(true);
+
+    final long now = System.currentTimeMillis();
+    final List<Envelope> messages = List.of(
+        createMessage(UUID.randomUUID(), UUID.randomUUID(), 1111L, "traced message").toBuilder()
+            .setEphemeral(true)
+            .setDeliveryTrace(Envelope.DeliveryTrace.newBuilder()
+                .setAcceptedTimestamp(now)
+                .setInsertedTimestamp(now))
+            .build());
+
+    when(messagesManager.getMessagesForDeviceReactive(account.getUuid(), Device.PRIMARY_ID, false))
+        .thenReturn(Flux.fromIterable(messages))
+        .thenReturn(Flux.empty());
+
+    when(messagesManager.delete(eq(accountUuid), eq(Device.PRIMARY_ID), any(UUID.class), any()))
+        .thenReturn(CompletableFuture.completedFuture(null));
+
+    final WebSocketResponseMessage successResponse = mock(WebSocketResponseMessage.class);
+    when(successResponse.getStatus()).thenReturn(200);
+
+    final CountDownLatch queueEmptyLatch = new CountDownLatch(1);
+
+    when(client.sendRequest(eq("PUT"), eq("/api/v1/message"), any(List.class), any(Optional.class))).thenAnswer(
+        invocation -> CompletableFuture.completedFuture(successResponse));
+
+    when(client.sendRequest(eq("PUT"), eq("/api/v1/queue/empty"), any(List.class), eq(Optional.empty())))
+        .thenAnswer(invocation -> {
+          queueEmptyLatch.countDown();
+          return CompletableFuture.completedFuture(successResponse);
+        });
+
+    assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+      connection.processStoredMessages();
+      queueEmptyLatch.await();
+    });
+
+    verify(client).sendRequest(eq("PUT"), eq("/api/v1/message"), any(List.class),
+        argThat(argument -> {
+          if (argument.isEmpty()) {
+            return false;
+          }
+
+          try {
+            final Envelope envelope = Envelope.parseFrom((byte[]) argument.get());
+            return !envelope.hasDeliveryTrace() && !envelope.hasEphemeral();
+          } catch (InvalidProtocolBufferException e) {
+            return false;
+          }
+        }));
+  }
+
   @Test
   void testProcessStoredMessagesSingleEmptyCall() {
     final WebSocketClient client = mock(WebSocketClient.class);
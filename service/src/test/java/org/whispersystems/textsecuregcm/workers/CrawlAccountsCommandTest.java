@@ -0,0 +1,145 @@
+/*
+ * Copyright 2024 Signal Messenger, LLC
+ * SPDX-License-Identifier: AGPL-3.0-only
+ */
+
+package org.whispersystems.textsecuregcm.workers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import net.sourceforge.argparse4j.ArgumentParsers;
+import net.sourceforge.argparse4j.inf.ArgumentParser;
+import net.sourceforge.argparse4j.inf.ArgumentParserException;
+import net.sourceforge.argparse4j.inf.Namespace;
+import org.junit.jupiter.api.Test;
+import org.whispersystems.textsecuregcm.storage.Account;
+import reactor.core.publisher.Flux;
+
+class CrawlAccountsCommandTest {
+
+  private static class TestCrawlAccountsCommand extends CrawlAccountsCommand {
+
+    private final CommandDependencies commandDependencies;
+    private final Namespace namespace;
+
+    TestCrawlAccountsCommand(final List<AbstractSinglePassCrawlAccountsCommand> processors,
+        final List<String> processorNames) {
+
+      super(processors);
+
+      commandDependencies = mock(CommandDependencies.class);
+
+      namespace = mock(Namespace.class);
+      when(namespace.getList(CrawlAccountsCommand.PROCESSORS_ARGUMENT)).thenReturn(new ArrayList<>(processorNames));
+    }
+
+    void crawlAccounts(final Flux<Account> accounts) {
+      crawlAccounts(accounts, commandDependencies, namespace);
+    }
+  }
+
+  private static class TestProcessor extends AbstractSinglePassCrawlAccountsCommand {
+
+    private final Consumer<Flux<Account>> crawler;
+
+    TestProcessor(final String name, final Consumer<Flux<Account>> crawler) {
+      super(name, "");
+      this.crawler = crawler;
+    }
+
+    @Override
+    protected void crawlAccounts(final Flux<Account> accounts,
+        final CommandDependencies commandDependencies,
+        final Namespace namespace) {
+
+      crawler.accept(accounts);
+    }
+  }
+
+  private static List<Account> generateAccounts(final int count) {
+    return IntStream.range(0, count).mapToObj(ignored -> mock(Account.class)).toList();
+  }
+
+  @Test
+  void crawlAccountsSingleScan() {
+    final List<Account> accounts = generateAccounts(5_000);
+    final AtomicInteger subscriptions = new AtomicInteger();
+
+    final List<Account> firstProcessorAccounts = Collections.synchronizedList(new ArrayList<>());
+    final List<Account> secondProcessorAccounts = Collections.synchronizedList(new ArrayList<>());
+    final List<Account> unselectedProcessorAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    final TestCrawlAccountsCommand crawlAccountsCommand = new TestCrawlAccountsCommand(List.of(
+        new TestProcessor("first", flux -> flux.doOnNext(firstProcessorAccounts::add).then().block()),
+        new TestProcessor("second", flux -> flux.doOnNext(secondProcessorAccounts::add).then().block()),
+        new TestProcessor("unselected", flux -> flux.doOnNext(unselectedProcessorAccounts::add).then().block())),
+        List.of("first", "second"));
+
+    crawlAccountsCommand.crawlAccounts(Flux.fromIterable(accounts).doOnSubscribe(ignored -> subscriptions.incrementAndGet()));
+
+    assertEquals(1, subscriptions.get());
+    assertEquals(accounts, firstProcessorAccounts);
+    assertEquals(accounts, secondProcessorAccounts);
+    assertTrue(unselectedProcessorAccounts.isEmpty());
+  }
+
+  @Test
+  void crawlAccountsProcessorFailure() {
+    final List<Account> accounts = generateAccounts(5_000);
+    final List<Account> healthyProcessorAccounts = Collections.synchronizedList(new ArrayList<>());
+
+    final TestCrawlAccountsCommand crawlAccountsCommand = new TestCrawlAccountsCommand(List.of(
+        new TestProcessor("healthy", flux -> flux.doOnNext(healthyProcessorAccounts::add).then().block()),
+        new TestProcessor("failsMidway", flux -> flux.take(100)
+            .concatWith(Flux.error(new RuntimeException("OH NO")))
+            .then()
+            .block()),
+        new TestProcessor("failsImmediately", flux -> {
+          throw new RuntimeException("OH NO");
+        })),
+        List.of("healthy", "failsMidway", "failsImmediately"));
+
+    // Healthy processors should still finish, but the command as a whole should fail
+    assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> assertThrows(IllegalStateException.class,
+            () -> crawlAccountsCommand.crawlAccounts(Flux.fromIterable(accounts))));
+
+    assertEquals(accounts, healthyProcessorAccounts);
+  }
+
+  @Test
+  void configure() throws ArgumentParserException {
+    final CrawlAccountsCommand crawlAccountsCommand = new CrawlAccountsCommand(List.of(
+        new RemoveExpiredAccountsCommand(Clock.systemUTC()),
+        new ProcessPushNotificationFeedbackCommand(Clock.systemUTC()),
+        new RemoveExpiredLinkedDevicesCommand()));
+
+    final ArgumentParser argumentParser = ArgumentParsers.newFor("test").build();
+    crawlAccountsCommand.configure(argumentParser.addSubparsers().addParser(crawlAccountsCommand.getName()));
+
+    final Namespace namespace = argumentParser.parseArgs(new String[]{
+        crawlAccountsCommand.getName(),
+        "--processors", "remove-expired-accounts", "remove-expired-devices",
+        "--dry-run", "false",
+        "--retries", "5",
+        "config.yml"});
+
+    assertEquals(List.of("remove-expired-accounts", "remove-expired-devices"),
+        namespace.getList(CrawlAccountsCommand.PROCESSORS_ARGUMENT));
+    assertEquals(false, namespace.getBoolean(AbstractSinglePassCrawlAccountsCommand.DRY_RUN_ARGUMENT));
+    assertEquals(5, namespace.getInt("retries"));
+  }
+}
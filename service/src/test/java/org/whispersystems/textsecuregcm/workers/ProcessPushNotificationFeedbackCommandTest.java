@@ -39,7 +39,7 @@ class ProcessPushNotificationFeedbackCommandTest {
   private AccountsManager accountsManager;
   private Clock clock;
 
-  private ProcessPushNotificationFeedbackCommand processPushNotificationFeedbackCommand;
+  private TestProcessPushNotificationFeedbackCommand processPushNotificationFeedbackCommand;
 
   private static final Instant CURRENT_TIME = Instant.now();
 
@@ -58,14 +58,8 @@ class ProcessPushNotificationFeedbackCommandTest {
       when(namespace.getBoolean(RemoveExpiredAccountsCommand.DRY_RUN_ARGUMENT)).thenReturn(isDryRun);
     }
 
-    @Override
-    protected CommandDependencies getCommandDependencies() {
-      return commandDependencies;
-    }
-
-    @Override
-    protected Namespace getNamespace() {
-      return namespace;
+    void crawlAccounts(final Flux<Account> accounts) {
+      crawlAccounts(accounts, commandDependencies, namespace);
     }
   }
 
@@ -44,14 +44,8 @@ class RemoveExpiredAccountsCommandTest {
       when(namespace.getBoolean(RemoveExpiredAccountsCommand.DRY_RUN_ARGUMENT)).thenReturn(isDryRun);
     }
 
-    @Override
-    protected CommandDependencies getCommandDependencies() {
-      return commandDependencies;
-    }
-
-    @Override
-    protected Namespace getNamespace() {
-      return namespace;
+    void crawlAccounts(final Flux<Account> accounts) {
+      crawlAccounts(accounts, commandDependencies, namespace);
     }
   }
 
@@ -63,7 +57,7 @@ class RemoveExpiredAccountsCommandTest {
     final AccountsManager accountsManager = mock(AccountsManager.class);
     when(accountsManager.delete(any(), any())).thenReturn(CompletableFuture.completedFuture(null));
 
-    final RemoveExpiredAccountsCommand removeExpiredAccountsCommand =
+    final TestRemoveExpiredAccountsCommand removeExpiredAccountsCommand =
         new TestRemoveExpiredAccountsCommand(clock, accountsManager, isDryRun);
 
     final Account activeAccount = mock(Account.class);